@@ -1,12 +1,22 @@
 package com.harness.pipeline.controller;
 
 import com.harness.pipeline.model.ApiEventRequest;
+import com.harness.pipeline.model.BatchIngestionResult;
+import com.harness.pipeline.service.BatchTooLargeException;
 import com.harness.pipeline.service.EventIngestionService;
+import com.harness.pipeline.service.IngestionRejectedException;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
@@ -19,11 +29,16 @@ import org.springframework.web.bind.annotation.RestController;
 public class EventIngestionController {
 
   private static final String TENANT_HEADER = "X-Tenant-Id";
+  private static final String NDJSON = "application/x-ndjson";
 
   private final EventIngestionService ingestionService;
+  private final long retryAfterSeconds;
 
-  public EventIngestionController(EventIngestionService ingestionService) {
+  public EventIngestionController(
+      EventIngestionService ingestionService,
+      @Value("${pipeline.ingestion.retry-after-seconds:1}") long retryAfterSeconds) {
     this.ingestionService = ingestionService;
+    this.retryAfterSeconds = retryAfterSeconds;
   }
 
   @PostMapping("/events")
@@ -37,7 +52,52 @@ public class EventIngestionController {
         .body(new EventResponse(eventId));
   }
 
+  /**
+   * Bulk ingestion of a JSON array. Items are validated one by one, so the response is 202
+   * with per-item results even when some of them are invalid.
+   */
+  @PostMapping(value = "/events:batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<BatchIngestionResult> ingestBatch(
+      @RequestHeader(TENANT_HEADER) @NotBlank String tenantId,
+      @RequestBody List<ApiEventRequest> requests
+  ) {
+    return ResponseEntity
+        .status(HttpStatus.ACCEPTED)
+        .body(ingestionService.ingestBatch(tenantId, requests));
+  }
+
+  /**
+   * Bulk ingestion of newline-delimited JSON, one event per line. The body is parsed as a
+   * stream rather than bound to request DTOs.
+   */
+  @PostMapping(value = "/events:batch", consumes = NDJSON)
+  public ResponseEntity<BatchIngestionResult> ingestNdjson(
+      @RequestHeader(TENANT_HEADER) @NotBlank String tenantId,
+      InputStream body
+  ) throws IOException {
+    return ResponseEntity
+        .status(HttpStatus.ACCEPTED)
+        .body(ingestionService.ingestNdjson(tenantId, body));
+  }
+
+  @ExceptionHandler(BatchTooLargeException.class)
+  public ResponseEntity<ErrorResponse> handleTooLarge(BatchTooLargeException e) {
+    return ResponseEntity
+        .status(HttpStatus.PAYLOAD_TOO_LARGE)
+        .body(new ErrorResponse(e.getMessage()));
+  }
+
+  @ExceptionHandler(IngestionRejectedException.class)
+  public ResponseEntity<ErrorResponse> handleRejected(IngestionRejectedException e) {
+    return ResponseEntity
+        .status(HttpStatus.TOO_MANY_REQUESTS)
+        .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
+        .body(new ErrorResponse(e.getMessage()));
+  }
+
   public record EventResponse(String eventId) {}
+
+  public record ErrorResponse(String error) {}
 }
 
 
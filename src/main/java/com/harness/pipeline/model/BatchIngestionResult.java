@@ -0,0 +1,34 @@
+package com.harness.pipeline.model;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk ingestion request. {@code items} holds one entry per submitted event,
+ * in submission order. {@code rejected} counts valid events refused by backpressure; they are
+ * listed as items with errors.
+ */
+public record BatchIngestionResult(
+    int accepted,
+    int invalid,
+    int rejected,
+    List<Item> items
+) {
+
+  /**
+   * Either {@code eventId} is set (the event was accepted) or {@code errors} is non-empty.
+   */
+  public record Item(
+      int index,
+      String eventId,
+      List<String> errors
+  ) {
+
+    public static Item accepted(int index, String eventId) {
+      return new Item(index, eventId, List.of());
+    }
+
+    public static Item invalid(int index, List<String> errors) {
+      return new Item(index, null, errors);
+    }
+  }
+}
@@ -0,0 +1,15 @@
+package com.harness.pipeline.pipeline.batch;
+
+import com.harness.pipeline.model.RuleDto;
+
+/**
+ * Knows which BATCH rules have already been notified as breached outside the scheduled
+ * evaluation, so it doesn't notify the same breach again every cycle.
+ */
+public interface BatchBreachRegistry {
+
+  /**
+   * @return true if {@code rule} is in breach right now and that breach has been notified
+   */
+  boolean isReported(RuleDto rule);
+}
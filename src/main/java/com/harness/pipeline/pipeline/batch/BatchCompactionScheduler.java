@@ -0,0 +1,33 @@
+package com.harness.pipeline.pipeline.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "pipeline.batch.compaction.enabled", havingValue = "true", matchIfMissing = true)
+public class BatchCompactionScheduler {
+
+  private static final Logger log = LoggerFactory.getLogger(BatchCompactionScheduler.class);
+
+  private final BatchCompactor batchCompactor;
+
+  public BatchCompactionScheduler(BatchCompactor batchCompactor) {
+    this.batchCompactor = batchCompactor;
+  }
+
+  @Scheduled(fixedDelayString = "${pipeline.batch.compaction.interval-ms:300000}",
+      initialDelayString = "${pipeline.batch.compaction.interval-ms:300000}")
+  public void runCompaction() {
+    log.debug("Running scheduled batch compaction");
+    try {
+      batchCompactor.compactClosedPartitions();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      log.error("Batch compaction failed", e);
+    }
+  }
+}
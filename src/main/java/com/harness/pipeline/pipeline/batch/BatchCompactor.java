@@ -0,0 +1,311 @@
+package com.harness.pipeline.pipeline.batch;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Merges the many small files the writers leave in a partition into a few large Parquet files
+ * sorted by received_at. Only closed partitions are touched: ones whose time range ended at
+ * least {@code closed-after-ms} ago, so no writer will add to them again.
+ *
+ * <p>Each merged file is written under a temporary name, then swapped in under the
+ * {@link BatchStorageLock} write lock: the new file is renamed into place and its inputs are
+ * deleted in one step, so rule evaluation sees either the inputs or the merged file, never
+ * both. A manifest written before the swap lets the next run finish a swap that a crash
+ * interrupted.
+ */
+@Component
+public class BatchCompactor {
+
+  private static final Logger log = LoggerFactory.getLogger(BatchCompactor.class);
+
+  static final String COMPACTED_PREFIX = "compacted-";
+  static final String MANIFEST_SUFFIX = ".compaction";
+
+  private final DuckDbEngine duckDb;
+  private final BatchRuleQueryBuilder queryBuilder;
+  private final BatchStorageLock storageLock;
+  private final String basePath;
+  private final long closedAfterMs;
+  private final int minFiles;
+  private final long targetFileBytes;
+  private final long ioBudgetBytesPerSec;
+  private final int rowGroupSize;
+
+  /**
+   * @param minFiles            compact a partition once it holds at least this many files
+   * @param targetFileBytes     input bytes merged into one output file
+   * @param ioBudgetBytesPerSec bytes read plus written per second, averaged over each merge;
+   *                            0 disables throttling
+   */
+  public BatchCompactor(
+      DuckDbEngine duckDb,
+      BatchRuleQueryBuilder queryBuilder,
+      BatchStorageLock storageLock,
+      @Value("${pipeline.batch.base-path:/tmp/api-event-pipeline/batch-events}") String basePath,
+      @Value("${pipeline.batch.compaction.closed-after-ms:900000}") long closedAfterMs,
+      @Value("${pipeline.batch.compaction.min-files:4}") int minFiles,
+      @Value("${pipeline.batch.compaction.target-file-bytes:268435456}") long targetFileBytes,
+      @Value("${pipeline.batch.compaction.io-budget-bytes-per-sec:16777216}") long ioBudgetBytesPerSec,
+      @Value("${pipeline.batch.parquet-row-group-size:122880}") int rowGroupSize) {
+    this.duckDb = duckDb;
+    this.queryBuilder = queryBuilder;
+    this.storageLock = storageLock;
+    this.basePath = basePath;
+    this.closedAfterMs = closedAfterMs;
+    this.minFiles = Math.max(2, minFiles);
+    this.targetFileBytes = targetFileBytes;
+    this.ioBudgetBytesPerSec = ioBudgetBytesPerSec;
+    this.rowGroupSize = rowGroupSize;
+  }
+
+  /**
+   * Finish any interrupted swaps, then compact every closed partition with enough files.
+   *
+   * @return the number of merged files written
+   */
+  public int compactClosedPartitions() throws InterruptedException {
+    Path base = Path.of(basePath);
+    if (!Files.isDirectory(base)) {
+      return 0;
+    }
+    recoverInterruptedSwaps(base);
+
+    Instant closedBefore = Instant.now().minusMillis(closedAfterMs);
+    List<Path> partitions;
+    try (Stream<Path> dirs = Files.walk(base)) {
+      partitions = dirs.filter(Files::isDirectory)
+          .filter(dir -> {
+            Instant end = PartitionGranularity.partitionEnd(base.relativize(dir));
+            return end != null && !end.isAfter(closedBefore);
+          })
+          .toList();
+    } catch (IOException e) {
+      log.warn("Failed to scan {} for partitions to compact", base, e);
+      return 0;
+    }
+
+    int merged = 0;
+    for (Path partition : partitions) {
+      try {
+        merged += compactPartition(partition);
+      } catch (IOException | SQLException e) {
+        log.error("Failed to compact partition {}", partition, e);
+      }
+    }
+    if (merged > 0) {
+      log.info("Compacted closed batch partitions into {} file(s)", merged);
+    }
+    return merged;
+  }
+
+  private int compactPartition(Path partition)
+      throws IOException, SQLException, InterruptedException {
+    List<Path> inputs = dataFiles(partition);
+    if (inputs.size() < minFiles) {
+      return 0;
+    }
+    int merged = 0;
+    for (List<Path> group : groupBySize(inputs)) {
+      if (group.size() < 2) {
+        continue;
+      }
+      long started = System.nanoTime();
+      long bytes = merge(partition, group);
+      merged++;
+      long pause = pauseMillis(bytes, System.nanoTime() - started, ioBudgetBytesPerSec);
+      if (pause > 0) {
+        Thread.sleep(pause);
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * @return bytes read plus bytes written
+   */
+  private long merge(Path partition, List<Path> inputs) throws IOException, SQLException {
+    String id = System.currentTimeMillis() + "-" + UUID.randomUUID();
+    Path output = partition.resolve(COMPACTED_PREFIX + id + BatchFileFormat.PARQUET.extension());
+    Path tmp = output.resolveSibling(output.getFileName() + ".tmp");
+    Path manifest = partition.resolve("." + COMPACTED_PREFIX + id + MANIFEST_SUFFIX);
+    long inputBytes = 0;
+    for (Path input : inputs) {
+      inputBytes += Files.size(input);
+    }
+
+    try {
+      writeMerged(inputs, tmp);
+      force(tmp);
+      List<String> lines = new ArrayList<>();
+      lines.add(output.getFileName().toString());
+      inputs.forEach(input -> lines.add(input.getFileName().toString()));
+      Files.write(manifest, lines, StandardCharsets.UTF_8);
+      force(manifest);
+
+      storageLock.writeLock().lock();
+      try {
+        Files.move(tmp, output, StandardCopyOption.ATOMIC_MOVE);
+        for (Path input : inputs) {
+          Files.deleteIfExists(input);
+        }
+      } finally {
+        storageLock.writeLock().unlock();
+      }
+      Files.delete(manifest);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+    log.debug("Merged {} files ({} bytes) into {}", inputs.size(), inputBytes, output);
+    return inputBytes + Files.size(output);
+  }
+
+  private void writeMerged(List<Path> inputs, Path target) throws SQLException {
+    List<Object> parameters = new ArrayList<>();
+    String source = queryBuilder.buildSource(
+        String.join(",", inputs.stream().map(Path::toString).toList()), parameters);
+    duckDb.withConnection(conn -> {
+      try (Statement stmt = conn.createStatement()) {
+        stmt.execute(BatchWriter.CREATE_EVENTS_TABLE);
+        try {
+          // Loading into the writer's table casts JSONL's inferred types to the Parquet schema.
+          // Columns are listed because DuckDB adds the hive partition keys (year=, day=, ...)
+          // from the paths as extra columns.
+          String columns = tableColumns(stmt);
+          try (PreparedStatement insert = conn.prepareStatement(
+              "INSERT INTO batch_events (" + columns + ") SELECT " + columns + " FROM " + source)) {
+            for (int i = 0; i < parameters.size(); i++) {
+              insert.setObject(i + 1, parameters.get(i));
+            }
+            insert.executeUpdate();
+          }
+          stmt.execute(BatchWriter.copyToParquet(target, rowGroupSize));
+        } finally {
+          stmt.execute("DROP TABLE IF EXISTS batch_events");
+        }
+      }
+      return null;
+    });
+  }
+
+  private static String tableColumns(Statement stmt) throws SQLException {
+    StringJoiner columns = new StringJoiner(", ");
+    try (ResultSet rs = stmt.executeQuery("SELECT * FROM batch_events LIMIT 0")) {
+      ResultSetMetaData meta = rs.getMetaData();
+      for (int i = 1; i <= meta.getColumnCount(); i++) {
+        columns.add('"' + meta.getColumnName(i) + '"');
+      }
+    }
+    return columns.toString();
+  }
+
+  /**
+   * Complete or roll back swaps left behind by a crash. If the merged file made it into place,
+   * its inputs are deleted; otherwise the inputs are still intact and the partial output goes.
+   */
+  private void recoverInterruptedSwaps(Path base) {
+    List<Path> manifests;
+    try (Stream<Path> files = Files.walk(base)) {
+      manifests = files.filter(p -> p.getFileName().toString().endsWith(MANIFEST_SUFFIX)).toList();
+    } catch (IOException e) {
+      log.warn("Failed to scan {} for interrupted compactions", base, e);
+      return;
+    }
+    for (Path manifest : manifests) {
+      storageLock.writeLock().lock();
+      try {
+        List<String> lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+        if (!lines.isEmpty()) {
+          Path output = manifest.resolveSibling(lines.get(0));
+          if (Files.exists(output)) {
+            for (String input : lines.subList(1, lines.size())) {
+              Files.deleteIfExists(manifest.resolveSibling(input));
+            }
+          } else {
+            Files.deleteIfExists(output.resolveSibling(output.getFileName() + ".tmp"));
+          }
+          log.info("Recovered interrupted compaction into {}", output);
+        }
+        Files.delete(manifest);
+      } catch (IOException e) {
+        log.warn("Failed to recover interrupted compaction {}", manifest, e);
+      } finally {
+        storageLock.writeLock().unlock();
+      }
+    }
+  }
+
+  /**
+   * Finished batch files directly inside {@code partition}, oldest name first.
+   */
+  private List<Path> dataFiles(Path partition) throws IOException {
+    try (Stream<Path> files = Files.list(partition)) {
+      return files.filter(Files::isRegularFile)
+          .filter(p -> {
+            String name = p.getFileName().toString();
+            return name.endsWith(BatchFileFormat.JSONL.extension())
+                || name.endsWith(BatchFileFormat.PARQUET.extension());
+          })
+          .sorted()
+          .toList();
+    }
+  }
+
+  private List<List<Path>> groupBySize(List<Path> files) throws IOException {
+    List<List<Path>> groups = new ArrayList<>();
+    List<Path> current = new ArrayList<>();
+    long currentBytes = 0;
+    for (Path file : files) {
+      long size = Files.size(file);
+      if (!current.isEmpty() && currentBytes + size > targetFileBytes) {
+        groups.add(current);
+        current = new ArrayList<>();
+        currentBytes = 0;
+      }
+      current.add(file);
+      currentBytes += size;
+    }
+    if (!current.isEmpty()) {
+      groups.add(current);
+    }
+    return groups;
+  }
+
+  private static void force(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.force(true);
+    }
+  }
+
+  /**
+   * @return how long to pause after moving {@code bytes} in {@code elapsedNanos} so the
+   *     average rate stays within {@code budgetBytesPerSec}
+   */
+  static long pauseMillis(long bytes, long elapsedNanos, long budgetBytesPerSec) {
+    if (budgetBytesPerSec <= 0) {
+      return 0;
+    }
+    double budgetNanos = (double) bytes * 1_000_000_000L / budgetBytesPerSec;
+    return Math.max(0, (long) ((budgetNanos - elapsedNanos) / 1_000_000));
+  }
+}
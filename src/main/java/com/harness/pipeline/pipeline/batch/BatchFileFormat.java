@@ -0,0 +1,34 @@
+package com.harness.pipeline.pipeline.batch;
+
+/**
+ * On-disk format of batch event files. The extension tells readers which DuckDB table
+ * function to use, so a partition may hold files of both formats while migrating.
+ */
+public enum BatchFileFormat {
+
+  JSONL(".jsonl", "read_json_auto"),
+  PARQUET(".parquet", "read_parquet");
+
+  private final String extension;
+  private final String readFunction;
+
+  BatchFileFormat(String extension, String readFunction) {
+    this.extension = extension;
+    this.readFunction = readFunction;
+  }
+
+  public String extension() {
+    return extension;
+  }
+
+  public String readFunction() {
+    return readFunction;
+  }
+
+  /**
+   * @return the format whose extension the path or glob ends with; JSONL if none matches
+   */
+  public static BatchFileFormat ofPath(String path) {
+    return path.endsWith(PARQUET.extension) ? PARQUET : JSONL;
+  }
+}
@@ -0,0 +1,14 @@
+package com.harness.pipeline.pipeline.batch;
+
+import java.util.List;
+
+/**
+ * SQL text with {@code ?} placeholders and the values to bind to them, in order. Rule values,
+ * window starts and file paths are always passed as parameters, never spliced into the SQL.
+ */
+public record BatchQuery(String sql, List<Object> parameters) {
+
+  public BatchQuery {
+    parameters = List.copyOf(parameters);
+  }
+}
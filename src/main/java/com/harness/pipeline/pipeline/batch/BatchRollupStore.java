@@ -0,0 +1,249 @@
+package com.harness.pipeline.pipeline.batch;
+
+import com.harness.pipeline.enums.ConditionGroupOperator;
+import com.harness.pipeline.enums.RuleType;
+import com.harness.pipeline.model.ApiEvent;
+import com.harness.pipeline.model.ConditionGroupDto;
+import com.harness.pipeline.model.RuleDto;
+import com.harness.pipeline.service.RuleChangedEvent;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-rule, per-minute counts of matching events, maintained as events are written to batch
+ * files, so a rule evaluation sums at most {@code windowMinutes + 1} buckets instead of
+ * rescanning raw files. Windows are aligned to whole minutes: the bucket holding the window
+ * start is counted in full.
+ *
+ * <p>A rollup starts counting live events the moment it is created (first evaluation, or a
+ * rule change) but isn't used until it has been backfilled from raw files. The backfill waits
+ * until everything received before the rollup existed has reached a visible file: the writer's
+ * own lag (the periodic {@code flush-interval-ms}, or the streaming rotation
+ * {@code max-age-ms}) plus {@code backfill-delay-ms} for draining and writing. It then covers
+ * receive times before that point and live counting covers the rest, so no event is counted
+ * twice. Until then the evaluator scans raw files as before.
+ */
+@Component
+public class BatchRollupStore implements BatchWriteListener {
+
+  private static final Logger log = LoggerFactory.getLogger(BatchRollupStore.class);
+
+  private static final long MINUTE_MS = 60_000;
+
+  private final BatchRuleQueryBuilder queryBuilder;
+  private final boolean enabled;
+  private final long backfillDelayMs;
+  private final ConcurrentMap<String, ConcurrentMap<UUID, RuleRollup>> rollupsByTenant =
+      new ConcurrentHashMap<>();
+
+  @Autowired
+  public BatchRollupStore(
+      BatchRuleQueryBuilder queryBuilder,
+      @Value("${pipeline.batch.rollup.enabled:true}") boolean enabled,
+      @Value("${pipeline.batch.rollup.backfill-delay-ms:60000}") long backfillDelayMs,
+      @Value("${pipeline.batch.writer-mode:streaming}") String writerMode,
+      @Value("${pipeline.batch.flush-interval-ms:600000}") long flushIntervalMs,
+      @Value("${pipeline.batch.rotation.max-age-ms:30000}") long maxAgeMs) {
+    this(queryBuilder, enabled,
+        backfillDelayMs(backfillDelayMs, writerMode, flushIntervalMs, maxAgeMs));
+  }
+
+  /**
+   * @param backfillDelayMs the whole wait before a backfill, writer lag included
+   */
+  public BatchRollupStore(BatchRuleQueryBuilder queryBuilder, boolean enabled,
+                          long backfillDelayMs) {
+    this.queryBuilder = queryBuilder;
+    this.enabled = enabled;
+    this.backfillDelayMs = backfillDelayMs;
+  }
+
+  /**
+   * @return how long after a rollup is created every event received before it is in a file:
+   *     the active writer's lag plus {@code slackMs}
+   */
+  static long backfillDelayMs(long slackMs, String writerMode, long flushIntervalMs,
+                              long maxAgeMs) {
+    long writerLagMs = "periodic".equals(writerMode) ? flushIntervalMs : maxAgeMs;
+    return writerLagMs + slackMs;
+  }
+
+  @Override
+  public void onWritten(List<ApiEvent> events) {
+    for (ApiEvent event : events) {
+      Map<UUID, RuleRollup> rollups = rollupsByTenant.get(event.tenantId());
+      if (rollups == null || event.receivedAt() == null) {
+        continue;
+      }
+      for (RuleRollup rollup : rollups.values()) {
+        rollup.record(event);
+      }
+    }
+  }
+
+  /**
+   * @return the rule's count since the minute holding {@code windowStart}, or empty if its
+   *     rollup isn't backfilled yet (tracking starts on the first call)
+   */
+  public OptionalLong windowCount(RuleDto rule, Instant windowStart) {
+    if (!enabled) {
+      return OptionalLong.empty();
+    }
+    RuleRollup rollup = rollupFor(rule, System.currentTimeMillis());
+    if (!rollup.ready) {
+      return OptionalLong.empty();
+    }
+    long fromMinute = windowStart.toEpochMilli() / MINUTE_MS;
+    rollup.pruneBefore(fromMinute - 1);
+    return OptionalLong.of(rollup.sumFrom(fromMinute));
+  }
+
+  /**
+   * @return the receive time the backfill must count up to (exclusive), or null if the
+   *     rule's rollup doesn't need or isn't yet due a backfill
+   */
+  public Instant dueBackfill(RuleDto rule, Instant now) {
+    if (!enabled) {
+      return null;
+    }
+    RuleRollup rollup = rollupFor(rule, now.toEpochMilli());
+    if (rollup.ready || rollup.matcher == null
+        || now.toEpochMilli() < rollup.liveFromMs + backfillDelayMs) {
+      return null;
+    }
+    return Instant.ofEpochMilli(rollup.liveFromMs);
+  }
+
+  /**
+   * Add raw-file counts for receive times before {@link #dueBackfill}'s cutoff and start
+   * serving the rule from its rollup.
+   *
+   * @param minuteCounts matching events per epoch minute
+   */
+  public void completeBackfill(RuleDto rule, Map<Long, Long> minuteCounts) {
+    RuleRollup rollup = current(rule);
+    if (rollup == null || rollup.ready) {
+      return;
+    }
+    minuteCounts.forEach(rollup::add);
+    rollup.ready = true;
+    log.info("Backfilled minute rollup for batch rule '{}' ({} minutes with events)",
+        rule.name(), minuteCounts.size());
+  }
+
+  /**
+   * Stop tracking rules that are no longer enabled BATCH rules.
+   */
+  public void retainOnly(Set<UUID> ruleIds) {
+    for (ConcurrentMap<UUID, RuleRollup> rollups : rollupsByTenant.values()) {
+      rollups.keySet().retainAll(ruleIds);
+    }
+  }
+
+  /**
+   * A changed rule starts over: its old counts may have been for different conditions.
+   */
+  @EventListener
+  public void onRuleChanged(RuleChangedEvent event) {
+    ConcurrentMap<UUID, RuleRollup> rollups = rollupsByTenant.get(event.tenantId());
+    if (rollups != null) {
+      rollups.remove(event.ruleId());
+    }
+    RuleDto rule = event.rule();
+    if (enabled && rule != null && rule.type() == RuleType.BATCH && rule.enabled()) {
+      rollupFor(rule, System.currentTimeMillis());
+    }
+  }
+
+  private RuleRollup current(RuleDto rule) {
+    Map<UUID, RuleRollup> rollups = rollupsByTenant.get(rule.tenantId());
+    RuleRollup rollup = rollups != null ? rollups.get(rule.id()) : null;
+    return rollup != null && rollup.signature.equals(RuleSignature.of(rule)) ? rollup : null;
+  }
+
+  private RuleRollup rollupFor(RuleDto rule, long nowMs) {
+    RuleSignature signature = RuleSignature.of(rule);
+    return rollupsByTenant
+        .computeIfAbsent(rule.tenantId(), k -> new ConcurrentHashMap<>())
+        .compute(rule.id(), (id, existing) -> existing != null
+            && existing.signature.equals(signature) ? existing : newRollup(rule, signature, nowMs));
+  }
+
+  private RuleRollup newRollup(RuleDto rule, RuleSignature signature, long nowMs) {
+    Predicate<ApiEvent> matcher;
+    try {
+      matcher = queryBuilder.buildEventMatcher(rule);
+    } catch (RuntimeException e) {
+      // The SQL for this rule fails the same way; leave it to the raw scan to report.
+      log.debug("Batch rule '{}' can't be rolled up", rule.name(), e);
+      matcher = null;
+    }
+    return new RuleRollup(signature, matcher, nowMs);
+  }
+
+  /**
+   * The parts of a rule that decide which events it counts and how far back.
+   */
+  private record RuleSignature(ConditionGroupOperator groupOperator,
+                               List<ConditionGroupDto> conditionGroups,
+                               Integer windowMinutes) {
+
+    static RuleSignature of(RuleDto rule) {
+      return new RuleSignature(rule.groupOperator(), rule.conditionGroups(), rule.windowMinutes());
+    }
+  }
+
+  private static final class RuleRollup {
+
+    final RuleSignature signature;
+    final Predicate<ApiEvent> matcher;
+    final long liveFromMs;
+    final ConcurrentMap<Long, LongAdder> buckets = new ConcurrentHashMap<>();
+    volatile boolean ready;
+
+    RuleRollup(RuleSignature signature, Predicate<ApiEvent> matcher, long liveFromMs) {
+      this.signature = signature;
+      this.matcher = matcher;
+      this.liveFromMs = liveFromMs;
+    }
+
+    void record(ApiEvent event) {
+      long receivedAt = event.receivedAt().toEpochMilli();
+      if (matcher != null && receivedAt >= liveFromMs && matcher.test(event)) {
+        buckets.computeIfAbsent(receivedAt / MINUTE_MS, k -> new LongAdder()).increment();
+      }
+    }
+
+    void add(long minute, long count) {
+      buckets.computeIfAbsent(minute, k -> new LongAdder()).add(count);
+    }
+
+    long sumFrom(long fromMinute) {
+      long sum = 0;
+      for (Map.Entry<Long, LongAdder> bucket : buckets.entrySet()) {
+        if (bucket.getKey() >= fromMinute) {
+          sum += bucket.getValue().sum();
+        }
+      }
+      return sum;
+    }
+
+    void pruneBefore(long minute) {
+      buckets.keySet().removeIf(m -> m < minute);
+    }
+  }
+}
@@ -3,21 +3,25 @@ package com.harness.pipeline.pipeline.batch;
 import com.harness.pipeline.enums.RuleType;
 import com.harness.pipeline.model.RuleDto;
 import com.harness.pipeline.notification.NotificationService;
+import com.harness.pipeline.pipeline.batch.BatchRuleQueryBuilder.WindowedRule;
 import com.harness.pipeline.service.RuleService;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.ResultSet;
-import java.sql.Statement;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.LocalDate;
-import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -31,15 +35,27 @@ public class BatchRuleEvaluator {
   private final RuleService ruleService;
   private final BatchRuleQueryBuilder queryBuilder;
   private final NotificationService notificationService;
+  private final DuckDbEngine duckDb;
+  private final BatchStorageLock storageLock;
+  private final BatchRollupStore rollupStore;
+  private final BatchBreachRegistry breachRegistry;
   private final String basePath;
 
   public BatchRuleEvaluator(RuleService ruleService,
                             BatchRuleQueryBuilder queryBuilder,
                             NotificationService notificationService,
+                            DuckDbEngine duckDb,
+                            BatchStorageLock storageLock,
+                            BatchRollupStore rollupStore,
+                            BatchBreachRegistry breachRegistry,
                             @Value("${pipeline.batch.base-path:/tmp/api-event-pipeline/batch-events}") String basePath) {
     this.ruleService = ruleService;
     this.queryBuilder = queryBuilder;
     this.notificationService = notificationService;
+    this.duckDb = duckDb;
+    this.storageLock = storageLock;
+    this.rollupStore = rollupStore;
+    this.breachRegistry = breachRegistry;
     this.basePath = basePath;
   }
 
@@ -50,6 +66,7 @@ public class BatchRuleEvaluator {
       return;
     }
 
+    rollupStore.retainOnly(batchRules.stream().map(RuleDto::id).collect(Collectors.toSet()));
     Map<String, List<RuleDto>> rulesByTenant = batchRules.stream()
         .collect(Collectors.groupingBy(RuleDto::tenantId));
 
@@ -60,6 +77,11 @@ public class BatchRuleEvaluator {
     }
   }
 
+  /**
+   * Rules with a backfilled minute rollup are answered from it without touching files. The
+   * rest share one scan over the partitions of the longest window, each rule counting only its
+   * own window, so the tenant's files are read once per cycle however many rules there are.
+   */
   private void evaluateRulesForTenant(String tenantId, List<RuleDto> rules) {
     Path tenantDir = Path.of(basePath, "tenant_id=" + tenantId);
     if (!Files.exists(tenantDir)) {
@@ -67,52 +89,148 @@ public class BatchRuleEvaluator {
       return;
     }
 
-    for (RuleDto rule : rules) {
-      try {
-        evaluateSingleRule(rule, tenantDir);
-      } catch (Exception e) {
-        log.error("Failed to evaluate batch rule {} for tenant {}", rule.name(), tenantId, e);
+    // Hold off compaction swaps until the files behind the glob have been read.
+    storageLock.readLock().lock();
+    try {
+      Instant now = Instant.now();
+      List<WindowedRule> scanned = new ArrayList<>();
+      Instant earliestStart = now;
+      for (RuleDto rule : rules) {
+        Instant windowStart = windowStart(rule, now);
+        OptionalLong rolledUp = rollupCount(tenantDir, rule, windowStart, now);
+        if (rolledUp.isPresent()) {
+          checkThreshold(rule, rolledUp.getAsLong());
+          continue;
+        }
+        scanned.add(new WindowedRule(rule, windowStart));
+        if (windowStart.isBefore(earliestStart)) {
+          earliestStart = windowStart;
+        }
+      }
+      if (scanned.isEmpty()) {
+        return;
+      }
+
+      String fileGlob = buildPartitionGlob(tenantDir, earliestStart);
+      if (fileGlob == null) {
+        log.debug("No matching partition directories for tenant {}", tenantId);
+        return;
       }
+      evaluateBucket(tenantId, fileGlob, scanned);
+    } finally {
+      storageLock.readLock().unlock();
     }
   }
 
-  private void evaluateSingleRule(RuleDto rule, Path tenantDir) throws Exception {
-    int windowMinutes = rule.windowMinutes() != null ? rule.windowMinutes() : 60;
-    long threshold = rule.countThreshold() != null ? rule.countThreshold() : 1;
-    Instant windowStart = Instant.now().minus(windowMinutes, ChronoUnit.MINUTES);
+  /**
+   * @return the rule's count from its minute rollup, backfilling the rollup from raw files
+   *     first if it is due; empty if the rule still has to be scanned
+   */
+  private OptionalLong rollupCount(Path tenantDir, RuleDto rule, Instant windowStart,
+                                   Instant now) {
+    OptionalLong count = rollupStore.windowCount(rule, windowStart);
+    if (count.isPresent()) {
+      return count;
+    }
+    Instant cutoff = rollupStore.dueBackfill(rule, now);
+    if (cutoff == null) {
+      return OptionalLong.empty();
+    }
+    Instant from = cutoff.minus(Duration.between(windowStart, now)).truncatedTo(ChronoUnit.MINUTES);
+    try {
+      Map<Long, Long> minuteCounts = new HashMap<>();
+      String fileGlob = buildPartitionGlob(tenantDir, from);
+      if (fileGlob != null) {
+        BatchQuery query = queryBuilder.buildMinuteCountQuery(rule, fileGlob, from, cutoff);
+        log.debug("Backfill SQL for batch rule '{}': {} {}", rule.name(), query.sql(),
+            query.parameters());
+        duckDb.query(query, rs -> {
+          while (rs.next()) {
+            minuteCounts.put(rs.getLong(1), rs.getLong(2));
+          }
+          return null;
+        });
+      }
+      rollupStore.completeBackfill(rule, minuteCounts);
+    } catch (Exception e) {
+      log.warn("Failed to backfill minute rollup for batch rule '{}'", rule.name(), e);
+      return OptionalLong.empty();
+    }
+    return rollupStore.windowCount(rule, windowStart);
+  }
 
-    String fileGlob = buildPartitionGlob(tenantDir, windowStart);
-    if (fileGlob == null) {
-      log.debug("No matching partition directories for rule '{}'", rule.name());
+  private void evaluateBucket(String tenantId, String fileGlob, List<WindowedRule> bucket) {
+    long[] counts;
+    try {
+      BatchQuery query = queryBuilder.buildMultiRuleCountQuery(bucket, fileGlob);
+      log.debug("Batch rules SQL for tenant {} ({} rules): {} {}",
+          tenantId, bucket.size(), query.sql(), query.parameters());
+      counts = executeCountsQuery(query, bucket.size());
+    } catch (Exception e) {
+      // One malformed rule fails the shared query; fall back so the others still run.
+      log.warn("Combined batch query failed for tenant {}, evaluating {} rules one by one",
+          tenantId, bucket.size(), e);
+      for (WindowedRule windowed : bucket) {
+        try {
+          evaluateSingleRule(windowed, fileGlob);
+        } catch (Exception ruleError) {
+          log.error("Failed to evaluate batch rule {} for tenant {}",
+              windowed.rule().name(), tenantId, ruleError);
+        }
+      }
       return;
     }
 
-    String sql = queryBuilder.buildCountQuery(rule, fileGlob, windowStart);
-    log.debug("Batch rule '{}' SQL: {}", rule.name(), sql);
+    for (int i = 0; i < bucket.size(); i++) {
+      checkThreshold(bucket.get(i).rule(), counts[i]);
+    }
+  }
+
+  private void evaluateSingleRule(WindowedRule windowed, String fileGlob) throws Exception {
+    RuleDto rule = windowed.rule();
+    BatchQuery query = queryBuilder.buildCountQuery(rule, fileGlob, windowed.windowStart());
+    log.debug("Batch rule '{}' SQL: {} {}", rule.name(), query.sql(), query.parameters());
+    checkThreshold(rule, executeCountQuery(query));
+  }
 
-    long count = executeCountQuery(sql);
+  /**
+   * Notify a breach unless the in-stream counters already have: they see it first and keep
+   * it reported until their count drops below the threshold again.
+   */
+  private void checkThreshold(RuleDto rule, long count) {
+    long threshold = rule.countThreshold() != null ? rule.countThreshold() : 1;
     log.info("Batch rule '{}': count={}, threshold={}", rule.name(), count, threshold);
 
-    if (count >= threshold) {
-      notificationService.notifyBatchThresholdBreached(rule, count);
+    if (count < threshold) {
+      return;
+    }
+    if (breachRegistry.isReported(rule)) {
+      log.debug("Batch rule '{}' breach already notified in-stream", rule.name());
+      return;
     }
+    notificationService.notifyBatchThresholdBreached(rule, count);
+  }
+
+  private Instant windowStart(RuleDto rule, Instant now) {
+    int windowMinutes = rule.windowMinutes() != null ? rule.windowMinutes() : 60;
+    return now.minus(windowMinutes, ChronoUnit.MINUTES);
   }
 
   /**
-   * Build a glob that only covers date partitions within the time window,
-   * so DuckDB doesn't scan every file for the tenant.
+   * Build a glob that only covers partitions overlapping the time window, so DuckDB reads
+   * files in proportion to the window rather than every file for the tenant. Partitions that
+   * start inside the window are read whole; only the one straddling the window start is split
+   * into its hour or minute partitions, if it has any. This works for any mix of
+   * {@link PartitionGranularity granularities}, e.g. after changing the setting. Each selected
+   * directory gets one glob per file format it actually holds.
    */
   String buildPartitionGlob(Path tenantDir, Instant windowStart) {
-    LocalDate startDate = windowStart.atZone(ZoneOffset.UTC).toLocalDate();
-    LocalDate endDate = LocalDate.now(ZoneOffset.UTC);
-
+    Instant now = Instant.now();
     List<String> globs = new ArrayList<>();
-    for (LocalDate d = startDate; !d.isAfter(endDate); d = d.plusDays(1)) {
-      Path dayDir = tenantDir.resolve(String.format(
-          "year=%04d/month=%02d/day=%02d", d.getYear(), d.getMonthValue(), d.getDayOfMonth()));
-      if (Files.exists(dayDir)) {
-        globs.add(dayDir + "/*.jsonl");
-      }
+    for (Instant day = windowStart.truncatedTo(ChronoUnit.DAYS); !day.isAfter(now);
+         day = day.plus(1, ChronoUnit.DAYS)) {
+      addPartitionGlobs(tenantDir.resolve(PartitionGranularity.DAY.partitionPath(day)),
+          PartitionGranularity.DAY, day, windowStart, globs);
     }
 
     if (globs.isEmpty()) {
@@ -121,14 +239,61 @@ public class BatchRuleEvaluator {
     return String.join(",", globs);
   }
 
-  long executeCountQuery(String sql) throws Exception {
-    try (Connection conn = DriverManager.getConnection("jdbc:duckdb:");
-         Statement stmt = conn.createStatement();
-         ResultSet rs = stmt.executeQuery(sql)) {
-      if (rs.next()) {
-        return rs.getLong(1);
+  private void addPartitionGlobs(Path dir, PartitionGranularity level, Instant partitionStart,
+                                 Instant windowStart, List<String> globs) {
+    if (!Files.isDirectory(dir)) {
+      return;
+    }
+    PartitionGranularity finer = level.finer();
+    if (!partitionStart.isBefore(windowStart) || finer == null) {
+      for (BatchFileFormat format : formatsUnder(dir, true)) {
+        globs.add(dir + "/**/*" + format.extension());
+      }
+      return;
+    }
+
+    // Files written with a coarser granularity sit directly in this directory and can't be
+    // pruned any further.
+    for (BatchFileFormat format : formatsUnder(dir, false)) {
+      globs.add(dir + "/*" + format.extension());
+    }
+    Instant partitionEnd = partitionStart.plus(1, level.unit());
+    for (Instant t = windowStart.truncatedTo(finer.unit()); t.isBefore(partitionEnd);
+         t = t.plus(1, finer.unit())) {
+      addPartitionGlobs(dir.resolve(finer.segment(t)), finer, t, windowStart, globs);
+    }
+  }
+
+  /**
+   * @return the file formats present in {@code dir}, or anywhere below it if
+   *     {@code recursive}; DuckDB fails on a glob that matches nothing
+   */
+  private Set<BatchFileFormat> formatsUnder(Path dir, boolean recursive) {
+    Set<BatchFileFormat> found = EnumSet.noneOf(BatchFileFormat.class);
+    try (Stream<Path> files = recursive ? Files.walk(dir) : Files.list(dir)) {
+      Iterator<Path> it = files.iterator();
+      while (it.hasNext() && found.size() < BatchFileFormat.values().length) {
+        String name = it.next().getFileName().toString();
+        for (BatchFileFormat format : BatchFileFormat.values()) {
+          if (name.endsWith(format.extension())) {
+            found.add(format);
+          }
+        }
       }
-      return 0;
+    } catch (IOException | UncheckedIOException e) {
+      log.warn("Failed to list partition directory {}", dir, e);
     }
+    return found;
+  }
+
+  /**
+   * @return the first {@code columns} values of the single result row
+   */
+  long[] executeCountsQuery(BatchQuery query, int columns) throws Exception {
+    return duckDb.queryLongs(query, columns);
+  }
+
+  long executeCountQuery(BatchQuery query) throws Exception {
+    return duckDb.queryLongs(query, 1)[0];
   }
 }
@@ -3,18 +3,29 @@ package com.harness.pipeline.pipeline.batch;
 import com.harness.pipeline.enums.ConditionGroupOperator;
 import com.harness.pipeline.enums.RuleConditionField;
 import com.harness.pipeline.enums.RuleOperator;
+import com.harness.pipeline.model.ApiEvent;
 import com.harness.pipeline.model.ConditionDto;
 import com.harness.pipeline.model.ConditionGroupDto;
 import com.harness.pipeline.model.RuleDto;
+import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.StringJoiner;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import org.springframework.stereotype.Component;
 
 /**
- * Translates a BATCH rule's conditions into a DuckDB SQL query of the form:
- *   SELECT COUNT(*) FROM read_json_auto('{glob}') WHERE {conditions} AND received_at >= {windowStart}
+ * Translates a BATCH rule's conditions into a parameterized DuckDB query of the form:
+ *   SELECT COUNT(*) FROM read_parquet(?) WHERE received_at >= ? AND ({conditions})
+ * JSONL globs are read with read_json_auto; a mix of both is combined with UNION ALL BY NAME.
+ * Every value (paths, window start, condition values) is a bind parameter.
+ *
+ * <p>Several rules over the same files can be folded into a single scan with
+ * {@link #buildMultiRuleCountQuery}, one {@code COUNT(*) FILTER (...)} column per rule.
  */
 @Component
 public class BatchRuleQueryBuilder {
@@ -42,39 +53,258 @@ public class BatchRuleQueryBuilder {
 
   /**
    * Build a complete DuckDB query for the given rule and file glob.
-   * Returns null if the rule has no translatable conditions.
    */
-  public String buildCountQuery(RuleDto rule, String fileGlob, Instant windowStart) {
-    String whereClause = buildWhereClause(rule);
-
+  public BatchQuery buildCountQuery(RuleDto rule, String fileGlob, Instant windowStart) {
+    List<Object> parameters = new ArrayList<>();
     StringBuilder sb = new StringBuilder();
-    sb.append("SELECT COUNT(*) FROM read_json_auto(");
-    String[] paths = fileGlob.split(",");
-    if (paths.length == 1) {
-      sb.append("'").append(paths[0]).append("'");
-    } else {
-      sb.append("[");
-      for (int i = 0; i < paths.length; i++) {
-        if (i > 0) sb.append(", ");
-        sb.append("'").append(paths[i]).append("'");
+    sb.append("SELECT COUNT(*) FROM ").append(buildSource(fileGlob, parameters));
+    sb.append(" WHERE received_at >= ?");
+    parameters.add(windowStart.toEpochMilli());
+
+    BatchQuery where = buildWhereClause(rule);
+    if (where != null) {
+      sb.append(" AND (").append(where.sql()).append(")");
+      parameters.addAll(where.parameters());
+    }
+
+    return new BatchQuery(sb.toString(), parameters);
+  }
+
+  /**
+   * Build one query that counts every rule in a single scan of {@code fileGlob}:
+   *   SELECT COUNT(*) FILTER (WHERE received_at >= {start_0} AND ({conditions_0})) AS rule_0, ...
+   *   FROM ... WHERE received_at >= {earliest start}
+   * Column {@code i} holds the count for {@code rules.get(i)}. Each rule keeps its own window
+   * inside its FILTER, so rules with different windowMinutes can share the scan.
+   */
+  public BatchQuery buildMultiRuleCountQuery(List<WindowedRule> rules, String fileGlob) {
+    if (rules.isEmpty()) {
+      throw new IllegalArgumentException("At least one rule is required");
+    }
+    List<Object> parameters = new ArrayList<>();
+    StringBuilder sb = new StringBuilder("SELECT ");
+    long earliestStart = Long.MAX_VALUE;
+    for (int i = 0; i < rules.size(); i++) {
+      WindowedRule windowed = rules.get(i);
+      long windowStart = windowed.windowStart().toEpochMilli();
+      earliestStart = Math.min(earliestStart, windowStart);
+
+      if (i > 0) sb.append(", ");
+      sb.append("COUNT(*) FILTER (WHERE received_at >= ?");
+      parameters.add(windowStart);
+      BatchQuery where = buildWhereClause(windowed.rule());
+      if (where != null) {
+        sb.append(" AND (").append(where.sql()).append(")");
+        parameters.addAll(where.parameters());
+      }
+      sb.append(") AS rule_").append(i);
+    }
+    sb.append(" FROM ").append(buildSource(fileGlob, parameters));
+    sb.append(" WHERE received_at >= ?");
+    parameters.add(earliestStart);
+    return new BatchQuery(sb.toString(), parameters);
+  }
+
+  /**
+   * Count matching events per minute over {@code [from, to)}:
+   *   SELECT received_at // 60000, COUNT(*) FROM ... WHERE received_at >= ? AND received_at < ?
+   *   AND ({conditions}) GROUP BY 1
+   * Used to backfill a rule's minute rollups from raw files.
+   */
+  public BatchQuery buildMinuteCountQuery(RuleDto rule, String fileGlob, Instant from, Instant to) {
+    List<Object> parameters = new ArrayList<>();
+    StringBuilder sb = new StringBuilder("SELECT received_at // 60000 AS minute, COUNT(*) FROM ");
+    sb.append(buildSource(fileGlob, parameters));
+    sb.append(" WHERE received_at >= ? AND received_at < ?");
+    parameters.add(from.toEpochMilli());
+    parameters.add(to.toEpochMilli());
+
+    BatchQuery where = buildWhereClause(rule);
+    if (where != null) {
+      sb.append(" AND (").append(where.sql()).append(")");
+      parameters.addAll(where.parameters());
+    }
+    sb.append(" GROUP BY 1");
+    return new BatchQuery(sb.toString(), parameters);
+  }
+
+  /**
+   * Build an in-memory predicate that matches exactly the events the rule's WHERE clause
+   * would count: case-sensitive comparisons, LIKE wildcards in the value, NULL never
+   * matching, and untranslatable conditions dropped.
+   *
+   * @throws NumberFormatException  if a numeric rule value isn't a number
+   * @throws PatternSyntaxException if a regex rule value doesn't compile
+   */
+  public Predicate<ApiEvent> buildEventMatcher(RuleDto rule) {
+    List<ConditionGroupDto> groups = rule.conditionGroups();
+    List<Predicate<ApiEvent>> groupMatchers = new ArrayList<>();
+    if (groups != null) {
+      for (ConditionGroupDto group : groups) {
+        List<Predicate<ApiEvent>> conditionMatchers = new ArrayList<>();
+        if (group.conditions() != null) {
+          for (ConditionDto cond : group.conditions()) {
+            Predicate<ApiEvent> matcher = buildConditionMatcher(cond);
+            if (matcher != null) {
+              conditionMatchers.add(matcher);
+            }
+          }
+        }
+        if (!conditionMatchers.isEmpty()) {
+          groupMatchers.add(combine(group.operator(), conditionMatchers));
+        }
+      }
+    }
+    return groupMatchers.isEmpty() ? event -> true : combine(rule.groupOperator(), groupMatchers);
+  }
+
+  private Predicate<ApiEvent> combine(ConditionGroupOperator op, List<Predicate<ApiEvent>> matchers) {
+    return op == ConditionGroupOperator.OR
+        ? event -> matchers.stream().anyMatch(m -> m.test(event))
+        : event -> matchers.stream().allMatch(m -> m.test(event));
+  }
+
+  private Predicate<ApiEvent> buildConditionMatcher(ConditionDto cond) {
+    if (!FIELD_TO_COLUMN.containsKey(cond.field())) {
+      return null;
+    }
+    RuleConditionField field = cond.field();
+    RuleOperator op = cond.operator();
+    String value = cond.value() == null ? "" : cond.value();
+
+    if (isNumericColumn(field)) {
+      if (!NUMERIC_OPERATORS.containsKey(op)) {
+        return null;
+      }
+      BigDecimal expected = new BigDecimal(value.trim());
+      return event -> {
+        Long actual = numericValue(event, field);
+        if (actual == null) {
+          return false;
+        }
+        int cmp = BigDecimal.valueOf(actual).compareTo(expected);
+        return switch (op) {
+          case EQUALS -> cmp == 0;
+          case NOT_EQUALS -> cmp != 0;
+          case GREATER_THAN -> cmp > 0;
+          case GREATER_THAN_OR_EQUAL -> cmp >= 0;
+          case LESS_THAN -> cmp < 0;
+          default -> cmp <= 0;
+        };
+      };
+    }
+
+    Predicate<String> test = switch (op) {
+      case EQUALS -> value::equals;
+      case NOT_EQUALS -> actual -> !actual.equals(value);
+      case CONTAINS -> like("%" + value + "%").asMatchPredicate();
+      case NOT_CONTAINS -> like("%" + value + "%").asMatchPredicate().negate();
+      case STARTS_WITH -> like(value + "%").asMatchPredicate();
+      case ENDS_WITH -> like("%" + value).asMatchPredicate();
+      case REGEX_MATCH -> Pattern.compile(value).asPredicate();
+      default -> null;
+    };
+    if (test == null) {
+      return null;
+    }
+    return event -> {
+      String actual = stringValue(event, field);
+      return actual != null && test.test(actual);
+    };
+  }
+
+  /**
+   * Translate a SQL LIKE pattern ({@code %} any run, {@code _} any character) to a regex.
+   */
+  private static Pattern like(String pattern) {
+    StringBuilder regex = new StringBuilder();
+    StringBuilder literal = new StringBuilder();
+    for (char c : pattern.toCharArray()) {
+      if (c == '%' || c == '_') {
+        if (!literal.isEmpty()) {
+          regex.append(Pattern.quote(literal.toString()));
+          literal.setLength(0);
+        }
+        regex.append(c == '%' ? ".*" : ".");
+      } else {
+        literal.append(c);
       }
-      sb.append("]");
     }
-    sb.append(")");
-    sb.append(" WHERE received_at >= ").append(windowStart.toEpochMilli());
+    if (!literal.isEmpty()) {
+      regex.append(Pattern.quote(literal.toString()));
+    }
+    return Pattern.compile(regex.toString(), Pattern.DOTALL);
+  }
+
+  /**
+   * Same values {@code BatchWriter} writes to the column mapped from {@code field}.
+   */
+  private static String stringValue(ApiEvent event, RuleConditionField field) {
+    ApiEvent.HttpRequest req = event.request();
+    ApiEvent.HttpResponse res = event.response();
+    ApiEvent.ServiceMetadata md = event.metadata();
+    return switch (field) {
+      case REQUEST_METHOD -> req != null ? req.method() : null;
+      case REQUEST_HOST -> req != null ? req.host() : null;
+      case REQUEST_PATH -> req != null ? req.path() : null;
+      case REQUEST_QUERY_STRING -> req != null ? req.queryString() : null;
+      case RESPONSE_STATUS_CLASS -> res != null ? res.statusClass() : null;
+      case METADATA_ENVIRONMENT -> md != null ? md.environment() : null;
+      case METADATA_REGION -> md != null ? md.region() : null;
+      default -> null;
+    };
+  }
+
+  private static Long numericValue(ApiEvent event, RuleConditionField field) {
+    ApiEvent.HttpResponse res = event.response();
+    if (res == null) {
+      return null;
+    }
+    if (field == RuleConditionField.RESPONSE_STATUS_CODE) {
+      return res.statusCode() != null ? res.statusCode().longValue() : null;
+    }
+    return res.responseTimeMs();
+  }
 
-    if (whereClause != null && !whereClause.isBlank()) {
-      sb.append(" AND (").append(whereClause).append(")");
+  /**
+   * Pick the DuckDB reader per file format. Parquet needs no schema inference, so only
+   * partitions still holding JSONL pay for read_json_auto.
+   */
+  String buildSource(String fileGlob, List<Object> parameters) {
+    List<String> parquet = new ArrayList<>();
+    List<String> jsonl = new ArrayList<>();
+    for (String path : fileGlob.split(",")) {
+      (BatchFileFormat.ofPath(path) == BatchFileFormat.PARQUET ? parquet : jsonl).add(path);
+    }
+    if (jsonl.isEmpty()) {
+      return readCall(BatchFileFormat.PARQUET, parquet, parameters);
     }
+    if (parquet.isEmpty()) {
+      return readCall(BatchFileFormat.JSONL, jsonl, parameters);
+    }
+    String parquetCall = readCall(BatchFileFormat.PARQUET, parquet, parameters);
+    String jsonlCall = readCall(BatchFileFormat.JSONL, jsonl, parameters);
+    return "(SELECT * FROM " + parquetCall + " UNION ALL BY NAME SELECT * FROM " + jsonlCall + ")";
+  }
 
-    return sb.toString();
+  private String readCall(BatchFileFormat format, List<String> paths, List<Object> parameters) {
+    parameters.addAll(paths);
+    if (paths.size() == 1) {
+      return format.readFunction() + "(?)";
+    }
+    StringJoiner placeholders = new StringJoiner(", ", format.readFunction() + "([", "])");
+    for (int i = 0; i < paths.size(); i++) {
+      placeholders.add("?");
+    }
+    return placeholders.toString();
   }
 
   /**
-   * Build just the WHERE fragment from the rule's condition groups.
+   * Build just the WHERE fragment from the rule's condition groups, or null if the rule
+   * has no translatable conditions.
    * Visible for testing.
    */
-  public String buildWhereClause(RuleDto rule) {
+  public BatchQuery buildWhereClause(RuleDto rule) {
     List<ConditionGroupDto> groups = rule.conditionGroups();
     if (groups == null || groups.isEmpty()) {
       return null;
@@ -85,19 +315,20 @@ public class BatchRuleQueryBuilder {
         : ConditionGroupOperator.AND;
     String topJoiner = topOp == ConditionGroupOperator.OR ? " OR " : " AND ";
 
+    List<Object> parameters = new ArrayList<>();
     StringJoiner groupJoiner = new StringJoiner(topJoiner);
     for (ConditionGroupDto group : groups) {
-      String groupSql = buildGroupFragment(group);
+      String groupSql = buildGroupFragment(group, parameters);
       if (groupSql != null) {
         groupJoiner.add("(" + groupSql + ")");
       }
     }
 
     String result = groupJoiner.toString();
-    return result.isEmpty() ? null : result;
+    return result.isEmpty() ? null : new BatchQuery(result, parameters);
   }
 
-  private String buildGroupFragment(ConditionGroupDto group) {
+  private String buildGroupFragment(ConditionGroupDto group, List<Object> parameters) {
     List<ConditionDto> conditions = group.conditions();
     if (conditions == null || conditions.isEmpty()) {
       return null;
@@ -110,7 +341,7 @@ public class BatchRuleQueryBuilder {
 
     StringJoiner sj = new StringJoiner(joiner);
     for (ConditionDto cond : conditions) {
-      String fragment = buildConditionFragment(cond);
+      String fragment = buildConditionFragment(cond, parameters);
       if (fragment != null) {
         sj.add(fragment);
       }
@@ -120,7 +351,7 @@ public class BatchRuleQueryBuilder {
     return result.isEmpty() ? null : result;
   }
 
-  private String buildConditionFragment(ConditionDto cond) {
+  private String buildConditionFragment(ConditionDto cond, List<Object> parameters) {
     String column = FIELD_TO_COLUMN.get(cond.field());
     if (column == null) {
       return null;
@@ -130,9 +361,9 @@ public class BatchRuleQueryBuilder {
     String value = cond.value();
 
     if (isNumericColumn(cond.field())) {
-      return buildNumericCondition(column, op, value);
+      return buildNumericCondition(column, op, value, parameters);
     }
-    return buildStringCondition(column, op, value);
+    return buildStringCondition(column, op, value, parameters);
   }
 
   private boolean isNumericColumn(RuleConditionField field) {
@@ -140,30 +371,39 @@ public class BatchRuleQueryBuilder {
         || field == RuleConditionField.RESPONSE_TIME_MS;
   }
 
-  private String buildNumericCondition(String column, RuleOperator op, String value) {
+  /**
+   * @throws NumberFormatException if the rule value isn't a number
+   */
+  private String buildNumericCondition(String column, RuleOperator op, String value,
+                                       List<Object> parameters) {
     String sqlOp = NUMERIC_OPERATORS.get(op);
     if (sqlOp != null) {
-      return column + " " + sqlOp + " " + value;
+      parameters.add(new BigDecimal(value == null ? "" : value.trim()));
+      return column + " " + sqlOp + " ?";
     }
     return null;
   }
 
-  private String buildStringCondition(String column, RuleOperator op, String value) {
-    String escaped = escapeSql(value);
-    return switch (op) {
-      case EQUALS -> column + " = '" + escaped + "'";
-      case NOT_EQUALS -> column + " != '" + escaped + "'";
-      case CONTAINS -> column + " LIKE '%" + escaped + "%'";
-      case NOT_CONTAINS -> column + " NOT LIKE '%" + escaped + "%'";
-      case STARTS_WITH -> column + " LIKE '" + escaped + "%'";
-      case ENDS_WITH -> column + " LIKE '%" + escaped + "'";
-      case REGEX_MATCH -> "regexp_matches(" + column + ", '" + escaped + "')";
+  private String buildStringCondition(String column, RuleOperator op, String value,
+                                      List<Object> parameters) {
+    String fragment = switch (op) {
+      case EQUALS -> column + " = ?";
+      case NOT_EQUALS -> column + " != ?";
+      case CONTAINS -> column + " LIKE ('%' || ? || '%')";
+      case NOT_CONTAINS -> column + " NOT LIKE ('%' || ? || '%')";
+      case STARTS_WITH -> column + " LIKE (? || '%')";
+      case ENDS_WITH -> column + " LIKE ('%' || ?)";
+      case REGEX_MATCH -> "regexp_matches(" + column + ", ?)";
       default -> null;
     };
+    if (fragment != null) {
+      parameters.add(value == null ? "" : value);
+    }
+    return fragment;
   }
 
-  private String escapeSql(String value) {
-    if (value == null) return "";
-    return value.replace("'", "''");
-  }
+  /**
+   * A rule paired with the start of the window it counts over.
+   */
+  public record WindowedRule(RuleDto rule, Instant windowStart) {}
 }
@@ -2,10 +2,16 @@ package com.harness.pipeline.pipeline.batch;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+/**
+ * Periodic drain-and-write mode, kept for setups that prefer few large files over fresh data.
+ * The default is {@link StreamingBatchWriter}.
+ */
 @Component
+@ConditionalOnProperty(name = "pipeline.batch.writer-mode", havingValue = "periodic")
 public class BatchScheduler {
 
   private static final Logger log = LoggerFactory.getLogger(BatchScheduler.class);
@@ -0,0 +1,25 @@
+package com.harness.pipeline.pipeline.batch;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.springframework.stereotype.Component;
+
+/**
+ * Coordinates readers of finished batch files with {@link BatchCompactor}, which replaces
+ * files in place. Rule evaluation holds the read lock from listing partitions until its
+ * queries finish; compaction takes the write lock only for the rename-and-delete swap, never
+ * while it is reading or writing data.
+ */
+@Component
+public class BatchStorageLock {
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  public Lock readLock() {
+    return lock.readLock();
+  }
+
+  public Lock writeLock() {
+    return lock.writeLock();
+  }
+}
@@ -0,0 +1,13 @@
+package com.harness.pipeline.pipeline.batch;
+
+import com.harness.pipeline.model.ApiEvent;
+import java.util.List;
+
+/**
+ * Told about events once they have been written to a batch partition file. Called on the
+ * writer thread, so implementations must be quick and must not throw.
+ */
+public interface BatchWriteListener {
+
+  void onWritten(List<ApiEvent> events);
+}
@@ -5,19 +5,25 @@ import com.harness.pipeline.model.ApiEvent;
 import com.harness.pipeline.pipeline.queue.EventBus;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.Instant;
-import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import org.duckdb.DuckDBAppender;
+import org.duckdb.DuckDBConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -26,91 +32,336 @@ public class BatchWriter {
 
   private static final Logger log = LoggerFactory.getLogger(BatchWriter.class);
 
+  static final int DEFAULT_ROW_GROUP_SIZE = 122_880;
+  static final int DEFAULT_FLUSH_CHUNK_SIZE = 50_000;
+
+  /**
+   * Same columns and types that read_json_auto infers from the JSONL records. Temp tables are
+   * private to the pooled connection, so concurrent flushes don't collide.
+   */
+  static final String CREATE_EVENTS_TABLE = """
+      CREATE OR REPLACE TEMP TABLE batch_events (
+        event_id VARCHAR,
+        tenant_id VARCHAR,
+        "timestamp" BIGINT,
+        received_at BIGINT,
+        http_method VARCHAR,
+        request_host VARCHAR,
+        request_path VARCHAR,
+        query_string VARCHAR,
+        status_code INTEGER,
+        status_class VARCHAR,
+        response_time_ms BIGINT,
+        environment VARCHAR,
+        region VARCHAR,
+        service_id VARCHAR,
+        trace_id VARCHAR
+      )""";
+
   private final EventBus eventBus;
   private final ObjectMapper objectMapper;
+  private final DuckDbEngine duckDb;
   private final String basePath;
+  private final BatchFileFormat format;
+  private final int rowGroupSize;
+  private final PartitionGranularity granularity;
+  private final List<BatchWriteListener> listeners;
+  private final int flushChunkSize;
+  /** Events from partition writes that failed, written again before anything new is drained. */
+  private final List<ApiEvent> unwritten = new ArrayList<>();
+  /** Batch queue position after the chunk {@link #unwritten} was drained from. */
+  private long unwrittenTo;
+  private volatile int unwrittenEvents;
+
+  /**
+   * JSONL-only writer with daily partitions; no DuckDB engine needed.
+   */
+  public BatchWriter(EventBus eventBus, ObjectMapper objectMapper, String basePath) {
+    this(eventBus, objectMapper, null, basePath, BatchFileFormat.JSONL, DEFAULT_ROW_GROUP_SIZE,
+        PartitionGranularity.DAY);
+  }
+
+  public BatchWriter(EventBus eventBus, ObjectMapper objectMapper, DuckDbEngine duckDb,
+                     String basePath, BatchFileFormat format, int rowGroupSize,
+                     PartitionGranularity granularity) {
+    this(eventBus, objectMapper, duckDb, basePath, format, rowGroupSize, granularity, List.of());
+  }
+
+  public BatchWriter(EventBus eventBus, ObjectMapper objectMapper, DuckDbEngine duckDb,
+                     String basePath, BatchFileFormat format, int rowGroupSize,
+                     PartitionGranularity granularity, List<BatchWriteListener> listeners) {
+    this(eventBus, objectMapper, duckDb, basePath, format, rowGroupSize, granularity, listeners,
+        DEFAULT_FLUSH_CHUNK_SIZE);
+  }
 
+  /**
+   * @param flushChunkSize most events a periodic flush holds on the heap at once
+   */
+  @Autowired
   public BatchWriter(EventBus eventBus,
                      ObjectMapper objectMapper,
-                     @Value("${pipeline.batch.base-path:/tmp/api-event-pipeline/batch-events}") String basePath) {
+                     DuckDbEngine duckDb,
+                     @Value("${pipeline.batch.base-path:/tmp/api-event-pipeline/batch-events}") String basePath,
+                     @Value("${pipeline.batch.format:JSONL}") BatchFileFormat format,
+                     @Value("${pipeline.batch.parquet-row-group-size:122880}") int rowGroupSize,
+                     @Value("${pipeline.batch.partition-granularity:DAY}") PartitionGranularity granularity,
+                     List<BatchWriteListener> listeners,
+                     @Value("${pipeline.batch.flush-chunk-size:50000}") int flushChunkSize) {
+    if (format == BatchFileFormat.PARQUET && duckDb == null) {
+      throw new IllegalArgumentException("Parquet output requires a DuckDbEngine");
+    }
     this.eventBus = eventBus;
     this.objectMapper = objectMapper;
+    this.duckDb = duckDb;
     this.basePath = basePath;
+    this.format = format;
+    this.rowGroupSize = rowGroupSize;
+    this.granularity = granularity;
+    this.listeners = List.copyOf(listeners);
+    this.flushChunkSize = Math.max(1, flushChunkSize);
   }
 
   /**
-   * Drain all currently available events from the batch queue and write them to JSONL
-   * files partitioned by tenant and event date.
+   * Drain the events queued when the flush starts and write them to JSONL or Parquet files
+   * partitioned by tenant and receive time. They are drained and written
+   * {@code flushChunkSize} at a time, so a backlog spilled to disk is never decoded onto the
+   * heap all at once; each chunk gets its own files.
+   *
+   * <p>Events whose partition fails to write are kept and written again on the next flush.
+   * Until they land, nothing new is drained or committed: the backlog stays on the bus, whose
+   * backpressure bounds it, and {@link #getUnwrittenEvents} reports them.
    */
-  public void flushAllFromQueue() {
-    List<ApiEvent> drained = new ArrayList<>();
-    // Block for at least one event if any exist; return quickly if queue is empty.
-    int initialSize = eventBus.getBatchQueueSize();
-    if (initialSize == 0) {
-      return;
+  public synchronized void flushAllFromQueue() {
+    int eventCount = 0;
+    int fileCount = 0;
+    if (!unwritten.isEmpty()) {
+      List<ApiEvent> retry = new ArrayList<>(unwritten);
+      unwritten.clear();
+      fileCount += writeChunk(retry);
+      unwrittenEvents = unwritten.size();
+      if (!unwritten.isEmpty()) {
+        log.warn("{} batch events still failed to write; not draining the batch queue",
+            unwritten.size());
+        return;
+      }
+      eventCount += retry.size();
+      eventBus.commitBatch(unwrittenTo);
     }
-    try {
-      drained.add(eventBus.takeBatch());
-      int remaining = eventBus.getBatchQueueSize();
-      for (int i = 0; i < remaining; i++) {
-        drained.add(eventBus.takeBatch());
+
+    int remaining = eventBus.getBatchQueueSize();
+    List<ApiEvent> drained = new ArrayList<>(Math.min(remaining, flushChunkSize));
+    while (remaining > 0) {
+      drained.clear();
+      if (eventBus.drainBatch(Math.min(remaining, flushChunkSize), drained) == 0) {
+        break;
       }
-    } catch (InterruptedException e) {
-      Thread.currentThread().interrupt();
-      log.warn("Interrupted while draining batch queue", e);
+      long drainedTo = eventBus.batchPosition();
+      remaining -= drained.size();
+      fileCount += writeChunk(drained);
+      if (!unwritten.isEmpty()) {
+        unwrittenTo = drainedTo;
+        unwrittenEvents = unwritten.size();
+        eventCount += drained.size() - unwritten.size();
+        log.warn("{} batch events failed to write; retrying on the next flush", unwritten.size());
+        break;
+      }
+      eventCount += drained.size();
+      eventBus.commitBatch(drainedTo);
     }
 
-    if (drained.isEmpty()) {
-      return;
+    if (eventCount > 0) {
+      log.info("BatchWriter flushed {} events into {} {} file(s)", eventCount, fileCount, format);
     }
+  }
 
-    Map<String, List<ApiEvent>> byPartition = groupByTenantAndDate(drained);
+  /**
+   * @return drained events that are not in a batch file yet because their write failed
+   */
+  public int getUnwrittenEvents() {
+    return unwrittenEvents;
+  }
+
+  void reportUnwritten(int count) {
+    unwrittenEvents = count;
+  }
+
+  /**
+   * Write each partition's events to a new file; the events of partitions that fail are added
+   * to {@link #unwritten}.
+   *
+   * @return the number of files written
+   */
+  private int writeChunk(List<ApiEvent> drained) {
     int fileCount = 0;
-    for (Map.Entry<String, List<ApiEvent>> entry : byPartition.entrySet()) {
+    for (Map.Entry<String, List<ApiEvent>> entry : groupByPartition(drained).entrySet()) {
       String partitionPath = entry.getKey();
       List<ApiEvent> events = entry.getValue();
       try {
         writePartition(partitionPath, events);
         fileCount++;
-      } catch (IOException e) {
-        log.error("Failed to write JSONL file for partition {}", partitionPath, e);
+        notifyWritten(events);
+      } catch (IOException | SQLException e) {
+        log.error("Failed to write {} file for partition {}", format, partitionPath, e);
+        unwritten.addAll(events);
       }
     }
+    return fileCount;
+  }
+
+  void notifyWritten(List<ApiEvent> events) {
+    for (BatchWriteListener listener : listeners) {
+      listener.onWritten(events);
+    }
+  }
+
+  BatchFileFormat format() {
+    return format;
+  }
 
-    log.info("BatchWriter flushed {} events into {} JSONL file(s)", drained.size(), fileCount);
+  String basePath() {
+    return basePath;
   }
 
-  private Map<String, List<ApiEvent>> groupByTenantAndDate(List<ApiEvent> events) {
+  /**
+   * Name for a new batch file; unique per call so writers never collide.
+   */
+  String newFileName() {
+    return "events-" + System.currentTimeMillis() + "-" + UUID.randomUUID() + format.extension();
+  }
+
+  /**
+   * Group events by partition directory. Partitions follow {@code received_at}, the column
+   * batch rule windows filter on, so a window only ever needs the partitions it overlaps; the
+   * client-supplied {@code timestamp} can be arbitrarily old.
+   */
+  Map<String, List<ApiEvent>> groupByPartition(List<ApiEvent> events) {
     Map<String, List<ApiEvent>> byPartition = new HashMap<>();
     for (ApiEvent event : events) {
-      Instant ts = event.timestamp() != null ? event.timestamp() : event.receivedAt();
-      ZonedDateTime zdt = ts.atZone(ZoneOffset.UTC);
-      String partition = String.format(
-          "%s/tenant_id=%s/year=%04d/month=%02d/day=%02d",
-          basePath,
-          event.tenantId(),
-          zdt.getYear(),
-          zdt.getMonthValue(),
-          zdt.getDayOfMonth()
-      );
+      Instant ts = event.receivedAt() != null ? event.receivedAt() : event.timestamp();
+      String partition = basePath + "/tenant_id=" + event.tenantId() + "/"
+          + granularity.partitionPath(ts);
       byPartition.computeIfAbsent(partition, k -> new ArrayList<>()).add(event);
     }
     return byPartition;
   }
 
-  private void writePartition(String partitionDir, List<ApiEvent> events) throws IOException {
+  private void writePartition(String partitionDir, List<ApiEvent> events)
+      throws IOException, SQLException {
     Files.createDirectories(Path.of(partitionDir));
-    String fileName = "events-" + System.currentTimeMillis() + "-" + UUID.randomUUID() + ".jsonl";
-    Path outputPath = Path.of(partitionDir, fileName);
+    Path outputPath = Path.of(partitionDir, newFileName());
 
+    if (format == BatchFileFormat.PARQUET) {
+      writeParquet(outputPath, events, false);
+    } else {
+      writeJsonl(outputPath, events);
+    }
+  }
+
+  private void writeJsonl(Path outputPath, List<ApiEvent> events) throws IOException {
     try (BufferedWriter writer = Files.newBufferedWriter(outputPath, StandardCharsets.UTF_8)) {
       for (ApiEvent event : events) {
-        writer.write(objectMapper.writeValueAsString(toRecord(event)));
+        writer.write(toJsonLine(event));
         writer.newLine();
       }
     }
   }
 
+  String toJsonLine(ApiEvent event) throws IOException {
+    return objectMapper.writeValueAsString(toRecord(event));
+  }
+
+  /**
+   * Load the events into a DuckDB temp table through the appender and COPY it out as
+   * ZSTD-compressed Parquet sorted by received_at, so each row group's min/max statistics
+   * let the window filter skip it. The file is written under a temporary name and renamed,
+   * so readers globbing *.parquet never see a partial file.
+   *
+   * @param fsync force the file to stable storage before it becomes visible
+   */
+  void writeParquet(Path outputPath, List<ApiEvent> events, boolean fsync)
+      throws IOException, SQLException {
+    Path tmpPath = outputPath.resolveSibling(outputPath.getFileName() + ".tmp");
+    duckDb.withConnection(conn -> {
+      try (Statement stmt = conn.createStatement()) {
+        stmt.execute(CREATE_EVENTS_TABLE);
+        try {
+          try (DuckDBAppender appender = conn.unwrap(DuckDBConnection.class)
+              .createAppender("temp", DuckDBConnection.DEFAULT_SCHEMA, "batch_events")) {
+            for (ApiEvent event : events) {
+              appendRow(appender, event);
+            }
+          }
+          stmt.execute(copyToParquet(tmpPath, rowGroupSize));
+        } finally {
+          stmt.execute("DROP TABLE IF EXISTS batch_events");
+        }
+      }
+      return null;
+    });
+    if (fsync) {
+      try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.WRITE)) {
+        channel.force(true);
+      }
+    }
+    Files.move(tmpPath, outputPath, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * @return a COPY of the {@code batch_events} temp table to {@code target}, sorted by
+   *     received_at
+   */
+  static String copyToParquet(Path target, int rowGroupSize) {
+    // COPY targets can't be bind parameters, so the path is quoted instead.
+    return "COPY (SELECT * FROM batch_events ORDER BY received_at) TO '"
+        + target.toString().replace("'", "''")
+        + "' (FORMAT PARQUET, COMPRESSION ZSTD, ROW_GROUP_SIZE " + rowGroupSize + ")";
+  }
+
+  private void appendRow(DuckDBAppender appender, ApiEvent event) throws SQLException {
+    ApiEvent.HttpRequest req = event.request();
+    ApiEvent.HttpResponse res = event.response();
+    ApiEvent.ServiceMetadata md = event.metadata();
+
+    appender.beginRow();
+    appendString(appender, event.eventId());
+    appendString(appender, event.tenantId());
+    appendLong(appender, event.timestamp() != null ? event.timestamp().toEpochMilli() : null);
+    appendLong(appender, event.receivedAt() != null ? event.receivedAt().toEpochMilli() : null);
+    appendString(appender, req != null ? req.method() : null);
+    appendString(appender, req != null ? req.host() : null);
+    appendString(appender, req != null ? req.path() : null);
+    appendString(appender, req != null ? req.queryString() : null);
+    Integer statusCode = res != null ? res.statusCode() : null;
+    if (statusCode != null) {
+      appender.append(statusCode.intValue());
+    } else {
+      appender.appendNull();
+    }
+    appendString(appender, res != null ? res.statusClass() : null);
+    appendLong(appender, res != null ? res.responseTimeMs() : null);
+    appendString(appender, md != null ? md.environment() : null);
+    appendString(appender, md != null ? md.region() : null);
+    appendString(appender, md != null ? md.serviceId() : null);
+    appendString(appender, md != null ? md.traceId() : null);
+    appender.endRow();
+  }
+
+  private static void appendString(DuckDBAppender appender, String value) throws SQLException {
+    if (value != null) {
+      appender.append(value);
+    } else {
+      appender.appendNull();
+    }
+  }
+
+  private static void appendLong(DuckDBAppender appender, Long value) throws SQLException {
+    if (value != null) {
+      appender.append(value.longValue());
+    } else {
+      appender.appendNull();
+    }
+  }
+
   private Map<String, Object> toRecord(ApiEvent event) {
     Map<String, Object> record = new HashMap<>();
     record.put("event_id", event.eventId());
@@ -0,0 +1,40 @@
+package com.harness.pipeline.pipeline.batch;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the batch writer DOWN while drained events are failing to reach a batch file and
+ * publishes their count as {@code pipeline.batch.unwritten}. The writer retries them and
+ * drains nothing new meanwhile, so the batch queue backs up until the bus applies
+ * backpressure.
+ */
+@Component
+public class BatchWriterHealth implements HealthIndicator, MeterBinder {
+
+  private final BatchWriter batchWriter;
+
+  public BatchWriterHealth(BatchWriter batchWriter) {
+    this.batchWriter = batchWriter;
+  }
+
+  @Override
+  public Health health() {
+    int unwritten = batchWriter.getUnwrittenEvents();
+    if (unwritten == 0) {
+      return Health.up().build();
+    }
+    return Health.down().withDetail("unwrittenEvents", unwritten).build();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("pipeline.batch.unwritten", batchWriter, BatchWriter::getUnwrittenEvents)
+        .description("Drained batch events whose write failed and is being retried")
+        .register(registry);
+  }
+}
@@ -0,0 +1,212 @@
+package com.harness.pipeline.pipeline.batch;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.duckdb.DuckDBConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * One long-lived in-memory DuckDB database shared by the batch pipeline. Work runs on a fixed
+ * pool of {@link DuckDBConnection#duplicate() duplicated} connections, so database startup and
+ * extension loading (parquet, json) happen once per process instead of once per query. Each
+ * pooled connection keeps a small LRU cache of prepared statements; batch queries are mostly
+ * the same SQL text every cycle with different bind values.
+ */
+@Component
+public class DuckDbEngine implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(DuckDbEngine.class);
+
+  static final int STATEMENT_CACHE_SIZE = 64;
+
+  private final DuckDBConnection database;
+  private final BlockingQueue<PooledConnection> idle;
+  private final long acquireTimeoutMs;
+  private volatile boolean closed;
+
+  /**
+   * @param threads     DuckDB worker threads per query; 0 keeps DuckDB's default (all cores)
+   * @param memoryLimit DuckDB memory_limit, e.g. {@code 512MB}; blank keeps DuckDB's default
+   */
+  public DuckDbEngine(
+      @Value("${pipeline.duckdb.threads:0}") int threads,
+      @Value("${pipeline.duckdb.memory-limit:}") String memoryLimit,
+      @Value("${pipeline.duckdb.pool-size:4}") int poolSize,
+      @Value("${pipeline.duckdb.acquire-timeout-ms:30000}") long acquireTimeoutMs)
+      throws SQLException {
+    Properties config = new Properties();
+    if (threads > 0) {
+      config.setProperty("threads", Integer.toString(threads));
+    }
+    if (memoryLimit != null && !memoryLimit.isBlank()) {
+      config.setProperty("memory_limit", memoryLimit);
+    }
+    this.database = DriverManager.getConnection("jdbc:duckdb:", config)
+        .unwrap(DuckDBConnection.class);
+    this.idle = new ArrayBlockingQueue<>(poolSize);
+    this.acquireTimeoutMs = acquireTimeoutMs;
+    for (int i = 0; i < poolSize; i++) {
+      idle.add(new PooledConnection(database.duplicate()));
+    }
+    log.info("DuckDB engine started: poolSize={}, threads={}, memoryLimit={}",
+        poolSize, threads > 0 ? threads : "default", config.getProperty("memory_limit", "default"));
+  }
+
+  /**
+   * Run {@code callback} on a pooled connection. The connection is shared across calls, so
+   * anything the callback creates (temp tables, settings) must be cleaned up before returning.
+   */
+  public <T> T withConnection(ConnectionCallback<T> callback) throws SQLException {
+    PooledConnection pooled = acquire();
+    try {
+      return callback.apply(pooled.connection);
+    } finally {
+      release(pooled);
+    }
+  }
+
+  /**
+   * Execute a query that returns a single row of numbers.
+   *
+   * @return the first {@code columns} values of the row, or zeros if no row came back
+   */
+  public long[] queryLongs(BatchQuery query, int columns) throws SQLException {
+    return query(query, rs -> {
+      long[] values = new long[columns];
+      if (rs.next()) {
+        for (int i = 0; i < columns; i++) {
+          values[i] = rs.getLong(i + 1);
+        }
+      }
+      return values;
+    });
+  }
+
+  /**
+   * Execute {@code query} through the connection's statement cache and hand the rows to
+   * {@code handler}, which must not keep the result set.
+   */
+  public <T> T query(BatchQuery query, ResultSetHandler<T> handler) throws SQLException {
+    PooledConnection pooled = acquire();
+    try {
+      PreparedStatement statement = pooled.prepare(query.sql());
+      List<Object> parameters = query.parameters();
+      for (int i = 0; i < parameters.size(); i++) {
+        statement.setObject(i + 1, parameters.get(i));
+      }
+      try (ResultSet rs = statement.executeQuery()) {
+        return handler.handle(rs);
+      }
+    } finally {
+      release(pooled);
+    }
+  }
+
+  @Override
+  public void close() throws SQLException {
+    closed = true;
+    PooledConnection pooled;
+    while ((pooled = idle.poll()) != null) {
+      pooled.close();
+    }
+    database.close();
+  }
+
+  private PooledConnection acquire() throws SQLException {
+    if (closed) {
+      throw new SQLException("DuckDB engine is closed");
+    }
+    try {
+      PooledConnection pooled = idle.poll(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+      if (pooled == null) {
+        throw new SQLException("Timed out waiting for a DuckDB connection after "
+            + acquireTimeoutMs + " ms");
+      }
+      if (pooled.connection.isClosed()) {
+        pooled = new PooledConnection(database.duplicate());
+      }
+      return pooled;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted waiting for a DuckDB connection", e);
+    }
+  }
+
+  private void release(PooledConnection pooled) {
+    if (closed) {
+      pooled.close();
+    } else {
+      idle.offer(pooled);
+    }
+  }
+
+  @FunctionalInterface
+  public interface ConnectionCallback<T> {
+    T apply(Connection connection) throws SQLException;
+  }
+
+  @FunctionalInterface
+  public interface ResultSetHandler<T> {
+    T handle(ResultSet rs) throws SQLException;
+  }
+
+  private static final class PooledConnection {
+
+    private final DuckDBConnection connection;
+    private final Map<String, PreparedStatement> statements =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+            if (size() > STATEMENT_CACHE_SIZE) {
+              closeQuietly(eldest.getValue());
+              return true;
+            }
+            return false;
+          }
+        };
+
+    private PooledConnection(DuckDBConnection connection) {
+      this.connection = connection;
+    }
+
+    PreparedStatement prepare(String sql) throws SQLException {
+      PreparedStatement statement = statements.get(sql);
+      if (statement == null || statement.isClosed()) {
+        statement = connection.prepareStatement(sql);
+        statements.put(sql, statement);
+      }
+      return statement;
+    }
+
+    void close() {
+      statements.values().forEach(PooledConnection::closeQuietly);
+      statements.clear();
+      try {
+        connection.close();
+      } catch (SQLException e) {
+        log.warn("Failed to close DuckDB connection", e);
+      }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+      try {
+        statement.close();
+      } catch (SQLException e) {
+        log.debug("Failed to close prepared statement", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,13 @@
+package com.harness.pipeline.pipeline.batch;
+
+/**
+ * When the streaming batch writer forces file contents to stable storage.
+ */
+public enum FsyncPolicy {
+  /** Leave it to the OS page cache; fastest, may lose recent data on power loss. */
+  NONE,
+  /** Force each file once, right before it is renamed to its final name. */
+  ON_ROTATE,
+  /** Force every open file after each drained chunk is appended. */
+  ALWAYS
+}
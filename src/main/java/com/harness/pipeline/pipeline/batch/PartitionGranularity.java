@@ -0,0 +1,111 @@
+package com.harness.pipeline.pipeline.batch;
+
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * How finely batch files are partitioned by receive time below the tenant directory:
+ * {@code year=YYYY/month=MM/day=DD}, then optionally {@code hour=HH} and {@code minute=MM}.
+ * Finer partitions let a short-window rule read only the files it needs, at the cost of more
+ * (and smaller) files per day.
+ */
+public enum PartitionGranularity {
+
+  DAY(ChronoUnit.DAYS),
+  HOUR(ChronoUnit.HOURS),
+  MINUTE(ChronoUnit.MINUTES);
+
+  private final ChronoUnit unit;
+
+  PartitionGranularity(ChronoUnit unit) {
+    this.unit = unit;
+  }
+
+  public ChronoUnit unit() {
+    return unit;
+  }
+
+  /**
+   * @return the next finer granularity, or null for {@link #MINUTE}
+   */
+  public PartitionGranularity finer() {
+    return switch (this) {
+      case DAY -> HOUR;
+      case HOUR -> MINUTE;
+      case MINUTE -> null;
+    };
+  }
+
+  /**
+   * @return the partition directory for {@code instant}, relative to the tenant directory
+   */
+  public String partitionPath(Instant instant) {
+    ZonedDateTime t = instant.atZone(ZoneOffset.UTC);
+    String day = String.format("year=%04d/month=%02d/day=%02d",
+        t.getYear(), t.getMonthValue(), t.getDayOfMonth());
+    return switch (this) {
+      case DAY -> day;
+      case HOUR -> day + "/" + HOUR.segment(instant);
+      case MINUTE -> day + "/" + HOUR.segment(instant) + "/" + MINUTE.segment(instant);
+    };
+  }
+
+  /**
+   * @return the directory name this level adds below its parent, e.g. {@code hour=07}
+   */
+  String segment(Instant instant) {
+    ZonedDateTime t = instant.atZone(ZoneOffset.UTC);
+    return switch (this) {
+      case DAY -> partitionPath(instant);
+      case HOUR -> String.format("hour=%02d", t.getHour());
+      case MINUTE -> String.format("minute=%02d", t.getMinute());
+    };
+  }
+
+  /**
+   * Parse the {@code year=/month=/day=[/hour=[/minute=]]} segments of a partition directory.
+   *
+   * @param dir a partition directory, absolute or relative; other segments are ignored
+   * @return the end of the time range the directory covers, or null if it has no day
+   */
+  public static Instant partitionEnd(Path dir) {
+    int[] values = {-1, -1, -1, -1, -1};
+    for (Path name : dir) {
+      String segment = name.toString();
+      int eq = segment.indexOf('=');
+      int index = eq < 0 ? -1 : switch (segment.substring(0, eq)) {
+        case "year" -> 0;
+        case "month" -> 1;
+        case "day" -> 2;
+        case "hour" -> 3;
+        case "minute" -> 4;
+        default -> -1;
+      };
+      if (index >= 0) {
+        try {
+          values[index] = Integer.parseInt(segment.substring(eq + 1));
+        } catch (NumberFormatException e) {
+          return null;
+        }
+      }
+    }
+    if (values[0] < 0 || values[1] < 0 || values[2] < 0) {
+      return null;
+    }
+    LocalDateTime start;
+    try {
+      start = LocalDateTime.of(values[0], values[1], values[2],
+          Math.max(values[3], 0), Math.max(values[4], 0));
+    } catch (DateTimeException e) {
+      return null;
+    }
+    ChronoUnit unit = values[4] >= 0 ? ChronoUnit.MINUTES
+        : values[3] >= 0 ? ChronoUnit.HOURS : ChronoUnit.DAYS;
+    return start.plus(1, unit).toInstant(ZoneOffset.UTC);
+  }
+}
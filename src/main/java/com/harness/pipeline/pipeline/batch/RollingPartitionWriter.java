@@ -0,0 +1,417 @@
+package com.harness.pipeline.pipeline.batch;
+
+import com.harness.pipeline.model.ApiEvent;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps one open output file per partition and rotates it according to a
+ * {@link RotationPolicy}. JSONL is appended to {@code <name>.inprogress} and renamed to its
+ * final name on rotation; Parquet can't be appended to, so its rows are buffered and written
+ * as one file on rotation. Either way, readers globbing {@code *.jsonl} or {@code *.parquet}
+ * only ever see complete files.
+ *
+ * <p>A file that fails to rotate, and the events of an append that failed, are kept and
+ * written again by {@link #retryFailed}; until they land, {@link #committablePosition} stays
+ * before them.
+ *
+ * <p>Not thread-safe: owned by the single {@link StreamingBatchWriter} thread.
+ */
+class RollingPartitionWriter implements Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(RollingPartitionWriter.class);
+
+  static final String IN_PROGRESS_SUFFIX = ".inprogress";
+
+  private final BatchWriter batchWriter;
+  private final RotationPolicy policy;
+  private final LongSupplier clock;
+  private final Map<String, OpenFile> openFiles = new HashMap<>();
+  private final List<OpenFile> failedFiles = new ArrayList<>();
+  private final List<ApiEvent> unwritten = new ArrayList<>();
+  private long unwrittenFrom = Long.MAX_VALUE;
+
+  RollingPartitionWriter(BatchWriter batchWriter, RotationPolicy policy, LongSupplier clock) {
+    this.batchWriter = batchWriter;
+    this.policy = policy;
+    this.clock = clock;
+  }
+
+  /**
+   * Append events to their partitions' open files, rotating any that reach a size or
+   * record limit.
+   */
+  void append(List<ApiEvent> events) {
+    append(events, 0);
+  }
+
+  /**
+   * @param busPosition the batch queue position before {@code events} were drained, see
+   *     {@link #committablePosition}
+   */
+  void append(List<ApiEvent> events, long busPosition) {
+    Map<String, List<ApiEvent>> byPartition = batchWriter.groupByPartition(events);
+    for (Map.Entry<String, List<ApiEvent>> entry : byPartition.entrySet()) {
+      String partitionDir = entry.getKey();
+      OpenFile file = openFiles.get(partitionDir);
+      try {
+        if (file == null) {
+          file = open(partitionDir);
+          openFiles.put(partitionDir, file);
+        }
+        file.write(entry.getValue());
+      } catch (IOException | RuntimeException e) {
+        log.error("Failed to append {} events to partition {}",
+            entry.getValue().size(), partitionDir, e);
+        OpenFile failed = openFiles.remove(partitionDir);
+        if (failed != null) {
+          retryLater(failed);
+        }
+        unwritten.addAll(entry.getValue());
+        unwrittenFrom = Math.min(unwrittenFrom, busPosition);
+        continue;
+      }
+      file.firstBusPosition = Math.min(file.firstBusPosition, busPosition);
+      batchWriter.notifyWritten(entry.getValue());
+      if (policy.fsync() == FsyncPolicy.ALWAYS) {
+        try {
+          file.force();
+        } catch (IOException e) {
+          log.error("Failed to force batch file for partition {}", partitionDir, e);
+          openFiles.remove(partitionDir);
+          retryLater(file);
+          continue;
+        }
+      }
+      if (file.records >= policy.maxRecords() || file.bytes() >= policy.maxBytes()) {
+        openFiles.remove(partitionDir);
+        commitOrRetry(partitionDir, file);
+      }
+    }
+    reportUnwritten();
+  }
+
+  /**
+   * Rotate every file that has been open for longer than the policy's max age.
+   */
+  void rotateExpired() {
+    long now = clock.getAsLong();
+    Iterator<Map.Entry<String, OpenFile>> it = openFiles.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<String, OpenFile> entry = it.next();
+      if (now - entry.getValue().openedAtMs >= policy.maxAgeMs()) {
+        it.remove();
+        commitOrRetry(entry.getKey(), entry.getValue());
+      }
+    }
+    reportUnwritten();
+  }
+
+  int openFileCount() {
+    return openFiles.size();
+  }
+
+  /**
+   * Rotate the files that failed to rotate and append the events whose append failed, again.
+   *
+   * @return whether every event appended so far is in a file again, so draining can go on
+   */
+  boolean retryFailed() {
+    Iterator<OpenFile> it = failedFiles.iterator();
+    while (it.hasNext()) {
+      OpenFile file = it.next();
+      try {
+        file.commit();
+        it.remove();
+        log.info("Rotated batch file {} on retry", file.target);
+      } catch (IOException | SQLException e) {
+        log.warn("Batch file {} still failed to rotate: {}", file.target, e.toString());
+      }
+    }
+    if (!unwritten.isEmpty()) {
+      List<ApiEvent> retry = new ArrayList<>(unwritten);
+      long from = unwrittenFrom;
+      unwritten.clear();
+      unwrittenFrom = Long.MAX_VALUE;
+      append(retry, from);
+    }
+    reportUnwritten();
+    return failedFiles.isEmpty() && unwritten.isEmpty();
+  }
+
+  /**
+   * @param current the batch queue position after the last drain
+   * @return the position before which every drained event is in a rotated file: the
+   *     position the oldest open or failed file, or failed append, started at, or
+   *     {@code current} if there is none
+   */
+  long committablePosition(long current) {
+    long position = Math.min(current, unwrittenFrom);
+    for (OpenFile file : openFiles.values()) {
+      position = Math.min(position, file.firstBusPosition);
+    }
+    for (OpenFile file : failedFiles) {
+      position = Math.min(position, file.firstBusPosition);
+    }
+    return position;
+  }
+
+  /**
+   * Rotate every open file, regardless of age.
+   */
+  @Override
+  public void close() {
+    openFiles.forEach(this::commitOrRetry);
+    openFiles.clear();
+    if (!retryFailed()) {
+      log.error("Closing with {} batch events unwritten; a durable bus delivers them again",
+          batchWriter.getUnwrittenEvents());
+    }
+  }
+
+  /**
+   * Finish JSONL files left {@code .inprogress} by a previous process: drop a torn last line
+   * and rename them so their complete records become visible. Buffered Parquet rows are lost
+   * with the process; only a half-written {@code .tmp} file can be left, and it is deleted.
+   */
+  static void recover(Path basePath) {
+    if (!Files.isDirectory(basePath)) {
+      return;
+    }
+    List<Path> leftovers;
+    try (Stream<Path> paths = Files.walk(basePath)) {
+      leftovers = paths
+          .filter(p -> p.getFileName().toString().endsWith(IN_PROGRESS_SUFFIX)
+              || p.getFileName().toString().endsWith(BatchFileFormat.PARQUET.extension() + ".tmp"))
+          .toList();
+    } catch (IOException e) {
+      log.warn("Failed to scan {} for in-progress batch files", basePath, e);
+      return;
+    }
+    for (Path leftover : leftovers) {
+      try {
+        if (!leftover.getFileName().toString().endsWith(IN_PROGRESS_SUFFIX)) {
+          Files.deleteIfExists(leftover);
+          continue;
+        }
+        long complete = truncateTornLine(leftover);
+        String name = leftover.getFileName().toString();
+        Path target = leftover.resolveSibling(
+            name.substring(0, name.length() - IN_PROGRESS_SUFFIX.length()));
+        if (complete == 0) {
+          Files.delete(leftover);
+        } else {
+          Files.move(leftover, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+        log.info("Recovered in-progress batch file {} ({} bytes)", target, complete);
+      } catch (IOException e) {
+        log.warn("Failed to recover in-progress batch file {}", leftover, e);
+      }
+    }
+  }
+
+  private static long truncateTornLine(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      long position = channel.size();
+      ByteBuffer one = ByteBuffer.allocate(1);
+      while (position > 0) {
+        one.clear();
+        channel.read(one, position - 1);
+        if (one.get(0) == '\n') {
+          break;
+        }
+        position--;
+      }
+      channel.truncate(position);
+      return position;
+    }
+  }
+
+  private OpenFile open(String partitionDir) throws IOException {
+    Files.createDirectories(Path.of(partitionDir));
+    Path target = Path.of(partitionDir, batchWriter.newFileName());
+    long now = clock.getAsLong();
+    return batchWriter.format() == BatchFileFormat.PARQUET
+        ? new BufferedParquetFile(target, now)
+        : new AppendingJsonlFile(target, now);
+  }
+
+  private void commitOrRetry(String partitionDir, OpenFile file) {
+    try {
+      file.commit();
+    } catch (IOException | SQLException e) {
+      log.error("Failed to rotate batch file for partition {}", partitionDir, e);
+      retryLater(file);
+    }
+  }
+
+  private void retryLater(OpenFile file) {
+    file.failed = true;
+    failedFiles.add(file);
+  }
+
+  private void reportUnwritten() {
+    int count = unwritten.size();
+    for (OpenFile file : failedFiles) {
+      count += file.records;
+    }
+    batchWriter.reportUnwritten(count);
+  }
+
+  private abstract class OpenFile {
+
+    final Path target;
+    final long openedAtMs;
+    int records;
+    long firstBusPosition = Long.MAX_VALUE;
+    /** Set once a write, force or commit failed; {@link #commit} then recovers first. */
+    boolean failed;
+
+    OpenFile(Path target, long openedAtMs) {
+      this.target = target;
+      this.openedAtMs = openedAtMs;
+    }
+
+    abstract void write(List<ApiEvent> events) throws IOException;
+
+    abstract long bytes();
+
+    abstract void force() throws IOException;
+
+    /** Make the file visible under its final name. */
+    abstract void commit() throws IOException, SQLException;
+  }
+
+  private final class AppendingJsonlFile extends OpenFile {
+
+    private final Path inProgress;
+    private final FileChannel channel;
+    private final BufferedWriter writer;
+    /** Size of the records written in full; a failed write is truncated back to it. */
+    private long complete;
+
+    AppendingJsonlFile(Path target, long openedAtMs) throws IOException {
+      super(target, openedAtMs);
+      this.inProgress = target.resolveSibling(target.getFileName() + IN_PROGRESS_SUFFIX);
+      this.channel = FileChannel.open(inProgress, StandardOpenOption.CREATE_NEW,
+          StandardOpenOption.WRITE);
+      this.writer = new BufferedWriter(
+          new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    void write(List<ApiEvent> events) throws IOException {
+      for (ApiEvent event : events) {
+        writer.write(batchWriter.toJsonLine(event));
+        writer.newLine();
+      }
+      // Hand each chunk to the OS so size-based rotation sees it and a crash loses at most
+      // the current chunk.
+      writer.flush();
+      records += events.size();
+      complete = channel.size();
+    }
+
+    @Override
+    long bytes() {
+      try {
+        return channel.size();
+      } catch (IOException e) {
+        return 0;
+      }
+    }
+
+    @Override
+    void force() throws IOException {
+      writer.flush();
+      channel.force(false);
+    }
+
+    @Override
+    void commit() throws IOException {
+      if (failed) {
+        recover();
+      } else {
+        if (policy.fsync() != FsyncPolicy.NONE) {
+          force();
+        }
+        writer.close();
+      }
+      if (records == 0) {
+        Files.deleteIfExists(inProgress);
+        return;
+      }
+      Files.move(inProgress, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Drop whatever a failed write left after the last complete record.
+     */
+    private void recover() throws IOException {
+      try {
+        writer.close();
+      } catch (IOException e) {
+        log.debug("Failed to close {}", inProgress, e);
+      }
+      try (FileChannel recovered = FileChannel.open(inProgress, StandardOpenOption.WRITE)) {
+        recovered.truncate(complete);
+        if (policy.fsync() != FsyncPolicy.NONE) {
+          recovered.force(false);
+        }
+      }
+    }
+  }
+
+  private final class BufferedParquetFile extends OpenFile {
+
+    private final List<ApiEvent> rows = new ArrayList<>();
+
+    BufferedParquetFile(Path target, long openedAtMs) {
+      super(target, openedAtMs);
+    }
+
+    @Override
+    void write(List<ApiEvent> events) {
+      rows.addAll(events);
+      records += events.size();
+    }
+
+    @Override
+    long bytes() {
+      return 0;
+    }
+
+    @Override
+    void force() {
+      // Nothing on disk until commit.
+    }
+
+    @Override
+    void commit() throws IOException, SQLException {
+      if (!rows.isEmpty()) {
+        batchWriter.writeParquet(target, rows, policy.fsync() != FsyncPolicy.NONE);
+      }
+    }
+  }
+}
@@ -0,0 +1,15 @@
+package com.harness.pipeline.pipeline.batch;
+
+/**
+ * Limits at which the streaming writer closes a partition file and starts a new one. Whichever
+ * is reached first wins. {@code maxBytes} only applies to JSONL; Parquet rows are buffered in
+ * memory until rotation, so {@code maxRecords} is what bounds their heap usage.
+ */
+public record RotationPolicy(long maxBytes, long maxAgeMs, int maxRecords, FsyncPolicy fsync) {
+
+  public RotationPolicy {
+    if (maxBytes <= 0 || maxAgeMs <= 0 || maxRecords <= 0) {
+      throw new IllegalArgumentException("Rotation limits must be positive");
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package com.harness.pipeline.pipeline.batch;
+
+import com.harness.pipeline.model.ApiEvent;
+import com.harness.pipeline.pipeline.queue.EventBus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drains the batch queue continuously on a dedicated thread and appends to rolling
+ * per-partition files, instead of letting the backlog pile up on the heap between periodic
+ * flushes. Batch rules see new events as soon as a file rotates, bounded by
+ * {@code pipeline.batch.rotation.max-age-ms}.
+ *
+ * <p>When a write fails, the writer retries it every {@value #RETRY_INTERVAL_MS} ms and drains
+ * nothing new until it lands, so the backlog stays on the bus, whose backpressure bounds it.
+ */
+@Component
+@ConditionalOnProperty(name = "pipeline.batch.writer-mode", havingValue = "streaming", matchIfMissing = true)
+public class StreamingBatchWriter implements Runnable {
+
+  private static final Logger log = LoggerFactory.getLogger(StreamingBatchWriter.class);
+
+  static final long POLL_TIMEOUT_MS = 200;
+  static final long RETRY_INTERVAL_MS = 1_000;
+  private static final long SHUTDOWN_TIMEOUT_MS = 5_000;
+
+  private final EventBus eventBus;
+  private final BatchWriter batchWriter;
+  private final RollingPartitionWriter rollingWriter;
+  private final int drainSize;
+  private final List<ApiEvent> drained;
+
+  private volatile boolean running = true;
+  private Thread thread;
+
+  @Autowired
+  public StreamingBatchWriter(
+      EventBus eventBus,
+      BatchWriter batchWriter,
+      @Value("${pipeline.batch.drain-size:4096}") int drainSize,
+      @Value("${pipeline.batch.rotation.max-bytes:67108864}") long maxBytes,
+      @Value("${pipeline.batch.rotation.max-age-ms:30000}") long maxAgeMs,
+      @Value("${pipeline.batch.rotation.max-records:100000}") int maxRecords,
+      @Value("${pipeline.batch.fsync:ON_ROTATE}") FsyncPolicy fsync) {
+    this(eventBus, batchWriter, drainSize, new RotationPolicy(maxBytes, maxAgeMs, maxRecords, fsync));
+  }
+
+  public StreamingBatchWriter(EventBus eventBus, BatchWriter batchWriter, int drainSize,
+                              RotationPolicy policy) {
+    this.eventBus = eventBus;
+    this.batchWriter = batchWriter;
+    this.rollingWriter = new RollingPartitionWriter(batchWriter, policy, System::currentTimeMillis);
+    this.drainSize = Math.max(1, drainSize);
+    this.drained = new ArrayList<>(this.drainSize);
+  }
+
+  @PostConstruct
+  public void start() {
+    RollingPartitionWriter.recover(Path.of(batchWriter.basePath()));
+    thread = new Thread(this, "batch-writer");
+    thread.setDaemon(true);
+    thread.start();
+    log.info("Started streaming batch writer ({} files)", batchWriter.format());
+  }
+
+  @Override
+  public void run() {
+    while (running) {
+      try {
+        drained.clear();
+        if (!rollingWriter.retryFailed()) {
+          Thread.sleep(RETRY_INTERVAL_MS);
+        } else {
+          long before = eventBus.batchPosition();
+          if (eventBus.drainBatch(drainSize, drained, POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS) > 0) {
+            rollingWriter.append(drained, before);
+          }
+        }
+        rollingWriter.rotateExpired();
+        eventBus.commitBatch(rollingWriter.committablePosition(eventBus.batchPosition()));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (Exception e) {
+        log.error("Streaming batch writer failed", e);
+      }
+    }
+    drainRemaining();
+    rollingWriter.close();
+    eventBus.commitBatch(rollingWriter.committablePosition(eventBus.batchPosition()));
+  }
+
+  /**
+   * Stop the writer thread, write out whatever is still queued and rotate every open file.
+   */
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    running = false;
+    if (thread != null) {
+      thread.join(SHUTDOWN_TIMEOUT_MS);
+    }
+  }
+
+  private void drainRemaining() {
+    List<ApiEvent> remaining = new ArrayList<>(drainSize);
+    long before = eventBus.batchPosition();
+    while (rollingWriter.retryFailed() && eventBus.drainBatch(drainSize, remaining) > 0) {
+      rollingWriter.append(remaining, before);
+      remaining.clear();
+      before = eventBus.batchPosition();
+    }
+  }
+}
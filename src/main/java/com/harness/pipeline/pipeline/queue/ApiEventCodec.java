@@ -0,0 +1,199 @@
+package com.harness.pipeline.pipeline.queue;
+
+import com.harness.pipeline.model.ApiEvent;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compact binary form of an {@link ApiEvent} for the on-disk queues. Every field is written
+ * in declaration order; strings are UTF-8 with an int length, and a length (or map size) of
+ * -1 stands for null. The first byte is a format version, so records written by an older
+ * build can still be read after an upgrade.
+ */
+public final class ApiEventCodec {
+
+  private static final byte VERSION = 1;
+  private static final int NULL = -1;
+
+  private ApiEventCodec() {}
+
+  public static byte[] encode(ApiEvent event) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeByte(VERSION);
+      writeString(out, event.eventId());
+      writeString(out, event.tenantId());
+      writeInstant(out, event.timestamp());
+      writeInstant(out, event.receivedAt());
+
+      ApiEvent.HttpRequest request = event.request();
+      out.writeBoolean(request != null);
+      if (request != null) {
+        writeString(out, request.method());
+        writeString(out, request.host());
+        writeString(out, request.path());
+        writeString(out, request.queryString());
+        writeMap(out, request.headers());
+        writeString(out, request.body());
+        writeLong(out, request.sizeBytes());
+      }
+
+      ApiEvent.HttpResponse response = event.response();
+      out.writeBoolean(response != null);
+      if (response != null) {
+        out.writeBoolean(response.statusCode() != null);
+        if (response.statusCode() != null) {
+          out.writeInt(response.statusCode());
+        }
+        writeString(out, response.statusClass());
+        writeLong(out, response.responseTimeMs());
+        writeMap(out, response.headers());
+        writeString(out, response.body());
+        writeLong(out, response.sizeBytes());
+      }
+
+      ApiEvent.ServiceMetadata metadata = event.metadata();
+      out.writeBoolean(metadata != null);
+      if (metadata != null) {
+        writeString(out, metadata.serviceId());
+        writeString(out, metadata.serviceName());
+        writeString(out, metadata.environment());
+        writeString(out, metadata.region());
+        writeString(out, metadata.hostIp());
+        writeString(out, metadata.traceId());
+        writeMap(out, metadata.tags());
+      }
+    } catch (IOException e) {
+      // ByteArrayOutputStream doesn't throw.
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Read one event from {@code in}, advancing its position past it.
+   *
+   * @throws IllegalArgumentException if the bytes are not an encoded event
+   */
+  public static ApiEvent decode(ByteBuffer in) {
+    try {
+      byte version = in.get();
+      if (version != VERSION) {
+        throw new IllegalArgumentException("Unknown event encoding version " + version);
+      }
+      String eventId = readString(in);
+      String tenantId = readString(in);
+      Instant timestamp = readInstant(in);
+      Instant receivedAt = readInstant(in);
+
+      ApiEvent.HttpRequest request = null;
+      if (in.get() != 0) {
+        request = new ApiEvent.HttpRequest(readString(in), readString(in), readString(in),
+            readString(in), readMap(in), readString(in), readLong(in));
+      }
+
+      ApiEvent.HttpResponse response = null;
+      if (in.get() != 0) {
+        Integer statusCode = in.get() != 0 ? in.getInt() : null;
+        response = new ApiEvent.HttpResponse(statusCode, readString(in), readLong(in),
+            readMap(in), readString(in), readLong(in));
+      }
+
+      ApiEvent.ServiceMetadata metadata = null;
+      if (in.get() != 0) {
+        metadata = new ApiEvent.ServiceMetadata(readString(in), readString(in), readString(in),
+            readString(in), readString(in), readString(in), readMap(in));
+      }
+      return new ApiEvent(eventId, tenantId, timestamp, receivedAt, request, response, metadata);
+    } catch (BufferUnderflowException | NegativeArraySizeException e) {
+      throw new IllegalArgumentException("Truncated or corrupt event record", e);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(NULL);
+      return;
+    }
+    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(utf8.length);
+    out.write(utf8);
+  }
+
+  private static String readString(ByteBuffer in) {
+    int length = in.getInt();
+    if (length == NULL) {
+      return null;
+    }
+    if (length < 0 || length > in.remaining()) {
+      throw new IllegalArgumentException("Invalid string length " + length);
+    }
+    if (in.hasArray()) {
+      String value = new String(in.array(), in.arrayOffset() + in.position(), length,
+          StandardCharsets.UTF_8);
+      in.position(in.position() + length);
+      return value;
+    }
+    byte[] utf8 = new byte[length];
+    in.get(utf8);
+    return new String(utf8, StandardCharsets.UTF_8);
+  }
+
+  private static void writeInstant(DataOutputStream out, Instant value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeLong(value.getEpochSecond());
+      out.writeInt(value.getNano());
+    }
+  }
+
+  private static Instant readInstant(ByteBuffer in) {
+    return in.get() != 0 ? Instant.ofEpochSecond(in.getLong(), in.getInt()) : null;
+  }
+
+  private static void writeLong(DataOutputStream out, Long value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeLong(value);
+    }
+  }
+
+  private static Long readLong(ByteBuffer in) {
+    return in.get() != 0 ? in.getLong() : null;
+  }
+
+  private static void writeMap(DataOutputStream out, Map<String, String> map) throws IOException {
+    if (map == null) {
+      out.writeInt(NULL);
+      return;
+    }
+    out.writeInt(map.size());
+    for (Map.Entry<String, String> entry : map.entrySet()) {
+      writeString(out, entry.getKey());
+      writeString(out, entry.getValue());
+    }
+  }
+
+  private static Map<String, String> readMap(ByteBuffer in) {
+    int size = in.getInt();
+    if (size == NULL) {
+      return null;
+    }
+    if (size < 0 || size > in.remaining()) {
+      throw new IllegalArgumentException("Invalid map size " + size);
+    }
+    Map<String, String> map = new LinkedHashMap<>(size * 2);
+    for (int i = 0; i < size; i++) {
+      map.put(readString(in), readString(in));
+    }
+    return map;
+  }
+}
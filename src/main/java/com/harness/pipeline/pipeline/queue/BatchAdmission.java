@@ -0,0 +1,56 @@
+package com.harness.pipeline.pipeline.queue;
+
+/**
+ * High/low watermark admission control for the batch queue.
+ *
+ * <p>Once occupancy reaches the high watermark, new events are refused until the queue has
+ * drained back down to the low watermark. The gap between the two keeps the bus from
+ * flapping between accepting and rejecting on every event near the limit. A batch that would
+ * cross the high watermark is refused without latching, so a smaller one can still get in.
+ */
+class BatchAdmission {
+
+  static final double DEFAULT_HIGH_WATERMARK = 0.9;
+  static final double DEFAULT_LOW_WATERMARK = 0.7;
+
+  private final int highWatermark;
+  private final int lowWatermark;
+  private volatile boolean throttled;
+
+  BatchAdmission(int capacity, double highFraction, double lowFraction) {
+    if (highFraction <= 0 || highFraction > 1 || lowFraction < 0 || lowFraction > highFraction) {
+      throw new IllegalArgumentException(
+          "Watermarks must satisfy 0 <= low <= high <= 1, got low=" + lowFraction
+              + ", high=" + highFraction);
+    }
+    this.highWatermark = Math.max(1, (int) Math.ceil(capacity * highFraction));
+    this.lowWatermark = (int) Math.floor(capacity * lowFraction);
+  }
+
+  boolean admit(int occupancy) {
+    return admit(occupancy, 1);
+  }
+
+  /**
+   * @param occupancy events already queued; only this decides whether to start throttling
+   * @param count events to admit together
+   * @return whether all {@code count} events fit below the high watermark
+   */
+  boolean admit(long occupancy, int count) {
+    if (throttled) {
+      if (occupancy > lowWatermark) {
+        return false;
+      }
+      throttled = false;
+    }
+    if (occupancy >= highWatermark) {
+      throttled = true;
+      return false;
+    }
+    return occupancy + count <= highWatermark;
+  }
+
+  boolean isThrottled() {
+    return throttled;
+  }
+}
@@ -1,24 +1,173 @@
 package com.harness.pipeline.pipeline.queue;
 
 import com.harness.pipeline.model.ApiEvent;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * The realtime side is split into {@link #getRealtimeLaneCount() lanes}, each a queue of its
+ * own. {@code publish} routes an event to the lane of its tenant (see {@link TenantLanes}), so
+ * one tenant's events stay in order on one lane and a noisy tenant only fills its own lane.
+ * The lane-agnostic realtime methods cover every lane.
+ */
 public interface EventBus {
 
   /**
-   * Publish an event to both realtime and batch queues.
+   * Publish an event to both realtime and batch queues. Never waits for queue space, but a
+   * durable implementation may wait for the event to reach disk, e.g. {@link WalEventBus}
+   * with {@code sync-publish}.
    *
-   * @return true if the event was accepted into the realtime queue,
-   *         false if the realtime queue was full and the event was only
-   *         sent to the batch queue.
+   * @return {@link PublishResult#ACCEPTED} if the event reached both queues,
+   *         {@link PublishResult#REALTIME_SHED} if the realtime queue was full and the
+   *         event was only sent to the batch queue, or {@link PublishResult#REJECTED} if
+   *         the batch queue is above its high watermark, the event was not queued, or it
+   *         could not be made durable.
    */
-  boolean publish(ApiEvent event);
+  PublishResult publish(ApiEvent event);
 
-  ApiEvent takeRealtime() throws InterruptedException;
+  /**
+   * Publish several events in one operation. Batch admission is decided once for the whole
+   * list, so backpressure refuses all of it. A list that would cross the high watermark is
+   * refused without throttling later, smaller publishes. Once admitted, an event can still be
+   * {@link PublishResult#REJECTED rejected} on its own, e.g. when a concurrent publisher took
+   * the last free slots or storage failed, while the events before it stay queued; callers
+   * must check every result.
+   *
+   * @return one result per event, in the same order as {@code events}
+   */
+  List<PublishResult> publishAll(List<ApiEvent> events);
+
+  /**
+   * Take the next realtime event from any lane, waiting until one is available.
+   */
+  default ApiEvent takeRealtime() throws InterruptedException {
+    List<ApiEvent> next = new ArrayList<>(1);
+    while (drainRealtime(1, next, 100, TimeUnit.MILLISECONDS) == 0) {
+      // keep waiting
+    }
+    return next.get(0);
+  }
 
   ApiEvent takeBatch() throws InterruptedException;
 
-  int getRealtimeQueueSize();
+  /**
+   * Move up to {@code maxEvents} currently queued realtime events into {@code sink}
+   * without blocking.
+   *
+   * @return the number of events added to {@code sink}
+   */
+  default int drainRealtime(int maxEvents, Collection<? super ApiEvent> sink) {
+    int drained = 0;
+    for (int lane = 0; lane < getRealtimeLaneCount() && drained < maxEvents; lane++) {
+      drained += drainRealtimeLane(lane, maxEvents - drained, sink);
+    }
+    return drained;
+  }
+
+  /**
+   * Like {@link #drainRealtime(int, Collection)}, but waits up to {@code timeout} for the
+   * first event when the queue is empty.
+   *
+   * @return the number of events added to {@code sink}, 0 if the timeout elapsed
+   */
+  default int drainRealtime(int maxEvents, Collection<? super ApiEvent> sink, long timeout,
+                            TimeUnit unit) throws InterruptedException {
+    int lanes = getRealtimeLaneCount();
+    if (lanes == 1) {
+      return drainRealtimeLane(0, maxEvents, sink, timeout, unit);
+    }
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    for (int lane = 0; ; lane = (lane + 1) % lanes) {
+      int drained = drainRealtime(maxEvents, sink);
+      if (drained > 0 || System.nanoTime() - deadline >= 0) {
+        return drained;
+      }
+      // No single lane to block on: wait on each in turn, briefly.
+      drained = drainRealtimeLane(lane, maxEvents, sink, 1, TimeUnit.MILLISECONDS);
+      if (drained > 0) {
+        return drained;
+      }
+    }
+  }
+
+  /**
+   * @return the number of realtime lanes, at least 1
+   */
+  int getRealtimeLaneCount();
+
+  /**
+   * Move up to {@code maxEvents} events queued on realtime lane {@code lane} into {@code sink}
+   * without blocking, in publish order.
+   *
+   * @return the number of events added to {@code sink}
+   */
+  int drainRealtimeLane(int lane, int maxEvents, Collection<? super ApiEvent> sink);
+
+  /**
+   * Like {@link #drainRealtimeLane(int, int, Collection)}, but waits up to {@code timeout} for
+   * the first event when the lane is empty.
+   *
+   * @return the number of events added to {@code sink}, 0 if the timeout elapsed
+   */
+  int drainRealtimeLane(int lane, int maxEvents, Collection<? super ApiEvent> sink, long timeout,
+                        TimeUnit unit) throws InterruptedException;
+
+  int getRealtimeLaneSize(int lane);
+
+  /**
+   * Move up to {@code maxEvents} currently queued batch events into {@code sink}
+   * without blocking.
+   *
+   * @return the number of events added to {@code sink}
+   */
+  int drainBatch(int maxEvents, Collection<? super ApiEvent> sink);
+
+  /**
+   * Like {@link #drainBatch(int, Collection)}, but waits up to {@code timeout} for the
+   * first event when the queue is empty.
+   *
+   * @return the number of events added to {@code sink}, 0 if the timeout elapsed
+   */
+  int drainBatch(int maxEvents, Collection<? super ApiEvent> sink, long timeout, TimeUnit unit)
+      throws InterruptedException;
+
+  /**
+   * @return the number of events queued on all realtime lanes
+   */
+  default int getRealtimeQueueSize() {
+    int size = 0;
+    for (int lane = 0; lane < getRealtimeLaneCount(); lane++) {
+      size += getRealtimeLaneSize(lane);
+    }
+    return size;
+  }
 
   int getBatchQueueSize();
+
+  /**
+   * @return how many of the {@link #getBatchQueueSize() queued batch events} are held on disk
+   *     rather than in memory
+   */
+  default int getBatchSpilledSize() {
+    return 0;
+  }
+
+  /**
+   * @return an opaque position of the batch consumer, just past the last event it drained.
+   *     Only meaningful to {@link #commitBatch}
+   */
+  default long batchPosition() {
+    return 0;
+  }
+
+  /**
+   * Tell the bus that every batch event drained before {@code position} has been persisted by
+   * the batch writer. A durable bus replays only later events after a restart and may release
+   * the storage of earlier ones; an in-memory bus ignores it.
+   */
+  default void commitBatch(long position) {
+  }
 }
 
@@ -0,0 +1,39 @@
+package com.harness.pipeline.pipeline.queue;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes queue depths: {@code pipeline.realtime.queue.depth} once per realtime lane, tagged
+ * with its {@code lane}, {@code pipeline.batch.queue.depth} and, of those,
+ * {@code pipeline.batch.queue.spilled} on disk. A single deep lane points at a noisy tenant
+ * rather than an undersized pool; a growing spill at a stalled batch writer.
+ */
+@Component
+public class EventBusMetrics implements MeterBinder {
+
+  private final EventBus eventBus;
+
+  public EventBusMetrics(EventBus eventBus) {
+    this.eventBus = eventBus;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    for (int lane = 0; lane < eventBus.getRealtimeLaneCount(); lane++) {
+      int index = lane;
+      Gauge.builder("pipeline.realtime.queue.depth", eventBus, bus -> bus.getRealtimeLaneSize(index))
+          .tag("lane", Integer.toString(lane))
+          .description("Events waiting in a realtime lane")
+          .register(registry);
+    }
+    Gauge.builder("pipeline.batch.queue.depth", eventBus, EventBus::getBatchQueueSize)
+        .description("Events waiting in the batch queue")
+        .register(registry);
+    Gauge.builder("pipeline.batch.queue.spilled", eventBus, EventBus::getBatchSpilledSize)
+        .description("Batch queue events spilled to disk")
+        .register(registry);
+  }
+}
@@ -0,0 +1,292 @@
+package com.harness.pipeline.pipeline.queue;
+
+import com.harness.pipeline.model.ApiEvent;
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Bounded realtime lane with a FIFO sub-queue per tenant, drained by deficit round robin: each
+ * tenant with a backlog in turn gets a quantum of {@link TenantFairness#weight its weight} in
+ * events, and a tenant that drains empty leaves the rotation and forfeits its deficit. Events of
+ * one tenant keep publish order; events of different tenants interleave by weight.
+ *
+ * <p>A tenant may go past its {@link TenantFairness#quota quota} while the lane has room, so a
+ * tenant alone on its lane can use all of it. Once the lane is full, an event of a tenant within
+ * its quota evicts the newest event of the tenant furthest past its own, which is handed to the
+ * eviction callback; an event of a tenant at or past its quota is rejected. A burst therefore
+ * sheds the bursting tenant's events first, but only when someone else needs the room.
+ * Empty sub-queues are dropped, so memory follows the tenants with a backlog, not all tenants
+ * ever seen. Iteration returns a snapshot.
+ */
+final class FairTenantQueue extends AbstractQueue<ApiEvent> implements BlockingQueue<ApiEvent> {
+
+  private final int capacity;
+  private final TenantFairness fairness;
+  private final Consumer<ApiEvent> onEvicted;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+  private final Map<String, TenantQueue> tenants = new HashMap<>();
+  /** Tenants with a backlog, in round-robin order; the head is being served. */
+  private final ArrayDeque<TenantQueue> rotation = new ArrayDeque<>();
+  private volatile int count;
+
+  FairTenantQueue(int capacity, TenantFairness fairness) {
+    this(capacity, fairness, event -> { });
+  }
+
+  /**
+   * @param onEvicted told about each queued event evicted to make room for another tenant;
+   *     called under the lane's lock, so it must be quick
+   */
+  FairTenantQueue(int capacity, TenantFairness fairness, Consumer<ApiEvent> onEvicted) {
+    this.capacity = Math.max(1, capacity);
+    this.fairness = fairness;
+    this.onEvicted = onEvicted;
+  }
+
+  @Override
+  public boolean offer(ApiEvent event) {
+    lock.lock();
+    try {
+      return enqueue(event);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean offer(ApiEvent event, long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (!enqueue(event)) {
+        if (nanos <= 0) {
+          return false;
+        }
+        nanos = notFull.awaitNanos(nanos);
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void put(ApiEvent event) throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (!enqueue(event)) {
+        notFull.await();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public ApiEvent poll() {
+    lock.lock();
+    try {
+      return dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public ApiEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (count == 0) {
+        if (nanos <= 0) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos(nanos);
+      }
+      return dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public ApiEvent take() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (count == 0) {
+        notEmpty.await();
+      }
+      return dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public ApiEvent peek() {
+    lock.lock();
+    try {
+      TenantQueue head = rotation.peekFirst();
+      return head != null ? head.events.peekFirst() : null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int drainTo(Collection<? super ApiEvent> sink) {
+    return drainTo(sink, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo(Collection<? super ApiEvent> sink, int maxElements) {
+    lock.lock();
+    try {
+      int drained = 0;
+      while (drained < maxElements && count > 0) {
+        sink.add(dequeue());
+        drained++;
+      }
+      return drained;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    return count;
+  }
+
+  @Override
+  public int remainingCapacity() {
+    return capacity - count;
+  }
+
+  @Override
+  public Iterator<ApiEvent> iterator() {
+    lock.lock();
+    try {
+      List<ApiEvent> snapshot = new ArrayList<>(count);
+      for (TenantQueue tenant : rotation) {
+        snapshot.addAll(tenant.events);
+      }
+      return Collections.unmodifiableList(snapshot).iterator();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of events {@code tenantId} has queued in this lane
+   */
+  int tenantSize(String tenantId) {
+    lock.lock();
+    try {
+      TenantQueue tenant = tenants.get(key(tenantId));
+      return tenant != null ? tenant.events.size() : 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean enqueue(ApiEvent event) {
+    String tenantId = key(event.tenantId());
+    TenantQueue tenant = tenants.get(tenantId);
+    if (tenant == null) {
+      tenant = new TenantQueue(tenantId, fairness.weight(tenantId),
+          fairness.quota(tenantId, capacity));
+    }
+    if (count >= capacity && (tenant.events.size() >= tenant.quota || !evictOverQuota())) {
+      return false;
+    }
+    if (tenant.events.isEmpty()) {
+      tenants.put(tenantId, tenant);
+      rotation.addLast(tenant);
+    }
+    tenant.events.addLast(event);
+    count++;
+    notEmpty.signal();
+    return true;
+  }
+
+  /**
+   * Drop the newest event of the tenant furthest past its quota.
+   *
+   * @return false if no tenant is past its quota
+   */
+  private boolean evictOverQuota() {
+    TenantQueue victim = null;
+    int mostOver = 0;
+    for (TenantQueue tenant : rotation) {
+      int over = tenant.events.size() - tenant.quota;
+      if (over > mostOver) {
+        mostOver = over;
+        victim = tenant;
+      }
+    }
+    if (victim == null) {
+      return false;
+    }
+    // Past its quota means at least one event is left, so the tenant stays in the rotation.
+    ApiEvent evicted = victim.events.pollLast();
+    count--;
+    onEvicted.accept(evicted);
+    return true;
+  }
+
+  private ApiEvent dequeue() {
+    TenantQueue tenant = rotation.peekFirst();
+    if (tenant == null) {
+      return null;
+    }
+    if (tenant.deficit == 0) {
+      // Its turn starts: grant the quantum.
+      tenant.deficit = tenant.weight;
+    }
+    ApiEvent event = tenant.events.pollFirst();
+    tenant.deficit--;
+    count--;
+    if (tenant.events.isEmpty()) {
+      rotation.pollFirst();
+      tenants.remove(tenant.tenantId);
+    } else if (tenant.deficit == 0) {
+      rotation.addLast(rotation.pollFirst());
+    }
+    notFull.signalAll();
+    return event;
+  }
+
+  private static String key(String tenantId) {
+    return tenantId != null ? tenantId : "";
+  }
+
+  private static final class TenantQueue {
+
+    final String tenantId;
+    final int weight;
+    final int quota;
+    final ArrayDeque<ApiEvent> events = new ArrayDeque<>();
+    int deficit;
+
+    TenantQueue(String tenantId, int weight, int quota) {
+      this.tenantId = tenantId;
+      this.weight = weight;
+      this.quota = quota;
+    }
+  }
+}
@@ -1,39 +1,115 @@
 package com.harness.pipeline.pipeline.queue;
 
 import com.harness.pipeline.model.ApiEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 @Component
+@ConditionalOnProperty(name = "pipeline.queue.impl", havingValue = "in-memory", matchIfMissing = true)
 public class InMemoryEventBus implements EventBus {
 
-  private final BlockingQueue<ApiEvent> realtimeQueue;
+  private final List<BlockingQueue<ApiEvent>> realtimeLanes;
   private final BlockingQueue<ApiEvent> batchQueue;
+  private final BatchAdmission batchAdmission;
 
+  public InMemoryEventBus(int realtimeCapacity, int batchCapacity) {
+    this(realtimeCapacity, batchCapacity,
+        BatchAdmission.DEFAULT_HIGH_WATERMARK, BatchAdmission.DEFAULT_LOW_WATERMARK);
+  }
+
+  public InMemoryEventBus(int realtimeCapacity, int batchCapacity,
+                          double batchHighWatermark, double batchLowWatermark) {
+    this(realtimeCapacity, batchCapacity, batchHighWatermark, batchLowWatermark, 1, null);
+  }
+
+  /**
+   * @param realtimeCapacity total realtime capacity, split evenly over the lanes
+   * @param fairness when enabled, each lane is a {@link FairTenantQueue}; else a plain FIFO.
+   *     May be null
+   */
+  public InMemoryEventBus(int realtimeCapacity, int batchCapacity,
+                          double batchHighWatermark, double batchLowWatermark,
+                          int realtimeLanes, TenantFairness fairness) {
+    this(realtimeCapacity, new LinkedBlockingQueue<>(batchCapacity),
+        new BatchAdmission(batchCapacity, batchHighWatermark, batchLowWatermark),
+        realtimeLanes, fairness);
+  }
+
+  /**
+   * @param spillEnabled past {@code batchCapacity} events, queue up to {@code spillMaxEvents}
+   *     more in spill files under {@code spillPath} (see {@link SpillingBatchQueue}); the
+   *     watermarks then apply to the total
+   */
+  @Autowired
   public InMemoryEventBus(
       @Value("${pipeline.queue.realtime-capacity:10000}") int realtimeCapacity,
-      @Value("${pipeline.queue.batch-capacity:50000}") int batchCapacity) {
-    this.realtimeQueue = new LinkedBlockingQueue<>(realtimeCapacity);
-    this.batchQueue = new LinkedBlockingQueue<>(batchCapacity);
+      @Value("${pipeline.queue.batch-capacity:50000}") int batchCapacity,
+      @Value("${pipeline.queue.batch-high-watermark:0.9}") double batchHighWatermark,
+      @Value("${pipeline.queue.batch-low-watermark:0.7}") double batchLowWatermark,
+      @Value("${pipeline.queue.realtime-lanes:1}") int realtimeLanes,
+      TenantFairness fairness,
+      @Value("${pipeline.queue.spill.enabled:false}") boolean spillEnabled,
+      @Value("${pipeline.queue.spill.path:/tmp/api-event-pipeline/spill}") String spillPath,
+      @Value("${pipeline.queue.spill.max-events:1000000}") int spillMaxEvents,
+      @Value("${pipeline.queue.spill.segment-bytes:67108864}") int spillSegmentBytes)
+      throws IOException {
+    this(realtimeCapacity,
+        spillEnabled
+            ? new SpillingBatchQueue(batchCapacity, spillMaxEvents, Path.of(spillPath),
+                spillSegmentBytes)
+            : new LinkedBlockingQueue<>(batchCapacity),
+        new BatchAdmission(batchCapacity + (spillEnabled ? spillMaxEvents : 0),
+            batchHighWatermark, batchLowWatermark),
+        realtimeLanes, fairness);
+  }
+
+  private InMemoryEventBus(int realtimeCapacity, BlockingQueue<ApiEvent> batchQueue,
+                           BatchAdmission batchAdmission, int realtimeLanes,
+                           TenantFairness fairness) {
+    this.realtimeLanes = newRealtimeLanes(realtimeCapacity, realtimeLanes, fairness);
+    this.batchQueue = batchQueue;
+    this.batchAdmission = batchAdmission;
   }
 
   @Override
-  public boolean publish(ApiEvent event) {
-    boolean acceptedRealtime = realtimeQueue.offer(event);
-    try {
-      batchQueue.put(event);
-    } catch (InterruptedException e) {
-      Thread.currentThread().interrupt();
-      throw new IllegalStateException("Interrupted while enqueuing event to batch queue", e);
+  public PublishResult publish(ApiEvent event) {
+    if (!batchAdmission.admit(batchQueue.size()) || !batchQueue.offer(event)) {
+      return PublishResult.REJECTED;
     }
-    return acceptedRealtime;
+    return laneOf(event).offer(event) ? PublishResult.ACCEPTED : PublishResult.REALTIME_SHED;
   }
 
   @Override
-  public ApiEvent takeRealtime() throws InterruptedException {
-    return realtimeQueue.take();
+  public List<PublishResult> publishAll(List<ApiEvent> events) {
+    int count = events.size();
+    if (!batchAdmission.admit(batchQueue.size(), count)
+        || batchQueue.remainingCapacity() < count) {
+      return Collections.nCopies(count, PublishResult.REJECTED);
+    }
+    List<PublishResult> results = new ArrayList<>(count);
+    for (ApiEvent event : events) {
+      if (!batchQueue.offer(event)) {
+        // Lost a race with concurrent publishers for the last free slots.
+        results.add(PublishResult.REJECTED);
+      } else if (laneOf(event).offer(event)) {
+        results.add(PublishResult.ACCEPTED);
+      } else {
+        results.add(PublishResult.REALTIME_SHED);
+      }
+    }
+    return results;
   }
 
   @Override
@@ -42,12 +118,92 @@ public class InMemoryEventBus implements EventBus {
   }
 
   @Override
-  public int getRealtimeQueueSize() {
-    return realtimeQueue.size();
+  public int getRealtimeLaneCount() {
+    return realtimeLanes.size();
+  }
+
+  @Override
+  public int drainRealtimeLane(int lane, int maxEvents, Collection<? super ApiEvent> sink) {
+    return realtimeLanes.get(lane).drainTo(sink, maxEvents);
+  }
+
+  @Override
+  public int drainRealtimeLane(int lane, int maxEvents, Collection<? super ApiEvent> sink,
+                               long timeout, TimeUnit unit) throws InterruptedException {
+    return drain(realtimeLanes.get(lane), maxEvents, sink, timeout, unit);
+  }
+
+  @Override
+  public int getRealtimeLaneSize(int lane) {
+    return realtimeLanes.get(lane).size();
+  }
+
+  @Override
+  public int drainBatch(int maxEvents, Collection<? super ApiEvent> sink) {
+    return batchQueue.drainTo(sink, maxEvents);
+  }
+
+  @Override
+  public int drainBatch(int maxEvents, Collection<? super ApiEvent> sink,
+                        long timeout, TimeUnit unit) throws InterruptedException {
+    return drain(batchQueue, maxEvents, sink, timeout, unit);
   }
 
   @Override
   public int getBatchQueueSize() {
     return batchQueue.size();
   }
+
+  @Override
+  public int getBatchSpilledSize() {
+    return batchQueue instanceof SpillingBatchQueue spilling ? spilling.spilledSize() : 0;
+  }
+
+  private BlockingQueue<ApiEvent> laneOf(ApiEvent event) {
+    return realtimeLanes.get(TenantLanes.laneOf(event.tenantId(), realtimeLanes.size()));
+  }
+
+  /**
+   * @return {@code lanes} realtime queues sharing {@code capacity}, fair ones if
+   *     {@code fairness} is enabled
+   */
+  static List<BlockingQueue<ApiEvent>> newRealtimeLanes(int capacity, int lanes,
+                                                        TenantFairness fairness) {
+    return newRealtimeLanes(capacity, lanes, fairness, event -> { });
+  }
+
+  /**
+   * @param onEvicted told about events a fair lane evicts to make room for another tenant
+   */
+  static List<BlockingQueue<ApiEvent>> newRealtimeLanes(int capacity, int lanes,
+                                                        TenantFairness fairness,
+                                                        Consumer<ApiEvent> onEvicted) {
+    int count = Math.max(1, lanes);
+    int laneCapacity = Math.max(1, (capacity + count - 1) / count);
+    List<BlockingQueue<ApiEvent>> queues = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      queues.add(fairness != null && fairness.isEnabled()
+          ? new FairTenantQueue(laneCapacity, fairness, onEvicted)
+          : new LinkedBlockingQueue<>(laneCapacity));
+    }
+    return queues;
+  }
+
+  static int drain(BlockingQueue<ApiEvent> queue, int maxEvents,
+                           Collection<? super ApiEvent> sink,
+                           long timeout, TimeUnit unit) throws InterruptedException {
+    if (maxEvents <= 0) {
+      return 0;
+    }
+    int drained = queue.drainTo(sink, maxEvents);
+    if (drained > 0) {
+      return drained;
+    }
+    ApiEvent first = queue.poll(timeout, unit);
+    if (first == null) {
+      return 0;
+    }
+    sink.add(first);
+    return 1 + queue.drainTo(sink, maxEvents - 1);
+  }
 }
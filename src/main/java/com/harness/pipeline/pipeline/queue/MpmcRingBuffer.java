@@ -0,0 +1,169 @@
+package com.harness.pipeline.pipeline.queue;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free multi-producer/multi-consumer ring buffer.
+ *
+ * <p>Slots are preallocated in a power-of-two array. Each slot carries a sequence number:
+ * a producer claims position {@code p} by CAS on the tail cursor when the slot's sequence
+ * equals {@code p}, writes the element and publishes it by setting the sequence to
+ * {@code p + 1}; a consumer claims it the same way on the head cursor and releases the slot
+ * for the next lap by setting the sequence to {@code p + capacity}. No nodes are allocated
+ * and no locks are taken on either side.
+ *
+ * <p>The sequence scheme needs at least two slots, so the capacity is never below 2.
+ */
+public class MpmcRingBuffer<E> {
+
+  private final int capacity;
+  private final int mask;
+  private final Object[] slots;
+  private final AtomicLongArray sequences;
+  private final PaddedCursor tail = new PaddedCursor();
+  private final PaddedCursor head = new PaddedCursor();
+
+  public MpmcRingBuffer(int requestedCapacity) {
+    this.capacity = ceilingPowerOfTwo(requestedCapacity);
+    this.mask = capacity - 1;
+    this.slots = new Object[capacity];
+    this.sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * @return false if the buffer is full
+   */
+  public boolean offer(E element) {
+    if (element == null) {
+      throw new NullPointerException("element");
+    }
+    while (true) {
+      long position = tail.get();
+      int index = (int) (position & mask);
+      long difference = sequences.get(index) - position;
+      if (difference == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          slots[index] = element;
+          sequences.set(index, position + 1);
+          return true;
+        }
+      } else if (difference < 0) {
+        return false;
+      }
+      // Another producer claimed this position first; reload the tail and retry.
+    }
+  }
+
+  /**
+   * Claim {@code elements.size()} consecutive slots with a single CAS and fill them in order.
+   * All-or-nothing: nothing is enqueued when there isn't room for every element.
+   *
+   * @return false if the buffer doesn't have room for all elements
+   */
+  public boolean offerAll(List<? extends E> elements) {
+    int count = elements.size();
+    if (count == 0) {
+      return true;
+    }
+    if (count > capacity) {
+      return false;
+    }
+    while (true) {
+      long first = tail.get();
+      long last = first + count - 1;
+      long difference = sequences.get((int) (last & mask)) - last;
+      if (difference == 0) {
+        if (tail.compareAndSet(first, first + count)) {
+          for (int i = 0; i < count; i++) {
+            long position = first + i;
+            int index = (int) (position & mask);
+            // The last slot is free, but a consumer may still be releasing an earlier one.
+            while (sequences.get(index) != position) {
+              Thread.onSpinWait();
+            }
+            slots[index] = elements.get(i);
+            sequences.set(index, position + 1);
+          }
+          return true;
+        }
+      } else if (difference < 0) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * @return the oldest element, or null if the buffer is empty
+   */
+  @SuppressWarnings("unchecked")
+  public E poll() {
+    while (true) {
+      long position = head.get();
+      int index = (int) (position & mask);
+      long difference = sequences.get(index) - (position + 1);
+      if (difference == 0) {
+        if (head.compareAndSet(position, position + 1)) {
+          E element = (E) slots[index];
+          slots[index] = null;
+          sequences.set(index, position + capacity);
+          return element;
+        }
+      } else if (difference < 0) {
+        return null;
+      }
+    }
+  }
+
+  public int drainTo(Collection<? super E> sink, int maxElements) {
+    int drained = 0;
+    while (drained < maxElements) {
+      E element = poll();
+      if (element == null) {
+        break;
+      }
+      sink.add(element);
+      drained++;
+    }
+    return drained;
+  }
+
+  public int size() {
+    while (true) {
+      long before = head.get();
+      long currentTail = tail.get();
+      long after = head.get();
+      if (before == after) {
+        long size = currentTail - after;
+        return (int) Math.max(0, Math.min(size, capacity));
+      }
+    }
+  }
+
+  private static int ceilingPowerOfTwo(int value) {
+    if (value <= 0) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    if (value > (1 << 30)) {
+      throw new IllegalArgumentException("capacity too large: " + value);
+    }
+    return value <= 2 ? 2 : Integer.highestOneBit(value - 1) << 1;
+  }
+
+  /**
+   * Cursor padded onto its own cache line so producers and consumers don't false-share.
+   */
+  @SuppressWarnings("unused")
+  private static final class PaddedCursor extends AtomicLong {
+    private long p1, p2, p3, p4, p5, p6, p7;
+  }
+}
@@ -0,0 +1,16 @@
+package com.harness.pipeline.pipeline.queue;
+
+/**
+ * Outcome of {@link EventBus#publish}.
+ */
+public enum PublishResult {
+
+  /** Queued for both realtime evaluation and batch storage. */
+  ACCEPTED,
+
+  /** Queued for batch storage only; the realtime queue was full. */
+  REALTIME_SHED,
+
+  /** Not queued at all; the batch path is over its high watermark or full. */
+  REJECTED
+}
@@ -0,0 +1,167 @@
+package com.harness.pipeline.pipeline.queue;
+
+import com.harness.pipeline.model.ApiEvent;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link EventBus} backed by two preallocated {@link MpmcRingBuffer}s. Publishing claims a
+ * slot with a CAS instead of allocating a node and taking a queue lock. Enabled with
+ * {@code pipeline.queue.impl=ring-buffer}; capacities are rounded up to a power of two.
+ */
+@Component
+@ConditionalOnProperty(name = "pipeline.queue.impl", havingValue = "ring-buffer")
+public class RingBufferEventBus implements EventBus {
+
+  private final List<MpmcRingBuffer<ApiEvent>> realtimeRings;
+  private final MpmcRingBuffer<ApiEvent> batchRing;
+  private final WaitStrategy waitStrategy;
+  private final BatchAdmission batchAdmission;
+
+  public RingBufferEventBus(int realtimeCapacity, int batchCapacity, WaitStrategy waitStrategy) {
+    this(realtimeCapacity, batchCapacity, waitStrategy,
+        BatchAdmission.DEFAULT_HIGH_WATERMARK, BatchAdmission.DEFAULT_LOW_WATERMARK);
+  }
+
+  public RingBufferEventBus(int realtimeCapacity, int batchCapacity, WaitStrategy waitStrategy,
+                            double batchHighWatermark, double batchLowWatermark) {
+    this(realtimeCapacity, batchCapacity, waitStrategy, batchHighWatermark, batchLowWatermark, 1);
+  }
+
+  /**
+   * @param realtimeCapacity total realtime capacity, split evenly over the lanes
+   */
+  @Autowired
+  public RingBufferEventBus(
+      @Value("${pipeline.queue.realtime-capacity:10000}") int realtimeCapacity,
+      @Value("${pipeline.queue.batch-capacity:50000}") int batchCapacity,
+      @Value("${pipeline.queue.wait-strategy:PARK}") WaitStrategy waitStrategy,
+      @Value("${pipeline.queue.batch-high-watermark:0.9}") double batchHighWatermark,
+      @Value("${pipeline.queue.batch-low-watermark:0.7}") double batchLowWatermark,
+      @Value("${pipeline.queue.realtime-lanes:1}") int realtimeLanes) {
+    int lanes = Math.max(1, realtimeLanes);
+    int laneCapacity = Math.max(1, (realtimeCapacity + lanes - 1) / lanes);
+    this.realtimeRings = new ArrayList<>(lanes);
+    for (int i = 0; i < lanes; i++) {
+      this.realtimeRings.add(new MpmcRingBuffer<>(laneCapacity));
+    }
+    this.batchRing = new MpmcRingBuffer<>(batchCapacity);
+    this.waitStrategy = waitStrategy;
+    this.batchAdmission = new BatchAdmission(
+        batchRing.capacity(), batchHighWatermark, batchLowWatermark);
+  }
+
+  @Override
+  public PublishResult publish(ApiEvent event) {
+    if (!batchAdmission.admit(batchRing.size()) || !batchRing.offer(event)) {
+      return PublishResult.REJECTED;
+    }
+    return ringOf(event).offer(event) ? PublishResult.ACCEPTED : PublishResult.REALTIME_SHED;
+  }
+
+  @Override
+  public List<PublishResult> publishAll(List<ApiEvent> events) {
+    int count = events.size();
+    if (!batchAdmission.admit(batchRing.size(), count) || !batchRing.offerAll(events)) {
+      return Collections.nCopies(count, PublishResult.REJECTED);
+    }
+    if (realtimeRings.size() == 1 && realtimeRings.get(0).offerAll(events)) {
+      return Collections.nCopies(count, PublishResult.ACCEPTED);
+    }
+    List<PublishResult> results = new ArrayList<>(count);
+    for (ApiEvent event : events) {
+      results.add(ringOf(event).offer(event) ? PublishResult.ACCEPTED : PublishResult.REALTIME_SHED);
+    }
+    return results;
+  }
+
+  @Override
+  public ApiEvent takeBatch() throws InterruptedException {
+    return take(batchRing);
+  }
+
+  @Override
+  public int getRealtimeLaneCount() {
+    return realtimeRings.size();
+  }
+
+  @Override
+  public int drainRealtimeLane(int lane, int maxEvents, Collection<? super ApiEvent> sink) {
+    return realtimeRings.get(lane).drainTo(sink, maxEvents);
+  }
+
+  @Override
+  public int drainRealtimeLane(int lane, int maxEvents, Collection<? super ApiEvent> sink,
+                               long timeout, TimeUnit unit) throws InterruptedException {
+    return drain(realtimeRings.get(lane), maxEvents, sink, timeout, unit);
+  }
+
+  @Override
+  public int getRealtimeLaneSize(int lane) {
+    return realtimeRings.get(lane).size();
+  }
+
+  @Override
+  public int drainBatch(int maxEvents, Collection<? super ApiEvent> sink) {
+    return batchRing.drainTo(sink, maxEvents);
+  }
+
+  @Override
+  public int drainBatch(int maxEvents, Collection<? super ApiEvent> sink,
+                        long timeout, TimeUnit unit) throws InterruptedException {
+    return drain(batchRing, maxEvents, sink, timeout, unit);
+  }
+
+  @Override
+  public int getBatchQueueSize() {
+    return batchRing.size();
+  }
+
+  private MpmcRingBuffer<ApiEvent> ringOf(ApiEvent event) {
+    return realtimeRings.get(TenantLanes.laneOf(event.tenantId(), realtimeRings.size()));
+  }
+
+  private ApiEvent take(MpmcRingBuffer<ApiEvent> ring) throws InterruptedException {
+    int attempt = 0;
+    while (true) {
+      ApiEvent event = ring.poll();
+      if (event != null) {
+        return event;
+      }
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      waitStrategy.idle(attempt++);
+    }
+  }
+
+  private int drain(MpmcRingBuffer<ApiEvent> ring, int maxEvents,
+                    Collection<? super ApiEvent> sink,
+                    long timeout, TimeUnit unit) throws InterruptedException {
+    if (maxEvents <= 0) {
+      return 0;
+    }
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    int attempt = 0;
+    while (true) {
+      int drained = ring.drainTo(sink, maxEvents);
+      if (drained > 0) {
+        return drained;
+      }
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      if (System.nanoTime() - deadline >= 0) {
+        return 0;
+      }
+      waitStrategy.idle(attempt++);
+    }
+  }
+}
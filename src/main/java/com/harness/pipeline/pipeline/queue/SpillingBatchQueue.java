@@ -0,0 +1,317 @@
+package com.harness.pipeline.pipeline.queue;
+
+import com.harness.pipeline.model.ApiEvent;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Batch queue that holds up to {@code memoryCapacity} events on the heap and spills the rest,
+ * encoded by {@link ApiEventCodec}, to a {@link WriteAheadLog} under {@code directory}. A stalled
+ * batch writer then costs disk space instead of heap, and ingestion keeps going until
+ * {@code spillCapacity} events are on disk.
+ *
+ * <p>Once an event has spilled, later events spill too until the consumer has read the spill
+ * files empty, so the queue stays FIFO: the heap holds only events older than any on disk.
+ * Spilled records are never forced; the spill files are an overflow buffer, not a durable log,
+ * so their segments are cleared when the queue is created; other files in {@code directory} are
+ * left alone. An unreadable spilled record is logged and skipped. The log is created on the first spill, and
+ * each segment is deleted once it has been read.
+ */
+final class SpillingBatchQueue extends AbstractQueue<ApiEvent> implements BlockingQueue<ApiEvent> {
+
+  private static final Logger log = LoggerFactory.getLogger(SpillingBatchQueue.class);
+
+  private final int memoryCapacity;
+  private final int spillCapacity;
+  private final Path directory;
+  private final int segmentBytes;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+  private final ArrayDeque<ApiEvent> memory = new ArrayDeque<>();
+  private WriteAheadLog spill;
+  private WriteAheadLog.Cursor spillCursor;
+  private volatile int spilled;
+  private volatile int count;
+
+  SpillingBatchQueue(int memoryCapacity, int spillCapacity, Path directory, int segmentBytes)
+      throws IOException {
+    this.memoryCapacity = Math.max(1, memoryCapacity);
+    this.spillCapacity = Math.max(0, spillCapacity);
+    this.directory = directory;
+    this.segmentBytes = segmentBytes;
+    clearSpillFiles();
+  }
+
+  @Override
+  public boolean offer(ApiEvent event) {
+    lock.lock();
+    try {
+      return enqueue(event);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean offer(ApiEvent event, long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (!enqueue(event)) {
+        if (nanos <= 0) {
+          return false;
+        }
+        nanos = notFull.awaitNanos(nanos);
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void put(ApiEvent event) throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (!enqueue(event)) {
+        notFull.await();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public ApiEvent poll() {
+    lock.lock();
+    try {
+      return dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public ApiEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      ApiEvent event;
+      while ((event = dequeue()) == null) {
+        if (nanos <= 0) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos(nanos);
+      }
+      return event;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public ApiEvent take() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      ApiEvent event;
+      while ((event = dequeue()) == null) {
+        notEmpty.await();
+      }
+      return event;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public ApiEvent peek() {
+    lock.lock();
+    try {
+      if (!memory.isEmpty()) {
+        return memory.peekFirst();
+      }
+      if (spilled == 0) {
+        return null;
+      }
+      return ApiEventCodec.decode(ByteBuffer.wrap(spill.cursor(spillCursor.position()).next()));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int drainTo(Collection<? super ApiEvent> sink) {
+    return drainTo(sink, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo(Collection<? super ApiEvent> sink, int maxElements) {
+    lock.lock();
+    try {
+      int drained = 0;
+      ApiEvent event;
+      while (drained < maxElements && (event = dequeue()) != null) {
+        sink.add(event);
+        drained++;
+      }
+      return drained;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    return count;
+  }
+
+  /**
+   * While events are spilled, new ones can only spill too, so free memory doesn't count.
+   */
+  @Override
+  public int remainingCapacity() {
+    lock.lock();
+    try {
+      return spilled > 0
+          ? spillCapacity - spilled
+          : memoryCapacity - memory.size() + spillCapacity;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Snapshot of the queued events, decoding the spilled ones. Meant for diagnostics.
+   */
+  @Override
+  public Iterator<ApiEvent> iterator() {
+    lock.lock();
+    try {
+      List<ApiEvent> snapshot = new ArrayList<>(memory);
+      if (spilled > 0) {
+        WriteAheadLog.Cursor scan = spill.cursor(spillCursor.position());
+        for (byte[] record = scan.next(); record != null; record = scan.next()) {
+          snapshot.add(ApiEventCodec.decode(ByteBuffer.wrap(record)));
+        }
+      }
+      return Collections.unmodifiableList(snapshot).iterator();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of queued events that are on disk
+   */
+  int spilledSize() {
+    return spilled;
+  }
+
+  private boolean enqueue(ApiEvent event) {
+    if (spilled == 0 && memory.size() < memoryCapacity) {
+      memory.addLast(event);
+    } else if (spilled >= spillCapacity || !append(event)) {
+      return false;
+    }
+    count++;
+    notEmpty.signal();
+    return true;
+  }
+
+  private boolean append(ApiEvent event) {
+    byte[] record = ApiEventCodec.encode(event);
+    try {
+      if (spill == null) {
+        spill = new WriteAheadLog(directory, segmentBytes);
+        spillCursor = spill.cursor(spill.end());
+        log.warn("Batch queue holds {} events in memory, spilling to {}", memoryCapacity,
+            directory);
+      }
+      if (!spill.fits(record.length)) {
+        log.warn("Not spilling event {}: {} bytes encoded is more than a spill segment holds",
+            event.eventId(), record.length);
+        return false;
+      }
+      spill.append(record);
+    } catch (IOException e) {
+      log.error("Failed to spill event {} to {}", event.eventId(), directory, e);
+      return false;
+    }
+    spilled++;
+    return true;
+  }
+
+  /**
+   * @return the oldest event, skipping unreadable spilled records, or null if none is left
+   */
+  private ApiEvent dequeue() {
+    while (count > 0) {
+      ApiEvent event = memory.isEmpty() ? readSpilled() : memory.pollFirst();
+      count--;
+      notFull.signalAll();
+      if (event != null) {
+        return event;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the next spilled event, or null if its record couldn't be decoded
+   */
+  private ApiEvent readSpilled() {
+    long segmentBefore = spillCursor.position() / segmentBytes;
+    byte[] record = spillCursor.next();
+    spilled--;
+    if (spilled == 0 || spillCursor.position() / segmentBytes != segmentBefore) {
+      spill.deleteBefore(spillCursor.position());
+    }
+    try {
+      return ApiEventCodec.decode(ByteBuffer.wrap(record));
+    } catch (IllegalArgumentException e) {
+      log.error("Skipping unreadable spill record before offset {}", spillCursor.position(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Delete the spill segments and offsets a previous run left in {@code directory}.
+   */
+  private void clearSpillFiles() throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+    List<Path> files;
+    try (Stream<Path> paths = Files.list(directory)) {
+      files = paths.filter(SpillingBatchQueue::isSpillFile).toList();
+    }
+    if (!files.isEmpty()) {
+      log.warn("Deleting {} spill file(s) left in {} by a previous run", files.size(), directory);
+    }
+    for (Path file : files) {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  private static boolean isSpillFile(Path file) {
+    String name = file.getFileName().toString();
+    return name.endsWith(WriteAheadLog.SEGMENT_SUFFIX) || name.equals(WriteAheadLog.OFFSETS_FILE);
+  }
+}
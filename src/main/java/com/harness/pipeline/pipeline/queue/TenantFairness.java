@@ -0,0 +1,85 @@
+package com.harness.pipeline.pipeline.queue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-tenant weights and capacity quotas for the realtime lanes. A tenant with weight 3 is
+ * drained three events for every one of a weight-1 tenant while both have a backlog; a
+ * tenant's quota is the share of a lane it keeps once the lane is full, so its burst sheds its
+ * own events and not its neighbours'.
+ *
+ * <p>Overrides are given as {@code tenant=value} lists, e.g.
+ * {@code pipeline.queue.fairness.weights=acme=4,globex=2}; unlisted tenants get weight 1 and
+ * the default quota.
+ */
+@Component
+public class TenantFairness {
+
+  private final boolean enabled;
+  private final double defaultQuota;
+  private final Map<String, Integer> weights;
+  private final Map<String, Double> quotas;
+
+  @Autowired
+  public TenantFairness(
+      @Value("${pipeline.queue.fairness.enabled:true}") boolean enabled,
+      @Value("${pipeline.queue.fairness.default-quota:0.5}") double defaultQuota,
+      @Value("${pipeline.queue.fairness.weights:}") String weights,
+      @Value("${pipeline.queue.fairness.quotas:}") String quotas) {
+    this(enabled, defaultQuota,
+        parse(weights, "weights", value -> Math.max(1, Integer.parseInt(value))),
+        parse(quotas, "quotas", value -> Math.min(1.0, Math.max(0.0, Double.parseDouble(value)))));
+  }
+
+  public TenantFairness(boolean enabled, double defaultQuota, Map<String, Integer> weights,
+                        Map<String, Double> quotas) {
+    this.enabled = enabled;
+    this.defaultQuota = Math.min(1.0, Math.max(0.0, defaultQuota));
+    this.weights = Map.copyOf(weights);
+    this.quotas = Map.copyOf(quotas);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public int weight(String tenantId) {
+    return tenantId != null ? weights.getOrDefault(tenantId, 1) : 1;
+  }
+
+  /**
+   * @return how many events {@code tenantId} may have queued in a lane of {@code laneCapacity},
+   *     at least 1
+   */
+  public int quota(String tenantId, int laneCapacity) {
+    double share = tenantId != null ? quotas.getOrDefault(tenantId, defaultQuota) : defaultQuota;
+    return Math.max(1, (int) Math.ceil(laneCapacity * share));
+  }
+
+  private static <T> Map<String, T> parse(String spec, String property,
+                                          Function<String, T> parseValue) {
+    Map<String, T> values = new HashMap<>();
+    if (spec == null || spec.isBlank()) {
+      return values;
+    }
+    for (String entry : spec.split(",")) {
+      int eq = entry.indexOf('=');
+      if (eq <= 0) {
+        throw new IllegalArgumentException(
+            "pipeline.queue.fairness." + property + ": expected tenant=value, got '" + entry + "'");
+      }
+      try {
+        values.put(entry.substring(0, eq).trim(), parseValue.apply(entry.substring(eq + 1).trim()));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(
+            "pipeline.queue.fairness." + property + ": invalid value in '" + entry + "'", e);
+      }
+    }
+    return values;
+  }
+}
@@ -0,0 +1,47 @@
+package com.harness.pipeline.pipeline.queue;
+
+/**
+ * Maps a tenant to its realtime lane with jump consistent hashing (Lamping and Veach). Every
+ * tenant always lands on the same lane, and changing the lane count from N to N+1 moves only
+ * about 1/(N+1) of the tenants.
+ */
+public final class TenantLanes {
+
+  private TenantLanes() {}
+
+  /**
+   * @return the lane of {@code tenantId}, in {@code [0, lanes)}; a null tenant maps to lane 0
+   */
+  public static int laneOf(String tenantId, int lanes) {
+    if (lanes <= 1 || tenantId == null) {
+      return 0;
+    }
+    long key = hash(tenantId);
+    long lane = -1;
+    long next = 0;
+    while (next < lanes) {
+      lane = next;
+      key = key * 2862933555777941757L + 1;
+      next = (long) ((lane + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+    }
+    return (int) lane;
+  }
+
+  /**
+   * 64-bit FNV-1a over the UTF-16 chars followed by the murmur3 finalizer, so tenant ids that
+   * differ only in their last characters still spread over every lane.
+   */
+  private static long hash(String value) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      h ^= value.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
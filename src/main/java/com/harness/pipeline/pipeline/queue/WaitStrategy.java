@@ -0,0 +1,52 @@
+package com.harness.pipeline.pipeline.queue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a consumer thread waits while a ring buffer is empty.
+ * Lower latency costs more CPU: {@code BUSY_SPIN} burns a core per waiting thread,
+ * {@code PARK} sleeps in short intervals once spinning and yielding didn't help.
+ */
+public enum WaitStrategy {
+
+  BUSY_SPIN {
+    @Override
+    void idle(int attempt) {
+      Thread.onSpinWait();
+    }
+  },
+
+  YIELD {
+    @Override
+    void idle(int attempt) {
+      if (attempt < SPIN_TRIES) {
+        Thread.onSpinWait();
+      } else {
+        Thread.yield();
+      }
+    }
+  },
+
+  PARK {
+    @Override
+    void idle(int attempt) {
+      if (attempt < SPIN_TRIES) {
+        Thread.onSpinWait();
+      } else if (attempt < SPIN_TRIES + YIELD_TRIES) {
+        Thread.yield();
+      } else {
+        LockSupport.parkNanos(PARK_NANOS);
+      }
+    }
+  };
+
+  private static final int SPIN_TRIES = 100;
+  private static final int YIELD_TRIES = 10;
+  private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+  /**
+   * Back off once; {@code attempt} is the number of consecutive unsuccessful tries so far.
+   */
+  abstract void idle(int attempt);
+}
@@ -0,0 +1,514 @@
+package com.harness.pipeline.pipeline.queue;
+
+import com.harness.pipeline.model.ApiEvent;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link EventBus} whose batch queue is a {@link WriteAheadLog} on local disk, so queued events
+ * survive a restart or crash. Enabled with {@code pipeline.queue.impl=wal}.
+ *
+ * <p>Every published event is appended to the log and then offered to the in-memory realtime
+ * lanes. With {@code sync-publish}, {@code publish} returns only once the event is on disk; a
+ * background thread forces the log as soon as anything is pending, so concurrent publishers
+ * share one fsync (group commit). If that fsync fails, the waiting publishers get
+ * {@link PublishResult#REJECTED}; their events are in the log already and may still be
+ * delivered, so a client that retries them can cause duplicates. The same thread checkpoints both consumer positions every
+ * {@code checkpoint-interval-ms}, busy or not, and deletes the segments both are past. The
+ * batch consumer reads the log; its position is what the batch writer last
+ * {@link #commitBatch committed}.
+ *
+ * <p>On startup the batch consumer resumes at its committed position, so events the writer
+ * had not persisted are delivered again: batch delivery is at-least-once. The realtime
+ * position is that of the oldest event still waiting on a lane; events after it are offered
+ * to the lanes again, so a crash may repeat realtime alerts for them. Events a worker had
+ * already drained but not yet evaluated are not replayed, so their alerts are lost.
+ */
+@Component
+@ConditionalOnProperty(name = "pipeline.queue.impl", havingValue = "wal")
+public class WalEventBus implements EventBus {
+
+  private static final Logger log = LoggerFactory.getLogger(WalEventBus.class);
+
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private final WriteAheadLog wal;
+  private final List<BlockingQueue<ApiEvent>> realtimeLanes;
+  private final BatchAdmission batchAdmission;
+  private final boolean syncPublish;
+  private final boolean replayRealtime;
+  private final long checkpointIntervalMs;
+
+  private final ReentrantLock publishLock = new ReentrantLock();
+  private final ReentrantLock batchLock = new ReentrantLock();
+  private final ReentrantLock syncLock = new ReentrantLock();
+  private final Condition synced = syncLock.newCondition();
+  private final WriteAheadLog.Cursor batchCursor;
+  private final AtomicLong batchBacklog = new AtomicLong();
+  /** Log position of every event waiting on a realtime lane, by event id. */
+  private final ConcurrentMap<String, Long> realtimeQueued = new ConcurrentHashMap<>();
+  private volatile Thread batchWaiter;
+  private volatile long offeredEnd;
+  private volatile long batchCommitted;
+  private volatile long realtimeCommitted;
+  /** Times forcing the log failed; a change wakes the publishers waiting on it. */
+  private volatile long syncFailures;
+  private long checkpointedBatch = -1;
+  private long checkpointedRealtime = -1;
+
+  private volatile boolean running = true;
+  private final Thread syncThread;
+
+  @Autowired
+  public WalEventBus(
+      @Value("${pipeline.queue.wal.path:/tmp/api-event-pipeline/wal}") String path,
+      @Value("${pipeline.queue.wal.segment-bytes:67108864}") int segmentBytes,
+      @Value("${pipeline.queue.wal.sync-publish:true}") boolean syncPublish,
+      @Value("${pipeline.queue.wal.checkpoint-interval-ms:1000}") long checkpointIntervalMs,
+      @Value("${pipeline.queue.wal.replay-realtime:true}") boolean replayRealtime,
+      @Value("${pipeline.queue.realtime-capacity:10000}") int realtimeCapacity,
+      @Value("${pipeline.queue.batch-capacity:50000}") int batchCapacity,
+      @Value("${pipeline.queue.batch-high-watermark:0.9}") double batchHighWatermark,
+      @Value("${pipeline.queue.batch-low-watermark:0.7}") double batchLowWatermark,
+      @Value("${pipeline.queue.realtime-lanes:1}") int realtimeLanes,
+      TenantFairness fairness) throws IOException {
+    this.wal = new WriteAheadLog(Path.of(path), segmentBytes);
+    this.realtimeLanes = InMemoryEventBus.newRealtimeLanes(realtimeCapacity, realtimeLanes, fairness,
+        this::untrackRealtime);
+    this.batchAdmission = new BatchAdmission(batchCapacity, batchHighWatermark, batchLowWatermark);
+    this.syncPublish = syncPublish;
+    this.replayRealtime = replayRealtime;
+    this.checkpointIntervalMs = checkpointIntervalMs;
+
+    long[] offsets = wal.readOffsets();
+    long end = wal.end();
+    this.batchCommitted = offsets != null ? Math.min(offsets[0], end) : 0;
+    this.realtimeCommitted = offsets != null ? Math.min(offsets[1], end) : 0;
+    this.batchCursor = wal.cursor(batchCommitted);
+    long backlog = 0;
+    for (WriteAheadLog.Cursor scan = wal.cursor(batchCommitted); scan.next() != null; ) {
+      backlog++;
+    }
+    batchBacklog.set(backlog);
+    int replayed = replayRealtime ? replayRealtime() : 0;
+    this.offeredEnd = end;
+    if (backlog > 0 || replayed > 0) {
+      log.info("Recovered WAL at {}: {} batch event(s) to write, {} realtime event(s) replayed",
+          path, backlog, replayed);
+    }
+
+    this.syncThread = new Thread(this::syncLoop, "wal-sync");
+    this.syncThread.setDaemon(true);
+    this.syncThread.start();
+  }
+
+  /**
+   * One FIFO realtime lane, synchronous publish and realtime replay.
+   */
+  WalEventBus(Path path, int segmentBytes, int realtimeCapacity, int batchCapacity)
+      throws IOException {
+    this(path.toString(), segmentBytes, true, 1000, true, realtimeCapacity, batchCapacity,
+        BatchAdmission.DEFAULT_HIGH_WATERMARK, BatchAdmission.DEFAULT_LOW_WATERMARK, 1, null);
+  }
+
+  @Override
+  public PublishResult publish(ApiEvent event) {
+    return publishAll(List.of(event)).get(0);
+  }
+
+  @Override
+  public List<PublishResult> publishAll(List<ApiEvent> events) {
+    int count = events.size();
+    List<byte[]> records = new ArrayList<>(count);
+    int fitting = 0;
+    for (ApiEvent event : events) {
+      byte[] record = ApiEventCodec.encode(event);
+      if (!wal.fits(record.length)) {
+        log.warn("Rejecting event {}: {} bytes encoded is more than a WAL segment holds",
+            event.eventId(), record.length);
+        record = null;
+      } else {
+        fitting++;
+      }
+      records.add(record);
+    }
+    if (fitting == 0) {
+      return Collections.nCopies(count, PublishResult.REJECTED);
+    }
+
+    List<PublishResult> results = new ArrayList<>(count);
+    long end;
+    publishLock.lock();
+    try {
+      if (!batchAdmission.admit(batchBacklog.get(), fitting)) {
+        return Collections.nCopies(count, PublishResult.REJECTED);
+      }
+      end = wal.end();
+      for (int i = 0; i < count; i++) {
+        ApiEvent event = events.get(i);
+        if (records.get(i) == null) {
+          results.add(PublishResult.REJECTED);
+          continue;
+        }
+        long position = end;
+        try {
+          end = wal.append(records.get(i));
+        } catch (IOException e) {
+          log.error("Failed to append to the WAL, rejecting {} event(s)", count - i, e);
+          results.addAll(Collections.nCopies(count - i, PublishResult.REJECTED));
+          break;
+        }
+        batchBacklog.incrementAndGet();
+        results.add(offerRealtime(event, position)
+            ? PublishResult.ACCEPTED : PublishResult.REALTIME_SHED);
+      }
+      offeredEnd = end;
+    } finally {
+      publishLock.unlock();
+    }
+
+    Thread waiter = batchWaiter;
+    if (waiter != null) {
+      LockSupport.unpark(waiter);
+    }
+    if (syncPublish && !awaitDurable(end)) {
+      log.warn("Rejecting {} event(s): the WAL could not be forced to disk", count);
+      return Collections.nCopies(count, PublishResult.REJECTED);
+    }
+    return results;
+  }
+
+  @Override
+  public ApiEvent takeBatch() throws InterruptedException {
+    List<ApiEvent> next = new ArrayList<>(1);
+    while (drainBatch(1, next, 100, TimeUnit.MILLISECONDS) == 0) {
+      // keep waiting
+    }
+    return next.get(0);
+  }
+
+  @Override
+  public int drainBatch(int maxEvents, Collection<? super ApiEvent> sink) {
+    batchLock.lock();
+    try {
+      int drained = 0;
+      int consumed = 0;
+      byte[] record;
+      while (drained < maxEvents && (record = batchCursor.next()) != null) {
+        consumed++;
+        try {
+          sink.add(ApiEventCodec.decode(ByteBuffer.wrap(record)));
+          drained++;
+        } catch (IllegalArgumentException e) {
+          log.error("Skipping unreadable WAL record before offset {}", batchCursor.position(), e);
+        }
+      }
+      batchBacklog.addAndGet(-consumed);
+      return drained;
+    } finally {
+      batchLock.unlock();
+    }
+  }
+
+  @Override
+  public int drainBatch(int maxEvents, Collection<? super ApiEvent> sink,
+                        long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (true) {
+      int drained = drainBatch(maxEvents, sink);
+      if (drained > 0 || maxEvents <= 0) {
+        return drained;
+      }
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return 0;
+      }
+      batchWaiter = Thread.currentThread();
+      try {
+        if (batchBacklog.get() == 0) {
+          LockSupport.parkNanos(this, remaining);
+        }
+      } finally {
+        batchWaiter = null;
+      }
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+    }
+  }
+
+  @Override
+  public int getBatchQueueSize() {
+    return (int) Math.min(Integer.MAX_VALUE, batchBacklog.get());
+  }
+
+  @Override
+  public long batchPosition() {
+    batchLock.lock();
+    try {
+      return batchCursor.position();
+    } finally {
+      batchLock.unlock();
+    }
+  }
+
+  @Override
+  public void commitBatch(long position) {
+    if (position > batchCommitted) {
+      batchCommitted = position;
+    }
+  }
+
+  @Override
+  public int getRealtimeLaneCount() {
+    return realtimeLanes.size();
+  }
+
+  @Override
+  public int drainRealtimeLane(int lane, int maxEvents, Collection<? super ApiEvent> sink) {
+    return realtimeLanes.get(lane).drainTo(new DrainedRealtime(sink), maxEvents);
+  }
+
+  @Override
+  public int drainRealtimeLane(int lane, int maxEvents, Collection<? super ApiEvent> sink,
+                               long timeout, TimeUnit unit) throws InterruptedException {
+    return InMemoryEventBus.drain(realtimeLanes.get(lane), maxEvents, new DrainedRealtime(sink),
+        timeout, unit);
+  }
+
+  @Override
+  public int getRealtimeLaneSize(int lane) {
+    return realtimeLanes.get(lane).size();
+  }
+
+  int walSegmentCount() {
+    return wal.segmentCount();
+  }
+
+  /**
+   * Stop the sync thread, force the log and checkpoint both consumers.
+   */
+  @PreDestroy
+  public void close() {
+    running = false;
+    LockSupport.unpark(syncThread);
+    try {
+      syncThread.join(5_000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    wal.force();
+    checkpoint();
+  }
+
+  /**
+   * Wait until everything before {@code offset} is on disk. On shutdown {@link #close} forces
+   * the log, so the wait ends there too.
+   *
+   * @return false if forcing the log failed, or the wait was interrupted, first
+   */
+  private boolean awaitDurable(long offset) {
+    if (wal.durableEnd() >= offset) {
+      return true;
+    }
+    long failures = syncFailures;
+    syncLock.lock();
+    try {
+      LockSupport.unpark(syncThread);
+      while (wal.durableEnd() < offset && running) {
+        if (syncFailures != failures) {
+          return false;
+        }
+        synced.await(100, TimeUnit.MILLISECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      syncLock.unlock();
+    }
+    return wal.durableEnd() >= offset || !running;
+  }
+
+  /**
+   * Force whatever was appended since the last pass, wake the publishers waiting for it and
+   * checkpoint every {@code checkpointIntervalMs}. Publishers that append while a force runs
+   * are covered by the next one, without waiting for the checkpoint interval.
+   */
+  private void syncLoop() {
+    long lastCheckpoint = System.currentTimeMillis();
+    while (running) {
+      try {
+        boolean pending = wal.end() > wal.durableEnd();
+        if (pending) {
+          forceLog();
+          syncLock.lock();
+          try {
+            synced.signalAll();
+          } finally {
+            syncLock.unlock();
+          }
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastCheckpoint >= checkpointIntervalMs) {
+          checkpoint();
+          lastCheckpoint = now;
+        }
+        if (!pending) {
+          LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+      } catch (RuntimeException e) {
+        log.error("WAL sync failed", e);
+        syncLock.lock();
+        try {
+          syncFailures++;
+          synced.signalAll();
+        } finally {
+          syncLock.unlock();
+        }
+        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+      }
+    }
+  }
+
+  /**
+   * Force the log to disk. Visible for testing.
+   */
+  void forceLog() {
+    wal.force();
+  }
+
+  /**
+   * Persist both consumer offsets and delete the segments neither needs any more. Every event
+   * before {@code offeredEnd} is tracked in {@code realtimeQueued} until a worker drains it, so
+   * the realtime offset is the oldest tracked position, or {@code offeredEnd} if there is none.
+   */
+  private void checkpoint() {
+    long realtimeFrom = offeredEnd;
+    for (long position : realtimeQueued.values()) {
+      realtimeFrom = Math.min(realtimeFrom, position);
+    }
+    if (realtimeFrom > realtimeCommitted) {
+      realtimeCommitted = realtimeFrom;
+    }
+    long batch = batchCommitted;
+    long realtime = realtimeCommitted;
+    if (batch == checkpointedBatch && realtime == checkpointedRealtime) {
+      return;
+    }
+    try {
+      wal.writeOffsets(batch, realtime);
+      checkpointedBatch = batch;
+      checkpointedRealtime = realtime;
+      int deleted = wal.deleteBefore(replayRealtime ? Math.min(batch, realtime) : batch);
+      if (deleted > 0) {
+        log.debug("Deleted {} consumed WAL segment(s)", deleted);
+      }
+    } catch (IOException e) {
+      log.error("Failed to checkpoint WAL offsets", e);
+    }
+  }
+
+  /**
+   * Offer the events after the realtime checkpoint to the lanes again; lanes that fill up shed
+   * the rest, as they would have on publish.
+   */
+  private int replayRealtime() {
+    int replayed = 0;
+    WriteAheadLog.Cursor cursor = wal.cursor(realtimeCommitted);
+    long position = cursor.position();
+    byte[] record;
+    for (; (record = cursor.next()) != null; position = cursor.position()) {
+      ApiEvent event;
+      try {
+        event = ApiEventCodec.decode(ByteBuffer.wrap(record));
+      } catch (IllegalArgumentException e) {
+        log.error("Skipping unreadable WAL record before offset {}", cursor.position(), e);
+        continue;
+      }
+      if (offerRealtime(event, position)) {
+        replayed++;
+      }
+    }
+    return replayed;
+  }
+
+  /**
+   * Offer {@code event}, logged at {@code position}, to its realtime lane and track it until a
+   * worker drains it.
+   *
+   * @return false if the lane was full
+   */
+  private boolean offerRealtime(ApiEvent event, long position) {
+    String eventId = event.eventId();
+    if (eventId == null) {
+      return laneOf(event).offer(event);
+    }
+    // Tracked before the offer so a worker can't drain it first.
+    realtimeQueued.put(eventId, position);
+    if (laneOf(event).offer(event)) {
+      return true;
+    }
+    realtimeQueued.remove(eventId);
+    return false;
+  }
+
+  private void untrackRealtime(ApiEvent event) {
+    if (event.eventId() != null) {
+      realtimeQueued.remove(event.eventId());
+    }
+  }
+
+  private BlockingQueue<ApiEvent> laneOf(ApiEvent event) {
+    return realtimeLanes.get(TenantLanes.laneOf(event.tenantId(), realtimeLanes.size()));
+  }
+
+  /**
+   * Sink for a realtime drain that stops tracking each event as it leaves its lane.
+   */
+  private final class DrainedRealtime extends AbstractCollection<ApiEvent> {
+
+    private final Collection<? super ApiEvent> sink;
+
+    DrainedRealtime(Collection<? super ApiEvent> sink) {
+      this.sink = sink;
+    }
+
+    @Override
+    public boolean add(ApiEvent event) {
+      untrackRealtime(event);
+      return sink.add(event);
+    }
+
+    @Override
+    public Iterator<ApiEvent> iterator() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int size() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
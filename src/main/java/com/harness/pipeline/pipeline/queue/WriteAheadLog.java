@@ -0,0 +1,343 @@
+package com.harness.pipeline.pipeline.queue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only record log over fixed-size, memory-mapped segment files. A record is
+ * {@code [int length][int crc32][payload]}; a zero length marks the end of a segment's data,
+ * which is why segments are zero-filled when created. Records are addressed by a global byte
+ * offset: a segment file is named after the offset of its first byte.
+ *
+ * <p>Appending only copies into the mapping; {@link #force()} makes everything appended so far
+ * durable, so several appends share one fsync. On open, every segment is scanned and the log
+ * ends at the first record that is incomplete or fails its checksum, i.e. whatever a crash
+ * tore off.
+ *
+ * <p>Appends must come from one thread at a time. Reads, {@link #force()} and
+ * {@link #deleteBefore} may run concurrently with them.
+ */
+final class WriteAheadLog {
+
+  private static final Logger log = LoggerFactory.getLogger(WriteAheadLog.class);
+
+  static final String SEGMENT_SUFFIX = ".wal";
+  static final int HEADER_BYTES = 8;
+  static final String OFFSETS_FILE = "offsets";
+
+  private final Path directory;
+  private final int segmentBytes;
+  private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+  private final CRC32 crc = new CRC32();
+  private Segment active;
+  private volatile long end;
+  private volatile long durableEnd;
+
+  /**
+   * Open the log in {@code directory}, recovering any segments already there.
+   *
+   * @param segmentBytes size of new segment files; existing ones keep their size
+   */
+  WriteAheadLog(Path directory, int segmentBytes) throws IOException {
+    this.directory = directory;
+    this.segmentBytes = segmentBytes;
+    Files.createDirectories(directory);
+    List<Path> files;
+    try (Stream<Path> paths = Files.list(directory)) {
+      files = paths.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX)).toList();
+    }
+    for (Path file : files) {
+      Segment segment = Segment.open(file, baseOf(file), 0);
+      segments.put(segment.base, segment);
+    }
+    if (segments.isEmpty()) {
+      long[] offsets = readOffsets();
+      long base = offsets != null ? Math.max(offsets[0], offsets[1]) : 0;
+      active = Segment.open(segmentPath(base), base, segmentBytes);
+      segments.put(base, active);
+      end = base;
+    } else {
+      active = segments.lastEntry().getValue();
+      end = recover();
+    }
+    durableEnd = end;
+  }
+
+  /**
+   * @return the offset the next record will be appended at
+   */
+  long end() {
+    return end;
+  }
+
+  /**
+   * @return every record before this offset has been forced to disk
+   */
+  long durableEnd() {
+    return durableEnd;
+  }
+
+  /**
+   * @return whether a record with a payload of {@code payloadBytes} fits in a segment
+   */
+  boolean fits(int payloadBytes) {
+    return HEADER_BYTES + (long) payloadBytes <= segmentBytes;
+  }
+
+  /**
+   * Append one record, starting a new segment when the current one is full.
+   *
+   * @return the offset just past the record
+   * @throws IllegalArgumentException if the record can never fit in a segment
+   */
+  long append(byte[] payload) throws IOException {
+    if (!fits(payload.length)) {
+      throw new IllegalArgumentException(
+          "Record of " + payload.length + " bytes exceeds the WAL segment size " + segmentBytes);
+    }
+    int position = (int) (end - active.base);
+    if (position + HEADER_BYTES + payload.length > active.capacity) {
+      long base = active.base + active.capacity;
+      active = Segment.open(segmentPath(base), base, segmentBytes);
+      segments.put(base, active);
+      position = 0;
+    }
+    crc.reset();
+    crc.update(payload);
+    MappedByteBuffer buffer = active.buffer;
+    buffer.put(position + HEADER_BYTES, payload);
+    buffer.putInt(position + 4, (int) crc.getValue());
+    // Written last: a reader that sees the length sees the record.
+    buffer.putInt(position, payload.length);
+    end = active.base + position + HEADER_BYTES + payload.length;
+    return end;
+  }
+
+  /**
+   * Force everything appended so far to disk.
+   *
+   * @return the new {@link #durableEnd()}
+   */
+  long force() {
+    long target = end;
+    for (Segment segment : segments.headMap(target, false).values()) {
+      int upTo = (int) Math.min(segment.capacity, target - segment.base);
+      if (upTo > segment.forced) {
+        segment.buffer.force(segment.forced, upTo - segment.forced);
+        segment.forced = upTo;
+      }
+    }
+    durableEnd = target;
+    return target;
+  }
+
+  /**
+   * @return a cursor over the records from {@code offset} on, which must be a record boundary
+   */
+  Cursor cursor(long offset) {
+    return new Cursor(offset);
+  }
+
+  /**
+   * Delete the segments whose records all lie before {@code offset}. The segment being
+   * appended to is always kept.
+   *
+   * @return the number of segments deleted
+   */
+  int deleteBefore(long offset) {
+    int deleted = 0;
+    for (Segment segment : new ArrayList<>(segments.headMap(active.base, false).values())) {
+      if (segment.base + segment.capacity > offset) {
+        break;
+      }
+      segments.remove(segment.base);
+      try {
+        Files.deleteIfExists(segment.path);
+        deleted++;
+      } catch (IOException e) {
+        log.warn("Failed to delete WAL segment {}", segment.path, e);
+      }
+    }
+    return deleted;
+  }
+
+  int segmentCount() {
+    return segments.size();
+  }
+
+  /**
+   * Durably replace the stored consumer offsets.
+   */
+  void writeOffsets(long batchOffset, long realtimeOffset) throws IOException {
+    Path tmp = directory.resolve(OFFSETS_FILE + ".tmp");
+    byte[] content = ("batch=" + batchOffset + "\nrealtime=" + realtimeOffset + "\n")
+        .getBytes(StandardCharsets.UTF_8);
+    try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      channel.write(ByteBuffer.wrap(content));
+      channel.force(true);
+    }
+    Files.move(tmp, directory.resolve(OFFSETS_FILE), StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * @return {@code {batchOffset, realtimeOffset}} as last written, or null if never written
+   */
+  long[] readOffsets() throws IOException {
+    Path file = directory.resolve(OFFSETS_FILE);
+    if (!Files.exists(file)) {
+      return null;
+    }
+    long[] offsets = new long[2];
+    for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+      int eq = line.indexOf('=');
+      if (eq > 0) {
+        long value = Long.parseLong(line.substring(eq + 1).trim());
+        switch (line.substring(0, eq)) {
+          case "batch" -> offsets[0] = value;
+          case "realtime" -> offsets[1] = value;
+          default -> log.warn("Ignoring unknown WAL offset '{}'", line);
+        }
+      }
+    }
+    return offsets;
+  }
+
+  /**
+   * Scan every segment; the log ends after the last valid record of the last one. Anything
+   * after it is a torn write: its header is cleared so it can't be mistaken for a record later.
+   */
+  private long recover() {
+    long recoveredEnd = active.base;
+    for (Map.Entry<Long, Segment> entry : segments.entrySet()) {
+      Segment segment = entry.getValue();
+      int position = 0;
+      while (position + HEADER_BYTES <= segment.capacity) {
+        int length = segment.buffer.getInt(position);
+        if (length <= 0 || position + HEADER_BYTES + (long) length > segment.capacity
+            || !checksumMatches(segment, position, length)) {
+          break;
+        }
+        position += HEADER_BYTES + length;
+      }
+      if (position + HEADER_BYTES <= segment.capacity && segment.buffer.getInt(position) != 0) {
+        log.warn("Discarding torn record at offset {} of WAL segment {}",
+            segment.base + position, segment.path);
+        segment.buffer.putInt(position, 0);
+        segment.buffer.force(position, 4);
+      }
+      segment.forced = segment.capacity;
+      recoveredEnd = segment.base + position;
+    }
+    return recoveredEnd;
+  }
+
+  private boolean checksumMatches(Segment segment, int position, int length) {
+    byte[] payload = new byte[length];
+    segment.buffer.get(position + HEADER_BYTES, payload);
+    crc.reset();
+    crc.update(payload);
+    return (int) crc.getValue() == segment.buffer.getInt(position + 4);
+  }
+
+  private Path segmentPath(long base) {
+    return directory.resolve(String.format("%020d%s", base, SEGMENT_SUFFIX));
+  }
+
+  private static long baseOf(Path file) {
+    String name = file.getFileName().toString();
+    return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  /**
+   * Reads records in order. Not thread-safe; each consumer owns one.
+   */
+  final class Cursor {
+
+    private long position;
+
+    private Cursor(long position) {
+      this.position = position;
+    }
+
+    long position() {
+      return position;
+    }
+
+    /**
+     * @return the next record's payload, or null if the cursor has reached the end of the log
+     */
+    byte[] next() {
+      while (position < end) {
+        Map.Entry<Long, Segment> entry = segments.floorEntry(position);
+        if (entry == null || position >= entry.getKey() + entry.getValue().capacity) {
+          // Before the oldest segment, or past a deleted one: skip to the next that exists.
+          Long next = segments.higherKey(position);
+          if (next == null) {
+            return null;
+          }
+          position = next;
+          continue;
+        }
+        Segment segment = entry.getValue();
+        int offset = (int) (position - segment.base);
+        int length = offset + HEADER_BYTES <= segment.capacity ? segment.buffer.getInt(offset) : 0;
+        if (length == 0) {
+          position = segment.base + segment.capacity;
+          continue;
+        }
+        byte[] payload = new byte[length];
+        segment.buffer.get(offset + HEADER_BYTES, payload);
+        position += HEADER_BYTES + length;
+        return payload;
+      }
+      return null;
+    }
+  }
+
+  private static final class Segment {
+
+    final long base;
+    final Path path;
+    final int capacity;
+    final MappedByteBuffer buffer;
+    /** Bytes from the start already forced to disk. */
+    int forced;
+
+    private Segment(long base, Path path, int capacity, MappedByteBuffer buffer) {
+      this.base = base;
+      this.path = path;
+      this.capacity = capacity;
+      this.buffer = buffer;
+    }
+
+    /**
+     * Map {@code path}, creating it with {@code newCapacity} zero bytes if it doesn't exist.
+     */
+    static Segment open(Path path, long base, int newCapacity) throws IOException {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+          StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        int capacity = channel.size() > 0 ? (int) channel.size() : newCapacity;
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        return new Segment(base, path, capacity, buffer);
+      }
+    }
+  }
+}
@@ -1,15 +1,20 @@
 package com.harness.pipeline.pipeline.realtime;
 
-import com.harness.pipeline.enums.RuleType;
 import com.harness.pipeline.model.ApiEvent;
 import com.harness.pipeline.model.RuleDto;
 import com.harness.pipeline.notification.NotificationService;
 import com.harness.pipeline.pipeline.queue.EventBus;
+import com.harness.pipeline.ruleengine.cache.RuleSnapshot;
 import com.harness.pipeline.ruleengine.evaluator.ConditionEvaluator;
 import com.harness.pipeline.ruleengine.evaluator.EventFieldExtractor;
 import com.harness.pipeline.ruleengine.evaluator.RealtimeRuleEvaluator;
 import com.harness.pipeline.service.RuleService;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,16 +22,57 @@ public class RealtimeWorker implements Runnable {
 
   private static final Logger log = LoggerFactory.getLogger(RealtimeWorker.class);
 
+  public static final int DEFAULT_BATCH_SIZE = 256;
+  private static final long POLL_TIMEOUT_MS = 100;
+
   private final EventBus eventBus;
   private final RuleService ruleService;
   private final NotificationService notificationService;
   private final RealtimeRuleEvaluator evaluator;
+  private final StreamingBatchRuleEvaluator windowCounters;
+  private final int batchSize;
+  private final int[] lanes;
+  private int nextLane;
+
+  private final List<ApiEvent> batch;
+  private final Map<String, List<ApiEvent>> eventsByTenant = new LinkedHashMap<>();
+  private final AtomicLong maxQueueWaitMs = new AtomicLong();
 
   private volatile boolean running = true;
 
   public RealtimeWorker(EventBus eventBus,
                         RuleService ruleService,
                         NotificationService notificationService) {
+    this(eventBus, ruleService, notificationService, DEFAULT_BATCH_SIZE);
+  }
+
+  public RealtimeWorker(EventBus eventBus,
+                        RuleService ruleService,
+                        NotificationService notificationService,
+                        int batchSize) {
+    this(eventBus, ruleService, notificationService, batchSize, null);
+  }
+
+  /**
+   * @param windowCounters also counts each micro-batch against BATCH rules; may be null
+   */
+  public RealtimeWorker(EventBus eventBus,
+                        RuleService ruleService,
+                        NotificationService notificationService,
+                        int batchSize,
+                        StreamingBatchRuleEvaluator windowCounters) {
+    this(eventBus, ruleService, notificationService, batchSize, windowCounters, null);
+  }
+
+  /**
+   * @param lanes the realtime lanes this worker drains, or null for all of them
+   */
+  public RealtimeWorker(EventBus eventBus,
+                        RuleService ruleService,
+                        NotificationService notificationService,
+                        int batchSize,
+                        StreamingBatchRuleEvaluator windowCounters,
+                        int[] lanes) {
     this.eventBus = eventBus;
     this.ruleService = ruleService;
     this.notificationService = notificationService;
@@ -34,6 +80,10 @@ public class RealtimeWorker implements Runnable {
         new EventFieldExtractor(),
         new ConditionEvaluator()
     );
+    this.windowCounters = windowCounters;
+    this.batchSize = Math.max(1, batchSize);
+    this.batch = new ArrayList<>(this.batchSize);
+    this.lanes = lanes != null && lanes.length > 0 ? lanes.clone() : null;
   }
 
   @Override
@@ -41,12 +91,13 @@ public class RealtimeWorker implements Runnable {
     log.info("RealtimeWorker started");
     while (running && !Thread.currentThread().isInterrupted()) {
       try {
-        ApiEvent event = eventBus.takeRealtime();
-        List<RuleDto> rules =
-            ruleService.listRules(event.tenantId(), RuleType.REALTIME, true);
-        List<RuleDto> fired = evaluator.evaluate(event, rules);
-        for (RuleDto rule : fired) {
-          notificationService.notify(event, rule);
+        batch.clear();
+        int drained = lanes == null
+            ? eventBus.drainRealtime(batchSize, batch, POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+            : drainLanes();
+        if (drained > 0) {
+          recordQueueWait(batch);
+          processBatch(batch);
         }
       } catch (InterruptedException e) {
         Thread.currentThread().interrupt();
@@ -58,8 +109,97 @@ public class RealtimeWorker implements Runnable {
     log.info("RealtimeWorker stopped");
   }
 
+  /**
+   * Take an equal share of the micro-batch from each owned lane, so one busy lane can't delay
+   * the others by more than a share. When all are empty, wait on them in turn; the wait is split
+   * so an idle worker still visits every lane within {@link #POLL_TIMEOUT_MS}.
+   */
+  private int drainLanes() throws InterruptedException {
+    int share = Math.max(1, (batchSize + lanes.length - 1) / lanes.length);
+    int drained = 0;
+    for (int i = 0; i < lanes.length && drained < batchSize; i++) {
+      drained += eventBus.drainRealtimeLane(
+          lanes[(nextLane + i) % lanes.length], Math.min(share, batchSize - drained), batch);
+    }
+    if (drained == 0) {
+      drained = eventBus.drainRealtimeLane(lanes[nextLane], share, batch,
+          Math.max(1, POLL_TIMEOUT_MS / lanes.length), TimeUnit.MILLISECONDS);
+    }
+    nextLane = (nextLane + 1) % lanes.length;
+    return drained;
+  }
+
+  /**
+   * Group a micro-batch by tenant so each tenant's rule snapshot is resolved once per batch.
+   * Events of the same tenant keep their queue order.
+   */
+  void processBatch(List<ApiEvent> events) {
+    try {
+      for (ApiEvent event : events) {
+        eventsByTenant.computeIfAbsent(event.tenantId(), k -> new ArrayList<>()).add(event);
+      }
+      for (Map.Entry<String, List<ApiEvent>> entry : eventsByTenant.entrySet()) {
+        processTenant(entry.getKey(), entry.getValue());
+      }
+    } finally {
+      eventsByTenant.clear();
+    }
+  }
+
+  private void processTenant(String tenantId, List<ApiEvent> events) {
+    if (windowCounters != null) {
+      try {
+        windowCounters.onEvents(tenantId, events);
+      } catch (Exception e) {
+        log.error("Failed to count {} event(s) against batch rules for tenant {}",
+            events.size(), tenantId, e);
+      }
+    }
+    RuleSnapshot snapshot;
+    try {
+      snapshot = ruleService.getRealtimeSnapshot(tenantId);
+    } catch (Exception e) {
+      log.error("Failed to load realtime rules for tenant {}, skipping {} event(s)",
+          tenantId, events.size(), e);
+      return;
+    }
+    for (ApiEvent event : events) {
+      try {
+        List<RuleDto> fired = evaluator.evaluateIndexed(event, snapshot.index());
+        for (RuleDto rule : fired) {
+          notificationService.notify(event, rule);
+        }
+      } catch (Exception e) {
+        log.error("Error evaluating realtime rules for event {}", event.eventId(), e);
+      }
+    }
+  }
+
+  /**
+   * Record how long the oldest event of a micro-batch waited. Age is measured from ingestion,
+   * which includes the (short) time it spent being published.
+   */
+  private void recordQueueWait(List<ApiEvent> events) {
+    long oldest = Long.MAX_VALUE;
+    for (ApiEvent event : events) {
+      if (event.receivedAt() != null) {
+        oldest = Math.min(oldest, event.receivedAt().toEpochMilli());
+      }
+    }
+    if (oldest != Long.MAX_VALUE) {
+      maxQueueWaitMs.accumulateAndGet(System.currentTimeMillis() - oldest, Math::max);
+    }
+  }
+
+  /**
+   * @return the longest time an event drained by this worker spent queued since the last
+   *     call, 0 if it drained nothing
+   */
+  public long takeMaxQueueWaitMs() {
+    return maxQueueWaitMs.getAndSet(0);
+  }
+
   public void shutdown() {
     this.running = false;
   }
 }
-
@@ -0,0 +1,195 @@
+package com.harness.pipeline.pipeline.realtime;
+
+import com.harness.pipeline.pipeline.queue.EventBus;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Grows and shrinks the {@link RealtimeWorkerPool} between {@code min-workers} and
+ * {@code max-workers} so a burst is absorbed by more workers instead of being shed to
+ * batch-only when the realtime queue fills.
+ *
+ * <p>Every tick the pool doubles (capped at the maximum) when the realtime queue is at least
+ * {@code scale-up-depth} full or an event waited {@code scale-up-wait-ms} for a worker, unless
+ * CPU utilisation is already at {@code max-cpu}: then the workers are CPU-bound and more of
+ * them would only add contention. It retires one worker once the queue has stayed below
+ * {@code scale-down-depth} and {@code scale-down-wait-ms} for {@code scale-down-after-ms}.
+ * With several realtime lanes the pool caps itself at one worker per lane, and depth is that
+ * of the fullest lane: a lane sheds once it alone is full, however empty the others are.
+ */
+@Component
+@ConditionalOnProperty(name = "pipeline.realtime.autoscale.enabled", havingValue = "true", matchIfMissing = true)
+public class RealtimeWorkerAutoscaler implements MeterBinder {
+
+  private static final Logger log = LoggerFactory.getLogger(RealtimeWorkerAutoscaler.class);
+
+  private final RealtimeWorkerPool pool;
+  private final EventBus eventBus;
+  private final int realtimeCapacity;
+  private final int minWorkers;
+  private final int maxWorkers;
+  private final double scaleUpDepth;
+  private final long scaleUpWaitMs;
+  private final double scaleDownDepth;
+  private final long scaleDownWaitMs;
+  private final long scaleDownAfterMs;
+  private final double maxCpu;
+  private final DoubleSupplier cpuLoad;
+  private final LongSupplier clock;
+
+  private final AtomicLong scaleUps = new AtomicLong();
+  private final AtomicLong scaleDowns = new AtomicLong();
+  private volatile long lastQueueWaitMs;
+  private long quietSinceMs = -1;
+
+  @Autowired
+  public RealtimeWorkerAutoscaler(
+      RealtimeWorkerPool pool,
+      EventBus eventBus,
+      @Value("${pipeline.queue.realtime-capacity:10000}") int realtimeCapacity,
+      @Value("${pipeline.realtime.autoscale.min-workers:${pipeline.realtime.worker-count:2}}") int minWorkers,
+      @Value("${pipeline.realtime.autoscale.max-workers:8}") int maxWorkers,
+      @Value("${pipeline.realtime.autoscale.scale-up-depth:0.5}") double scaleUpDepth,
+      @Value("${pipeline.realtime.autoscale.scale-up-wait-ms:200}") long scaleUpWaitMs,
+      @Value("${pipeline.realtime.autoscale.scale-down-depth:0.05}") double scaleDownDepth,
+      @Value("${pipeline.realtime.autoscale.scale-down-wait-ms:20}") long scaleDownWaitMs,
+      @Value("${pipeline.realtime.autoscale.scale-down-after-ms:30000}") long scaleDownAfterMs,
+      @Value("${pipeline.realtime.autoscale.max-cpu:0.9}") double maxCpu) {
+    this(pool, eventBus, realtimeCapacity, minWorkers, maxWorkers, scaleUpDepth, scaleUpWaitMs,
+        scaleDownDepth, scaleDownWaitMs, scaleDownAfterMs, maxCpu,
+        RealtimeWorkerAutoscaler::systemCpuLoad, System::currentTimeMillis);
+  }
+
+  RealtimeWorkerAutoscaler(RealtimeWorkerPool pool,
+                           EventBus eventBus,
+                           int realtimeCapacity,
+                           int minWorkers,
+                           int maxWorkers,
+                           double scaleUpDepth,
+                           long scaleUpWaitMs,
+                           double scaleDownDepth,
+                           long scaleDownWaitMs,
+                           long scaleDownAfterMs,
+                           double maxCpu,
+                           DoubleSupplier cpuLoad,
+                           LongSupplier clock) {
+    this.pool = pool;
+    this.eventBus = eventBus;
+    this.realtimeCapacity = Math.max(1, realtimeCapacity);
+    this.minWorkers = Math.max(1, minWorkers);
+    this.maxWorkers = Math.max(this.minWorkers, maxWorkers);
+    this.scaleUpDepth = scaleUpDepth;
+    this.scaleUpWaitMs = scaleUpWaitMs;
+    this.scaleDownDepth = scaleDownDepth;
+    this.scaleDownWaitMs = scaleDownWaitMs;
+    this.scaleDownAfterMs = scaleDownAfterMs;
+    this.maxCpu = maxCpu;
+    this.cpuLoad = cpuLoad;
+    this.clock = clock;
+  }
+
+  @Scheduled(fixedDelayString = "${pipeline.realtime.autoscale.interval-ms:1000}",
+      initialDelayString = "${pipeline.realtime.autoscale.interval-ms:1000}")
+  public synchronized void rebalance() {
+    int current = pool.getWorkerCount();
+    if (current == 0) {
+      return;
+    }
+    double depth = fullestLaneDepth();
+    long waitMs = pool.takeMaxQueueWaitMs();
+    double cpu = cpuLoad.getAsDouble();
+    long now = clock.getAsLong();
+    lastQueueWaitMs = waitMs;
+
+    int target = current;
+    if (current < minWorkers) {
+      target = minWorkers;
+    } else if (depth >= scaleUpDepth || waitMs >= scaleUpWaitMs) {
+      quietSinceMs = -1;
+      if (cpu >= maxCpu) {
+        log.debug("Realtime queue backlog (depth {}, wait {} ms) but CPU at {}, not adding workers",
+            percent(depth), waitMs, percent(cpu));
+      } else {
+        target = Math.min(maxWorkers, current * 2);
+      }
+    } else if (depth <= scaleDownDepth && waitMs <= scaleDownWaitMs) {
+      if (quietSinceMs < 0) {
+        quietSinceMs = now;
+      } else if (now - quietSinceMs >= scaleDownAfterMs && current > minWorkers) {
+        target = current - 1;
+        quietSinceMs = now;
+      }
+    } else {
+      quietSinceMs = -1;
+    }
+
+    int resized = target != current ? pool.resize(target) : current;
+    if (resized != current) {
+      (resized > current ? scaleUps : scaleDowns).incrementAndGet();
+      log.info("Scaled realtime workers {} -> {} (queue depth {}, queue wait {} ms, cpu {})",
+          current, resized, percent(depth), waitMs, percent(cpu));
+    }
+  }
+
+  /**
+   * @return the fill ratio of the fullest realtime lane; lanes split the capacity evenly
+   */
+  private double fullestLaneDepth() {
+    int lanes = Math.max(1, eventBus.getRealtimeLaneCount());
+    int laneCapacity = Math.max(1, (realtimeCapacity + lanes - 1) / lanes);
+    int fullest = 0;
+    for (int lane = 0; lane < lanes; lane++) {
+      fullest = Math.max(fullest, eventBus.getRealtimeLaneSize(lane));
+    }
+    return (double) fullest / laneCapacity;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("pipeline.realtime.workers", pool, RealtimeWorkerPool::getWorkerCount)
+        .description("Realtime worker threads currently running")
+        .register(registry);
+    Gauge.builder("pipeline.realtime.queue.wait", this, a -> a.lastQueueWaitMs)
+        .baseUnit("milliseconds")
+        .description("Longest realtime queue wait seen in the last autoscaling interval")
+        .register(registry);
+    FunctionCounter.builder("pipeline.realtime.workers.scaling", scaleUps, AtomicLong::get)
+        .tag("direction", "up")
+        .description("Times the autoscaler added realtime workers")
+        .register(registry);
+    FunctionCounter.builder("pipeline.realtime.workers.scaling", scaleDowns, AtomicLong::get)
+        .tag("direction", "down")
+        .description("Times the autoscaler retired a realtime worker")
+        .register(registry);
+  }
+
+  /**
+   * @return recent CPU utilisation of the machine or container in [0, 1], or a negative
+   *     value when the JVM can't tell
+   */
+  private static double systemCpuLoad() {
+    OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    if (os instanceof com.sun.management.OperatingSystemMXBean sun) {
+      return sun.getCpuLoad();
+    }
+    return -1;
+  }
+
+  private static String percent(double ratio) {
+    return ratio < 0 ? "n/a" : Math.round(ratio * 100) + "%";
+  }
+}
@@ -7,51 +7,170 @@ import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.stereotype.Component;
 
+/**
+ * Runs the realtime workers. With a single realtime lane every worker drains it. With several,
+ * each lane is owned by exactly one worker (worker {@code i} of {@code n} owns lanes
+ * {@code i, i + n, ...}), so a tenant's events are evaluated in order on one thread and the
+ * pool never runs more workers than there are lanes.
+ */
 @Component
 public class RealtimeWorkerPool {
 
   private static final Logger log = LoggerFactory.getLogger(RealtimeWorkerPool.class);
 
+  private static final long RETIRE_TIMEOUT_MS = 5_000;
+
   private final EventBus eventBus;
   private final RuleService ruleService;
   private final NotificationService notificationService;
+  private final StreamingBatchRuleEvaluator windowCounters;
   private final int workerCount;
+  private final int batchSize;
+  private final WorkerThreadMode threadMode;
 
   private final List<RealtimeWorker> workers = new ArrayList<>();
   private final List<Thread> threads = new ArrayList<>();
+  private ThreadFactory threadFactory;
+  private int nextWorkerId;
 
   public RealtimeWorkerPool(EventBus eventBus,
                             RuleService ruleService,
                             NotificationService notificationService,
-                            @Value("${pipeline.realtime.worker-count:2}") int workerCount) {
+                            StreamingBatchRuleEvaluator windowCounters,
+                            @Value("${pipeline.realtime.worker-count:2}") int workerCount,
+                            @Value("${pipeline.realtime.batch-size:256}") int batchSize,
+                            @Value("${pipeline.realtime.thread-mode:PLATFORM}") WorkerThreadMode threadMode) {
     this.eventBus = eventBus;
     this.ruleService = ruleService;
     this.notificationService = notificationService;
+    this.windowCounters = windowCounters;
     this.workerCount = workerCount;
+    this.batchSize = batchSize;
+    this.threadMode = threadMode;
   }
 
   @PostConstruct
-  public void start() {
-    for (int i = 0; i < workerCount; i++) {
-      RealtimeWorker worker = new RealtimeWorker(eventBus, ruleService, notificationService);
-      Thread thread = new Thread(worker, "realtime-worker-" + i);
+  public synchronized void start() {
+    ThreadFactory virtual = threadMode == WorkerThreadMode.VIRTUAL ? virtualThreadFactory() : null;
+    threadFactory = virtual != null ? virtual : runnable -> {
+      Thread thread = new Thread(runnable);
       thread.setDaemon(true);
-      workers.add(worker);
-      threads.add(thread);
-      thread.start();
+      return thread;
+    };
+    int started = resize(workerCount);
+    log.info("Started {} realtime worker {} threads over {} lane(s)", started,
+        virtual != null ? "virtual" : "platform", eventBus.getRealtimeLaneCount());
+  }
+
+  /**
+   * Start or retire workers until {@code target} are running, at most one per lane. A retired
+   * worker finishes its current micro-batch before its thread exits, so no drained event is
+   * dropped. With several lanes, lane ownership changes, so every worker is retired and
+   * waited for before the new set starts; a tenant's events are never on two threads at once.
+   *
+   * @return the number of workers running afterwards
+   */
+  public synchronized int resize(int target) {
+    if (threadFactory == null) {
+      return 0;
+    }
+    int laneCount = eventBus.getRealtimeLaneCount();
+    int size = Math.max(0, laneCount > 1 ? Math.min(target, laneCount) : target);
+    if (size == workers.size()) {
+      return size;
+    }
+    if (laneCount == 1) {
+      while (workers.size() < size) {
+        addWorker(null);
+      }
+      while (workers.size() > size) {
+        int last = workers.size() - 1;
+        workers.remove(last).shutdown();
+        threads.remove(last);
+      }
+      return size;
+    }
+    retireAll();
+    for (int i = 0; i < size; i++) {
+      int[] owned = new int[(laneCount - i + size - 1) / size];
+      for (int j = 0; j < owned.length; j++) {
+        owned[j] = i + j * size;
+      }
+      addWorker(owned);
+    }
+    return size;
+  }
+
+  public synchronized int getWorkerCount() {
+    return workers.size();
+  }
+
+  /**
+   * @return the longest time an event spent in the realtime queue before a worker drained it,
+   *     since the last call
+   */
+  public synchronized long takeMaxQueueWaitMs() {
+    long max = 0;
+    for (RealtimeWorker worker : workers) {
+      max = Math.max(max, worker.takeMaxQueueWaitMs());
+    }
+    return max;
+  }
+
+  private void retireAll() {
+    workers.forEach(RealtimeWorker::shutdown);
+    long deadline = System.currentTimeMillis() + RETIRE_TIMEOUT_MS;
+    try {
+      for (Thread thread : threads) {
+        thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+        if (thread.isAlive()) {
+          log.warn("Realtime worker {} still busy after {} ms, reassigning its lanes anyway",
+              thread.getName(), RETIRE_TIMEOUT_MS);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    workers.clear();
+    threads.clear();
+  }
+
+  private void addWorker(int[] lanes) {
+    RealtimeWorker worker = new RealtimeWorker(
+        eventBus, ruleService, notificationService, batchSize, windowCounters, lanes);
+    Thread thread = threadFactory.newThread(worker);
+    thread.setName("realtime-worker-" + nextWorkerId++);
+    workers.add(worker);
+    threads.add(thread);
+    thread.start();
+  }
+
+  /**
+   * @return a virtual thread factory, or null on a JVM without virtual threads
+   */
+  private static ThreadFactory virtualThreadFactory() {
+    try {
+      return new VirtualThreadTaskExecutor("realtime-worker-").getVirtualThreadFactory();
+    } catch (UnsupportedOperationException e) {
+      log.warn("Virtual threads need Java 21+, running realtime workers on platform threads");
+      return null;
     }
-    log.info("Started {} realtime worker threads", workerCount);
   }
 
   @PreDestroy
-  public void stop() {
+  public synchronized void stop() {
     workers.forEach(RealtimeWorker::shutdown);
     threads.forEach(Thread::interrupt);
+    workers.clear();
+    threads.clear();
+    threadFactory = null;
   }
 }
 
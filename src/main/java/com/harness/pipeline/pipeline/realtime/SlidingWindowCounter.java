@@ -0,0 +1,66 @@
+package com.harness.pipeline.pipeline.realtime;
+
+import java.util.Arrays;
+
+/**
+ * Event count over a sliding time window, kept in a ring of fixed-width buckets. Like the
+ * batch rollups, the bucket holding the window start is counted in full, so the count may
+ * include up to one bucket's worth of events from just before the window.
+ *
+ * <p>Not thread-safe: callers synchronize.
+ */
+final class SlidingWindowCounter {
+
+  private final long bucketMs;
+  private final long[] counts;
+  /** Absolute bucket number ({@code epochMs / bucketMs}) each slot currently holds. */
+  private final long[] buckets;
+
+  /**
+   * @param windowMs length of the window
+   * @param buckets  buckets the window is divided into; more buckets, sharper edge
+   */
+  SlidingWindowCounter(long windowMs, int buckets) {
+    int n = Math.max(1, buckets);
+    this.bucketMs = Math.max(1, (windowMs + n - 1) / n);
+    // One extra slot for the partial bucket holding the window start.
+    this.counts = new long[n + 1];
+    this.buckets = new long[n + 1];
+    Arrays.fill(this.buckets, Long.MIN_VALUE);
+  }
+
+  /**
+   * Count one event at {@code atMs}. Events older than the window are ignored; events
+   * stamped after {@code nowMs} (clock skew between threads) count as now.
+   *
+   * @return the count of the window ending at {@code nowMs}, including this event
+   */
+  long add(long atMs, long nowMs) {
+    long current = nowMs / bucketMs;
+    long bucket = Math.min(atMs / bucketMs, current);
+    if (bucket > current - counts.length) {
+      int slot = (int) Math.floorMod(bucket, (long) counts.length);
+      if (buckets[slot] != bucket) {
+        buckets[slot] = bucket;
+        counts[slot] = 0;
+      }
+      counts[slot]++;
+    }
+    return count(nowMs);
+  }
+
+  /**
+   * @return the count of the window ending at {@code nowMs}
+   */
+  long count(long nowMs) {
+    long current = nowMs / bucketMs;
+    long oldest = current - counts.length;
+    long sum = 0;
+    for (int i = 0; i < counts.length; i++) {
+      if (buckets[i] > oldest && buckets[i] <= current) {
+        sum += counts[i];
+      }
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,215 @@
+package com.harness.pipeline.pipeline.realtime;
+
+import com.harness.pipeline.enums.RuleType;
+import com.harness.pipeline.model.ApiEvent;
+import com.harness.pipeline.model.RuleDto;
+import com.harness.pipeline.notification.NotificationService;
+import com.harness.pipeline.pipeline.batch.BatchBreachRegistry;
+import com.harness.pipeline.pipeline.batch.BatchRuleQueryBuilder;
+import com.harness.pipeline.service.RuleChangedEvent;
+import com.harness.pipeline.service.RuleService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Evaluates BATCH rules as events stream past the realtime workers, so a threshold breach is
+ * notified within one micro-batch instead of at the next aggregation cycle. Each enabled rule
+ * gets a {@link SlidingWindowCounter}; a rule notifies when its count reaches the threshold
+ * and re-arms once the count drops below it.
+ *
+ * <p>Counters only see events that reach the realtime queue since the rule was loaded, so
+ * they can undercount after a restart, a rule change or realtime shedding. The scheduled
+ * {@code BatchRuleEvaluator} remains the authoritative count: it skips breaches reported here
+ * and notifies the ones the counters missed.
+ */
+@Component
+public class StreamingBatchRuleEvaluator implements BatchBreachRegistry {
+
+  private static final Logger log = LoggerFactory.getLogger(StreamingBatchRuleEvaluator.class);
+
+  private final RuleService ruleService;
+  private final BatchRuleQueryBuilder queryBuilder;
+  private final NotificationService notificationService;
+  private final boolean enabled;
+  private final int bucketsPerWindow;
+  private final LongSupplier clock;
+  private final ConcurrentMap<String, List<RuleWindow>> windowsByTenant =
+      new ConcurrentHashMap<>();
+
+  @Autowired
+  public StreamingBatchRuleEvaluator(
+      RuleService ruleService,
+      BatchRuleQueryBuilder queryBuilder,
+      NotificationService notificationService,
+      @Value("${pipeline.batch.window-counters.enabled:true}") boolean enabled,
+      @Value("${pipeline.batch.window-counters.buckets-per-window:60}") int bucketsPerWindow) {
+    this(ruleService, queryBuilder, notificationService, enabled, bucketsPerWindow,
+        System::currentTimeMillis);
+  }
+
+  StreamingBatchRuleEvaluator(RuleService ruleService,
+                              BatchRuleQueryBuilder queryBuilder,
+                              NotificationService notificationService,
+                              boolean enabled,
+                              int bucketsPerWindow,
+                              LongSupplier clock) {
+    this.ruleService = ruleService;
+    this.queryBuilder = queryBuilder;
+    this.notificationService = notificationService;
+    this.enabled = enabled;
+    this.bucketsPerWindow = bucketsPerWindow;
+    this.clock = clock;
+  }
+
+  /**
+   * Count {@code events}, all of one tenant, against the tenant's BATCH rules and notify
+   * any rule whose threshold they push it to.
+   */
+  public void onEvents(String tenantId, List<ApiEvent> events) {
+    if (!enabled) {
+      return;
+    }
+    List<RuleWindow> windows = windowsByTenant.computeIfAbsent(tenantId, this::load);
+    if (windows.isEmpty()) {
+      return;
+    }
+    long now = clock.getAsLong();
+    for (ApiEvent event : events) {
+      long at = event.receivedAt() != null ? event.receivedAt().toEpochMilli() : now;
+      for (RuleWindow window : windows) {
+        long breach = window.record(event, at, now);
+        if (breach >= 0) {
+          notificationService.notifyBatchThresholdBreached(window.rule, breach);
+        }
+      }
+    }
+  }
+
+  @Override
+  public boolean isReported(RuleDto rule) {
+    if (!enabled) {
+      return false;
+    }
+    List<RuleWindow> windows = windowsByTenant.get(rule.tenantId());
+    if (windows == null) {
+      return false;
+    }
+    long now = clock.getAsLong();
+    for (RuleWindow window : windows) {
+      if (window.rule.id().equals(rule.id())) {
+        return window.isBreached(now);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Replace only the changed rule's counter; the tenant's other rules keep counting.
+   * Tenants not loaded yet pick the change up when they are.
+   */
+  @EventListener
+  public void onRuleChanged(RuleChangedEvent event) {
+    windowsByTenant.computeIfPresent(event.tenantId(), (tenantId, current) -> {
+      List<RuleWindow> updated = new ArrayList<>(current.size() + 1);
+      for (RuleWindow window : current) {
+        if (!window.rule.id().equals(event.ruleId())) {
+          updated.add(window);
+        }
+      }
+      RuleDto rule = event.rule();
+      if (rule != null && rule.type() == RuleType.BATCH && rule.enabled()) {
+        RuleWindow window = newWindow(rule);
+        if (window != null) {
+          updated.add(window);
+        }
+      }
+      return List.copyOf(updated);
+    });
+  }
+
+  private List<RuleWindow> load(String tenantId) {
+    List<RuleWindow> windows = new ArrayList<>();
+    for (RuleDto rule : ruleService.listRules(tenantId, RuleType.BATCH, true)) {
+      RuleWindow window = newWindow(rule);
+      if (window != null) {
+        windows.add(window);
+      }
+    }
+    return List.copyOf(windows);
+  }
+
+  private RuleWindow newWindow(RuleDto rule) {
+    Predicate<ApiEvent> matcher;
+    try {
+      matcher = queryBuilder.buildEventMatcher(rule);
+    } catch (RuntimeException e) {
+      // The SQL for this rule fails the same way; leave it to the scheduled job to report.
+      log.debug("Batch rule '{}' can't be counted in-stream", rule.name(), e);
+      return null;
+    }
+    int windowMinutes = rule.windowMinutes() != null ? rule.windowMinutes() : 60;
+    long threshold = rule.countThreshold() != null ? rule.countThreshold() : 1;
+    return new RuleWindow(rule, matcher, threshold,
+        new SlidingWindowCounter(Duration.ofMinutes(windowMinutes).toMillis(), bucketsPerWindow));
+  }
+
+  private static final class RuleWindow {
+
+    final RuleDto rule;
+    final Predicate<ApiEvent> matcher;
+    final long threshold;
+    private final SlidingWindowCounter counter;
+    private boolean breached;
+
+    RuleWindow(RuleDto rule, Predicate<ApiEvent> matcher, long threshold,
+               SlidingWindowCounter counter) {
+      this.rule = rule;
+      this.matcher = matcher;
+      this.threshold = threshold;
+      this.counter = counter;
+    }
+
+    /**
+     * @return the window count if this event makes the rule breach its threshold, else -1
+     */
+    long record(ApiEvent event, long atMs, long nowMs) {
+      if (!matcher.test(event)) {
+        return -1;
+      }
+      synchronized (this) {
+        long count = counter.add(atMs, nowMs);
+        if (count < threshold) {
+          breached = false;
+          return -1;
+        }
+        if (breached) {
+          return -1;
+        }
+        breached = true;
+        return count;
+      }
+    }
+
+    /**
+     * @return whether the notified breach still holds; re-arms the rule if the window has
+     *     since drained below the threshold without a matching event to notice it
+     */
+    synchronized boolean isBreached(long nowMs) {
+      if (breached && counter.count(nowMs) < threshold) {
+        breached = false;
+      }
+      return breached;
+    }
+  }
+}
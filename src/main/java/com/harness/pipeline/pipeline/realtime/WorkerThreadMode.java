@@ -0,0 +1,16 @@
+package com.harness.pipeline.pipeline.realtime;
+
+/**
+ * What kind of thread each realtime worker runs on.
+ */
+public enum WorkerThreadMode {
+  /** One platform thread per worker; size {@code worker-count} to the cores. */
+  PLATFORM,
+  /**
+   * One virtual thread per worker, so a worker blocked in notification dispatch releases its
+   * carrier. Needs a Java 21+ runtime; this project targets Java 17, where it falls back to
+   * platform threads and changes nothing. With several realtime lanes the pool still runs at
+   * most one worker per lane, so more workers than lanes need {@code realtime-lanes: 1}.
+   */
+  VIRTUAL
+}
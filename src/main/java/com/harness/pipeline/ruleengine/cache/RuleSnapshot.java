@@ -0,0 +1,27 @@
+package com.harness.pipeline.ruleengine.cache;
+
+import com.harness.pipeline.ruleengine.compiler.CompiledRule;
+import com.harness.pipeline.ruleengine.compiler.RuleIndex;
+import java.util.List;
+
+/**
+ * Immutable view of a tenant's enabled REALTIME rules, already compiled, at a point in time.
+ * The version increases monotonically across all tenants, so a newer snapshot
+ * always carries a larger version than the one it replaced. {@code index} is built from
+ * {@code rules} once per snapshot.
+ */
+public record RuleSnapshot(
+    String tenantId,
+    long version,
+    List<CompiledRule> rules,
+    RuleIndex index
+) {
+
+  public RuleSnapshot(String tenantId, long version, List<CompiledRule> rules) {
+    this(tenantId, version, rules, new RuleIndex(rules));
+  }
+
+  public RuleSnapshot {
+    rules = List.copyOf(rules);
+  }
+}
@@ -0,0 +1,57 @@
+package com.harness.pipeline.ruleengine.cache;
+
+import com.harness.pipeline.ruleengine.compiler.CompiledRule;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Tenant-keyed cache of immutable {@link RuleSnapshot}s.
+ *
+ * <p>Readers never lock: a hit is a single map lookup, and a miss loads the tenant's
+ * rules once and installs the result. Invalidation removes the tenant's snapshot and
+ * records the version at which it happened; a load that started before that point is
+ * still returned to its caller but is never installed, so a stale read racing with a
+ * rule change cannot overwrite the newer state.
+ */
+public class RuleSnapshotCache {
+
+  private final Function<String, List<CompiledRule>> loader;
+  private final ConcurrentMap<String, RuleSnapshot> snapshots = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Long> invalidatedAt = new ConcurrentHashMap<>();
+  private final AtomicLong versionSequence = new AtomicLong();
+
+  public RuleSnapshotCache(Function<String, List<CompiledRule>> loader) {
+    this.loader = loader;
+  }
+
+  public RuleSnapshot get(String tenantId) {
+    RuleSnapshot snapshot = snapshots.get(tenantId);
+    if (snapshot != null) {
+      return snapshot;
+    }
+    return load(tenantId);
+  }
+
+  public void invalidate(String tenantId) {
+    invalidatedAt.put(tenantId, versionSequence.incrementAndGet());
+    snapshots.remove(tenantId);
+  }
+
+  private RuleSnapshot load(String tenantId) {
+    long version = versionSequence.incrementAndGet();
+    RuleSnapshot loaded = new RuleSnapshot(tenantId, version, loader.apply(tenantId));
+    snapshots.compute(tenantId, (key, current) -> {
+      if (invalidatedAt.getOrDefault(key, 0L) > version) {
+        return current;
+      }
+      if (current != null && current.version() > version) {
+        return current;
+      }
+      return loaded;
+    });
+    return loaded;
+  }
+}
@@ -0,0 +1,14 @@
+package com.harness.pipeline.ruleengine.compiler;
+
+import com.harness.pipeline.model.ApiEvent;
+import com.harness.pipeline.model.RuleDto;
+
+public record CompiledRule(
+    RuleDto rule,
+    EventPredicate predicate
+) {
+
+  public boolean matches(ApiEvent event) {
+    return predicate.test(event);
+  }
+}
@@ -0,0 +1,14 @@
+package com.harness.pipeline.ruleengine.compiler;
+
+import com.harness.pipeline.model.ApiEvent;
+
+/**
+ * A compiled, allocation-free test against a single event.
+ */
+@FunctionalInterface
+public interface EventPredicate {
+
+  EventPredicate ALWAYS_FALSE = event -> false;
+
+  boolean test(ApiEvent event);
+}
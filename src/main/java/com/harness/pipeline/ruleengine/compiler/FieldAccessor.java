@@ -0,0 +1,13 @@
+package com.harness.pipeline.ruleengine.compiler;
+
+import com.harness.pipeline.model.ApiEvent;
+
+/**
+ * Reads one {@link com.harness.pipeline.enums.RuleConditionField} from an event.
+ * Header and tag accessors have their map key bound at compile time.
+ */
+@FunctionalInterface
+public interface FieldAccessor {
+
+  String get(ApiEvent event);
+}
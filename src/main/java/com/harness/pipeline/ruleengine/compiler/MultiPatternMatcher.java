@@ -0,0 +1,174 @@
+package com.harness.pipeline.ruleengine.compiler;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Finds every CONTAINS, STARTS_WITH and ENDS_WITH pattern a value satisfies in one pass per
+ * kind: an Aho-Corasick automaton for CONTAINS, a trie walked from the front for STARTS_WITH
+ * and one walked from the back over reversed patterns for ENDS_WITH. Matching is
+ * case-insensitive per character, exactly like
+ * {@link String#regionMatches(boolean, int, String, int, int)}.
+ *
+ * <p>Patterns are added with {@code add*} and then {@link #build() built}; a built matcher is
+ * immutable and safe to share.
+ */
+final class MultiPatternMatcher {
+
+  private final Node contains = new Node();
+  private final Node prefixes = new Node();
+  private final Node suffixes = new Node();
+
+  void addContains(String pattern, int id) {
+    insert(contains, pattern, false, id);
+  }
+
+  void addStartsWith(String pattern, int id) {
+    insert(prefixes, pattern, false, id);
+  }
+
+  void addEndsWith(String pattern, int id) {
+    insert(suffixes, pattern, true, id);
+  }
+
+  /**
+   * Link the CONTAINS automaton: each node's failure link points at the longest proper
+   * suffix of its path that is also a path, and it inherits that node's outputs.
+   */
+  MultiPatternMatcher build() {
+    Deque<Node> queue = new ArrayDeque<>();
+    contains.fail = contains;
+    for (int i = 0; i < contains.size; i++) {
+      Node child = contains.children[i];
+      child.fail = contains;
+      queue.add(child);
+    }
+    while (!queue.isEmpty()) {
+      Node node = queue.poll();
+      node.outputs = concat(node.outputs, node.fail.outputs);
+      for (int i = 0; i < node.size; i++) {
+        Node child = node.children[i];
+        child.fail = step(node.fail, node.labels[i]);
+        queue.add(child);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Set bit {@code id} in {@code hits} for every pattern {@code value} satisfies.
+   */
+  void match(String value, long[] hits) {
+    int length = value.length();
+
+    Node node = contains;
+    mark(node.outputs, hits);
+    for (int i = 0; i < length; i++) {
+      node = step(node, fold(value.charAt(i)));
+      mark(node.outputs, hits);
+    }
+
+    walk(prefixes, value, false, hits);
+    walk(suffixes, value, true, hits);
+  }
+
+  private static void walk(Node root, String value, boolean reverse, long[] hits) {
+    Node node = root;
+    mark(node.terminal, hits);
+    int length = value.length();
+    for (int i = 0; i < length && node != null; i++) {
+      node = node.child(fold(value.charAt(reverse ? length - 1 - i : i)));
+      if (node != null) {
+        mark(node.terminal, hits);
+      }
+    }
+  }
+
+  private static Node step(Node node, char c) {
+    while (true) {
+      Node next = node.child(c);
+      if (next != null) {
+        return next;
+      }
+      if (node.fail == node) {
+        return node;
+      }
+      node = node.fail;
+    }
+  }
+
+  private static void insert(Node root, String pattern, boolean reverse, int id) {
+    Node node = root;
+    int length = pattern.length();
+    for (int i = 0; i < length; i++) {
+      char c = fold(pattern.charAt(reverse ? length - 1 - i : i));
+      Node next = node.child(c);
+      if (next == null) {
+        next = node.addChild(c);
+      }
+      node = next;
+    }
+    node.terminal = concat(node.terminal, new int[] {id});
+    node.outputs = node.terminal;
+  }
+
+  private static void mark(int[] ids, long[] hits) {
+    for (int id : ids) {
+      hits[id >>> 6] |= 1L << id;
+    }
+  }
+
+  /**
+   * The character {@code regionMatches(true, ...)} effectively compares.
+   */
+  static char fold(char c) {
+    return Character.toLowerCase(Character.toUpperCase(c));
+  }
+
+  private static int[] concat(int[] a, int[] b) {
+    if (b.length == 0) {
+      return a;
+    }
+    if (a.length == 0) {
+      return b;
+    }
+    int[] joined = Arrays.copyOf(a, a.length + b.length);
+    System.arraycopy(b, 0, joined, a.length, b.length);
+    return joined;
+  }
+
+  private static final class Node {
+
+    private static final int[] NONE = new int[0];
+
+    char[] labels = new char[0];
+    Node[] children = new Node[0];
+    int size;
+    /** Patterns ending exactly here. */
+    int[] terminal = NONE;
+    /** Patterns ending here or at any node on the failure chain (CONTAINS only). */
+    int[] outputs = NONE;
+    Node fail;
+
+    Node child(char c) {
+      for (int i = 0; i < size; i++) {
+        if (labels[i] == c) {
+          return children[i];
+        }
+      }
+      return null;
+    }
+
+    Node addChild(char c) {
+      if (size == labels.length) {
+        labels = Arrays.copyOf(labels, Math.max(2, size * 2));
+        children = Arrays.copyOf(children, Math.max(2, size * 2));
+      }
+      Node child = new Node();
+      labels[size] = c;
+      children[size++] = child;
+      return child;
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package com.harness.pipeline.ruleengine.compiler;
+
+import com.harness.pipeline.model.ApiEvent;
+
+/**
+ * Reads a numeric {@link com.harness.pipeline.enums.RuleConditionField} from an event as a
+ * primitive, without going through its string form.
+ */
+@FunctionalInterface
+public interface NumericFieldAccessor {
+
+  /** Returned when the field is absent. */
+  long MISSING = Long.MIN_VALUE;
+
+  /**
+   * @return the field's value, or {@link #MISSING} if the event doesn't have it
+   */
+  long get(ApiEvent event);
+}
@@ -0,0 +1,155 @@
+package com.harness.pipeline.ruleengine.compiler;
+
+import com.harness.pipeline.enums.RuleConditionField;
+import com.harness.pipeline.enums.RuleOperator;
+import com.harness.pipeline.model.ApiEvent;
+import com.harness.pipeline.model.ConditionDto;
+import com.harness.pipeline.model.ConditionGroupDto;
+import com.harness.pipeline.model.RuleDto;
+import com.harness.pipeline.ruleengine.evaluator.EventFieldExtractor;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The CONTAINS / STARTS_WITH / ENDS_WITH conditions of a set of rules, grouped per field into
+ * {@link MultiPatternMatcher}s. The first condition test for an event runs every field's
+ * matcher once and remembers which conditions hold; the rest of that event's tests are bit
+ * lookups. Results are kept per thread, for the last event the thread tested.
+ *
+ * <p>Only fields with at least {@link #MIN_PATTERNS} distinct patterns get a matcher; below
+ * that, testing each condition directly is cheaper. Header and tag conditions are keyed per
+ * condition and always tested directly.
+ */
+final class PatternScan {
+
+  static final int MIN_PATTERNS = 4;
+
+  private static final Set<RuleOperator> PATTERN_OPERATORS = EnumSet.of(
+      RuleOperator.CONTAINS, RuleOperator.NOT_CONTAINS,
+      RuleOperator.STARTS_WITH, RuleOperator.ENDS_WITH);
+
+  private static final Set<RuleConditionField> KEYED_FIELDS = EnumSet.of(
+      RuleConditionField.REQUEST_HEADER, RuleConditionField.RESPONSE_HEADER,
+      RuleConditionField.METADATA_TAG);
+
+  private final Map<ConditionDto, Integer> ids;
+  private final FieldAccessor[] accessors;
+  private final MultiPatternMatcher[] matchers;
+  private final int words;
+  private final ThreadLocal<Hits> hits;
+
+  private PatternScan(Map<ConditionDto, Integer> ids, FieldAccessor[] accessors,
+                      MultiPatternMatcher[] matchers) {
+    this.ids = ids;
+    this.accessors = accessors;
+    this.matchers = matchers;
+    this.words = (ids.size() + 63) >>> 6;
+    this.hits = ThreadLocal.withInitial(() -> new Hits(words));
+  }
+
+  /**
+   * @return a scan over the pattern conditions of {@code rules}, or null if no field has
+   *     enough of them to be worth it
+   */
+  static PatternScan build(List<RuleDto> rules, EventFieldExtractor fieldExtractor) {
+    Map<RuleConditionField, Map<ConditionDto, Integer>> byField =
+        new EnumMap<>(RuleConditionField.class);
+    for (RuleDto rule : rules) {
+      if (rule.conditionGroups() == null) {
+        continue;
+      }
+      for (ConditionGroupDto group : rule.conditionGroups()) {
+        if (group.conditions() == null) {
+          continue;
+        }
+        for (ConditionDto condition : group.conditions()) {
+          if (condition != null && condition.field() != null && condition.value() != null
+              && PATTERN_OPERATORS.contains(condition.operator())
+              && !KEYED_FIELDS.contains(condition.field())) {
+            // NOT_CONTAINS shares its pattern with CONTAINS; the predicate negates.
+            byField.computeIfAbsent(condition.field(), f -> new LinkedHashMap<>())
+                .putIfAbsent(positive(condition), 0);
+          }
+        }
+      }
+    }
+    byField.values().removeIf(patterns -> patterns.size() < MIN_PATTERNS);
+    if (byField.isEmpty()) {
+      return null;
+    }
+
+    Map<ConditionDto, Integer> ids = new HashMap<>();
+    FieldAccessor[] accessors = new FieldAccessor[byField.size()];
+    MultiPatternMatcher[] matchers = new MultiPatternMatcher[byField.size()];
+    int f = 0;
+    for (Map.Entry<RuleConditionField, Map<ConditionDto, Integer>> entry : byField.entrySet()) {
+      MultiPatternMatcher matcher = new MultiPatternMatcher();
+      for (ConditionDto condition : entry.getValue().keySet()) {
+        int id = ids.size();
+        ids.put(condition, id);
+        switch (condition.operator()) {
+          case STARTS_WITH -> matcher.addStartsWith(condition.value(), id);
+          case ENDS_WITH -> matcher.addEndsWith(condition.value(), id);
+          default -> matcher.addContains(condition.value(), id);
+        }
+      }
+      accessors[f] = fieldExtractor.accessor(entry.getKey(), null);
+      matchers[f++] = matcher.build();
+    }
+    return new PatternScan(ids, accessors, matchers);
+  }
+
+  /**
+   * @return a predicate for {@code condition} backed by this scan, or null if the scan
+   *     doesn't cover it
+   */
+  EventPredicate predicate(ConditionDto condition, FieldAccessor field) {
+    if (!PATTERN_OPERATORS.contains(condition.operator())) {
+      return null;
+    }
+    Integer id = ids.get(positive(condition));
+    if (id == null) {
+      return null;
+    }
+    int bit = id;
+    boolean negate = condition.operator() == RuleOperator.NOT_CONTAINS;
+    return event -> field.get(event) != null && hit(event, bit) != negate;
+  }
+
+  private boolean hit(ApiEvent event, int id) {
+    Hits current = hits.get();
+    if (current.event != event) {
+      Arrays.fill(current.bits, 0L);
+      for (int i = 0; i < matchers.length; i++) {
+        String value = accessors[i].get(event);
+        if (value != null) {
+          matchers[i].match(value, current.bits);
+        }
+      }
+      current.event = event;
+    }
+    return (current.bits[id >>> 6] & (1L << id)) != 0;
+  }
+
+  private static ConditionDto positive(ConditionDto condition) {
+    return condition.operator() == RuleOperator.NOT_CONTAINS
+        ? new ConditionDto(condition.field(), RuleOperator.CONTAINS, condition.value())
+        : condition;
+  }
+
+  private static final class Hits {
+
+    final long[] bits;
+    ApiEvent event;
+
+    Hits(int words) {
+      this.bits = new long[words];
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package com.harness.pipeline.ruleengine.compiler;
+
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.regex.Pattern;
+
+/**
+ * Specialized {@link EventPredicate} implementations produced by {@link RuleCompiler}.
+ * Each one mirrors the matching branch of
+ * {@link com.harness.pipeline.ruleengine.evaluator.ConditionEvaluator} with its operands
+ * prepared up front, so evaluation does no parsing, lowercasing or operator dispatch.
+ */
+final class Predicates {
+
+  private Predicates() {}
+
+  static EventPredicate allOf(List<EventPredicate> predicates) {
+    if (predicates.size() == 1) {
+      return predicates.get(0);
+    }
+    EventPredicate[] parts = predicates.toArray(new EventPredicate[0]);
+    return event -> {
+      for (EventPredicate part : parts) {
+        if (!part.test(event)) {
+          return false;
+        }
+      }
+      return true;
+    };
+  }
+
+  static EventPredicate anyOf(List<EventPredicate> predicates) {
+    if (predicates.size() == 1) {
+      return predicates.get(0);
+    }
+    EventPredicate[] parts = predicates.toArray(new EventPredicate[0]);
+    return event -> {
+      for (EventPredicate part : parts) {
+        if (part.test(event)) {
+          return true;
+        }
+      }
+      return false;
+    };
+  }
+
+  static EventPredicate equalsIgnoreCase(FieldAccessor field, String expected, boolean negate) {
+    return event -> {
+      String actual = field.get(event);
+      return actual != null && actual.equalsIgnoreCase(expected) != negate;
+    };
+  }
+
+  static EventPredicate containsIgnoreCase(FieldAccessor field, String expected, boolean negate) {
+    return event -> {
+      String actual = field.get(event);
+      return actual != null && containsIgnoreCase(actual, expected) != negate;
+    };
+  }
+
+  static EventPredicate startsWithIgnoreCase(FieldAccessor field, String expected) {
+    int length = expected.length();
+    return event -> {
+      String actual = field.get(event);
+      return actual != null && actual.regionMatches(true, 0, expected, 0, length);
+    };
+  }
+
+  static EventPredicate endsWithIgnoreCase(FieldAccessor field, String expected) {
+    int length = expected.length();
+    return event -> {
+      String actual = field.get(event);
+      return actual != null
+          && actual.regionMatches(true, actual.length() - length, expected, 0, length);
+    };
+  }
+
+  /**
+   * Comparison of a numeric field read as a primitive. Converting the {@code long} to
+   * {@code double} rounds exactly like parsing its decimal string, so this agrees with
+   * {@link #compareNumeric}.
+   */
+  static EventPredicate compareLong(NumericFieldAccessor field, double expected,
+                                    IntPredicate outcome) {
+    return event -> {
+      long actual = field.get(event);
+      return actual != NumericFieldAccessor.MISSING
+          && outcome.test(Double.compare((double) actual, expected));
+    };
+  }
+
+  /**
+   * Numeric comparison against an expected value parsed at compile time. Falls back to
+   * lexicographic comparison when the actual value isn't numeric, like the interpreter.
+   */
+  static EventPredicate compareNumeric(FieldAccessor field, double expected, String expectedText,
+                                       IntPredicate outcome) {
+    return event -> {
+      String actual = field.get(event);
+      if (actual == null) {
+        return false;
+      }
+      int cmp;
+      if (!mayBeNumber(actual)) {
+        cmp = actual.compareTo(expectedText);
+      } else {
+        try {
+          cmp = Double.compare(Double.parseDouble(actual), expected);
+        } catch (NumberFormatException ex) {
+          cmp = actual.compareTo(expectedText);
+        }
+      }
+      return outcome.test(cmp);
+    };
+  }
+
+  /**
+   * Cheap pre-check so values that plainly aren't numbers (paths, hosts, methods) skip the
+   * exception {@link Double#parseDouble} would throw. Only says no for strings whose first
+   * significant character can't start anything {@code parseDouble} accepts.
+   */
+  static boolean mayBeNumber(String value) {
+    int i = 0;
+    int length = value.length();
+    while (i < length && value.charAt(i) <= ' ') {
+      i++;
+    }
+    if (i < length && (value.charAt(i) == '+' || value.charAt(i) == '-')) {
+      i++;
+    }
+    if (i == length) {
+      return false;
+    }
+    char c = value.charAt(i);
+    return (c >= '0' && c <= '9') || c == '.' || c == 'N' || c == 'I';
+  }
+
+  static EventPredicate compareLexical(FieldAccessor field, String expected, IntPredicate outcome) {
+    return event -> {
+      String actual = field.get(event);
+      return actual != null && outcome.test(actual.compareTo(expected));
+    };
+  }
+
+  static EventPredicate regex(FieldAccessor field, Pattern pattern) {
+    return event -> {
+      String actual = field.get(event);
+      return actual != null && pattern.matcher(actual).find();
+    };
+  }
+
+  private static boolean containsIgnoreCase(String actual, String expected) {
+    int length = expected.length();
+    int last = actual.length() - length;
+    for (int i = 0; i <= last; i++) {
+      if (actual.regionMatches(true, i, expected, 0, length)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,136 @@
+package com.harness.pipeline.ruleengine.compiler;
+
+import com.harness.pipeline.enums.ConditionGroupOperator;
+import com.harness.pipeline.model.ConditionDto;
+import com.harness.pipeline.model.ConditionGroupDto;
+import com.harness.pipeline.model.RuleDto;
+import com.harness.pipeline.ruleengine.evaluator.EventFieldExtractor;
+import com.harness.pipeline.ruleengine.evaluator.PatternCache;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Turns a {@link RuleDto} into a tree of {@link EventPredicate}s once, when the rule is
+ * loaded. The result evaluates exactly like {@code RealtimeRuleEvaluator} walking the DTOs,
+ * but with field accessors resolved, expected values prepared and AND/OR short-circuiting.
+ * Rules compiled together with {@link #compileAll} also share a {@link PatternScan}, so a field
+ * tested by many CONTAINS / STARTS_WITH / ENDS_WITH conditions is scanned once per event.
+ */
+public class RuleCompiler {
+
+  private final EventFieldExtractor fieldExtractor;
+  private final PatternCache patternCache;
+
+  public RuleCompiler() {
+    this(new EventFieldExtractor(), PatternCache.shared());
+  }
+
+  public RuleCompiler(EventFieldExtractor fieldExtractor, PatternCache patternCache) {
+    this.fieldExtractor = fieldExtractor;
+    this.patternCache = patternCache;
+  }
+
+  public CompiledRule compile(RuleDto rule) {
+    return new CompiledRule(rule, compilePredicate(rule, null));
+  }
+
+  public List<CompiledRule> compileAll(List<RuleDto> rules) {
+    PatternScan scan = PatternScan.build(rules, fieldExtractor);
+    List<CompiledRule> compiled = new ArrayList<>(rules.size());
+    for (RuleDto rule : rules) {
+      compiled.add(new CompiledRule(rule, compilePredicate(rule, scan)));
+    }
+    return compiled;
+  }
+
+  private EventPredicate compilePredicate(RuleDto rule, PatternScan scan) {
+    List<ConditionGroupDto> groups = rule.conditionGroups();
+    if (groups == null || groups.isEmpty()) {
+      return EventPredicate.ALWAYS_FALSE;
+    }
+    List<EventPredicate> groupPredicates = new ArrayList<>(groups.size());
+    for (ConditionGroupDto group : groups) {
+      groupPredicates.add(compileGroup(group, scan));
+    }
+    return combine(rule.groupOperator(), groupPredicates);
+  }
+
+  private EventPredicate compileGroup(ConditionGroupDto group, PatternScan scan) {
+    List<ConditionDto> conditions = group.conditions();
+    if (conditions == null || conditions.isEmpty()) {
+      return EventPredicate.ALWAYS_FALSE;
+    }
+    List<EventPredicate> conditionPredicates = new ArrayList<>(conditions.size());
+    for (ConditionDto condition : conditions) {
+      conditionPredicates.add(compileCondition(condition, scan));
+    }
+    return combine(group.operator(), conditionPredicates);
+  }
+
+  private EventPredicate combine(ConditionGroupOperator op, List<EventPredicate> predicates) {
+    return op == ConditionGroupOperator.OR
+        ? Predicates.anyOf(predicates)
+        : Predicates.allOf(predicates);
+  }
+
+  /**
+   * Compile a single condition. Visible for testing.
+   */
+  public EventPredicate compileCondition(ConditionDto condition) {
+    return compileCondition(condition, null);
+  }
+
+  private EventPredicate compileCondition(ConditionDto condition, PatternScan scan) {
+    if (condition == null
+        || condition.field() == null
+        || condition.operator() == null
+        || condition.value() == null) {
+      return EventPredicate.ALWAYS_FALSE;
+    }
+    FieldAccessor field = fieldExtractor.accessor(condition.field(), condition.value());
+    String expected = condition.value();
+    EventPredicate scanned = scan != null ? scan.predicate(condition, field) : null;
+    if (scanned != null) {
+      return scanned;
+    }
+
+    return switch (condition.operator()) {
+      case EQUALS -> Predicates.equalsIgnoreCase(field, expected, false);
+      case NOT_EQUALS -> Predicates.equalsIgnoreCase(field, expected, true);
+      case GREATER_THAN -> compare(condition, field, expected, cmp -> cmp > 0);
+      case GREATER_THAN_OR_EQUAL -> compare(condition, field, expected, cmp -> cmp >= 0);
+      case LESS_THAN -> compare(condition, field, expected, cmp -> cmp < 0);
+      case LESS_THAN_OR_EQUAL -> compare(condition, field, expected, cmp -> cmp <= 0);
+      case CONTAINS -> Predicates.containsIgnoreCase(field, expected, false);
+      case NOT_CONTAINS -> Predicates.containsIgnoreCase(field, expected, true);
+      case STARTS_WITH -> Predicates.startsWithIgnoreCase(field, expected);
+      case ENDS_WITH -> Predicates.endsWithIgnoreCase(field, expected);
+      case REGEX_MATCH -> regex(field, expected);
+    };
+  }
+
+  /**
+   * Numeric fields are read as primitives; other fields are parsed per event, falling back
+   * to lexicographic comparison like the interpreter.
+   */
+  private EventPredicate compare(ConditionDto condition, FieldAccessor field, String expected,
+                                 IntPredicate outcome) {
+    double parsed;
+    try {
+      parsed = Double.parseDouble(expected);
+    } catch (NumberFormatException ex) {
+      return Predicates.compareLexical(field, expected, outcome);
+    }
+    NumericFieldAccessor numeric = fieldExtractor.numericAccessor(condition.field());
+    return numeric != null
+        ? Predicates.compareLong(numeric, parsed, outcome)
+        : Predicates.compareNumeric(field, parsed, expected, outcome);
+  }
+
+  private EventPredicate regex(FieldAccessor field, String expected) {
+    return patternCache.get(expected)
+        .map(pattern -> Predicates.regex(field, pattern))
+        .orElse(EventPredicate.ALWAYS_FALSE);
+  }
+}
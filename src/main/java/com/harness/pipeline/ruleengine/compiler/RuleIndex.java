@@ -0,0 +1,177 @@
+package com.harness.pipeline.ruleengine.compiler;
+
+import com.harness.pipeline.enums.ConditionGroupOperator;
+import com.harness.pipeline.enums.RuleConditionField;
+import com.harness.pipeline.enums.RuleOperator;
+import com.harness.pipeline.model.ApiEvent;
+import com.harness.pipeline.model.ConditionDto;
+import com.harness.pipeline.model.ConditionGroupDto;
+import com.harness.pipeline.model.RuleDto;
+import com.harness.pipeline.ruleengine.evaluator.EventFieldExtractor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Discrimination index over a tenant's compiled rules. Most rules pin an EQUALS on a
+ * low-cardinality field (method, environment, status class) that every event must satisfy
+ * for the rule to fire; each such rule is filed under one of those values, and an event
+ * only evaluates the rules filed under its own values plus the rules that pin none.
+ *
+ * <p>An EQUALS condition is mandatory when every enclosing level is an AND (a single group or
+ * condition counts as one). Values are looked up case-insensitively, exactly like
+ * {@link String#equalsIgnoreCase}, so the index never hides a rule the full predicate would
+ * fire. Fired rules come back in snapshot order.
+ */
+public final class RuleIndex {
+
+  /**
+   * Fields a rule can be filed under, most discriminating first: a rule pinning several is
+   * filed under the first, e.g. {@code 5xx} rather than {@code GET}.
+   */
+  static final List<RuleConditionField> INDEXED_FIELDS = List.of(
+      RuleConditionField.RESPONSE_STATUS_CLASS,
+      RuleConditionField.METADATA_ENVIRONMENT,
+      RuleConditionField.REQUEST_METHOD);
+
+  private static final EventFieldExtractor FIELDS = new EventFieldExtractor();
+
+  private final CompiledRule[] rules;
+  /** Positions of rules with no mandatory indexed EQUALS, ascending. */
+  private final int[] unindexed;
+  private final FieldIndex[] fields;
+
+  public RuleIndex(List<CompiledRule> rules) {
+    this.rules = rules.toArray(new CompiledRule[0]);
+    List<Integer> unindexedPositions = new ArrayList<>();
+    Map<RuleConditionField, Map<String, List<Integer>>> byField =
+        new EnumMap<>(RuleConditionField.class);
+    for (int i = 0; i < this.rules.length; i++) {
+      ConditionDto key = indexKey(this.rules[i].rule());
+      if (key == null) {
+        unindexedPositions.add(i);
+      } else {
+        byField.computeIfAbsent(key.field(), f -> new TreeMap<>(String.CASE_INSENSITIVE_ORDER))
+            .computeIfAbsent(key.value(), v -> new ArrayList<>())
+            .add(i);
+      }
+    }
+    this.unindexed = toArray(unindexedPositions);
+    this.fields = byField.entrySet().stream()
+        .map(e -> new FieldIndex(e.getKey(), e.getValue()))
+        .toArray(FieldIndex[]::new);
+  }
+
+  /**
+   * @return the rules that fire for {@code event}, in snapshot order. Allocates only when at
+   *     least one rule fires.
+   */
+  public List<RuleDto> matching(ApiEvent event) {
+    int[] fired = test(unindexed, event, null);
+    for (FieldIndex field : fields) {
+      String value = field.accessor.get(event);
+      int[] candidates = value != null ? field.positionsByValue.get(value) : null;
+      if (candidates != null) {
+        fired = test(candidates, event, fired);
+      }
+    }
+    if (fired == null) {
+      return List.of();
+    }
+    // fired[0] holds the count; sort the positions so results keep snapshot order.
+    int count = fired[0];
+    Arrays.sort(fired, 1, count + 1);
+    List<RuleDto> result = new ArrayList<>(count);
+    for (int i = 1; i <= count; i++) {
+      result.add(rules[fired[i]].rule());
+    }
+    return result;
+  }
+
+  /**
+   * @return how many rules {@link #matching} fully evaluates for {@code event}
+   */
+  public int candidateCount(ApiEvent event) {
+    int count = unindexed.length;
+    for (FieldIndex field : fields) {
+      String value = field.accessor.get(event);
+      int[] candidates = value != null ? field.positionsByValue.get(value) : null;
+      if (candidates != null) {
+        count += candidates.length;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Evaluate the rules at {@code positions}, appending fired positions to {@code fired}
+   * ({@code fired[0]} is the count), which is allocated or grown only when needed.
+   */
+  private int[] test(int[] positions, ApiEvent event, int[] fired) {
+    for (int position : positions) {
+      if (rules[position].matches(event)) {
+        if (fired == null) {
+          fired = new int[4];
+        } else if (fired[0] + 1 == fired.length) {
+          fired = Arrays.copyOf(fired, fired.length * 2);
+        }
+        fired[++fired[0]] = position;
+      }
+    }
+    return fired;
+  }
+
+  /**
+   * @return the mandatory EQUALS condition to file {@code rule} under, or null if it has none
+   *     on an {@link #INDEXED_FIELDS indexed field}
+   */
+  static ConditionDto indexKey(RuleDto rule) {
+    List<ConditionGroupDto> groups = rule.conditionGroups();
+    if (groups == null || groups.isEmpty() || !allRequired(rule.groupOperator(), groups.size())) {
+      return null;
+    }
+    ConditionDto best = null;
+    for (ConditionGroupDto group : groups) {
+      List<ConditionDto> conditions = group.conditions();
+      if (conditions == null || !allRequired(group.operator(), conditions.size())) {
+        continue;
+      }
+      for (ConditionDto condition : conditions) {
+        if (condition != null
+            && condition.operator() == RuleOperator.EQUALS
+            && condition.value() != null
+            && INDEXED_FIELDS.contains(condition.field())
+            && (best == null
+                || INDEXED_FIELDS.indexOf(condition.field()) < INDEXED_FIELDS.indexOf(best.field()))) {
+          best = condition;
+        }
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Mirrors {@code RuleCompiler}: anything but OR is AND, and a single operand is itself.
+   */
+  private static boolean allRequired(ConditionGroupOperator op, int operands) {
+    return op != ConditionGroupOperator.OR || operands == 1;
+  }
+
+  private static int[] toArray(List<Integer> positions) {
+    return positions.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  private static final class FieldIndex {
+
+    final FieldAccessor accessor;
+    final Map<String, int[]> positionsByValue = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    FieldIndex(RuleConditionField field, Map<String, List<Integer>> positions) {
+      this.accessor = FIELDS.accessor(field, null);
+      positions.forEach((value, list) -> positionsByValue.put(value, toArray(list)));
+    }
+  }
+}
@@ -4,11 +4,19 @@ import com.harness.pipeline.enums.RuleOperator;
 import com.harness.pipeline.model.ConditionDto;
 import java.util.Locale;
 import java.util.Objects;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
 
 public class ConditionEvaluator {
 
+  private final PatternCache patternCache;
+
+  public ConditionEvaluator() {
+    this(PatternCache.shared());
+  }
+
+  public ConditionEvaluator(PatternCache patternCache) {
+    this.patternCache = patternCache;
+  }
+
   public boolean evaluate(ConditionDto condition, String actualValue) {
     if (condition == null) {
       return false;
@@ -64,11 +72,9 @@ public class ConditionEvaluator {
   }
 
   private boolean matchesRegex(String actual, String pattern) {
-    try {
-      return Pattern.compile(pattern, Pattern.CASE_INSENSITIVE).matcher(actual).find();
-    } catch (PatternSyntaxException ex) {
-      return false;
-    }
+    return patternCache.get(pattern)
+        .map(compiled -> compiled.matcher(actual).find())
+        .orElse(false);
   }
 }
 
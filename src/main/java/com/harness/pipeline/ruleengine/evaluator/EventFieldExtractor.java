@@ -3,6 +3,8 @@ package com.harness.pipeline.ruleengine.evaluator;
 import com.harness.pipeline.enums.RuleConditionField;
 import com.harness.pipeline.model.ApiEvent;
 import com.harness.pipeline.model.ConditionDto;
+import com.harness.pipeline.ruleengine.compiler.FieldAccessor;
+import com.harness.pipeline.ruleengine.compiler.NumericFieldAccessor;
 import java.util.Map;
 
 public class EventFieldExtractor {
@@ -51,6 +53,100 @@ public class EventFieldExtractor {
     };
   }
 
+  /**
+   * Resolve the field once and return an accessor that reads it directly, skipping the
+   * per-call {@code switch}. Header and tag keys are parsed from the condition value here.
+   */
+  public FieldAccessor accessor(RuleConditionField field, String conditionValue) {
+    return switch (field) {
+      case REQUEST_METHOD -> event -> {
+        ApiEvent.HttpRequest request = event != null ? event.request() : null;
+        return request != null ? request.method() : null;
+      };
+      case REQUEST_HOST -> event -> {
+        ApiEvent.HttpRequest request = event != null ? event.request() : null;
+        return request != null ? request.host() : null;
+      };
+      case REQUEST_PATH -> event -> {
+        ApiEvent.HttpRequest request = event != null ? event.request() : null;
+        return request != null ? request.path() : null;
+      };
+      case REQUEST_QUERY_STRING -> event -> {
+        ApiEvent.HttpRequest request = event != null ? event.request() : null;
+        return request != null ? request.queryString() : null;
+      };
+      case REQUEST_HEADER -> {
+        String key = extractKey(conditionValue);
+        yield event -> {
+          ApiEvent.HttpRequest request = event != null ? event.request() : null;
+          return request != null ? getFromMap(request.headers(), key) : null;
+        };
+      }
+      case RESPONSE_STATUS_CODE -> event -> {
+        ApiEvent.HttpResponse response = event != null ? event.response() : null;
+        return response != null && response.statusCode() != null
+            ? Integer.toString(response.statusCode())
+            : null;
+      };
+      case RESPONSE_STATUS_CLASS -> event -> {
+        ApiEvent.HttpResponse response = event != null ? event.response() : null;
+        return response != null ? response.statusClass() : null;
+      };
+      case RESPONSE_TIME_MS -> event -> {
+        ApiEvent.HttpResponse response = event != null ? event.response() : null;
+        return response != null && response.responseTimeMs() != null
+            ? Long.toString(response.responseTimeMs())
+            : null;
+      };
+      case RESPONSE_HEADER -> {
+        String key = extractKey(conditionValue);
+        yield event -> {
+          ApiEvent.HttpResponse response = event != null ? event.response() : null;
+          return response != null ? getFromMap(response.headers(), key) : null;
+        };
+      }
+
+      case METADATA_ENVIRONMENT -> event -> {
+        ApiEvent.ServiceMetadata metadata = event != null ? event.metadata() : null;
+        return metadata != null ? metadata.environment() : null;
+      };
+      case METADATA_REGION -> event -> {
+        ApiEvent.ServiceMetadata metadata = event != null ? event.metadata() : null;
+        return metadata != null ? metadata.region() : null;
+      };
+      case METADATA_TAG -> {
+        String key = extractKey(conditionValue);
+        yield event -> {
+          ApiEvent.ServiceMetadata metadata = event != null ? event.metadata() : null;
+          return metadata != null ? getFromMap(metadata.tags(), key) : null;
+        };
+      }
+    };
+  }
+
+  /**
+   * Like {@link #accessor}, but reading the field as a number.
+   *
+   * @return the accessor, or null if {@code field} isn't numeric
+   */
+  public NumericFieldAccessor numericAccessor(RuleConditionField field) {
+    return switch (field) {
+      case RESPONSE_STATUS_CODE -> event -> {
+        ApiEvent.HttpResponse response = event != null ? event.response() : null;
+        return response != null && response.statusCode() != null
+            ? response.statusCode()
+            : NumericFieldAccessor.MISSING;
+      };
+      case RESPONSE_TIME_MS -> event -> {
+        ApiEvent.HttpResponse response = event != null ? event.response() : null;
+        return response != null && response.responseTimeMs() != null
+            ? response.responseTimeMs()
+            : NumericFieldAccessor.MISSING;
+      };
+      default -> null;
+    };
+  }
+
   private String extractKey(String conditionValue) {
     if (conditionValue == null) {
       return null;
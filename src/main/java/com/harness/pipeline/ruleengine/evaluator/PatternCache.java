@@ -0,0 +1,105 @@
+package com.harness.pipeline.ruleengine.evaluator;
+
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Bounded, concurrent cache of case-insensitive {@link Pattern}s keyed by the regex source.
+ *
+ * <p>Invalid regexes are cached as empty entries so they are only compiled once. When the cache
+ * grows past its limit the oldest entries are evicted first.
+ */
+public class PatternCache {
+
+  public static final int DEFAULT_MAX_SIZE = 1024;
+
+  private static final PatternCache SHARED = new PatternCache(DEFAULT_MAX_SIZE);
+
+  private final int maxSize;
+  private final ConcurrentMap<String, Optional<Pattern>> patterns = new ConcurrentHashMap<>();
+  private final Queue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public PatternCache(int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("maxSize must be positive");
+    }
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Process-wide instance used by evaluators that are created without an explicit cache.
+   */
+  public static PatternCache shared() {
+    return SHARED;
+  }
+
+  /**
+   * @return the compiled pattern, or empty if {@code regex} is not a valid pattern.
+   */
+  public Optional<Pattern> get(String regex) {
+    Optional<Pattern> cached = patterns.get(regex);
+    if (cached != null) {
+      hits.increment();
+      return cached;
+    }
+    misses.increment();
+    Optional<Pattern> compiled = compile(regex);
+    Optional<Pattern> existing = patterns.putIfAbsent(regex, compiled);
+    if (existing != null) {
+      return existing;
+    }
+    insertionOrder.add(regex);
+    if (size.incrementAndGet() > maxSize) {
+      evictOldest();
+    }
+    return compiled;
+  }
+
+  public int size() {
+    return size.get();
+  }
+
+  public long hitCount() {
+    return hits.sum();
+  }
+
+  public long missCount() {
+    return misses.sum();
+  }
+
+  public long evictionCount() {
+    return evictions.sum();
+  }
+
+  private void evictOldest() {
+    while (size.get() > maxSize) {
+      String oldest = insertionOrder.poll();
+      if (oldest == null) {
+        return;
+      }
+      if (patterns.remove(oldest) != null) {
+        size.decrementAndGet();
+        evictions.increment();
+      }
+    }
+  }
+
+  private static Optional<Pattern> compile(String regex) {
+    try {
+      return Optional.of(Pattern.compile(regex, Pattern.CASE_INSENSITIVE));
+    } catch (PatternSyntaxException ex) {
+      return Optional.empty();
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package com.harness.pipeline.ruleengine.evaluator;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the shared {@link PatternCache} statistics under Micrometer's standard cache
+ * meter names, e.g. {@code /actuator/metrics/cache.gets?tag=cache:regex-patterns}.
+ */
+@Component
+public class PatternCacheMetrics implements MeterBinder {
+
+  private static final String CACHE_NAME = "regex-patterns";
+
+  private final PatternCache cache;
+
+  public PatternCacheMetrics() {
+    this(PatternCache.shared());
+  }
+
+  PatternCacheMetrics(PatternCache cache) {
+    this.cache = cache;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("cache.gets", cache, PatternCache::hitCount)
+        .tag("cache", CACHE_NAME)
+        .tag("result", "hit")
+        .description("Regex lookups served from the cache")
+        .register(registry);
+    FunctionCounter.builder("cache.gets", cache, PatternCache::missCount)
+        .tag("cache", CACHE_NAME)
+        .tag("result", "miss")
+        .description("Regex lookups that required compilation")
+        .register(registry);
+    FunctionCounter.builder("cache.evictions", cache, PatternCache::evictionCount)
+        .tag("cache", CACHE_NAME)
+        .description("Compiled regexes evicted to stay within the size limit")
+        .register(registry);
+    Gauge.builder("cache.size", cache, PatternCache::size)
+        .tag("cache", CACHE_NAME)
+        .description("Number of cached regexes, including invalid ones")
+        .register(registry);
+  }
+}
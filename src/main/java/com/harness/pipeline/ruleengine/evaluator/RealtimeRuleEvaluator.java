@@ -6,6 +6,8 @@ import com.harness.pipeline.model.ApiEvent;
 import com.harness.pipeline.model.ConditionDto;
 import com.harness.pipeline.model.ConditionGroupDto;
 import com.harness.pipeline.model.RuleDto;
+import com.harness.pipeline.ruleengine.compiler.CompiledRule;
+import com.harness.pipeline.ruleengine.compiler.RuleIndex;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -39,6 +41,31 @@ public class RealtimeRuleEvaluator {
     return fired;
   }
 
+  /**
+   * Evaluate pre-compiled rules. Allocates only when at least one rule fires.
+   */
+  public List<RuleDto> evaluateCompiled(ApiEvent event, List<CompiledRule> rules) {
+    List<RuleDto> fired = null;
+    for (int i = 0, n = rules.size(); i < n; i++) {
+      CompiledRule compiled = rules.get(i);
+      if (compiled.matches(event)) {
+        if (fired == null) {
+          fired = new ArrayList<>(2);
+        }
+        fired.add(compiled.rule());
+      }
+    }
+    return fired != null ? fired : List.of();
+  }
+
+  /**
+   * Like {@link #evaluateCompiled}, but only evaluates the rules whose mandatory EQUALS
+   * conditions the event can satisfy.
+   */
+  public List<RuleDto> evaluateIndexed(ApiEvent event, RuleIndex index) {
+    return index.matching(event);
+  }
+
   private boolean evaluateRule(ApiEvent event, RuleDto rule) {
     List<ConditionGroupDto> groups = rule.conditionGroups();
     if (groups == null || groups.isEmpty()) {
@@ -0,0 +1,12 @@
+package com.harness.pipeline.service;
+
+/**
+ * Thrown when a bulk ingestion request carries more events than
+ * {@code pipeline.ingestion.max-batch-size} allows.
+ */
+public class BatchTooLargeException extends RuntimeException {
+
+  public BatchTooLargeException(int maxBatchSize) {
+    super("Batch exceeds the maximum of " + maxBatchSize + " events");
+  }
+}
@@ -1,35 +1,198 @@
 package com.harness.pipeline.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.harness.pipeline.model.ApiEvent;
 import com.harness.pipeline.model.ApiEventRequest;
+import com.harness.pipeline.model.BatchIngestionResult;
 import com.harness.pipeline.pipeline.queue.EventBus;
+import com.harness.pipeline.pipeline.queue.PublishResult;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
 public class EventIngestionService {
 
   private static final Logger log = LoggerFactory.getLogger(EventIngestionService.class);
+  private static final String THROTTLED = "ingestion is throttled, retry later";
 
   private final EventBus eventBus;
+  private final Validator validator;
+  private final ObjectMapper objectMapper;
+  private final int maxBatchSize;
+  private final int publishChunkSize;
 
-  public EventIngestionService(EventBus eventBus) {
+  public EventIngestionService(
+      EventBus eventBus,
+      Validator validator,
+      ObjectMapper objectMapper,
+      @Value("${pipeline.ingestion.max-batch-size:1000}") int maxBatchSize,
+      @Value("${pipeline.ingestion.publish-chunk-size:256}") int publishChunkSize) {
     this.eventBus = eventBus;
+    this.validator = validator;
+    this.objectMapper = objectMapper;
+    this.maxBatchSize = maxBatchSize;
+    this.publishChunkSize = publishChunkSize;
   }
 
+  /**
+   * @throws IngestionRejectedException if the bus is applying backpressure
+   */
   public String ingestEvent(String tenantId, ApiEventRequest request) {
     ApiEvent event = toDomainEvent(tenantId, request);
-    boolean acceptedRealtime = eventBus.publish(event);
-    if (!acceptedRealtime) {
+    PublishResult result = eventBus.publish(event);
+    if (result == PublishResult.REJECTED) {
+      throw new IngestionRejectedException(tenantId);
+    }
+    if (result == PublishResult.REALTIME_SHED) {
       log.warn("Realtime queue full, event routed to batch only. tenantId={}, eventId={}",
           tenantId, event.eventId());
     }
     return event.eventId();
   }
 
+  /**
+   * Validate each request independently and publish the valid ones to the bus in one
+   * bulk operation. Invalid items are reported back without failing the whole batch, and so
+   * are valid ones the bus refused after it had already queued others.
+   *
+   * @throws BatchTooLargeException if more than {@code maxBatchSize} events were submitted
+   * @throws IngestionRejectedException if backpressure refused every valid event
+   */
+  public BatchIngestionResult ingestBatch(String tenantId, List<ApiEventRequest> requests) {
+    if (requests.size() > maxBatchSize) {
+      throw new BatchTooLargeException(maxBatchSize);
+    }
+    List<List<String>> errors = new ArrayList<>(requests.size());
+    for (ApiEventRequest request : requests) {
+      errors.add(validate(request));
+    }
+    return publishValid(tenantId, requests, errors);
+  }
+
+  /**
+   * Streaming variant of {@link #ingestBatch} for a newline-delimited JSON body. Events are
+   * parsed straight into {@link ApiEvent} and published in chunks of {@code publishChunkSize}
+   * while the body is still being read, so memory stays flat regardless of upload size.
+   *
+   * <p>Because earlier chunks are already on the bus, later failures are reported per item
+   * rather than failing the request: a chunk refused by backpressure marks its items as
+   * rejected, and a syntax error or exceeding {@code maxBatchSize} ends the stream with one
+   * final invalid item.
+   *
+   * @throws IngestionRejectedException if backpressure refused every valid event
+   */
+  public BatchIngestionResult ingestNdjson(String tenantId, InputStream body) throws IOException {
+    NdjsonBatch batch = new NdjsonBatch(tenantId);
+    try (NdjsonEventReader reader =
+             new NdjsonEventReader(objectMapper.getFactory().createParser(body), tenantId)) {
+      while (true) {
+        NdjsonEventReader.Item item;
+        try {
+          item = reader.next();
+        } catch (JsonProcessingException e) {
+          batch.flush();
+          batch.invalid(List.of("malformed JSON: " + e.getOriginalMessage()
+              + "; later events were not read"));
+          break;
+        }
+        if (item == null) {
+          break;
+        }
+        if (batch.size() == maxBatchSize) {
+          batch.flush();
+          batch.invalid(List.of("batch exceeds the maximum of " + maxBatchSize
+              + " events; later events were not read"));
+          break;
+        }
+        if (item.event() == null) {
+          batch.invalid(item.errors());
+        } else {
+          batch.add(item.event());
+        }
+      }
+    }
+    batch.flush();
+    if (batch.accepted == 0 && batch.rejected > 0) {
+      throw new IngestionRejectedException(tenantId);
+    }
+    return new BatchIngestionResult(batch.accepted, batch.invalid, batch.rejected, batch.items);
+  }
+
+  private List<String> validate(ApiEventRequest request) {
+    if (request == null) {
+      return List.of("event must not be null");
+    }
+    Set<ConstraintViolation<ApiEventRequest>> violations = validator.validate(request);
+    if (violations.isEmpty()) {
+      return List.of();
+    }
+    List<String> messages = new ArrayList<>(violations.size());
+    for (ConstraintViolation<ApiEventRequest> violation : violations) {
+      messages.add(violation.getPropertyPath() + ": " + violation.getMessage());
+    }
+    messages.sort(null);
+    return messages;
+  }
+
+  private BatchIngestionResult publishValid(
+      String tenantId, List<ApiEventRequest> requests, List<List<String>> errors) {
+    List<ApiEvent> events = new ArrayList<>(requests.size());
+    for (int i = 0; i < requests.size(); i++) {
+      if (errors.get(i).isEmpty()) {
+        events.add(toDomainEvent(tenantId, requests.get(i)));
+      }
+    }
+
+    List<PublishResult> results = events.isEmpty() ? List.of() : eventBus.publishAll(events);
+    int shed = 0;
+    int rejected = 0;
+    for (PublishResult result : results) {
+      if (result == PublishResult.REJECTED) {
+        rejected++;
+      } else if (result == PublishResult.REALTIME_SHED) {
+        shed++;
+      }
+    }
+    if (rejected > 0 && rejected == events.size()) {
+      throw new IngestionRejectedException(tenantId);
+    }
+    if (shed > 0) {
+      log.warn("Realtime queue full, {} of {} batch events routed to batch only. tenantId={}",
+          shed, events.size(), tenantId);
+    }
+
+    List<BatchIngestionResult.Item> items = new ArrayList<>(requests.size());
+    int next = 0;
+    for (int i = 0; i < requests.size(); i++) {
+      if (!errors.get(i).isEmpty()) {
+        items.add(BatchIngestionResult.Item.invalid(i, errors.get(i)));
+      } else if (results.get(next) == PublishResult.REJECTED) {
+        items.add(BatchIngestionResult.Item.invalid(i, List.of(THROTTLED)));
+        next++;
+      } else {
+        items.add(BatchIngestionResult.Item.accepted(i, events.get(next++).eventId()));
+      }
+    }
+    return new BatchIngestionResult(events.size() - rejected, requests.size() - events.size(),
+        rejected, items);
+  }
+
+  static String statusClass(Integer statusCode) {
+    return statusCode == null ? null : (statusCode / 100) + "xx";
+  }
+
   private ApiEvent toDomainEvent(String tenantId, ApiEventRequest request) {
     String eventId = UUID.randomUUID().toString();
     Instant now = Instant.now();
@@ -50,14 +213,9 @@ public class EventIngestionService {
     ApiEvent.HttpResponse httpResponse = null;
     if (request.response() != null) {
       Integer statusCode = request.response().statusCode();
-      String statusClass = null;
-      if (statusCode != null) {
-        int hundred = statusCode / 100;
-        statusClass = hundred + "xx";
-      }
       httpResponse = new ApiEvent.HttpResponse(
           statusCode,
-          statusClass,
+          statusClass(statusCode),
           request.response().responseTimeMs(),
           request.response().headers(),
           request.response().body(),
@@ -88,6 +246,69 @@ public class EventIngestionService {
         metadata
     );
   }
-}
 
+  /**
+   * Per-request state of a streaming ingestion: the pending publish chunk and the item
+   * results collected so far.
+   */
+  private final class NdjsonBatch {
+
+    private final String tenantId;
+    private final List<BatchIngestionResult.Item> items = new ArrayList<>();
+    private final List<ApiEvent> chunk = new ArrayList<>(publishChunkSize);
+    private final List<Integer> chunkIndexes = new ArrayList<>(publishChunkSize);
+    private int accepted;
+    private int invalid;
+    private int rejected;
+
+    private NdjsonBatch(String tenantId) {
+      this.tenantId = tenantId;
+    }
+
+    int size() {
+      return items.size();
+    }
 
+    void invalid(List<String> errors) {
+      items.add(BatchIngestionResult.Item.invalid(items.size(), errors));
+      invalid++;
+    }
+
+    void add(ApiEvent event) {
+      chunkIndexes.add(items.size());
+      items.add(null);
+      chunk.add(event);
+      if (chunk.size() == publishChunkSize) {
+        flush();
+      }
+    }
+
+    void flush() {
+      if (chunk.isEmpty()) {
+        return;
+      }
+      List<PublishResult> results = eventBus.publishAll(chunk);
+      int shed = 0;
+      for (int i = 0; i < results.size(); i++) {
+        int index = chunkIndexes.get(i);
+        PublishResult result = results.get(i);
+        if (result == PublishResult.REJECTED) {
+          items.set(index, BatchIngestionResult.Item.invalid(index, List.of(THROTTLED)));
+          rejected++;
+          continue;
+        }
+        if (result == PublishResult.REALTIME_SHED) {
+          shed++;
+        }
+        items.set(index, BatchIngestionResult.Item.accepted(index, chunk.get(i).eventId()));
+        accepted++;
+      }
+      if (shed > 0) {
+        log.warn("Realtime queue full, {} of {} batch events routed to batch only. tenantId={}",
+            shed, chunk.size(), tenantId);
+      }
+      chunk.clear();
+      chunkIndexes.clear();
+    }
+  }
+}
@@ -0,0 +1,12 @@
+package com.harness.pipeline.service;
+
+/**
+ * Thrown when the event bus refuses an event because the batch path is saturated.
+ * Clients should retry later.
+ */
+public class IngestionRejectedException extends RuntimeException {
+
+  public IngestionRejectedException(String tenantId) {
+    super("Event ingestion is throttled, retry later. tenantId=" + tenantId);
+  }
+}
@@ -0,0 +1,339 @@
+package com.harness.pipeline.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.harness.pipeline.model.ApiEvent;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Reads a stream of JSON objects and builds {@link ApiEvent} records straight from the parser
+ * tokens, without an intermediate {@code ApiEventRequest}. Only the current event is held in
+ * memory.
+ *
+ * <p>The checks mirror the bean validation annotations on {@code ApiEventRequest} and use the
+ * same {@code path: message} wording. Type mismatches are reported per event. Syntax errors
+ * leave the stream unreadable, so they surface as a {@code JsonProcessingException} from
+ * {@link #next()}.
+ */
+final class NdjsonEventReader implements Closeable {
+
+  private static final String NOT_NULL = "must not be null";
+  private static final String NOT_BLANK = "must not be blank";
+
+  private final JsonParser parser;
+  private final String tenantId;
+  private final List<String> errors = new ArrayList<>();
+
+  NdjsonEventReader(JsonParser parser, String tenantId) {
+    this.parser = parser;
+    this.tenantId = tenantId;
+  }
+
+  /**
+   * @return the next event, or null at the end of the stream
+   */
+  Item next() throws IOException {
+    JsonToken token = parser.nextToken();
+    if (token == null) {
+      return null;
+    }
+    errors.clear();
+    if (token != JsonToken.START_OBJECT) {
+      parser.skipChildren();
+      return new Item(null, List.of("event must be a JSON object"));
+    }
+
+    Instant timestamp = null;
+    ApiEvent.HttpRequest request = null;
+    ApiEvent.HttpResponse response = null;
+    ApiEvent.ServiceMetadata metadata = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      parser.nextToken();
+      switch (field) {
+        case "timestamp" -> timestamp = readInstant("timestamp");
+        case "request" -> request = readRequest();
+        case "response" -> response = readResponse();
+        case "metadata" -> metadata = readMetadata();
+        default -> parser.skipChildren();
+      }
+    }
+
+    requireNotNull(timestamp, "timestamp");
+    requireNotNull(request, "request");
+    if (!errors.isEmpty()) {
+      List<String> sorted = new ArrayList<>(errors);
+      sorted.sort(null);
+      return new Item(null, sorted);
+    }
+    ApiEvent event = new ApiEvent(
+        UUID.randomUUID().toString(),
+        tenantId,
+        timestamp,
+        Instant.now(),
+        request,
+        response,
+        metadata
+    );
+    return new Item(event, List.of());
+  }
+
+  @Override
+  public void close() throws IOException {
+    parser.close();
+  }
+
+  private ApiEvent.HttpRequest readRequest() throws IOException {
+    if (!startObject("request")) {
+      return null;
+    }
+    String method = null;
+    String host = null;
+    String path = null;
+    String queryString = null;
+    Map<String, String> headers = null;
+    String body = null;
+    Long sizeBytes = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      parser.nextToken();
+      switch (field) {
+        case "method" -> method = readString("request.method");
+        case "host" -> host = readString("request.host");
+        case "path" -> path = readString("request.path");
+        case "queryString" -> queryString = readString("request.queryString");
+        case "headers" -> headers = readStringMap("request.headers");
+        case "body" -> body = readString("request.body");
+        case "sizeBytes" -> sizeBytes = readLong("request.sizeBytes");
+        default -> parser.skipChildren();
+      }
+    }
+    requireNotBlank(method, "request.method");
+    requireNotBlank(host, "request.host");
+    requireNotBlank(path, "request.path");
+    return new ApiEvent.HttpRequest(method, host, path, queryString, headers, body, sizeBytes);
+  }
+
+  private ApiEvent.HttpResponse readResponse() throws IOException {
+    if (!startObject("response")) {
+      return null;
+    }
+    Integer statusCode = null;
+    Long responseTimeMs = null;
+    Map<String, String> headers = null;
+    String body = null;
+    Long sizeBytes = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      parser.nextToken();
+      switch (field) {
+        case "statusCode" -> statusCode = readInt("response.statusCode");
+        case "responseTimeMs" -> responseTimeMs = readLong("response.responseTimeMs");
+        case "headers" -> headers = readStringMap("response.headers");
+        case "body" -> body = readString("response.body");
+        case "sizeBytes" -> sizeBytes = readLong("response.sizeBytes");
+        default -> parser.skipChildren();
+      }
+    }
+    requireNotNull(statusCode, "response.statusCode");
+    requireNotNull(responseTimeMs, "response.responseTimeMs");
+    return new ApiEvent.HttpResponse(
+        statusCode,
+        EventIngestionService.statusClass(statusCode),
+        responseTimeMs,
+        headers,
+        body,
+        sizeBytes
+    );
+  }
+
+  private ApiEvent.ServiceMetadata readMetadata() throws IOException {
+    if (!startObject("metadata")) {
+      return null;
+    }
+    String serviceId = null;
+    String serviceName = null;
+    String environment = null;
+    String region = null;
+    String hostIp = null;
+    String traceId = null;
+    Map<String, String> tags = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      parser.nextToken();
+      switch (field) {
+        case "serviceId" -> serviceId = readString("metadata.serviceId");
+        case "serviceName" -> serviceName = readString("metadata.serviceName");
+        case "environment" -> environment = readString("metadata.environment");
+        case "region" -> region = readString("metadata.region");
+        case "hostIp" -> hostIp = readString("metadata.hostIp");
+        case "traceId" -> traceId = readString("metadata.traceId");
+        case "tags" -> tags = readStringMap("metadata.tags");
+        default -> parser.skipChildren();
+      }
+    }
+    requireNotBlank(serviceId, "metadata.serviceId");
+    requireNotBlank(environment, "metadata.environment");
+    return new ApiEvent.ServiceMetadata(
+        serviceId, serviceName, environment, region, hostIp, traceId, tags);
+  }
+
+  /**
+   * @return true if the current token opens an object; otherwise the value is skipped
+   */
+  private boolean startObject(String path) throws IOException {
+    JsonToken token = parser.currentToken();
+    if (token == JsonToken.START_OBJECT) {
+      return true;
+    }
+    if (token != JsonToken.VALUE_NULL) {
+      errors.add(path + ": must be an object");
+      parser.skipChildren();
+    }
+    return false;
+  }
+
+  private String readString(String path) throws IOException {
+    JsonToken token = parser.currentToken();
+    if (token == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    if (token.isScalarValue()) {
+      return parser.getText();
+    }
+    errors.add(path + ": must be a string");
+    parser.skipChildren();
+    return null;
+  }
+
+  private Long readLong(String path) throws IOException {
+    BigDecimal value = readNumber(path);
+    if (value == null) {
+      return null;
+    }
+    try {
+      return value.longValueExact();
+    } catch (ArithmeticException e) {
+      errors.add(path + ": must be an integer");
+      return null;
+    }
+  }
+
+  private Integer readInt(String path) throws IOException {
+    BigDecimal value = readNumber(path);
+    if (value == null) {
+      return null;
+    }
+    try {
+      return value.intValueExact();
+    } catch (ArithmeticException e) {
+      errors.add(path + ": must be an integer");
+      return null;
+    }
+  }
+
+  private BigDecimal readNumber(String path) throws IOException {
+    JsonToken token = parser.currentToken();
+    if (token == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    if (token == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() == JsonParser.NumberType.INT) {
+      return BigDecimal.valueOf(parser.getIntValue());
+    }
+    if (token.isNumeric()) {
+      return parser.getDecimalValue();
+    }
+    if (token == JsonToken.VALUE_STRING) {
+      try {
+        return new BigDecimal(parser.getText().trim());
+      } catch (NumberFormatException e) {
+        // fall through to the error below
+      }
+    }
+    errors.add(path + ": must be a number");
+    parser.skipChildren();
+    return null;
+  }
+
+  private Instant readInstant(String path) throws IOException {
+    JsonToken token = parser.currentToken();
+    if (token == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    if (token == JsonToken.VALUE_STRING) {
+      try {
+        return Instant.parse(parser.getText());
+      } catch (DateTimeParseException e) {
+        errors.add(path + ": must be an ISO-8601 instant");
+        return null;
+      }
+    }
+    if (token.isNumeric()) {
+      // Same convention as Jackson's InstantDeserializer: epoch seconds with optional fraction.
+      BigDecimal seconds = parser.getDecimalValue();
+      try {
+        return Instant.ofEpochSecond(
+            seconds.setScale(0, RoundingMode.DOWN).longValueExact(),
+            seconds.remainder(BigDecimal.ONE).movePointRight(9).intValue());
+      } catch (ArithmeticException | DateTimeException e) {
+        errors.add(path + ": out of range");
+        return null;
+      }
+    }
+    errors.add(path + ": must be an ISO-8601 instant");
+    parser.skipChildren();
+    return null;
+  }
+
+  private Map<String, String> readStringMap(String path) throws IOException {
+    if (!startObject(path)) {
+      return null;
+    }
+    Map<String, String> map = new LinkedHashMap<>();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String key = parser.currentName();
+      parser.nextToken();
+      map.put(key, readString(path + "[" + key + "]"));
+    }
+    return map;
+  }
+
+  private void requireNotNull(Object value, String path) {
+    if (value == null && !hasError(path)) {
+      errors.add(path + ": " + NOT_NULL);
+    }
+  }
+
+  private void requireNotBlank(String value, String path) {
+    if ((value == null || value.isBlank()) && !hasError(path)) {
+      errors.add(path + ": " + NOT_BLANK);
+    }
+  }
+
+  /** A field that failed its type check shouldn't also be reported as missing. */
+  private boolean hasError(String path) {
+    String prefix = path + ":";
+    for (String error : errors) {
+      if (error.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Either {@code event} is set or {@code errors} is non-empty.
+   */
+  record Item(ApiEvent event, List<String> errors) {}
+}
@@ -0,0 +1,11 @@
+package com.harness.pipeline.service;
+
+import com.harness.pipeline.model.RuleDto;
+import java.util.UUID;
+
+/**
+ * Published after a rule change commits.
+ *
+ * @param rule the rule as saved, or null if it was deleted
+ */
+public record RuleChangedEvent(String tenantId, UUID ruleId, RuleDto rule) {}
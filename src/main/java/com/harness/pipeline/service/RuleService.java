@@ -9,22 +9,35 @@ import com.harness.pipeline.model.NotificationConfigDto;
 import com.harness.pipeline.model.RuleDto;
 import com.harness.pipeline.repository.RuleEntity;
 import com.harness.pipeline.repository.RuleRepository;
+import com.harness.pipeline.ruleengine.cache.RuleSnapshot;
+import com.harness.pipeline.ruleengine.cache.RuleSnapshotCache;
+import com.harness.pipeline.ruleengine.compiler.CompiledRule;
+import com.harness.pipeline.ruleengine.compiler.RuleCompiler;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 public class RuleService {
 
   private final RuleRepository repository;
   private final ObjectMapper objectMapper;
+  private final RuleCompiler ruleCompiler = new RuleCompiler();
+  private final RuleSnapshotCache realtimeRuleCache;
+  private final ApplicationEventPublisher eventPublisher;
 
-  public RuleService(RuleRepository repository, ObjectMapper objectMapper) {
+  public RuleService(RuleRepository repository, ObjectMapper objectMapper,
+                     ApplicationEventPublisher eventPublisher) {
     this.repository = repository;
     this.objectMapper = objectMapper;
+    this.eventPublisher = eventPublisher;
+    this.realtimeRuleCache = new RuleSnapshotCache(this::loadEnabledRealtimeRules);
   }
 
   @Transactional
@@ -43,8 +56,9 @@ public class RuleService {
     entity.setCountThreshold(request.countThreshold());
     entity.setCreatedAt(now);
     entity.setUpdatedAt(now);
-    RuleEntity saved = repository.save(entity);
-    return toDto(saved);
+    RuleDto saved = toDto(repository.save(entity));
+    afterCommit(tenantId, saved.id(), saved);
+    return saved;
   }
 
   @Transactional(readOnly = true)
@@ -71,6 +85,14 @@ public class RuleService {
     return entities.stream().map(this::toDto).toList();
   }
 
+  /**
+   * Cached, compiled snapshot of the tenant's enabled REALTIME rules, used on the per-event hot path.
+   * Served from memory; the database is only hit after a rule change for that tenant.
+   */
+  public RuleSnapshot getRealtimeSnapshot(String tenantId) {
+    return realtimeRuleCache.get(tenantId);
+  }
+
   @Transactional(readOnly = true)
   public Optional<RuleDto> getRule(String tenantId, UUID ruleId) {
     return repository.findByIdAndTenantId(ruleId, tenantId).map(this::toDto);
@@ -89,7 +111,9 @@ public class RuleService {
       existing.setWindowMinutes(request.windowMinutes());
       existing.setCountThreshold(request.countThreshold());
       existing.setUpdatedAt(Instant.now());
-      return toDto(repository.save(existing));
+      RuleDto saved = toDto(repository.save(existing));
+      afterCommit(tenantId, ruleId, saved);
+      return saved;
     });
   }
 
@@ -98,6 +122,7 @@ public class RuleService {
     return repository.findByIdAndTenantId(ruleId, tenantId)
         .map(entity -> {
           repository.delete(entity);
+          afterCommit(tenantId, ruleId, null);
           return true;
         })
         .orElse(false);
@@ -108,10 +133,41 @@ public class RuleService {
     return repository.findByIdAndTenantId(ruleId, tenantId).map(entity -> {
       entity.setEnabled(enabled);
       entity.setUpdatedAt(Instant.now());
-      return toDto(repository.save(entity));
+      RuleDto saved = toDto(repository.save(entity));
+      afterCommit(tenantId, ruleId, saved);
+      return saved;
+    });
+  }
+
+  private List<CompiledRule> loadEnabledRealtimeRules(String tenantId) {
+    return ruleCompiler.compileAll(
+        repository.findByTenantIdAndTypeAndEnabled(tenantId, RuleType.REALTIME, true)
+            .stream().map(this::toDto).toList());
+  }
+
+  /**
+   * Drop the tenant's cached snapshot and announce the change once the surrounding
+   * transaction commits, so workers can never reload the pre-change rows and keep them
+   * after the change lands, and listeners never act on a change that rolls back.
+   */
+  private void afterCommit(String tenantId, UUID ruleId, RuleDto saved) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      ruleChanged(tenantId, ruleId, saved);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        ruleChanged(tenantId, ruleId, saved);
+      }
     });
   }
 
+  private void ruleChanged(String tenantId, UUID ruleId, RuleDto saved) {
+    realtimeRuleCache.invalidate(tenantId);
+    eventPublisher.publishEvent(new RuleChangedEvent(tenantId, ruleId, saved));
+  }
+
   private String serializeConditions(List<ConditionGroupDto> groups) {
     try {
       return objectMapper.writeValueAsString(groups);
@@ -2,8 +2,13 @@ package com.harness.pipeline.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.harness.pipeline.model.ApiEventRequest;
+import com.harness.pipeline.model.BatchIngestionResult;
+import com.harness.pipeline.service.BatchTooLargeException;
 import com.harness.pipeline.service.EventIngestionService;
+import com.harness.pipeline.service.IngestionRejectedException;
+import java.io.InputStream;
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,9 +18,11 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -75,6 +82,102 @@ class EventIngestionControllerTest {
         .andExpect(jsonPath("$.eventId").value("event-123"));
   }
 
+  @Test
+  void backpressureReturns429WithRetryAfter() throws Exception {
+    given(ingestionService.ingestEvent(eq("tenant-1"), any(ApiEventRequest.class)))
+        .willThrow(new IngestionRejectedException("tenant-1"));
+
+    ApiEventRequest request = new ApiEventRequest(
+        Instant.parse("2026-02-26T12:00:00Z"),
+        new ApiEventRequest.HttpRequest(
+            "GET",
+            "api.example.com",
+            "/api/users",
+            null,
+            Map.of(),
+            null,
+            null
+        ),
+        null,
+        null
+    );
+
+    mockMvc.perform(
+            post("/api/v1/events")
+                .header("X-Tenant-Id", "tenant-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request))
+        )
+        .andExpect(status().isTooManyRequests())
+        .andExpect(header().string("Retry-After", "1"));
+  }
+
+  @Test
+  void batchArrayReturns202WithPerItemResults() throws Exception {
+    given(ingestionService.ingestBatch(eq("tenant-1"), anyList()))
+        .willReturn(new BatchIngestionResult(1, 1, 0, List.of(
+            BatchIngestionResult.Item.accepted(0, "event-1"),
+            BatchIngestionResult.Item.invalid(1, List.of("request.method: must not be blank"))
+        )));
+
+    String payload = """
+        [
+          {"timestamp": "2026-02-26T12:00:00Z",
+           "request": {"method": "GET", "host": "api.example.com", "path": "/api/users"}},
+          {"timestamp": "2026-02-26T12:00:00Z",
+           "request": {"host": "api.example.com", "path": "/api/users"}}
+        ]
+        """;
+
+    mockMvc.perform(
+            post("/api/v1/events:batch")
+                .header("X-Tenant-Id", "tenant-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(payload)
+        )
+        .andExpect(status().isAccepted())
+        .andExpect(jsonPath("$.accepted").value(1))
+        .andExpect(jsonPath("$.items[0].eventId").value("event-1"))
+        .andExpect(jsonPath("$.items[1].errors[0]").value("request.method: must not be blank"));
+  }
+
+  @Test
+  void batchNdjsonIsRoutedToNdjsonIngestion() throws Exception {
+    given(ingestionService.ingestNdjson(eq("tenant-1"), any(InputStream.class)))
+        .willReturn(new BatchIngestionResult(2, 0, 0, List.of(
+            BatchIngestionResult.Item.accepted(0, "event-1"),
+            BatchIngestionResult.Item.accepted(1, "event-2")
+        )));
+
+    String payload = """
+        {"timestamp": "2026-02-26T12:00:00Z", "request": {"method": "GET", "host": "h", "path": "/a"}}
+        {"timestamp": "2026-02-26T12:00:01Z", "request": {"method": "GET", "host": "h", "path": "/b"}}
+        """;
+
+    mockMvc.perform(
+            post("/api/v1/events:batch")
+                .header("X-Tenant-Id", "tenant-1")
+                .contentType("application/x-ndjson")
+                .content(payload)
+        )
+        .andExpect(status().isAccepted())
+        .andExpect(jsonPath("$.items[1].eventId").value("event-2"));
+  }
+
+  @Test
+  void oversizedBatchReturns413() throws Exception {
+    given(ingestionService.ingestBatch(eq("tenant-1"), anyList()))
+        .willThrow(new BatchTooLargeException(1));
+
+    mockMvc.perform(
+            post("/api/v1/events:batch")
+                .header("X-Tenant-Id", "tenant-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{}, {}]")
+        )
+        .andExpect(status().isPayloadTooLarge());
+  }
+
   @Test
   void missingTenantHeaderReturns400() throws Exception {
     ApiEventRequest request = new ApiEventRequest(
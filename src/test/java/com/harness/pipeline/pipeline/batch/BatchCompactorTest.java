@@ -0,0 +1,137 @@
+package com.harness.pipeline.pipeline.batch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.harness.pipeline.model.ApiEvent;
+import com.harness.pipeline.pipeline.queue.InMemoryEventBus;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BatchCompactorTest {
+
+  private static final Instant CLOSED_HOUR = Instant.parse("2026-02-26T12:00:00Z");
+
+  @TempDir
+  Path tempDir;
+
+  private DuckDbEngine duckDb;
+  private BatchCompactor compactor;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    duckDb = new DuckDbEngine(1, "", 2, 1000);
+    compactor = new BatchCompactor(duckDb, new BatchRuleQueryBuilder(), new BatchStorageLock(),
+        tempDir.toString(), 60_000, 4, 1L << 30, 0, BatchWriter.DEFAULT_ROW_GROUP_SIZE);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    duckDb.close();
+  }
+
+  @Test
+  void mergesClosedPartitionIntoOneSortedParquetFile() throws Exception {
+    // Newest events first, so the output is only sorted if compaction sorts it.
+    for (int i = 4; i >= 1; i--) {
+      write(BatchFileFormat.JSONL, CLOSED_HOUR.plusSeconds(i * 60L));
+    }
+    write(BatchFileFormat.PARQUET, CLOSED_HOUR.plusSeconds(30));
+    Path closed = tempDir.resolve("tenant_id=tenant-1")
+        .resolve(PartitionGranularity.HOUR.partitionPath(CLOSED_HOUR));
+    Instant now = Instant.now();
+    for (int i = 0; i < 4; i++) {
+      write(BatchFileFormat.JSONL, now);
+    }
+
+    assertThat(compactor.compactClosedPartitions()).isEqualTo(1);
+
+    List<Path> closedFiles = files(closed);
+    assertThat(closedFiles).singleElement()
+        .satisfies(p -> assertThat(p.getFileName().toString())
+            .startsWith(BatchCompactor.COMPACTED_PREFIX).endsWith(".parquet"));
+    try (Connection conn = DriverManager.getConnection("jdbc:duckdb:");
+         Statement stmt = conn.createStatement();
+         ResultSet rs = stmt.executeQuery(
+             "SELECT received_at FROM read_parquet('" + closedFiles.get(0) + "')")) {
+      List<Long> receivedAt = new ArrayList<>();
+      while (rs.next()) {
+        receivedAt.add(rs.getLong(1));
+      }
+      assertThat(receivedAt).hasSize(5).isSorted();
+    }
+
+    Path open = tempDir.resolve("tenant_id=tenant-1")
+        .resolve(PartitionGranularity.HOUR.partitionPath(now));
+    assertThat(files(open)).hasSize(4);
+
+    assertThat(compactor.compactClosedPartitions()).isZero();
+  }
+
+  @Test
+  void partitionWithFewFilesIsLeftAlone() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      write(BatchFileFormat.JSONL, CLOSED_HOUR);
+    }
+
+    assertThat(compactor.compactClosedPartitions()).isZero();
+  }
+
+  @Test
+  void interruptedSwapIsFinishedOrRolledBack() throws Exception {
+    Path swapped = Files.createDirectories(tempDir.resolve("tenant_id=a/year=2026/month=02/day=26"));
+    Files.writeString(swapped.resolve("compacted-1.parquet"), "merged");
+    Files.writeString(swapped.resolve("events-1.jsonl"), "{}\n");
+    Files.writeString(swapped.resolve(".compacted-1" + BatchCompactor.MANIFEST_SUFFIX),
+        "compacted-1.parquet\nevents-1.jsonl\n");
+
+    Path notSwapped = Files.createDirectories(tempDir.resolve("tenant_id=b/year=2026/month=02/day=26"));
+    Files.writeString(notSwapped.resolve("compacted-2.parquet.tmp"), "partial");
+    Files.writeString(notSwapped.resolve("events-2.jsonl"), "{}\n");
+    Files.writeString(notSwapped.resolve(".compacted-2" + BatchCompactor.MANIFEST_SUFFIX),
+        "compacted-2.parquet\nevents-2.jsonl\n");
+
+    compactor.compactClosedPartitions();
+
+    assertThat(files(swapped)).extracting(p -> p.getFileName().toString())
+        .containsExactly("compacted-1.parquet");
+    assertThat(files(notSwapped)).extracting(p -> p.getFileName().toString())
+        .containsExactly("events-2.jsonl");
+  }
+
+  @Test
+  void pauseKeepsAverageRateWithinBudget() {
+    assertThat(BatchCompactor.pauseMillis(10_000_000, 0, 10_000_000)).isEqualTo(1000);
+    assertThat(BatchCompactor.pauseMillis(10_000_000, 400_000_000, 10_000_000)).isEqualTo(600);
+    assertThat(BatchCompactor.pauseMillis(10_000_000, 2_000_000_000, 10_000_000)).isZero();
+    assertThat(BatchCompactor.pauseMillis(10_000_000, 0, 0)).isZero();
+  }
+
+  private void write(BatchFileFormat format, Instant receivedAt) {
+    InMemoryEventBus bus = new InMemoryEventBus(10, 10);
+    bus.publish(new ApiEvent("e-" + receivedAt.toEpochMilli(), "tenant-1", receivedAt, receivedAt,
+        new ApiEvent.HttpRequest("GET", "api.example.com", "/api/users", null, null, null, null),
+        new ApiEvent.HttpResponse(500, "5xx", 10L, null, null, null),
+        null));
+    new BatchWriter(bus, new ObjectMapper(), duckDb, tempDir.toString(), format,
+        BatchWriter.DEFAULT_ROW_GROUP_SIZE, PartitionGranularity.HOUR).flushAllFromQueue();
+  }
+
+  private List<Path> files(Path dir) throws Exception {
+    try (Stream<Path> paths = Files.list(dir)) {
+      return paths.sorted().toList();
+    }
+  }
+}
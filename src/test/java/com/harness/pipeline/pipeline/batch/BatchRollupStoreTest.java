@@ -0,0 +1,106 @@
+package com.harness.pipeline.pipeline.batch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.harness.pipeline.enums.ConditionGroupOperator;
+import com.harness.pipeline.enums.RuleConditionField;
+import com.harness.pipeline.enums.RuleOperator;
+import com.harness.pipeline.enums.RuleType;
+import com.harness.pipeline.model.ApiEvent;
+import com.harness.pipeline.model.ConditionDto;
+import com.harness.pipeline.model.ConditionGroupDto;
+import com.harness.pipeline.model.RuleDto;
+import com.harness.pipeline.service.RuleChangedEvent;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class BatchRollupStoreTest {
+
+  private final BatchRollupStore store = new BatchRollupStore(new BatchRuleQueryBuilder(), true, 0);
+
+  @Test
+  void rollupIsServedOnlyAfterBackfillAndNeverCountsAnEventTwice() {
+    RuleDto rule = rule(UUID.randomUUID(), "5xx");
+    Instant windowStart = Instant.now().minus(60, ChronoUnit.MINUTES);
+
+    assertThat(store.windowCount(rule, windowStart)).isEmpty();
+    Instant cutoff = store.dueBackfill(rule, Instant.now());
+    assertThat(cutoff).isNotNull();
+
+    // Received before the cutoff: the backfill's job, not live counting's.
+    store.onWritten(List.of(event("5xx", cutoff.minusMillis(1))));
+    store.onWritten(List.of(event("5xx", cutoff), event("2xx", cutoff), event("5xx", cutoff)));
+    assertThat(store.windowCount(rule, windowStart)).isEmpty();
+
+    store.completeBackfill(rule, Map.of(
+        cutoff.minus(10, ChronoUnit.MINUTES).toEpochMilli() / 60_000, 3L,
+        cutoff.minus(90, ChronoUnit.MINUTES).toEpochMilli() / 60_000, 5L));
+
+    assertThat(store.windowCount(rule, windowStart)).hasValue(5);
+    assertThat(store.dueBackfill(rule, Instant.now())).isNull();
+  }
+
+  @Test
+  void backfillWaitsForTheConfiguredDelay() {
+    BatchRollupStore delayed = new BatchRollupStore(new BatchRuleQueryBuilder(), true, 60_000);
+    RuleDto rule = rule(UUID.randomUUID(), "5xx");
+
+    assertThat(delayed.windowCount(rule, Instant.now())).isEmpty();
+
+    assertThat(delayed.dueBackfill(rule, Instant.now())).isNull();
+    assertThat(delayed.dueBackfill(rule, Instant.now().plusSeconds(61))).isNotNull();
+  }
+
+  @Test
+  void backfillDelayCoversTheActiveWritersLag() {
+    assertThat(BatchRollupStore.backfillDelayMs(60_000, "periodic", 600_000, 30_000))
+        .isEqualTo(660_000);
+    assertThat(BatchRollupStore.backfillDelayMs(60_000, "streaming", 600_000, 30_000))
+        .isEqualTo(90_000);
+  }
+
+  @Test
+  void changedRuleStartsOverAndRemovedRuleIsDropped() {
+    UUID id = UUID.randomUUID();
+    RuleDto rule = rule(id, "5xx");
+    Instant windowStart = Instant.now().minus(60, ChronoUnit.MINUTES);
+    store.windowCount(rule, windowStart);
+    store.completeBackfill(rule, Map.of());
+    assertThat(store.windowCount(rule, windowStart)).hasValue(0);
+
+    RuleDto edited = rule(id, "4xx");
+    store.onRuleChanged(new RuleChangedEvent("tenant-1", id, edited));
+    assertThat(store.windowCount(edited, windowStart)).isEmpty();
+    assertThat(store.dueBackfill(edited, Instant.now())).isNotNull();
+
+    store.completeBackfill(edited, Map.of());
+    store.retainOnly(Set.of());
+    assertThat(store.windowCount(edited, windowStart)).isEmpty();
+  }
+
+  @Test
+  void disabledStoreNeverServesCounts() {
+    BatchRollupStore disabled = new BatchRollupStore(new BatchRuleQueryBuilder(), false, 0);
+    RuleDto rule = rule(UUID.randomUUID(), "5xx");
+
+    assertThat(disabled.windowCount(rule, Instant.now())).isEmpty();
+    assertThat(disabled.dueBackfill(rule, Instant.now())).isNull();
+  }
+
+  private RuleDto rule(UUID id, String statusClass) {
+    return new RuleDto(id, "tenant-1", "rule", RuleType.BATCH, true, ConditionGroupOperator.AND,
+        List.of(new ConditionGroupDto(ConditionGroupOperator.AND, List.of(
+            new ConditionDto(RuleConditionField.RESPONSE_STATUS_CLASS, RuleOperator.EQUALS, statusClass)))),
+        null, 60, 1L, Instant.now(), Instant.now());
+  }
+
+  private ApiEvent event(String statusClass, Instant receivedAt) {
+    return new ApiEvent(UUID.randomUUID().toString(), "tenant-1", receivedAt, receivedAt, null,
+        new ApiEvent.HttpResponse(500, statusClass, 10L, null, null, null), null);
+  }
+}
@@ -1,30 +1,34 @@
 package com.harness.pipeline.pipeline.batch;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.harness.pipeline.enums.ConditionGroupOperator;
 import com.harness.pipeline.enums.RuleConditionField;
 import com.harness.pipeline.enums.RuleOperator;
 import com.harness.pipeline.enums.RuleType;
+import com.harness.pipeline.model.ApiEvent;
 import com.harness.pipeline.model.ConditionDto;
 import com.harness.pipeline.model.ConditionGroupDto;
 import com.harness.pipeline.model.NotificationConfigDto;
 import com.harness.pipeline.model.RuleDto;
 import com.harness.pipeline.notification.NotificationService;
+import com.harness.pipeline.pipeline.queue.InMemoryEventBus;
 import com.harness.pipeline.service.RuleService;
 import java.io.BufferedWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
-import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -37,16 +41,24 @@ class BatchRuleEvaluatorTest {
 
   private RuleService ruleService;
   private NotificationService notificationService;
+  private DuckDbEngine duckDb;
+  private BatchRuleQueryBuilder queryBuilder;
   private BatchRuleEvaluator evaluator;
 
   @BeforeEach
-  void setUp() {
+  void setUp() throws Exception {
     ruleService = Mockito.mock(RuleService.class);
     notificationService = Mockito.mock(NotificationService.class);
-    BatchRuleQueryBuilder queryBuilder = new BatchRuleQueryBuilder();
+    queryBuilder = new BatchRuleQueryBuilder();
+    duckDb = new DuckDbEngine(1, "", 2, 1000);
 
-    evaluator = new BatchRuleEvaluator(
-        ruleService, queryBuilder, notificationService, tempDir.toString());
+    // Rollups never finish backfilling here, so every rule is scanned from files.
+    evaluator = evaluatorWithRollups(new BatchRollupStore(queryBuilder, true, 60_000));
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    duckDb.close();
   }
 
   @Test
@@ -85,6 +97,180 @@ class BatchRuleEvaluatorTest {
     verify(notificationService, never()).notifyBatchThresholdBreached(any(), Mockito.anyLong());
   }
 
+  @Test
+  void parquetAndJsonlPartitionsAreCountedTogether() throws Exception {
+    String tenantId = "tenant-abc";
+    writeEvents(tenantId, List.of(
+        eventJson("POST", "/api/orders", 500, "5xx")
+    ));
+
+    InMemoryEventBus bus = new InMemoryEventBus(10, 10);
+    Instant now = Instant.now();
+    for (int i = 0; i < 2; i++) {
+      bus.publish(new ApiEvent(UUID.randomUUID().toString(), tenantId, now, now,
+          new ApiEvent.HttpRequest("GET", "api.example.com", "/api/users", null, null, null, null),
+          new ApiEvent.HttpResponse(503, "5xx", 80L, null, null, null),
+          null));
+    }
+    new BatchWriter(bus, new ObjectMapper(), duckDb, tempDir.toString(),
+        BatchFileFormat.PARQUET, BatchWriter.DEFAULT_ROW_GROUP_SIZE,
+        PartitionGranularity.DAY).flushAllFromQueue();
+
+    RuleDto rule = batchRule(tenantId, "High 5xx", 60, 3L,
+        new ConditionDto(RuleConditionField.RESPONSE_STATUS_CODE, RuleOperator.GREATER_THAN_OR_EQUAL, "500"));
+
+    given(ruleService.listAllEnabledByType(RuleType.BATCH)).willReturn(List.of(rule));
+
+    evaluator.evaluateAllBatchRules();
+
+    verify(notificationService).notifyBatchThresholdBreached(eq(rule), eq(3L));
+  }
+
+  @Test
+  void rulesWithDifferentWindowsShareOneScan() throws Exception {
+    String tenantId = "tenant-abc";
+    writeEvents(tenantId, List.of(
+        eventJson("POST", "/api/orders", 500, "5xx"),
+        eventJson("POST", "/api/orders", 503, "5xx", 90),
+        eventJson("GET", "/api/users", 200, "2xx", 90)
+    ));
+
+    RuleDto lastHour = batchRule(tenantId, "5xx last hour", 60, 1L,
+        new ConditionDto(RuleConditionField.RESPONSE_STATUS_CLASS, RuleOperator.EQUALS, "5xx"));
+    RuleDto lastTwoHours = batchRule(tenantId, "5xx last two hours", 120, 1L,
+        new ConditionDto(RuleConditionField.RESPONSE_STATUS_CLASS, RuleOperator.EQUALS, "5xx"));
+    RuleDto allTraffic = batchRule(tenantId, "all traffic", 120, 1L);
+
+    given(ruleService.listAllEnabledByType(RuleType.BATCH))
+        .willReturn(List.of(lastHour, lastTwoHours, allTraffic));
+    BatchRuleEvaluator spied = Mockito.spy(evaluator);
+
+    spied.evaluateAllBatchRules();
+
+    verify(spied, Mockito.times(1)).executeCountsQuery(any(BatchQuery.class), eq(3));
+    verify(notificationService).notifyBatchThresholdBreached(eq(lastHour), eq(1L));
+    verify(notificationService).notifyBatchThresholdBreached(eq(lastTwoHours), eq(2L));
+    verify(notificationService).notifyBatchThresholdBreached(eq(allTraffic), eq(3L));
+  }
+
+  @Test
+  void rulesWithDifferentWindowsShareOneScanOfHourPartitions() throws Exception {
+    String tenantId = "tenant-abc";
+    Instant now = Instant.now();
+    writeEvents(tenantId, PartitionGranularity.HOUR.partitionPath(now), List.of(
+        eventJson("POST", "/api/orders", 500, "5xx")
+    ));
+    writeEvents(tenantId, PartitionGranularity.HOUR.partitionPath(now.minus(90, ChronoUnit.MINUTES)),
+        List.of(eventJson("POST", "/api/orders", 503, "5xx", 90)));
+
+    RuleDto lastHour = batchRule(tenantId, "5xx last hour", 60, 1L,
+        new ConditionDto(RuleConditionField.RESPONSE_STATUS_CLASS, RuleOperator.EQUALS, "5xx"));
+    RuleDto lastTwoHours = batchRule(tenantId, "5xx last two hours", 120, 1L,
+        new ConditionDto(RuleConditionField.RESPONSE_STATUS_CLASS, RuleOperator.EQUALS, "5xx"));
+
+    given(ruleService.listAllEnabledByType(RuleType.BATCH)).willReturn(List.of(lastHour, lastTwoHours));
+    BatchRuleEvaluator spied = Mockito.spy(evaluator);
+
+    spied.evaluateAllBatchRules();
+
+    verify(spied, Mockito.times(1)).executeCountsQuery(any(BatchQuery.class), eq(2));
+    verify(notificationService).notifyBatchThresholdBreached(eq(lastHour), eq(1L));
+    verify(notificationService).notifyBatchThresholdBreached(eq(lastTwoHours), eq(2L));
+  }
+
+  @Test
+  void brokenRuleFallsBackToPerRuleQueries() throws Exception {
+    String tenantId = "tenant-abc";
+    writeEvents(tenantId, List.of(
+        eventJson("POST", "/api/orders", 500, "5xx")
+    ));
+
+    RuleDto broken = batchRule(tenantId, "Broken", 60, 1L,
+        new ConditionDto(RuleConditionField.RESPONSE_STATUS_CODE, RuleOperator.GREATER_THAN, "not-a-number"));
+    RuleDto healthy = batchRule(tenantId, "High 5xx", 60, 1L,
+        new ConditionDto(RuleConditionField.RESPONSE_STATUS_CODE, RuleOperator.GREATER_THAN_OR_EQUAL, "500"));
+
+    given(ruleService.listAllEnabledByType(RuleType.BATCH)).willReturn(List.of(broken, healthy));
+
+    evaluator.evaluateAllBatchRules();
+
+    verify(notificationService).notifyBatchThresholdBreached(eq(healthy), eq(1L));
+    verify(notificationService, never()).notifyBatchThresholdBreached(eq(broken), Mockito.anyLong());
+  }
+
+  @Test
+  void onlyPartitionsOverlappingWindowAreScanned() throws Exception {
+    String tenantId = "tenant-abc";
+    Instant now = Instant.now();
+    // Every event was received just now, so the counts only differ if whole partitions are
+    // skipped without being read.
+    writeEvents(tenantId, PartitionGranularity.MINUTE.partitionPath(now), List.of(
+        eventJson("GET", "/api/a", 500, "5xx"),
+        eventJson("GET", "/api/b", 500, "5xx")));
+    writeEvents(tenantId, PartitionGranularity.MINUTE.partitionPath(now.minus(30, ChronoUnit.MINUTES)),
+        List.of(eventJson("GET", "/api/c", 500, "5xx")));
+    writeEvents(tenantId, PartitionGranularity.HOUR.partitionPath(now.minus(3, ChronoUnit.HOURS)),
+        List.of(eventJson("GET", "/api/d", 500, "5xx")));
+
+    RuleDto rule = batchRule(tenantId, "5xx last 5 min", 5, 1L,
+        new ConditionDto(RuleConditionField.RESPONSE_STATUS_CODE, RuleOperator.GREATER_THAN_OR_EQUAL, "500"));
+    given(ruleService.listAllEnabledByType(RuleType.BATCH)).willReturn(List.of(rule));
+
+    evaluator.evaluateAllBatchRules();
+
+    verify(notificationService).notifyBatchThresholdBreached(eq(rule), eq(2L));
+  }
+
+  @Test
+  void partitionGlobReadsPartitionsInsideWindowWhole() throws Exception {
+    Path tenantDir = tempDir.resolve("tenant_id=t");
+    Instant windowStart = Instant.now().minus(2, ChronoUnit.DAYS);
+    Path yesterday = tenantDir.resolve(
+        PartitionGranularity.DAY.partitionPath(windowStart.plus(1, ChronoUnit.DAYS)));
+    Files.createDirectories(yesterday.resolve("hour=05"));
+    Files.createFile(yesterday.resolve("hour=05/events-1.parquet"));
+
+    assertThat(evaluator.buildPartitionGlob(tenantDir, windowStart))
+        .isEqualTo(yesterday + "/**/*.parquet");
+  }
+
+  @Test
+  void backfilledRollupAnswersWithoutRescanningFiles() throws Exception {
+    String tenantId = "tenant-abc";
+    writeEvents(tenantId, List.of(
+        eventJson("POST", "/api/orders", 500, "5xx"),
+        eventJson("GET", "/api/users", 200, "2xx"),
+        eventJson("POST", "/api/orders", 502, "5xx", 90)
+    ));
+    BatchRollupStore rollups = new BatchRollupStore(queryBuilder, true, 0);
+    BatchRuleEvaluator spied = Mockito.spy(evaluatorWithRollups(rollups));
+    RuleDto rule = batchRule(tenantId, "5xx last hour", 60, 1L,
+        new ConditionDto(RuleConditionField.RESPONSE_STATUS_CLASS, RuleOperator.EQUALS, "5xx"));
+    given(ruleService.listAllEnabledByType(RuleType.BATCH)).willReturn(List.of(rule));
+
+    spied.evaluateAllBatchRules();
+    verify(notificationService).notifyBatchThresholdBreached(eq(rule), eq(1L));
+
+    // New events reach the rollup as they are written; the raw files aren't read again.
+    InMemoryEventBus bus = new InMemoryEventBus(10, 10);
+    Instant now = Instant.now();
+    bus.publish(new ApiEvent(UUID.randomUUID().toString(), tenantId, now, now,
+        new ApiEvent.HttpRequest("GET", "api.example.com", "/api/users", null, null, null, null),
+        new ApiEvent.HttpResponse(503, "5xx", 80L, null, null, null),
+        null));
+    new BatchWriter(bus, new ObjectMapper(), duckDb, tempDir.toString(), BatchFileFormat.JSONL,
+        BatchWriter.DEFAULT_ROW_GROUP_SIZE, PartitionGranularity.DAY, List.of(rollups))
+        .flushAllFromQueue();
+    try (var files = Files.walk(tempDir)) {
+      files.filter(p -> p.toString().endsWith(".jsonl")).forEach(p -> p.toFile().delete());
+    }
+
+    spied.evaluateAllBatchRules();
+
+    verify(notificationService).notifyBatchThresholdBreached(eq(rule), eq(2L));
+    verify(spied, never()).executeCountsQuery(any(BatchQuery.class), Mockito.anyInt());
+  }
+
   @Test
   void noDataForTenant_noNotification() {
     RuleDto rule = batchRule("no-data-tenant", "Missing data", 60, 1L,
@@ -97,11 +283,41 @@ class BatchRuleEvaluatorTest {
     verify(notificationService, never()).notifyBatchThresholdBreached(any(), Mockito.anyLong());
   }
 
+  @Test
+  void breachAlreadyNotifiedInStreamIsNotNotifiedAgain() throws Exception {
+    String tenantId = "tenant-abc";
+    writeEvents(tenantId, List.of(
+        eventJson("POST", "/api/orders", 500, "5xx"),
+        eventJson("POST", "/api/users", 502, "5xx")
+    ));
+    RuleDto reported = batchRule(tenantId, "Reported", 60, 1L,
+        new ConditionDto(RuleConditionField.RESPONSE_STATUS_CLASS, RuleOperator.EQUALS, "5xx"));
+    RuleDto missed = batchRule(tenantId, "Missed", 60, 1L,
+        new ConditionDto(RuleConditionField.RESPONSE_STATUS_CLASS, RuleOperator.EQUALS, "5xx"));
+    given(ruleService.listAllEnabledByType(RuleType.BATCH)).willReturn(List.of(reported, missed));
+    BatchRuleEvaluator deduplicating = new BatchRuleEvaluator(ruleService, queryBuilder,
+        notificationService, duckDb, new BatchStorageLock(),
+        new BatchRollupStore(queryBuilder, true, 60_000), reported::equals, tempDir.toString());
+
+    deduplicating.evaluateAllBatchRules();
+    deduplicating.evaluateAllBatchRules();
+
+    verify(notificationService, never()).notifyBatchThresholdBreached(eq(reported), Mockito.anyLong());
+    verify(notificationService, Mockito.times(2)).notifyBatchThresholdBreached(eq(missed), eq(2L));
+  }
+
+  private BatchRuleEvaluator evaluatorWithRollups(BatchRollupStore rollups) {
+    return new BatchRuleEvaluator(ruleService, queryBuilder, notificationService, duckDb,
+        new BatchStorageLock(), rollups, rule -> false, tempDir.toString());
+  }
+
   private void writeEvents(String tenantId, List<String> jsonLines) throws Exception {
-    ZonedDateTime now = Instant.now().atZone(ZoneOffset.UTC);
-    Path partitionDir = tempDir.resolve(String.format(
-        "tenant_id=%s/year=%04d/month=%02d/day=%02d",
-        tenantId, now.getYear(), now.getMonthValue(), now.getDayOfMonth()));
+    writeEvents(tenantId, PartitionGranularity.DAY.partitionPath(Instant.now()), jsonLines);
+  }
+
+  private void writeEvents(String tenantId, String partition, List<String> jsonLines)
+      throws Exception {
+    Path partitionDir = tempDir.resolve("tenant_id=" + tenantId).resolve(partition);
     Files.createDirectories(partitionDir);
 
     Path file = partitionDir.resolve("test-events.jsonl");
@@ -114,7 +330,12 @@ class BatchRuleEvaluatorTest {
   }
 
   private String eventJson(String method, String path, int statusCode, String statusClass) {
-    long now = Instant.now().toEpochMilli();
+    return eventJson(method, path, statusCode, statusClass, 0);
+  }
+
+  private String eventJson(String method, String path, int statusCode, String statusClass,
+                           int minutesAgo) {
+    long now = Instant.now().minus(minutesAgo, ChronoUnit.MINUTES).toEpochMilli();
     return String.format(
         "{\"event_id\":\"%s\",\"tenant_id\":\"tenant-abc\",\"timestamp\":%d,\"received_at\":%d," +
         "\"http_method\":\"%s\",\"request_host\":\"api.example.com\",\"request_path\":\"%s\"," +
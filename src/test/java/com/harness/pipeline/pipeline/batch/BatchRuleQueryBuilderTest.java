@@ -2,21 +2,29 @@ package com.harness.pipeline.pipeline.batch;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.harness.pipeline.enums.ConditionGroupOperator;
 import com.harness.pipeline.enums.RuleConditionField;
 import com.harness.pipeline.enums.RuleOperator;
 import com.harness.pipeline.enums.RuleType;
+import com.harness.pipeline.model.ApiEvent;
 import com.harness.pipeline.model.ConditionDto;
 import com.harness.pipeline.model.ConditionGroupDto;
 import com.harness.pipeline.model.NotificationConfigDto;
 import com.harness.pipeline.model.RuleDto;
+import com.harness.pipeline.pipeline.queue.InMemoryEventBus;
+import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class BatchRuleQueryBuilderTest {
 
+  private static final Instant NOW = Instant.now();
+
   private final BatchRuleQueryBuilder builder = new BatchRuleQueryBuilder();
 
   @Test
@@ -27,8 +35,9 @@ class BatchRuleQueryBuilderTest {
             List.of(new ConditionDto(RuleConditionField.RESPONSE_STATUS_CLASS, RuleOperator.EQUALS, "5xx"))))
     );
 
-    String where = builder.buildWhereClause(rule);
-    assertThat(where).isEqualTo("(status_class = '5xx')");
+    BatchQuery where = builder.buildWhereClause(rule);
+    assertThat(where.sql()).isEqualTo("(status_class = ?)");
+    assertThat(where.parameters()).containsExactly("5xx");
   }
 
   @Test
@@ -39,8 +48,9 @@ class BatchRuleQueryBuilderTest {
             List.of(new ConditionDto(RuleConditionField.RESPONSE_STATUS_CODE, RuleOperator.GREATER_THAN_OR_EQUAL, "500"))))
     );
 
-    String where = builder.buildWhereClause(rule);
-    assertThat(where).isEqualTo("(status_code >= 500)");
+    BatchQuery where = builder.buildWhereClause(rule);
+    assertThat(where.sql()).isEqualTo("(status_code >= ?)");
+    assertThat(where.parameters()).containsExactly(new BigDecimal("500"));
   }
 
   @Test
@@ -53,8 +63,9 @@ class BatchRuleQueryBuilderTest {
         )))
     );
 
-    String where = builder.buildWhereClause(rule);
-    assertThat(where).isEqualTo("(http_method = 'POST' AND status_code >= 500)");
+    BatchQuery where = builder.buildWhereClause(rule);
+    assertThat(where.sql()).isEqualTo("(http_method = ? AND status_code >= ?)");
+    assertThat(where.parameters()).containsExactly("POST", new BigDecimal("500"));
   }
 
   @Test
@@ -69,8 +80,9 @@ class BatchRuleQueryBuilderTest {
         )
     );
 
-    String where = builder.buildWhereClause(rule);
-    assertThat(where).isEqualTo("(environment = 'prod') OR (region = 'us-east-1')");
+    BatchQuery where = builder.buildWhereClause(rule);
+    assertThat(where.sql()).isEqualTo("(environment = ?) OR (region = ?)");
+    assertThat(where.parameters()).containsExactly("prod", "us-east-1");
   }
 
   @Test
@@ -81,14 +93,15 @@ class BatchRuleQueryBuilderTest {
             List.of(new ConditionDto(RuleConditionField.REQUEST_PATH, RuleOperator.CONTAINS, "/api"))))
     );
 
-    String where = builder.buildWhereClause(rule);
-    assertThat(where).isEqualTo("(request_path LIKE '%/api%')");
+    BatchQuery where = builder.buildWhereClause(rule);
+    assertThat(where.sql()).isEqualTo("(request_path LIKE ('%' || ? || '%'))");
+    assertThat(where.parameters()).containsExactly("/api");
   }
 
   @Test
   void buildWhereClause_noConditions_returnsNull() {
     RuleDto rule = batchRule(ConditionGroupOperator.AND, List.of());
-    String where = builder.buildWhereClause(rule);
+    BatchQuery where = builder.buildWhereClause(rule);
     assertThat(where).isNull();
   }
 
@@ -101,22 +114,159 @@ class BatchRuleQueryBuilderTest {
     );
 
     Instant windowStart = Instant.ofEpochMilli(1700000000000L);
-    String sql = builder.buildCountQuery(rule, "/tmp/data/**/*.jsonl", windowStart);
+    BatchQuery query = builder.buildCountQuery(rule, "/tmp/data/**/*.jsonl", windowStart);
 
-    assertThat(sql).isEqualTo(
-        "SELECT COUNT(*) FROM read_json_auto('/tmp/data/**/*.jsonl')" +
-        " WHERE received_at >= 1700000000000 AND ((status_code >= 500))");
+    assertThat(query.sql()).isEqualTo(
+        "SELECT COUNT(*) FROM read_json_auto(?)" +
+        " WHERE received_at >= ? AND ((status_code >= ?))");
+    assertThat(query.parameters())
+        .containsExactly("/tmp/data/**/*.jsonl", 1700000000000L, new BigDecimal("500"));
   }
 
   @Test
   void buildCountQuery_noConditions_onlyTimeFilter() {
     RuleDto rule = batchRule(ConditionGroupOperator.AND, List.of());
     Instant windowStart = Instant.ofEpochMilli(1700000000000L);
-    String sql = builder.buildCountQuery(rule, "/tmp/data/**/*.jsonl", windowStart);
+    BatchQuery query = builder.buildCountQuery(rule, "/tmp/data/**/*.jsonl", windowStart);
+
+    assertThat(query.sql()).isEqualTo(
+        "SELECT COUNT(*) FROM read_json_auto(?) WHERE received_at >= ?");
+    assertThat(query.parameters()).containsExactly("/tmp/data/**/*.jsonl", 1700000000000L);
+  }
+
+  @Test
+  void buildCountQuery_parquetGlobsUseReadParquet() {
+    RuleDto rule = batchRule(ConditionGroupOperator.AND, List.of());
+    Instant windowStart = Instant.ofEpochMilli(1700000000000L);
+    BatchQuery query = builder.buildCountQuery(rule, "/tmp/a/*.parquet,/tmp/b/*.parquet", windowStart);
+
+    assertThat(query.sql()).isEqualTo(
+        "SELECT COUNT(*) FROM read_parquet([?, ?]) WHERE received_at >= ?");
+    assertThat(query.parameters())
+        .containsExactly("/tmp/a/*.parquet", "/tmp/b/*.parquet", 1700000000000L);
+  }
+
+  @Test
+  void buildCountQuery_mixedFormatsAreUnionedByName() {
+    RuleDto rule = batchRule(ConditionGroupOperator.AND, List.of());
+    Instant windowStart = Instant.ofEpochMilli(1700000000000L);
+    BatchQuery query = builder.buildCountQuery(rule, "/tmp/a/*.jsonl,/tmp/a/*.parquet", windowStart);
+
+    assertThat(query.sql()).isEqualTo(
+        "SELECT COUNT(*) FROM (SELECT * FROM read_parquet(?)" +
+        " UNION ALL BY NAME SELECT * FROM read_json_auto(?))" +
+        " WHERE received_at >= ?");
+    assertThat(query.parameters())
+        .containsExactly("/tmp/a/*.parquet", "/tmp/a/*.jsonl", 1700000000000L);
+  }
+
+  @Test
+  void buildMultiRuleCountQuery_oneFilterColumnPerRule() {
+    RuleDto fiveXx = batchRule(
+        ConditionGroupOperator.AND,
+        List.of(group(ConditionGroupOperator.AND,
+            List.of(new ConditionDto(RuleConditionField.RESPONSE_STATUS_CLASS, RuleOperator.EQUALS, "5xx"))))
+    );
+    RuleDto everything = batchRule(ConditionGroupOperator.AND, List.of());
+
+    BatchQuery query = builder.buildMultiRuleCountQuery(List.of(
+        new BatchRuleQueryBuilder.WindowedRule(fiveXx, Instant.ofEpochMilli(1700000600000L)),
+        new BatchRuleQueryBuilder.WindowedRule(everything, Instant.ofEpochMilli(1700000000000L))
+    ), "/tmp/a/*.parquet");
+
+    assertThat(query.sql()).isEqualTo(
+        "SELECT COUNT(*) FILTER (WHERE received_at >= ? AND ((status_class = ?))) AS rule_0," +
+        " COUNT(*) FILTER (WHERE received_at >= ?) AS rule_1" +
+        " FROM read_parquet(?) WHERE received_at >= ?");
+    assertThat(query.parameters()).containsExactly(
+        1700000600000L, "5xx", 1700000000000L, "/tmp/a/*.parquet", 1700000000000L);
+  }
+
+  @Test
+  void buildWhereClause_valuesNeverReachTheSqlText() {
+    RuleDto rule = batchRule(
+        ConditionGroupOperator.AND,
+        List.of(group(ConditionGroupOperator.AND,
+            List.of(new ConditionDto(RuleConditionField.REQUEST_PATH, RuleOperator.EQUALS, "x' OR 1=1 --"))))
+    );
+
+    BatchQuery where = builder.buildWhereClause(rule);
+    assertThat(where.sql()).isEqualTo("(request_path = ?)");
+    assertThat(where.parameters()).containsExactly("x' OR 1=1 --");
+  }
+
+  @Test
+  void buildMinuteCountQuery_groupsByEpochMinute() {
+    RuleDto rule = batchRule(
+        ConditionGroupOperator.AND,
+        List.of(group(ConditionGroupOperator.AND,
+            List.of(new ConditionDto(RuleConditionField.RESPONSE_STATUS_CLASS, RuleOperator.EQUALS, "5xx"))))
+    );
+    Instant from = Instant.parse("2026-02-26T11:00:00Z");
+    Instant to = Instant.parse("2026-02-26T12:00:00Z");
+
+    BatchQuery query = builder.buildMinuteCountQuery(rule, "/data/*.parquet", from, to);
+
+    assertThat(query.sql()).isEqualTo(
+        "SELECT received_at // 60000 AS minute, COUNT(*) FROM read_parquet(?)"
+            + " WHERE received_at >= ? AND received_at < ? AND ((status_class = ?)) GROUP BY 1");
+    assertThat(query.parameters()).containsExactly(
+        "/data/*.parquet", from.toEpochMilli(), to.toEpochMilli(), "5xx");
+  }
+
+  @Test
+  void buildEventMatcher_agreesWithTheSqlItMirrors(@TempDir Path tempDir) throws Exception {
+    List<ApiEvent> events = List.of(
+        event("GET", "/api/users", 200, "2xx", 15L),
+        event("POST", "/api/Orders", 503, "5xx", 900L),
+        event("post", "/api/orders_v2", 500, "5xx", null),
+        event("GET", "/health%check", 404, "4xx", 3L),
+        new ApiEvent("no-response", "tenant-1", NOW, NOW,
+            new ApiEvent.HttpRequest("GET", "h", "/api/x", null, null, null, null), null, null));
+    InMemoryEventBus bus = new InMemoryEventBus(10, 10);
+    events.forEach(bus::publish);
+    new BatchWriter(bus, new ObjectMapper(), tempDir.toString()).flushAllFromQueue();
+    String glob = tempDir + "/**/*.jsonl";
+
+    List<RuleDto> rules = List.of(
+        rule(RuleConditionField.REQUEST_METHOD, RuleOperator.EQUALS, "POST"),
+        rule(RuleConditionField.REQUEST_PATH, RuleOperator.CONTAINS, "orders"),
+        rule(RuleConditionField.REQUEST_PATH, RuleOperator.CONTAINS, "%"),
+        rule(RuleConditionField.REQUEST_PATH, RuleOperator.STARTS_WITH, "/api/orders_"),
+        rule(RuleConditionField.REQUEST_PATH, RuleOperator.NOT_CONTAINS, "users"),
+        rule(RuleConditionField.REQUEST_PATH, RuleOperator.REGEX_MATCH, "v[0-9]"),
+        rule(RuleConditionField.RESPONSE_STATUS_CODE, RuleOperator.NOT_EQUALS, "500"),
+        rule(RuleConditionField.RESPONSE_TIME_MS, RuleOperator.LESS_THAN, "100"),
+        rule(RuleConditionField.RESPONSE_STATUS_CLASS, RuleOperator.GREATER_THAN, "2xx"),
+        rule(RuleConditionField.REQUEST_HEADER, RuleOperator.EQUALS, "x"),
+        batchRule(ConditionGroupOperator.OR, List.of(
+            group(ConditionGroupOperator.AND, List.of(
+                new ConditionDto(RuleConditionField.REQUEST_METHOD, RuleOperator.EQUALS, "GET"),
+                new ConditionDto(RuleConditionField.RESPONSE_STATUS_CODE, RuleOperator.GREATER_THAN_OR_EQUAL, "400"))),
+            group(ConditionGroupOperator.AND, List.of(
+                new ConditionDto(RuleConditionField.RESPONSE_STATUS_CLASS, RuleOperator.EQUALS, "5xx"))))));
+
+    try (DuckDbEngine duckDb = new DuckDbEngine(1, "", 1, 1000)) {
+      for (RuleDto rule : rules) {
+        long sqlCount = duckDb.queryLongs(
+            builder.buildCountQuery(rule, glob, NOW.minusSeconds(60)), 1)[0];
+        long matched = events.stream().filter(builder.buildEventMatcher(rule)).count();
+        assertThat(matched).as(rule.conditionGroups().toString()).isEqualTo(sqlCount);
+      }
+    }
+  }
+
+  private ApiEvent event(String method, String path, int status, String statusClass,
+                         Long responseTimeMs) {
+    return new ApiEvent(UUID.randomUUID().toString(), "tenant-1", NOW, NOW,
+        new ApiEvent.HttpRequest(method, "api.example.com", path, null, null, null, null),
+        new ApiEvent.HttpResponse(status, statusClass, responseTimeMs, null, null, null),
+        null);
+  }
 
-    assertThat(sql).isEqualTo(
-        "SELECT COUNT(*) FROM read_json_auto('/tmp/data/**/*.jsonl')" +
-        " WHERE received_at >= 1700000000000");
+  private RuleDto rule(RuleConditionField field, RuleOperator op, String value) {
+    return batchRule(ConditionGroupOperator.AND,
+        List.of(group(ConditionGroupOperator.AND, List.of(new ConditionDto(field, op, value)))));
   }
 
   private ConditionGroupDto group(ConditionGroupOperator op, List<ConditionDto> conditions) {
@@ -1,13 +1,22 @@
 package com.harness.pipeline.pipeline.batch;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.harness.pipeline.model.ApiEvent;
 import com.harness.pipeline.pipeline.queue.InMemoryEventBus;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.health.Status;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -17,7 +26,7 @@ class BatchWriterTest {
   Path tempDir;
 
   @Test
-  void flushAllFromQueueDrainsEventsAndWritesParquet() throws Exception {
+  void flushAllFromQueueDrainsEventsAndWritesJsonl() throws Exception {
     InMemoryEventBus bus = new InMemoryEventBus(10, 10);
 
     ApiEvent event = new ApiEvent(
@@ -44,5 +53,153 @@ class BatchWriterTest {
       assertThat(dataFiles).isGreaterThanOrEqualTo(1);
     }
   }
-}
 
+  @Test
+  void hourlyGranularityPartitionsByReceiveTime() throws Exception {
+    InMemoryEventBus bus = new InMemoryEventBus(10, 10);
+    bus.publish(new ApiEvent(
+        "event-1",
+        "tenant-1",
+        Instant.parse("2026-02-25T23:59:00Z"),
+        Instant.parse("2026-02-26T07:15:00Z"),
+        null,
+        null,
+        null
+    ));
+
+    new BatchWriter(bus, new ObjectMapper(), null, tempDir.toString(), BatchFileFormat.JSONL,
+        BatchWriter.DEFAULT_ROW_GROUP_SIZE, PartitionGranularity.HOUR).flushAllFromQueue();
+
+    try (Stream<Path> paths = Files.walk(tempDir)) {
+      assertThat(paths.filter(p -> p.toString().endsWith(".jsonl")).toList()).singleElement()
+          .satisfies(p -> assertThat(tempDir.relativize(p.getParent()).toString())
+              .isEqualTo("tenant_id=tenant-1/year=2026/month=02/day=26/hour=07"));
+    }
+  }
+
+  @Test
+  void parquetFormatWritesColumnarFileReadableByDuckDb() throws Exception {
+    InMemoryEventBus bus = new InMemoryEventBus(10, 10);
+    bus.publish(new ApiEvent(
+        "event-1",
+        "tenant-1",
+        Instant.parse("2026-02-26T12:00:00Z"),
+        Instant.parse("2026-02-26T12:00:01Z"),
+        new ApiEvent.HttpRequest("POST", "api.example.com", "/api/orders", null, null, null, null),
+        new ApiEvent.HttpResponse(503, "5xx", 120L, null, null, null),
+        null
+    ));
+    bus.publish(new ApiEvent(
+        "event-2",
+        "tenant-1",
+        Instant.parse("2026-02-26T12:00:02Z"),
+        Instant.parse("2026-02-26T12:00:03Z"),
+        null,
+        null,
+        null
+    ));
+
+    try (DuckDbEngine duckDb = new DuckDbEngine(1, "", 1, 1000)) {
+      BatchWriter writer = new BatchWriter(bus, new ObjectMapper(), duckDb,
+          tempDir.toAbsolutePath().toString(), BatchFileFormat.PARQUET, BatchWriter.DEFAULT_ROW_GROUP_SIZE,
+          PartitionGranularity.DAY);
+      writer.flushAllFromQueue();
+      writer.flushAllFromQueue();
+    }
+
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(tempDir)) {
+      files = paths.filter(Files::isRegularFile).toList();
+    }
+    assertThat(files).singleElement()
+        .satisfies(p -> assertThat(p.getFileName().toString()).endsWith(".parquet"));
+
+    try (Connection conn = DriverManager.getConnection("jdbc:duckdb:");
+         Statement stmt = conn.createStatement();
+         ResultSet rs = stmt.executeQuery(
+             "SELECT event_id, received_at, status_code, status_class, http_method FROM read_parquet('"
+                 + files.get(0) + "') ORDER BY event_id")) {
+      assertThat(rs.next()).isTrue();
+      assertThat(rs.getString(1)).isEqualTo("event-1");
+      assertThat(rs.getLong(2)).isEqualTo(Instant.parse("2026-02-26T12:00:01Z").toEpochMilli());
+      assertThat(rs.getInt(3)).isEqualTo(503);
+      assertThat(rs.getString(4)).isEqualTo("5xx");
+      assertThat(rs.next()).isTrue();
+      assertThat(rs.getString(5)).isNull();
+      assertThat(rs.next()).isFalse();
+    }
+  }
+
+  @Test
+  void flushWritesTheBacklogInBoundedChunks() throws Exception {
+    InMemoryEventBus bus = new InMemoryEventBus(10, 10);
+    for (int i = 0; i < 5; i++) {
+      bus.publish(new ApiEvent("event-" + i, "tenant-1", Instant.now(), Instant.now(), null, null, null));
+    }
+
+    new BatchWriter(bus, new ObjectMapper(), null, tempDir.toString(), BatchFileFormat.JSONL,
+        BatchWriter.DEFAULT_ROW_GROUP_SIZE, PartitionGranularity.DAY, List.of(), 2)
+        .flushAllFromQueue();
+
+    assertThat(bus.getBatchQueueSize()).isZero();
+    try (Stream<Path> paths = Files.walk(tempDir)) {
+      List<Path> files = paths.filter(p -> p.toString().endsWith(".jsonl")).toList();
+      assertThat(files).hasSize(3);
+      long lines = 0;
+      for (Path file : files) {
+        lines += Files.readAllLines(file).size();
+      }
+      assertThat(lines).isEqualTo(5);
+    }
+  }
+
+  @Test
+  void failedWritesAreRetriedBeforeAnythingNewIsDrained() throws Exception {
+    AtomicLong committed = new AtomicLong(-1);
+    InMemoryEventBus bus = new InMemoryEventBus(10, 10) {
+      private long position;
+
+      @Override
+      public int drainBatch(int maxEvents, Collection<? super ApiEvent> sink) {
+        int drained = super.drainBatch(maxEvents, sink);
+        position += drained;
+        return drained;
+      }
+
+      @Override
+      public long batchPosition() {
+        return position;
+      }
+
+      @Override
+      public void commitBatch(long position) {
+        committed.set(position);
+      }
+    };
+    // Partition directories can't be created under a regular file.
+    Path base = tempDir.resolve("batch");
+    Files.createFile(base);
+    BatchWriter writer = new BatchWriter(bus, new ObjectMapper(), base.toString());
+    BatchWriterHealth health = new BatchWriterHealth(writer);
+
+    bus.publish(new ApiEvent("event-1", "tenant-1", Instant.now(), Instant.now(), null, null, null));
+    writer.flushAllFromQueue();
+    assertThat(committed).hasValue(-1);
+    assertThat(writer.getUnwrittenEvents()).isEqualTo(1);
+    assertThat(health.health().getStatus()).isEqualTo(Status.DOWN);
+
+    bus.publish(new ApiEvent("event-2", "tenant-1", Instant.now(), Instant.now(), null, null, null));
+    writer.flushAllFromQueue();
+    assertThat(committed).hasValue(-1);
+    assertThat(bus.getBatchQueueSize()).isEqualTo(1);
+
+    Files.delete(base);
+    writer.flushAllFromQueue();
+    assertThat(committed).hasValue(2);
+    assertThat(bus.getBatchQueueSize()).isZero();
+    assertThat(health.health().getStatus()).isEqualTo(Status.UP);
+    try (Stream<Path> paths = Files.walk(base)) {
+      assertThat(paths.filter(p -> p.toString().endsWith(".jsonl")).toList()).hasSize(2);
+    }
+  }
+}
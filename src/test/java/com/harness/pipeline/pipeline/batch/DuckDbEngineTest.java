@@ -0,0 +1,82 @@
+package com.harness.pipeline.pipeline.batch;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DuckDbEngineTest {
+
+  @Test
+  void appliesThreadAndMemorySettings() throws Exception {
+    try (DuckDbEngine engine = new DuckDbEngine(2, "256MB", 1, 1000)) {
+      String settings = engine.withConnection(conn -> {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                 "SELECT current_setting('threads') || ',' || current_setting('memory_limit')")) {
+          rs.next();
+          return rs.getString(1);
+        }
+      });
+      assertThat(settings).startsWith("2,").contains("MiB");
+    }
+  }
+
+  @Test
+  void reusesPreparedStatementWithNewBindValues() throws Exception {
+    try (DuckDbEngine engine = new DuckDbEngine(1, "", 1, 1000)) {
+      String sql = "SELECT COUNT(*) FILTER (WHERE x >= ?), COUNT(*) FROM range(10) t(x)";
+
+      assertThat(engine.queryLongs(new BatchQuery(sql, List.of(5L)), 2)).containsExactly(5, 10);
+      assertThat(engine.queryLongs(new BatchQuery(sql, List.of(8L)), 2)).containsExactly(2, 10);
+    }
+  }
+
+  @Test
+  void connectionGoesBackToPoolAfterFailure() throws Exception {
+    try (DuckDbEngine engine = new DuckDbEngine(1, "", 1, 1000)) {
+      assertThatThrownBy(() -> engine.queryLongs(new BatchQuery("SELECT nope", List.of()), 1))
+          .isInstanceOf(SQLException.class);
+
+      assertThat(engine.queryLongs(new BatchQuery("SELECT 42", List.of()), 1)).containsExactly(42);
+    }
+  }
+
+  @Test
+  void acquireTimesOutWhenPoolIsExhausted() throws Exception {
+    try (DuckDbEngine engine = new DuckDbEngine(1, "", 1, 50)) {
+      CountDownLatch holding = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      Thread holder = new Thread(() -> {
+        try {
+          engine.withConnection(conn -> {
+            holding.countDown();
+            try {
+              release.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            return null;
+          });
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+      });
+      holder.start();
+      assertThat(holding.await(5, TimeUnit.SECONDS)).isTrue();
+
+      assertThatThrownBy(() -> engine.queryLongs(new BatchQuery("SELECT 1", List.of()), 1))
+          .isInstanceOf(SQLException.class)
+          .hasMessageContaining("Timed out");
+
+      release.countDown();
+      holder.join();
+    }
+  }
+}
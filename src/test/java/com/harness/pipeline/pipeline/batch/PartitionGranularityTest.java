@@ -0,0 +1,40 @@
+package com.harness.pipeline.pipeline.batch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+class PartitionGranularityTest {
+
+  private static final Instant TS = Instant.parse("2026-03-09T04:07:59.999Z");
+
+  @Test
+  void partitionPathNestsFinerLevelsBelowTheDay() {
+    assertThat(PartitionGranularity.DAY.partitionPath(TS)).isEqualTo("year=2026/month=03/day=09");
+    assertThat(PartitionGranularity.HOUR.partitionPath(TS))
+        .isEqualTo("year=2026/month=03/day=09/hour=04");
+    assertThat(PartitionGranularity.MINUTE.partitionPath(TS))
+        .isEqualTo("year=2026/month=03/day=09/hour=04/minute=07");
+  }
+
+  @Test
+  void segmentIsTheDirectoryAddedBelowTheParent() {
+    assertThat(PartitionGranularity.HOUR.segment(TS)).isEqualTo("hour=04");
+    assertThat(PartitionGranularity.MINUTE.segment(TS)).isEqualTo("minute=07");
+    assertThat(PartitionGranularity.MINUTE.finer()).isNull();
+  }
+
+  @Test
+  void partitionEndFollowsTheFinestLevelInThePath() {
+    assertThat(PartitionGranularity.partitionEnd(
+        Path.of("/data/tenant_id=t/year=2026/month=03/day=09")))
+        .isEqualTo(Instant.parse("2026-03-10T00:00:00Z"));
+    assertThat(PartitionGranularity.partitionEnd(
+        Path.of("tenant_id=t/" + PartitionGranularity.MINUTE.partitionPath(TS))))
+        .isEqualTo(Instant.parse("2026-03-09T04:08:00Z"));
+    assertThat(PartitionGranularity.partitionEnd(Path.of("tenant_id=t/year=2026"))).isNull();
+    assertThat(PartitionGranularity.partitionEnd(Path.of("year=2026/month=13/day=01"))).isNull();
+  }
+}
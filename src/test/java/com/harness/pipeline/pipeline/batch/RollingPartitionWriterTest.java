@@ -0,0 +1,167 @@
+package com.harness.pipeline.pipeline.batch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.harness.pipeline.model.ApiEvent;
+import com.harness.pipeline.pipeline.queue.InMemoryEventBus;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RollingPartitionWriterTest {
+
+  @TempDir
+  Path tempDir;
+
+  private final AtomicLong clock = new AtomicLong(1_000);
+
+  @Test
+  void jsonlStaysInProgressUntilMaxAge() throws Exception {
+    RollingPartitionWriter writer = jsonlWriter(new RotationPolicy(1 << 20, 30_000, 1_000, FsyncPolicy.NONE));
+
+    writer.append(events(3));
+    writer.append(events(2));
+    assertThat(files(".jsonl")).isEmpty();
+    assertThat(files(".inprogress")).hasSize(1);
+
+    clock.addAndGet(29_999);
+    writer.rotateExpired();
+    assertThat(files(".jsonl")).isEmpty();
+
+    clock.addAndGet(1);
+    writer.rotateExpired();
+    assertThat(files(".inprogress")).isEmpty();
+    assertThat(files(".jsonl")).singleElement()
+        .satisfies(p -> assertThat(Files.readAllLines(p)).hasSize(5));
+    assertThat(writer.openFileCount()).isZero();
+  }
+
+  @Test
+  void committablePositionStopsAtTheOldestOpenFile() {
+    RollingPartitionWriter writer = jsonlWriter(new RotationPolicy(1 << 20, 30_000, 4, FsyncPolicy.NONE));
+    assertThat(writer.committablePosition(10)).isEqualTo(10);
+
+    writer.append(events(2), 10);
+    writer.append(events(1), 20);
+    assertThat(writer.committablePosition(30)).isEqualTo(10);
+
+    // Reaching max-records rotates the file, so everything drained so far is committable.
+    writer.append(events(2), 30);
+    assertThat(writer.committablePosition(40)).isEqualTo(40);
+
+    writer.append(events(1), 40);
+    assertThat(writer.committablePosition(50)).isEqualTo(40);
+
+    clock.addAndGet(30_000);
+    writer.rotateExpired();
+    assertThat(writer.committablePosition(50)).isEqualTo(50);
+  }
+
+  @Test
+  void fileThatFailedToRotateIsRetriedUntilItLands() throws Exception {
+    RollingPartitionWriter writer = jsonlWriter(new RotationPolicy(1 << 20, 30_000, 1_000, FsyncPolicy.NONE));
+    writer.append(events(2), 10);
+    Path inProgress = files(".inprogress").get(0);
+    Path moved = Files.move(inProgress, tempDir.resolve("moved"));
+
+    clock.addAndGet(30_000);
+    writer.rotateExpired();
+    assertThat(writer.openFileCount()).isZero();
+    assertThat(writer.committablePosition(20)).isEqualTo(10);
+    assertThat(writer.retryFailed()).isFalse();
+
+    writer.append(events(1), 20);
+    clock.addAndGet(30_000);
+    writer.rotateExpired();
+    assertThat(files(".jsonl")).hasSize(1);
+    assertThat(writer.committablePosition(30)).isEqualTo(10);
+
+    Files.move(moved, inProgress);
+    assertThat(writer.retryFailed()).isTrue();
+    assertThat(files(".jsonl")).hasSize(2);
+    assertThat(writer.committablePosition(30)).isEqualTo(30);
+  }
+
+  @Test
+  void jsonlRotatesOnRecordCountAndSize() throws Exception {
+    RollingPartitionWriter byRecords = jsonlWriter(new RotationPolicy(1 << 20, 60_000, 4, FsyncPolicy.ON_ROTATE));
+    byRecords.append(events(3));
+    byRecords.append(events(3));
+    byRecords.append(events(1));
+    assertThat(files(".jsonl")).singleElement()
+        .satisfies(p -> assertThat(Files.readAllLines(p)).hasSize(6));
+    byRecords.close();
+    assertThat(files(".jsonl")).hasSize(2);
+
+    Path other = Files.createDirectory(tempDir.resolve("by-size"));
+    RollingPartitionWriter bySize = new RollingPartitionWriter(
+        new BatchWriter(new InMemoryEventBus(1, 1), new ObjectMapper(), other.toString()),
+        new RotationPolicy(100, 60_000, 1_000, FsyncPolicy.ALWAYS), clock::get);
+    bySize.append(events(1));
+    assertThat(bySize.openFileCount()).isZero();
+  }
+
+  @Test
+  void parquetBuffersRowsUntilRotation() throws Exception {
+    try (DuckDbEngine duckDb = new DuckDbEngine(1, "", 1, 1000)) {
+      BatchWriter batchWriter = new BatchWriter(new InMemoryEventBus(1, 1), new ObjectMapper(), duckDb,
+          tempDir.toString(), BatchFileFormat.PARQUET, BatchWriter.DEFAULT_ROW_GROUP_SIZE,
+          PartitionGranularity.DAY);
+      RollingPartitionWriter writer = new RollingPartitionWriter(batchWriter,
+          new RotationPolicy(1, 30_000, 5, FsyncPolicy.ON_ROTATE), clock::get);
+
+      writer.append(events(4));
+      assertThat(files(".parquet")).isEmpty();
+
+      writer.append(events(1));
+      assertThat(files(".parquet")).hasSize(1);
+      assertThat(writer.openFileCount()).isZero();
+    }
+  }
+
+  @Test
+  void recoverDropsTornLineAndPublishesCompleteRecords() throws Exception {
+    Path partition = Files.createDirectories(tempDir.resolve("tenant_id=t/year=2026/month=02/day=26"));
+    Path leftover = partition.resolve("events-1.jsonl.inprogress");
+    Files.writeString(leftover, "{\"a\":1}\n{\"a\":2}\n{\"a\":", StandardCharsets.UTF_8);
+    Path empty = partition.resolve("events-2.jsonl.inprogress");
+    Files.writeString(empty, "{\"torn", StandardCharsets.UTF_8);
+
+    RollingPartitionWriter.recover(tempDir);
+
+    assertThat(Files.readAllLines(partition.resolve("events-1.jsonl"))).containsExactly("{\"a\":1}", "{\"a\":2}");
+    assertThat(files(".inprogress")).isEmpty();
+    assertThat(Files.exists(partition.resolve("events-2.jsonl"))).isFalse();
+  }
+
+  private RollingPartitionWriter jsonlWriter(RotationPolicy policy) {
+    BatchWriter batchWriter = new BatchWriter(new InMemoryEventBus(1, 1), new ObjectMapper(), tempDir.toString());
+    return new RollingPartitionWriter(batchWriter, policy, clock::get);
+  }
+
+  private List<ApiEvent> events(int count) {
+    List<ApiEvent> events = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Instant ts = Instant.parse("2026-02-26T12:00:00Z");
+      events.add(new ApiEvent("e" + i, "tenant-1", ts, ts,
+          new ApiEvent.HttpRequest("GET", "api.example.com", "/api/users", null, null, null, null),
+          new ApiEvent.HttpResponse(200, "2xx", 10L, null, null, null),
+          null));
+    }
+    return events;
+  }
+
+  private List<Path> files(String suffix) throws Exception {
+    try (Stream<Path> paths = Files.walk(tempDir)) {
+      return paths.filter(p -> p.getFileName().toString().endsWith(suffix)).toList();
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package com.harness.pipeline.pipeline.batch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.harness.pipeline.model.ApiEvent;
+import com.harness.pipeline.pipeline.queue.InMemoryEventBus;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamingBatchWriterTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void writesEventsAsTheyArriveAndFlushesOnStop() throws Exception {
+    InMemoryEventBus bus = new InMemoryEventBus(100, 100);
+    BatchWriter batchWriter = new BatchWriter(bus, new ObjectMapper(), tempDir.toString());
+    StreamingBatchWriter writer = new StreamingBatchWriter(bus, batchWriter, 16,
+        new RotationPolicy(1 << 20, 50, 1_000, FsyncPolicy.NONE));
+
+    writer.start();
+    try {
+      bus.publish(event("e1"));
+      bus.publish(event("e2"));
+
+      long deadline = System.currentTimeMillis() + 5_000;
+      while (jsonlLines() < 2 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(20);
+      }
+      assertThat(jsonlLines()).isEqualTo(2);
+      assertThat(bus.getBatchQueueSize()).isZero();
+
+      bus.publish(event("e3"));
+    } finally {
+      writer.stop();
+    }
+    assertThat(jsonlLines()).isEqualTo(3);
+  }
+
+  private long jsonlLines() throws Exception {
+    try (Stream<Path> paths = Files.walk(tempDir)) {
+      List<Path> files = paths.filter(p -> p.toString().endsWith(".jsonl")).toList();
+      long lines = 0;
+      for (Path file : files) {
+        lines += Files.readAllLines(file).size();
+      }
+      return lines;
+    }
+  }
+
+  private ApiEvent event(String id) {
+    Instant now = Instant.now();
+    return new ApiEvent(id, "tenant-1", now, now, null, null, null);
+  }
+}
@@ -0,0 +1,52 @@
+package com.harness.pipeline.pipeline.queue;
+
+import com.harness.pipeline.model.ApiEvent;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ApiEventCodecTest {
+
+  @Test
+  void roundTripsEveryField() {
+    ApiEvent event = new ApiEvent(
+        "e1",
+        "tenant-ü",
+        Instant.ofEpochSecond(1_700_000_000L, 123_456_789),
+        Instant.ofEpochSecond(1_700_000_001L),
+        new ApiEvent.HttpRequest("POST", "api.example.com", "/v1/orders", "a=1",
+            Map.of("content-type", "application/json"), "{\"id\":1}", 8L),
+        new ApiEvent.HttpResponse(201, "2xx", 42L, Map.of(), "ok", 2L),
+        new ApiEvent.ServiceMetadata("svc-1", "orders", "prod", "eu-west-1", "10.0.0.1",
+            "trace-1", Map.of("team", "payments")));
+
+    assertThat(ApiEventCodec.decode(ByteBuffer.wrap(ApiEventCodec.encode(event))))
+        .isEqualTo(event);
+  }
+
+  @Test
+  void roundTripsNulls() {
+    ApiEvent sparse = new ApiEvent("e2", null, null, null,
+        new ApiEvent.HttpRequest(null, null, null, null, null, null, null),
+        new ApiEvent.HttpResponse(null, null, null, null, null, null),
+        null);
+
+    assertThat(ApiEventCodec.decode(ByteBuffer.wrap(ApiEventCodec.encode(sparse))))
+        .isEqualTo(sparse);
+  }
+
+  @Test
+  void rejectsTruncatedRecords() {
+    byte[] encoded = ApiEventCodec.encode(
+        new ApiEvent("e3", "tenant-1", Instant.now(), Instant.now(), null, null, null));
+
+    assertThatThrownBy(() -> ApiEventCodec.decode(
+        ByteBuffer.wrap(Arrays.copyOf(encoded, encoded.length - 5))))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,143 @@
+package com.harness.pipeline.pipeline.queue;
+
+import com.harness.pipeline.model.ApiEvent;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Rough publish/drain throughput comparison between the {@link EventBus} implementations.
+ * Not a unit test (surefire doesn't pick it up); run it manually after {@code mvn test-compile}:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *   com.harness.pipeline.pipeline.queue.EventBusThroughputBenchmark [producers] [eventsPerProducer]
+ * </pre>
+ *
+ * Producers play the role of HTTP ingestion threads; one realtime and one batch consumer
+ * drain in chunks the way {@code RealtimeWorker} and {@code BatchWriter} do.
+ */
+public final class EventBusThroughputBenchmark {
+
+  private static final int CAPACITY = 16_384;
+  private static final int DRAIN_CHUNK = 256;
+
+  private EventBusThroughputBenchmark() {}
+
+  public static void main(String[] args) throws Exception {
+    int producers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+    int eventsPerProducer = args.length > 1 ? Integer.parseInt(args[1]) : 500_000;
+
+    for (int round = 0; round < 3; round++) {
+      boolean warmup = round == 0;
+      report("in-memory", warmup, run(new InMemoryEventBus(CAPACITY, CAPACITY),
+          producers, eventsPerProducer), producers * (long) eventsPerProducer);
+      for (WaitStrategy strategy : WaitStrategy.values()) {
+        report("ring-buffer/" + strategy, warmup,
+            run(new RingBufferEventBus(CAPACITY, CAPACITY, strategy), producers, eventsPerProducer),
+            producers * (long) eventsPerProducer);
+      }
+      Path walDir = Files.createTempDirectory("wal-benchmark");
+      WalEventBus wal = new WalEventBus(walDir, 64 << 20, CAPACITY, CAPACITY);
+      try {
+        report("wal", warmup, run(wal, producers, eventsPerProducer),
+            producers * (long) eventsPerProducer);
+      } finally {
+        wal.close();
+        deleteRecursively(walDir);
+      }
+    }
+  }
+
+  private static void deleteRecursively(Path dir) throws Exception {
+    try (Stream<Path> paths = Files.walk(dir)) {
+      for (Path path : paths.sorted((a, b) -> b.compareTo(a)).toList()) {
+        Files.deleteIfExists(path);
+      }
+    }
+  }
+
+  private static long run(EventBus bus, int producers, int eventsPerProducer) throws Exception {
+    ApiEvent event = new ApiEvent("e", "tenant-1", Instant.now(), Instant.now(), null, null, null);
+    long total = producers * (long) eventsPerProducer;
+    CountDownLatch start = new CountDownLatch(1);
+    CountDownLatch batchDone = new CountDownLatch(1);
+    AtomicLong batchDrained = new AtomicLong();
+
+    List<Thread> threads = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      threads.add(new Thread(() -> {
+        await(start);
+        for (int i = 0; i < eventsPerProducer; i++) {
+          while (bus.publish(event) == PublishResult.REJECTED) {
+            Thread.yield();
+          }
+        }
+      }));
+    }
+    Thread realtime = new Thread(() -> drainUntilInterrupted(bus));
+    realtime.setDaemon(true);
+    Thread batch = new Thread(() -> {
+      List<ApiEvent> sink = new ArrayList<>(DRAIN_CHUNK);
+      try {
+        while (batchDrained.get() < total) {
+          sink.clear();
+          batchDrained.addAndGet(bus.drainBatch(DRAIN_CHUNK, sink, 10, TimeUnit.MILLISECONDS));
+          bus.commitBatch(bus.batchPosition());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      batchDone.countDown();
+    });
+    threads.forEach(Thread::start);
+    realtime.start();
+    batch.start();
+
+    long begin = System.nanoTime();
+    start.countDown();
+    batchDone.await();
+    long elapsed = System.nanoTime() - begin;
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    realtime.interrupt();
+    realtime.join();
+    return elapsed;
+  }
+
+  private static void drainUntilInterrupted(EventBus bus) {
+    List<ApiEvent> sink = new ArrayList<>(DRAIN_CHUNK);
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        sink.clear();
+        bus.drainRealtime(DRAIN_CHUNK, sink, 10, TimeUnit.MILLISECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void report(String name, boolean warmup, long elapsedNanos, long events) {
+    if (warmup) {
+      return;
+    }
+    double seconds = elapsedNanos / 1e9;
+    System.out.printf("%-24s %,12.0f events/s  (%,d events in %.2f s)%n",
+        name, events / seconds, events, seconds);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
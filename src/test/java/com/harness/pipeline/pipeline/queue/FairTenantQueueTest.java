@@ -0,0 +1,89 @@
+package com.harness.pipeline.pipeline.queue;
+
+import com.harness.pipeline.model.ApiEvent;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FairTenantQueueTest {
+
+  @Test
+  void drainsBacklogsByWeightKeepingTenantOrder() {
+    FairTenantQueue queue = new FairTenantQueue(100,
+        new TenantFairness(true, 1.0, Map.of("a", 2), Map.of()));
+    for (int i = 0; i < 6; i++) {
+      queue.offer(event("a", "a" + i));
+    }
+    for (int i = 0; i < 3; i++) {
+      queue.offer(event("b", "b" + i));
+    }
+
+    List<ApiEvent> drained = new ArrayList<>();
+    assertThat(queue.drainTo(drained, 100)).isEqualTo(9);
+    assertThat(drained).extracting(ApiEvent::eventId)
+        .containsExactly("a0", "a1", "b0", "a2", "a3", "b1", "a4", "a5", "b2");
+    assertThat(queue).isEmpty();
+  }
+
+  @Test
+  void burstingTenantIsCappedAtItsQuotaOnlyUnderContention() {
+    List<ApiEvent> evicted = new ArrayList<>();
+    FairTenantQueue queue = new FairTenantQueue(10,
+        new TenantFairness(true, 0.5, Map.of(), Map.of()), evicted::add);
+
+    // Alone on the lane, the noisy tenant may fill all of it.
+    for (int i = 0; i < 10; i++) {
+      assertThat(queue.offer(event("noisy", "n" + i))).isTrue();
+    }
+    assertThat(queue.offer(event("noisy", "n10"))).isFalse();
+
+    // Once the lane is full, a tenant within its quota takes the noisy tenant's newest events.
+    for (int i = 0; i < 5; i++) {
+      assertThat(queue.offer(event("quiet", "q" + i))).isTrue();
+    }
+    assertThat(evicted).extracting(ApiEvent::eventId).containsExactly("n9", "n8", "n7", "n6", "n5");
+    assertThat(queue.tenantSize("noisy")).isEqualTo(5);
+    assertThat(queue.offer(event("quiet", "q5"))).isFalse();
+    assertThat(queue.offer(event("noisy", "n11"))).isFalse();
+
+    // Draining the noisy tenant frees room again.
+    assertThat(queue.poll().eventId()).isEqualTo("n0");
+    assertThat(queue.offer(event("noisy", "n12"))).isTrue();
+    assertThat(queue.remainingCapacity()).isZero();
+  }
+
+  @Test
+  void timedPollWaitsForFirstEvent() throws Exception {
+    FairTenantQueue queue = new FairTenantQueue(4, new TenantFairness(true, 1.0, Map.of(), Map.of()));
+    assertThat(queue.poll(10, TimeUnit.MILLISECONDS)).isNull();
+
+    Thread publisher = new Thread(() -> queue.offer(event("a", "late")));
+    publisher.start();
+    assertThat(queue.poll(5, TimeUnit.SECONDS).eventId()).isEqualTo("late");
+    publisher.join();
+  }
+
+  @Test
+  void parsesTenantOverrides() {
+    TenantFairness fairness = new TenantFairness(true, 0.25, "acme=4, globex=2", "acme=0.75");
+
+    assertThat(fairness.weight("acme")).isEqualTo(4);
+    assertThat(fairness.weight("globex")).isEqualTo(2);
+    assertThat(fairness.weight("other")).isEqualTo(1);
+    assertThat(fairness.quota("acme", 100)).isEqualTo(75);
+    assertThat(fairness.quota("other", 100)).isEqualTo(25);
+    assertThatThrownBy(() -> new TenantFairness(true, 0.5, "acme", ""))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("pipeline.queue.fairness.weights");
+  }
+
+  private static ApiEvent event(String tenantId, String id) {
+    return new ApiEvent(id, tenantId, Instant.now(), Instant.now(), null, null, null);
+  }
+}
@@ -1,8 +1,14 @@
 package com.harness.pipeline.pipeline.queue;
 
 import com.harness.pipeline.model.ApiEvent;
+import java.nio.file.Path;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -15,11 +21,11 @@ class InMemoryEventBusTest {
     ApiEvent event1 = demoEvent("e1");
     ApiEvent event2 = demoEvent("e2");
 
-    boolean firstAccepted = bus.publish(event1);
-    boolean secondAccepted = bus.publish(event2);
+    PublishResult first = bus.publish(event1);
+    PublishResult second = bus.publish(event2);
 
-    assertThat(firstAccepted).isTrue();
-    assertThat(secondAccepted).isFalse();
+    assertThat(first).isEqualTo(PublishResult.ACCEPTED);
+    assertThat(second).isEqualTo(PublishResult.REALTIME_SHED);
 
     assertThat(bus.getRealtimeQueueSize()).isEqualTo(1);
     assertThat(bus.getBatchQueueSize()).isEqualTo(2);
@@ -35,10 +41,158 @@ class InMemoryEventBusTest {
     assertThat(batch2.eventId()).isEqualTo("e2");
   }
 
+  @Test
+  void rejectsAboveHighWatermarkUntilDrainedBelowLowWatermark() {
+    InMemoryEventBus bus = new InMemoryEventBus(100, 10, 0.8, 0.5);
+
+    for (int i = 0; i < 8; i++) {
+      assertThat(bus.publish(demoEvent("e" + i))).isEqualTo(PublishResult.ACCEPTED);
+    }
+    assertThat(bus.publish(demoEvent("over"))).isEqualTo(PublishResult.REJECTED);
+    assertThat(bus.getBatchQueueSize()).isEqualTo(8);
+    assertThat(bus.getRealtimeQueueSize()).isEqualTo(8);
+
+    // Draining to 6 is still above the low watermark (5): keep rejecting.
+    bus.drainBatch(2, new ArrayList<>());
+    assertThat(bus.publish(demoEvent("still-over"))).isEqualTo(PublishResult.REJECTED);
+
+    bus.drainBatch(1, new ArrayList<>());
+    assertThat(bus.publish(demoEvent("resumed"))).isEqualTo(PublishResult.ACCEPTED);
+  }
+
+  @Test
+  void publishAllIsRejectedWhenWholeBatchDoesNotFit() {
+    InMemoryEventBus bus = new InMemoryEventBus(1, 3, 1.0, 0.5);
+
+    assertThat(bus.publishAll(List.of(demoEvent("e1"), demoEvent("e2"))))
+        .containsExactly(PublishResult.ACCEPTED, PublishResult.REALTIME_SHED);
+    assertThat(bus.publishAll(List.of(demoEvent("e3"), demoEvent("e4"))))
+        .containsOnly(PublishResult.REJECTED);
+    assertThat(bus.getBatchQueueSize()).isEqualTo(2);
+  }
+
+  @Test
+  void batchThatWouldCrossHighWatermarkDoesNotThrottleSmallerOnes() {
+    InMemoryEventBus bus = new InMemoryEventBus(100, 10, 0.8, 0.5);
+    for (int i = 0; i < 6; i++) {
+      bus.publish(demoEvent("e" + i));
+    }
+
+    assertThat(bus.publishAll(List.of(demoEvent("a1"), demoEvent("a2"), demoEvent("a3"))))
+        .containsOnly(PublishResult.REJECTED);
+    assertThat(bus.publishAll(List.of(demoEvent("b1"), demoEvent("b2"))))
+        .containsOnly(PublishResult.ACCEPTED);
+    // Now actually at the high watermark (8): throttled until drained to 5.
+    assertThat(bus.publish(demoEvent("over"))).isEqualTo(PublishResult.REJECTED);
+    bus.drainBatch(2, new ArrayList<>());
+    assertThat(bus.publish(demoEvent("still-over"))).isEqualTo(PublishResult.REJECTED);
+  }
+
+  @Test
+  void drainMovesUpToMaxEventsInOrder() throws Exception {
+    InMemoryEventBus bus = new InMemoryEventBus(10, 10);
+    for (int i = 0; i < 5; i++) {
+      bus.publish(demoEvent("e" + i));
+    }
+
+    List<ApiEvent> realtime = new ArrayList<>();
+    assertThat(bus.drainRealtime(3, realtime)).isEqualTo(3);
+    assertThat(realtime).extracting(ApiEvent::eventId).containsExactly("e0", "e1", "e2");
+    assertThat(bus.getRealtimeQueueSize()).isEqualTo(2);
+
+    List<ApiEvent> batch = new ArrayList<>();
+    assertThat(bus.drainBatch(100, batch, 10, TimeUnit.MILLISECONDS)).isEqualTo(5);
+    assertThat(bus.getBatchQueueSize()).isZero();
+  }
+
+  @Test
+  void timedDrainReturnsZeroWhenNothingArrives() throws Exception {
+    InMemoryEventBus bus = new InMemoryEventBus(10, 10);
+
+    List<ApiEvent> sink = new ArrayList<>();
+    assertThat(bus.drainRealtime(10, sink, 10, TimeUnit.MILLISECONDS)).isZero();
+    assertThat(sink).isEmpty();
+  }
+
+  @Test
+  void lanesKeepTenantOrderAndShedOnlyTheFullLane() throws Exception {
+    InMemoryEventBus bus = new InMemoryEventBus(4, 100, 0.9, 0.7, 2, null);
+    String noisy = "tenant-1";
+    String quiet = tenantOnOtherLane(noisy, 2);
+    int noisyLane = TenantLanes.laneOf(noisy, 2);
+
+    assertThat(bus.publish(demoEvent("n1", noisy))).isEqualTo(PublishResult.ACCEPTED);
+    assertThat(bus.publish(demoEvent("n2", noisy))).isEqualTo(PublishResult.ACCEPTED);
+    assertThat(bus.publish(demoEvent("n3", noisy))).isEqualTo(PublishResult.REALTIME_SHED);
+    assertThat(bus.publish(demoEvent("q1", quiet))).isEqualTo(PublishResult.ACCEPTED);
+
+    assertThat(bus.getRealtimeLaneSize(noisyLane)).isEqualTo(2);
+    assertThat(bus.getRealtimeLaneSize(1 - noisyLane)).isEqualTo(1);
+    assertThat(bus.getRealtimeQueueSize()).isEqualTo(3);
+
+    List<ApiEvent> sink = new ArrayList<>();
+    assertThat(bus.drainRealtimeLane(noisyLane, 10, sink, 10, TimeUnit.MILLISECONDS)).isEqualTo(2);
+    assertThat(sink).extracting(ApiEvent::eventId).containsExactly("n1", "n2");
+    assertThat(bus.takeRealtime().eventId()).isEqualTo("q1");
+  }
+
+  @Test
+  void fairLanesShedOnlyTheBurstingTenant() {
+    InMemoryEventBus bus = new InMemoryEventBus(10, 100, 1.0, 0.5, 1,
+        new TenantFairness(true, 0.5, Map.of(), Map.of()));
+
+    int shed = 0;
+    for (int i = 0; i < 50; i++) {
+      if (bus.publish(demoEvent("burst" + i, "tenant-1")) == PublishResult.REALTIME_SHED) {
+        shed++;
+      }
+    }
+    // Alone on the lane, the bursting tenant fills all of it.
+    assertThat(shed).isEqualTo(40);
+    assertThat(bus.publish(demoEvent("other", "tenant-2"))).isEqualTo(PublishResult.ACCEPTED);
+    assertThat(bus.getRealtimeQueueSize()).isEqualTo(10);
+
+    List<ApiEvent> sink = new ArrayList<>();
+    bus.drainRealtime(3, sink);
+    assertThat(sink).extracting(ApiEvent::eventId).containsExactly("burst0", "other", "burst1");
+  }
+
+  @Test
+  void spillsBatchOverflowToDiskInsteadOfRejecting(@TempDir Path spillDir) throws Exception {
+    InMemoryEventBus bus = new InMemoryEventBus(100, 10, 0.9, 0.7, 1, null,
+        true, spillDir.toString(), 90, 4096);
+
+    for (int i = 0; i < 90; i++) {
+      assertThat(bus.publish(demoEvent("e" + i))).isNotEqualTo(PublishResult.REJECTED);
+    }
+    assertThat(bus.getBatchQueueSize()).isEqualTo(90);
+    assertThat(bus.getBatchSpilledSize()).isEqualTo(80);
+    // The watermarks apply to memory plus spill: 90% of 100.
+    assertThat(bus.publish(demoEvent("over"))).isEqualTo(PublishResult.REJECTED);
+
+    List<ApiEvent> batch = new ArrayList<>();
+    assertThat(bus.drainBatch(1000, batch, 10, TimeUnit.MILLISECONDS)).isEqualTo(90);
+    assertThat(batch.get(0).eventId()).isEqualTo("e0");
+    assertThat(batch.get(89).eventId()).isEqualTo("e89");
+    assertThat(bus.getBatchSpilledSize()).isZero();
+  }
+
+  private static String tenantOnOtherLane(String tenant, int lanes) {
+    for (int i = 0; ; i++) {
+      if (TenantLanes.laneOf("tenant-" + i, lanes) != TenantLanes.laneOf(tenant, lanes)) {
+        return "tenant-" + i;
+      }
+    }
+  }
+
   private ApiEvent demoEvent(String id) {
+    return demoEvent(id, "tenant-1");
+  }
+
+  private ApiEvent demoEvent(String id, String tenantId) {
     return new ApiEvent(
         id,
-        "tenant-1",
+        tenantId,
         Instant.now(),
         Instant.now(),
         null,
@@ -0,0 +1,159 @@
+package com.harness.pipeline.pipeline.queue;
+
+import com.harness.pipeline.model.ApiEvent;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RingBufferEventBusTest {
+
+  @Test
+  void publishRoutesToBothQueuesAndDropsWhenRealtimeFull() throws Exception {
+    RingBufferEventBus bus = new RingBufferEventBus(2, 100, WaitStrategy.PARK);
+
+    assertThat(bus.publish(demoEvent("e1"))).isEqualTo(PublishResult.ACCEPTED);
+    assertThat(bus.publish(demoEvent("e2"))).isEqualTo(PublishResult.ACCEPTED);
+    assertThat(bus.publish(demoEvent("e3"))).isEqualTo(PublishResult.REALTIME_SHED);
+
+    assertThat(bus.getRealtimeQueueSize()).isEqualTo(2);
+    assertThat(bus.getBatchQueueSize()).isEqualTo(3);
+
+    assertThat(bus.takeRealtime().eventId()).isEqualTo("e1");
+    assertThat(bus.takeBatch().eventId()).isEqualTo("e1");
+    assertThat(bus.takeBatch().eventId()).isEqualTo("e2");
+    assertThat(bus.takeBatch().eventId()).isEqualTo("e3");
+  }
+
+  @Test
+  void rejectsWhenBatchRingReachesHighWatermark() {
+    RingBufferEventBus bus = new RingBufferEventBus(16, 4, WaitStrategy.PARK, 1.0, 0.5);
+
+    for (int i = 0; i < 4; i++) {
+      assertThat(bus.publish(demoEvent("e" + i))).isEqualTo(PublishResult.ACCEPTED);
+    }
+    assertThat(bus.publish(demoEvent("over"))).isEqualTo(PublishResult.REJECTED);
+    assertThat(bus.getRealtimeQueueSize()).isEqualTo(4);
+  }
+
+  @Test
+  void batchThatWouldCrossHighWatermarkDoesNotThrottleSmallerOnes() {
+    RingBufferEventBus bus = new RingBufferEventBus(16, 4, WaitStrategy.PARK, 1.0, 0.5);
+    bus.publish(demoEvent("e0"));
+    bus.publish(demoEvent("e1"));
+
+    assertThat(bus.publishAll(List.of(demoEvent("a1"), demoEvent("a2"), demoEvent("a3"))))
+        .containsOnly(PublishResult.REJECTED);
+    assertThat(bus.publishAll(List.of(demoEvent("b1"), demoEvent("b2"))))
+        .containsOnly(PublishResult.ACCEPTED);
+    assertThat(bus.getBatchQueueSize()).isEqualTo(4);
+  }
+
+  @Test
+  void publishAllClaimsWholeBatchOrNothing() throws Exception {
+    RingBufferEventBus bus = new RingBufferEventBus(2, 4, WaitStrategy.PARK, 1.0, 0.5);
+
+    assertThat(bus.publishAll(List.of(demoEvent("e1"), demoEvent("e2"), demoEvent("e3"))))
+        .containsExactly(PublishResult.ACCEPTED, PublishResult.ACCEPTED, PublishResult.REALTIME_SHED);
+    assertThat(bus.publishAll(List.of(demoEvent("e4"), demoEvent("e5"))))
+        .containsOnly(PublishResult.REJECTED);
+    assertThat(bus.getBatchQueueSize()).isEqualTo(3);
+
+    assertThat(bus.takeBatch().eventId()).isEqualTo("e1");
+    assertThat(bus.takeBatch().eventId()).isEqualTo("e2");
+    assertThat(bus.takeBatch().eventId()).isEqualTo("e3");
+  }
+
+  @Test
+  void offerAllWrapsAroundTheRing() {
+    MpmcRingBuffer<Integer> ring = new MpmcRingBuffer<>(4);
+    List<Integer> sink = new ArrayList<>();
+
+    assertThat(ring.offerAll(List.of(1, 2, 3))).isTrue();
+    ring.drainTo(sink, 2);
+    assertThat(ring.offerAll(List.of(4, 5, 6))).isTrue();
+    assertThat(ring.offerAll(List.of(7))).isFalse();
+    ring.drainTo(sink, 10);
+
+    assertThat(sink).containsExactly(1, 2, 3, 4, 5, 6);
+  }
+
+  @Test
+  void capacityIsRoundedUpToPowerOfTwo() {
+    assertThat(new MpmcRingBuffer<String>(1).capacity()).isEqualTo(2);
+    assertThat(new MpmcRingBuffer<String>(1000).capacity()).isEqualTo(1024);
+    assertThat(new MpmcRingBuffer<String>(1024).capacity()).isEqualTo(1024);
+  }
+
+  @Test
+  void drainWaitsForFirstEventThenTimesOut() throws Exception {
+    RingBufferEventBus bus = new RingBufferEventBus(8, 8, WaitStrategy.YIELD);
+    List<ApiEvent> sink = new ArrayList<>();
+
+    assertThat(bus.drainRealtime(4, sink, 10, TimeUnit.MILLISECONDS)).isZero();
+
+    bus.publish(demoEvent("e1"));
+    bus.publish(demoEvent("e2"));
+    assertThat(bus.drainRealtime(4, sink, 10, TimeUnit.MILLISECONDS)).isEqualTo(2);
+    assertThat(sink).extracting(ApiEvent::eventId).containsExactly("e1", "e2");
+  }
+
+  @Test
+  void concurrentProducersAndConsumersSeeEveryElementOnce() throws Exception {
+    MpmcRingBuffer<Integer> ring = new MpmcRingBuffer<>(64);
+    int producers = 4;
+    int perProducer = 10_000;
+    Set<Integer> seen = ConcurrentHashMap.newKeySet();
+    CountDownLatch done = new CountDownLatch(producers * perProducer);
+
+    List<Thread> threads = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      int base = p * perProducer;
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < perProducer; i++) {
+          while (!ring.offer(base + i)) {
+            Thread.yield();
+          }
+        }
+      }));
+    }
+    for (int c = 0; c < 3; c++) {
+      Thread consumer = new Thread(() -> {
+        while (done.getCount() > 0) {
+          Integer value = ring.poll();
+          if (value == null) {
+            Thread.yield();
+            continue;
+          }
+          assertThat(seen.add(value)).isTrue();
+          done.countDown();
+        }
+      });
+      consumer.setDaemon(true);
+      threads.add(consumer);
+    }
+    threads.forEach(Thread::start);
+
+    assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+    assertThat(seen).hasSize(producers * perProducer);
+    assertThat(ring.size()).isZero();
+  }
+
+  private ApiEvent demoEvent(String id) {
+    return new ApiEvent(
+        id,
+        "tenant-1",
+        Instant.now(),
+        Instant.now(),
+        null,
+        null,
+        null
+    );
+  }
+}
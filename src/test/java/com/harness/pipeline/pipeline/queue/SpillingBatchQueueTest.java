@@ -0,0 +1,128 @@
+package com.harness.pipeline.pipeline.queue;
+
+import com.harness.pipeline.model.ApiEvent;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpillingBatchQueueTest {
+
+  private static final int SEGMENT_BYTES = 4096;
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void spillsPastMemoryCapacityAndDrainsInOrder() throws Exception {
+    SpillingBatchQueue queue = new SpillingBatchQueue(10, 1000, tempDir, SEGMENT_BYTES);
+
+    for (int i = 0; i < 200; i++) {
+      assertThat(queue.offer(demoEvent("e" + i))).isTrue();
+    }
+    assertThat(queue.size()).isEqualTo(200);
+    assertThat(queue.spilledSize()).isEqualTo(190);
+    assertThat(segmentFiles()).hasSizeGreaterThan(1);
+
+    // Draining the in-memory head doesn't let new events jump the spilled ones.
+    List<ApiEvent> drained = new ArrayList<>();
+    queue.drainTo(drained, 5);
+    queue.offer(demoEvent("e200"));
+    assertThat(queue.spilledSize()).isEqualTo(191);
+
+    queue.drainTo(drained);
+    assertThat(drained).extracting(ApiEvent::eventId).containsExactlyElementsOf(ids(0, 201));
+    assertThat(queue.size()).isZero();
+    assertThat(queue.spilledSize()).isZero();
+    assertThat(segmentFiles()).hasSize(1);
+
+    // Once the spill is read empty, events are held in memory again.
+    queue.offer(demoEvent("e201"));
+    assertThat(queue.spilledSize()).isZero();
+    assertThat(queue.poll(10, TimeUnit.MILLISECONDS).eventId()).isEqualTo("e201");
+  }
+
+  @Test
+  void rejectsOnceTheSpillIsFull() throws Exception {
+    SpillingBatchQueue queue = new SpillingBatchQueue(2, 3, tempDir, SEGMENT_BYTES);
+
+    for (int i = 0; i < 5; i++) {
+      assertThat(queue.offer(demoEvent("e" + i))).isTrue();
+    }
+    assertThat(queue.remainingCapacity()).isZero();
+    assertThat(queue.offer(demoEvent("over"))).isFalse();
+
+    assertThat(queue.peek().eventId()).isEqualTo("e0");
+    assertThat(queue).extracting(ApiEvent::eventId).containsExactlyElementsOf(ids(0, 5));
+    // Memory has room again, but a new event may not overtake the spilled ones.
+    assertThat(queue.take().eventId()).isEqualTo("e0");
+    assertThat(queue.remainingCapacity()).isZero();
+    assertThat(queue.offer(demoEvent("e5"))).isFalse();
+
+    queue.drainTo(new ArrayList<>(), 2);
+    assertThat(queue.offer(demoEvent("e5"))).isTrue();
+  }
+
+  @Test
+  void clearsSpillFilesLeftByAPreviousRun() throws Exception {
+    SpillingBatchQueue previous = new SpillingBatchQueue(1, 100, tempDir, SEGMENT_BYTES);
+    for (int i = 0; i < 10; i++) {
+      previous.offer(demoEvent("e" + i));
+    }
+    assertThat(segmentFiles()).isNotEmpty();
+
+    Path unrelated = Files.writeString(tempDir.resolve("notes.txt"), "keep me");
+
+    SpillingBatchQueue queue = new SpillingBatchQueue(1, 100, tempDir, SEGMENT_BYTES);
+    assertThat(segmentFiles()).isEmpty();
+    assertThat(queue.size()).isZero();
+    assertThat(unrelated).exists();
+  }
+
+  @Test
+  void skipsAnUnreadableSpilledRecord() throws Exception {
+    SpillingBatchQueue queue = new SpillingBatchQueue(1, 100, tempDir, SEGMENT_BYTES);
+    for (int i = 0; i < 4; i++) {
+      queue.offer(demoEvent("e" + i));
+    }
+    // Overwrite the encoding version of the first spilled record, e1.
+    try (FileChannel channel = FileChannel.open(segmentFiles().get(0), StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] {0x7f}), WriteAheadLog.HEADER_BYTES);
+    }
+
+    List<ApiEvent> drained = new ArrayList<>();
+    assertThat(queue.drainTo(drained)).isEqualTo(3);
+    assertThat(drained).extracting(ApiEvent::eventId).containsExactly("e0", "e2", "e3");
+    assertThat(queue.size()).isZero();
+    assertThat(queue.spilledSize()).isZero();
+    assertThat(queue.poll()).isNull();
+  }
+
+  private List<Path> segmentFiles() throws Exception {
+    try (Stream<Path> files = Files.list(tempDir)) {
+      return files.filter(p -> p.toString().endsWith(WriteAheadLog.SEGMENT_SUFFIX)).toList();
+    }
+  }
+
+  private static List<String> ids(int from, int to) {
+    List<String> ids = new ArrayList<>();
+    for (int i = from; i < to; i++) {
+      ids.add("e" + i);
+    }
+    return ids;
+  }
+
+  private static ApiEvent demoEvent(String id) {
+    return new ApiEvent(id, "tenant-1", Instant.now(), Instant.now(), null, null, null);
+  }
+}
@@ -0,0 +1,43 @@
+package com.harness.pipeline.pipeline.queue;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TenantLanesTest {
+
+  @Test
+  void tenantAlwaysMapsToSameLaneInRange() {
+    for (int i = 0; i < 1_000; i++) {
+      int lane = TenantLanes.laneOf("tenant-" + i, 8);
+      assertThat(lane).isBetween(0, 7).isEqualTo(TenantLanes.laneOf("tenant-" + i, 8));
+    }
+    assertThat(TenantLanes.laneOf("tenant-1", 1)).isZero();
+    assertThat(TenantLanes.laneOf(null, 8)).isZero();
+  }
+
+  @Test
+  void tenantsSpreadOverAllLanes() {
+    int[] perLane = new int[8];
+    for (int i = 0; i < 8_000; i++) {
+      perLane[TenantLanes.laneOf("tenant-" + i, 8)]++;
+    }
+    for (int count : perLane) {
+      assertThat(count).isBetween(800, 1_200);
+    }
+  }
+
+  @Test
+  void addingALaneOnlyMovesTenantsOntoIt() {
+    int moved = 0;
+    for (int i = 0; i < 9_000; i++) {
+      int before = TenantLanes.laneOf("tenant-" + i, 8);
+      int after = TenantLanes.laneOf("tenant-" + i, 9);
+      if (before != after) {
+        assertThat(after).isEqualTo(8);
+        moved++;
+      }
+    }
+    assertThat(moved).isBetween(800, 1_200);
+  }
+}
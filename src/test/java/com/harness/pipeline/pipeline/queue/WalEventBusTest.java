@@ -0,0 +1,265 @@
+package com.harness.pipeline.pipeline.queue;
+
+import com.harness.pipeline.model.ApiEvent;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class WalEventBusTest {
+
+  private static final int SEGMENT_BYTES = 4096;
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void drainsBatchEventsInPublishOrderAcrossSegments() throws Exception {
+    WalEventBus bus = new WalEventBus(tempDir, SEGMENT_BYTES, 1000, 1000);
+    try {
+      for (int i = 0; i < 200; i++) {
+        assertThat(bus.publish(demoEvent("e" + i))).isEqualTo(PublishResult.ACCEPTED);
+      }
+      assertThat(bus.walSegmentCount()).isGreaterThan(1);
+      assertThat(bus.getBatchQueueSize()).isEqualTo(200);
+      assertThat(bus.getRealtimeQueueSize()).isEqualTo(200);
+
+      List<ApiEvent> drained = new ArrayList<>();
+      assertThat(bus.drainBatch(500, drained)).isEqualTo(200);
+      assertThat(drained).extracting(ApiEvent::eventId)
+          .containsExactlyElementsOf(ids(0, 200));
+      assertThat(bus.getBatchQueueSize()).isZero();
+    } finally {
+      bus.close();
+    }
+  }
+
+  @Test
+  void replaysUncommittedEventsAfterRestart() throws Exception {
+    WalEventBus bus = new WalEventBus(tempDir, SEGMENT_BYTES, 1000, 1000);
+    for (int i = 0; i < 10; i++) {
+      bus.publish(demoEvent("e" + i));
+    }
+    List<ApiEvent> drained = new ArrayList<>();
+    bus.drainBatch(4, drained);
+    bus.commitBatch(bus.batchPosition());
+    // Drained but never committed: must come back.
+    bus.drainBatch(3, new ArrayList<>());
+    bus.close();
+
+    WalEventBus reopened = new WalEventBus(tempDir, SEGMENT_BYTES, 1000, 1000);
+    try {
+      List<ApiEvent> batch = new ArrayList<>();
+      reopened.drainBatch(100, batch);
+      assertThat(batch).extracting(ApiEvent::eventId).containsExactlyElementsOf(ids(4, 10));
+
+      // The realtime lane was never drained, so all of it is offered again.
+      List<ApiEvent> realtime = new ArrayList<>();
+      reopened.drainRealtime(100, realtime);
+      assertThat(realtime).extracting(ApiEvent::eventId).containsExactlyElementsOf(ids(0, 10));
+    } finally {
+      reopened.close();
+    }
+  }
+
+  @Test
+  void deletesSegmentsOnceBothConsumersMovePastThem() throws Exception {
+    WalEventBus bus = new WalEventBus(tempDir, SEGMENT_BYTES, 1000, 1000);
+    for (int i = 0; i < 200; i++) {
+      bus.publish(demoEvent("e" + i));
+    }
+    bus.drainBatch(500, new ArrayList<>());
+    bus.commitBatch(bus.batchPosition());
+    bus.drainRealtime(500, new ArrayList<>());
+    bus.close();
+
+    assertThat(bus.walSegmentCount()).isEqualTo(1);
+    WalEventBus reopened = new WalEventBus(tempDir, SEGMENT_BYTES, 1000, 1000);
+    try {
+      assertThat(reopened.getBatchQueueSize()).isZero();
+      assertThat(reopened.getRealtimeQueueSize()).isZero();
+
+      reopened.publish(demoEvent("after"));
+      List<ApiEvent> drained = new ArrayList<>();
+      reopened.drainBatch(10, drained);
+      assertThat(drained).extracting(ApiEvent::eventId).containsExactly("after");
+    } finally {
+      reopened.close();
+    }
+  }
+
+  @Test
+  void replaysRealtimeFromTheOldestEventStillOnALane() throws Exception {
+    WalEventBus bus = new WalEventBus(tempDir, SEGMENT_BYTES, 1000, 1000);
+    for (int i = 0; i < 10; i++) {
+      bus.publish(demoEvent("e" + i));
+    }
+    bus.drainBatch(100, new ArrayList<>());
+    bus.commitBatch(bus.batchPosition());
+    bus.drainRealtime(4, new ArrayList<>());
+    bus.close();
+
+    WalEventBus reopened = new WalEventBus(tempDir, SEGMENT_BYTES, 1000, 1000);
+    try {
+      List<ApiEvent> realtime = new ArrayList<>();
+      reopened.drainRealtime(100, realtime);
+      assertThat(realtime).extracting(ApiEvent::eventId).containsExactlyElementsOf(ids(4, 10));
+    } finally {
+      reopened.close();
+    }
+  }
+
+  @Test
+  void batchThatWouldCrossHighWatermarkDoesNotThrottleSmallerOnes() throws Exception {
+    WalEventBus bus = new WalEventBus(tempDir.toString(), SEGMENT_BYTES, false, 1000, true,
+        1000, 10, 0.8, 0.5, 1, null);
+    try {
+      for (int i = 0; i < 6; i++) {
+        bus.publish(demoEvent("e" + i));
+      }
+
+      assertThat(bus.publishAll(List.of(demoEvent("a1"), demoEvent("a2"), demoEvent("a3"))))
+          .containsOnly(PublishResult.REJECTED);
+      assertThat(bus.publishAll(List.of(demoEvent("b1"), demoEvent("b2"))))
+          .containsOnly(PublishResult.ACCEPTED);
+      assertThat(bus.publish(demoEvent("over"))).isEqualTo(PublishResult.REJECTED);
+      assertThat(bus.getBatchQueueSize()).isEqualTo(8);
+    } finally {
+      bus.close();
+    }
+  }
+
+  @Test
+  void checkpointsAndDeletesSegmentsWhilePublishersKeepAppending() throws Exception {
+    WalEventBus bus = new WalEventBus(tempDir.toString(), SEGMENT_BYTES, false, 10, true,
+        1000, 100_000, 0.9, 0.7, 1, null);
+    AtomicBoolean publishing = new AtomicBoolean(true);
+    Thread publisher = new Thread(() -> {
+      for (int i = 0; publishing.get(); i++) {
+        bus.publish(demoEvent("e" + i));
+      }
+    });
+    publisher.start();
+    try {
+      int peak = 0;
+      int segments = 0;
+      long deadline = System.currentTimeMillis() + 10_000;
+      while (System.currentTimeMillis() < deadline) {
+        bus.drainBatch(10_000, new ArrayList<>());
+        bus.commitBatch(bus.batchPosition());
+        bus.drainRealtime(10_000, new ArrayList<>());
+        segments = bus.walSegmentCount();
+        peak = Math.max(peak, segments);
+        if (peak >= 10 && segments <= peak / 2) {
+          break;
+        }
+        Thread.sleep(1);
+      }
+      assertThat(peak).isGreaterThanOrEqualTo(10);
+      assertThat(segments).isLessThanOrEqualTo(peak / 2);
+    } finally {
+      publishing.set(false);
+      publisher.join();
+      bus.close();
+    }
+  }
+
+  @Test
+  void recoversUpToATornRecord() throws Exception {
+    WalEventBus bus = new WalEventBus(tempDir, SEGMENT_BYTES, 1000, 1000);
+    for (int i = 0; i < 3; i++) {
+      bus.publish(demoEvent("e" + i));
+    }
+    bus.close();
+
+    // Simulate a crash mid-append: a length header whose payload never made it to disk.
+    Path segment;
+    try (Stream<Path> files = Files.list(tempDir)) {
+      segment = files.filter(p -> p.toString().endsWith(WriteAheadLog.SEGMENT_SUFFIX))
+          .findFirst().orElseThrow();
+    }
+    long end = new WriteAheadLog(tempDir, SEGMENT_BYTES).end();
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.allocate(4).putInt(0, 100), end);
+    }
+
+    WalEventBus reopened = new WalEventBus(tempDir, SEGMENT_BYTES, 1000, 1000);
+    try {
+      reopened.publish(demoEvent("e3"));
+      List<ApiEvent> drained = new ArrayList<>();
+      reopened.drainBatch(10, drained);
+      assertThat(drained).extracting(ApiEvent::eventId).containsExactlyElementsOf(ids(0, 4));
+    } finally {
+      reopened.close();
+    }
+  }
+
+  @Test
+  void rejectsOnlyTheRecordThatDoesNotFitASegment() throws Exception {
+    WalEventBus bus = new WalEventBus(tempDir, SEGMENT_BYTES, 1000, 1000);
+    try {
+      ApiEvent oversized = new ApiEvent("big", "tenant-1", Instant.now(), Instant.now(),
+          new ApiEvent.HttpRequest("GET", "api.example.com", "/" + "x".repeat(SEGMENT_BYTES),
+              null, null, null, null),
+          null, null);
+
+      assertThat(bus.publishAll(List.of(demoEvent("e0"), oversized, demoEvent("e1"))))
+          .containsExactly(PublishResult.ACCEPTED, PublishResult.REJECTED, PublishResult.ACCEPTED);
+
+      List<ApiEvent> drained = new ArrayList<>();
+      bus.drainBatch(10, drained);
+      assertThat(drained).extracting(ApiEvent::eventId).containsExactly("e0", "e1");
+    } finally {
+      bus.close();
+    }
+  }
+
+  @Test
+  void rejectsPublishersWaitingOnAFailedSync() throws Exception {
+    AtomicBoolean failing = new AtomicBoolean(true);
+    WalEventBus bus = new WalEventBus(tempDir, SEGMENT_BYTES, 1000, 1000) {
+      @Override
+      void forceLog() {
+        if (failing.get()) {
+          throw new UncheckedIOException(new IOException("disk gone"));
+        }
+        super.forceLog();
+      }
+    };
+    try {
+      assertTimeoutPreemptively(Duration.ofSeconds(5),
+          () -> assertThat(bus.publish(demoEvent("e0"))).isEqualTo(PublishResult.REJECTED));
+
+      failing.set(false);
+      assertThat(bus.publish(demoEvent("e1"))).isEqualTo(PublishResult.ACCEPTED);
+    } finally {
+      bus.close();
+    }
+  }
+
+  private static List<String> ids(int from, int to) {
+    List<String> ids = new ArrayList<>();
+    for (int i = from; i < to; i++) {
+      ids.add("e" + i);
+    }
+    return ids;
+  }
+
+  private static ApiEvent demoEvent(String id) {
+    return new ApiEvent(id, "tenant-1", Instant.now(), Instant.now(), null, null, null);
+  }
+}
@@ -0,0 +1,113 @@
+package com.harness.pipeline.pipeline.realtime;
+
+import com.harness.pipeline.pipeline.queue.EventBus;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class RealtimeWorkerAutoscalerTest {
+
+  private final RealtimeWorkerPool pool = mock(RealtimeWorkerPool.class);
+  private final EventBus eventBus = mock(EventBus.class);
+  private final AtomicLong clock = new AtomicLong(1_000_000);
+  private double cpu = 0.2;
+  private RealtimeWorkerAutoscaler autoscaler;
+
+  @BeforeEach
+  void setUp() {
+    given(eventBus.getRealtimeLaneCount()).willReturn(1);
+    // capacity 100, 2..8 workers, up at 50% depth or 200 ms wait, down below 5% / 20 ms for 30 s
+    autoscaler = new RealtimeWorkerAutoscaler(pool, eventBus, 100, 2, 8, 0.5, 200, 0.05, 20,
+        30_000, 0.9, () -> cpu, clock::get);
+  }
+
+  @Test
+  void doublesWorkersWhenQueueFillsUpToMax() {
+    given(pool.getWorkerCount()).willReturn(2);
+    given(eventBus.getRealtimeLaneSize(0)).willReturn(60);
+    given(pool.resize(4)).willReturn(4);
+
+    autoscaler.rebalance();
+    verify(pool).resize(4);
+
+    given(pool.getWorkerCount()).willReturn(6);
+    autoscaler.rebalance();
+    verify(pool).resize(8);
+  }
+
+  @Test
+  void scalesUpWhenOneLaneFillsWhileTheOthersAreEmpty() {
+    // 4 lanes of 25: one tenant's lane is 52% full, the queue as a whole only 13%.
+    given(eventBus.getRealtimeLaneCount()).willReturn(4);
+    given(eventBus.getRealtimeLaneSize(2)).willReturn(13);
+    given(pool.getWorkerCount()).willReturn(2);
+
+    autoscaler.rebalance();
+
+    verify(pool).resize(4);
+  }
+
+  @Test
+  void scalesUpOnQueueWaitEvenWithShallowQueue() {
+    given(pool.getWorkerCount()).willReturn(2);
+    given(eventBus.getRealtimeLaneSize(0)).willReturn(1);
+    given(pool.takeMaxQueueWaitMs()).willReturn(350L);
+
+    autoscaler.rebalance();
+
+    verify(pool).resize(4);
+  }
+
+  @Test
+  void doesNotScaleUpWhenCpuIsSaturated() {
+    cpu = 0.95;
+    given(pool.getWorkerCount()).willReturn(2);
+    given(eventBus.getRealtimeLaneSize(0)).willReturn(90);
+
+    autoscaler.rebalance();
+
+    verify(pool, never()).resize(anyInt());
+  }
+
+  @Test
+  void retiresOneWorkerPerQuietPeriodDownToMin() {
+    given(pool.getWorkerCount()).willReturn(4);
+    given(eventBus.getRealtimeLaneSize(0)).willReturn(0);
+
+    autoscaler.rebalance();
+    clock.addAndGet(29_000);
+    autoscaler.rebalance();
+    verify(pool, never()).resize(anyInt());
+
+    clock.addAndGet(1_000);
+    autoscaler.rebalance();
+    verify(pool).resize(3);
+
+    given(pool.getWorkerCount()).willReturn(2);
+    clock.addAndGet(60_000);
+    autoscaler.rebalance();
+    verify(pool, never()).resize(1);
+  }
+
+  @Test
+  void backlogResetsTheQuietPeriod() {
+    given(pool.getWorkerCount()).willReturn(4);
+    given(eventBus.getRealtimeLaneSize(0)).willReturn(0, 20, 0, 0);
+
+    autoscaler.rebalance();
+    clock.addAndGet(20_000);
+    autoscaler.rebalance();
+    clock.addAndGet(20_000);
+    autoscaler.rebalance();
+    clock.addAndGet(20_000);
+    autoscaler.rebalance();
+
+    verify(pool, never()).resize(anyInt());
+  }
+}
@@ -0,0 +1,150 @@
+package com.harness.pipeline.pipeline.realtime;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import com.harness.pipeline.enums.ConditionGroupOperator;
+import com.harness.pipeline.enums.RuleConditionField;
+import com.harness.pipeline.enums.RuleOperator;
+import com.harness.pipeline.enums.RuleType;
+import com.harness.pipeline.model.ApiEvent;
+import com.harness.pipeline.model.ConditionDto;
+import com.harness.pipeline.model.ConditionGroupDto;
+import com.harness.pipeline.model.RuleDto;
+import com.harness.pipeline.notification.NotificationService;
+import com.harness.pipeline.pipeline.queue.InMemoryEventBus;
+import com.harness.pipeline.ruleengine.cache.RuleSnapshot;
+import com.harness.pipeline.ruleengine.compiler.RuleCompiler;
+import com.harness.pipeline.service.RuleService;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Throughput and notification latency of the realtime worker pool with a few platform threads
+ * versus many virtual threads, when notification dispatch blocks. Not a unit test (surefire
+ * doesn't pick it up); run it manually after {@code mvn test-compile}, on a Java 21+ JVM:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *   com.harness.pipeline.pipeline.realtime.RealtimeWorkerPoolBenchmark \
+ *   [eventsPerSecond] [seconds] [fireEvery] [dispatchMicros] [virtualWorkers]
+ * </pre>
+ *
+ * Events are published at a fixed rate; one in {@code fireEvery} fires a rule whose
+ * notification blocks for {@code dispatchMicros}, like a webhook call. Latency is measured
+ * from publish to the start of dispatch. The bus has a single realtime lane, since the pool
+ * runs at most one worker per lane when there are several. On an older JVM the VIRTUAL run
+ * falls back to platform threads, so it only compares worker counts, and is labelled so.
+ */
+public final class RealtimeWorkerPoolBenchmark {
+
+  private RealtimeWorkerPoolBenchmark() {}
+
+  public static void main(String[] args) throws Exception {
+    int rate = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+    int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+    int fireEvery = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+    long dispatchNanos = TimeUnit.MICROSECONDS.toNanos(
+        args.length > 3 ? Long.parseLong(args[3]) : 500);
+    int virtualWorkers = args.length > 4 ? Integer.parseInt(args[4]) : 64;
+    int events = rate * seconds;
+    boolean virtual = Runtime.version().feature() >= 21;
+    if (!virtual) {
+      System.out.printf("Java %d has no virtual threads: both runs use platform threads%n",
+          Runtime.version().feature());
+    }
+
+    for (int round = 0; round < 2; round++) {
+      boolean warmup = round == 0;
+      run("platform x2", WorkerThreadMode.PLATFORM, 2, rate, events, fireEvery, dispatchNanos,
+          warmup);
+      run((virtual ? "virtual x" : "platform x") + virtualWorkers, WorkerThreadMode.VIRTUAL,
+          virtualWorkers, rate, events, fireEvery, dispatchNanos, warmup);
+    }
+  }
+
+  private static void run(String name, WorkerThreadMode mode, int workers, int rate, int events,
+                          int fireEvery, long dispatchNanos, boolean warmup) throws Exception {
+    int fires = events / fireEvery;
+    long[] latencies = new long[fires];
+    AtomicInteger notified = new AtomicInteger();
+    CountDownLatch done = new CountDownLatch(1);
+    NotificationService notifications = new NotificationService() {
+      @Override
+      public void notify(ApiEvent event, RuleDto rule) {
+        int i = notified.getAndIncrement();
+        if (i < latencies.length) {
+          latencies[i] = System.nanoTime() - Long.parseLong(event.eventId());
+        }
+        LockSupport.parkNanos(dispatchNanos);
+        if (i == latencies.length - 1) {
+          done.countDown();
+        }
+      }
+
+      @Override
+      public void notifyBatchThresholdBreached(RuleDto rule, long count) {
+      }
+    };
+
+    RuleService ruleService = mock(RuleService.class);
+    RuleSnapshot snapshot = new RuleSnapshot("tenant", 1L,
+        List.of(new RuleCompiler().compile(serverErrorRule())));
+    given(ruleService.getRealtimeSnapshot(anyString())).willReturn(snapshot);
+
+    // One lane, so the pool runs every worker; nothing drains the batch queue here, so size it
+    // so admission never rejects.
+    InMemoryEventBus bus = new InMemoryEventBus(events, events * 2);
+    RealtimeWorkerPool pool = new RealtimeWorkerPool(bus, ruleService, notifications, null,
+        workers, 256, mode);
+    pool.start();
+
+    long intervalNanos = 1_000_000_000L / rate;
+    long begin = System.nanoTime();
+    for (int i = 0; i < events; i++) {
+      long due = begin + i * intervalNanos;
+      long wait = due - System.nanoTime();
+      if (wait > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      int status = (i + 1) % fireEvery == 0 ? 500 : 200;
+      bus.publish(event("tenant-" + (i % 16), status));
+    }
+    boolean finished = done.await(5, TimeUnit.MINUTES);
+    long elapsed = System.nanoTime() - begin;
+    pool.stop();
+    if (warmup) {
+      return;
+    }
+    if (!finished) {
+      System.out.printf("%-16s did not finish%n", name);
+      return;
+    }
+    Arrays.sort(latencies);
+    System.out.printf("%-16s %,10.0f events/s  latency p50 %,8.2f ms  p99 %,8.2f ms  max %,8.2f ms%n",
+        name, events / (elapsed / 1e9),
+        latencies[fires / 2] / 1e6, latencies[(int) (fires * 0.99)] / 1e6,
+        latencies[fires - 1] / 1e6);
+  }
+
+  private static RuleDto serverErrorRule() {
+    return new RuleDto(UUID.randomUUID(), "tenant", "5xx", RuleType.REALTIME, true,
+        ConditionGroupOperator.AND,
+        List.of(new ConditionGroupDto(ConditionGroupOperator.AND, List.of(new ConditionDto(
+            RuleConditionField.RESPONSE_STATUS_CODE, RuleOperator.GREATER_THAN_OR_EQUAL, "500")))),
+        null, null, null, Instant.now(), Instant.now());
+  }
+
+  private static ApiEvent event(String tenantId, int status) {
+    return new ApiEvent(Long.toString(System.nanoTime()), tenantId, Instant.now(), Instant.now(),
+        null, new ApiEvent.HttpResponse(status, (status / 100) + "xx", 10L, null, null, null),
+        null);
+  }
+}
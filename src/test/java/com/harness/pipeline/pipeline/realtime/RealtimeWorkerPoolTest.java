@@ -0,0 +1,106 @@
+package com.harness.pipeline.pipeline.realtime;
+
+import com.harness.pipeline.enums.ConditionGroupOperator;
+import com.harness.pipeline.enums.RuleConditionField;
+import com.harness.pipeline.enums.RuleOperator;
+import com.harness.pipeline.enums.RuleType;
+import com.harness.pipeline.model.ApiEvent;
+import com.harness.pipeline.model.ConditionDto;
+import com.harness.pipeline.model.ConditionGroupDto;
+import com.harness.pipeline.model.RuleDto;
+import com.harness.pipeline.notification.NotificationService;
+import com.harness.pipeline.pipeline.queue.InMemoryEventBus;
+import com.harness.pipeline.ruleengine.cache.RuleSnapshot;
+import com.harness.pipeline.ruleengine.compiler.RuleCompiler;
+import com.harness.pipeline.service.RuleService;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class RealtimeWorkerPoolTest {
+
+  private final InMemoryEventBus bus = new InMemoryEventBus(1_000, 1_000, 1.0, 0.5, 4, null);
+  private final RuleService ruleService = mock(RuleService.class);
+  private final NotificationService notificationService = mock(NotificationService.class);
+  private final Map<String, List<String>> notifiedByTenant = new ConcurrentHashMap<>();
+  private RealtimeWorkerPool pool;
+
+  @AfterEach
+  void tearDown() {
+    pool.stop();
+  }
+
+  @Test
+  void runsAtMostOneWorkerPerLane() {
+    pool = newPool(2);
+    assertThat(pool.getWorkerCount()).isEqualTo(2);
+
+    assertThat(pool.resize(8)).isEqualTo(4);
+    assertThat(pool.getWorkerCount()).isEqualTo(4);
+    assertThat(pool.resize(1)).isEqualTo(1);
+  }
+
+  @Test
+  void keepsTenantOrderAcrossResizes() {
+    pool = newPool(3);
+    List<ApiEvent> published = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      ApiEvent event = event("tenant-" + (i % 10), "e" + i);
+      published.add(event);
+      bus.publish(event);
+      if (i == 100) {
+        pool.resize(4);
+      }
+    }
+
+    verify(notificationService, timeout(5_000).times(200)).notify(any(), any());
+    for (int t = 0; t < 10; t++) {
+      String tenant = "tenant-" + t;
+      List<String> expected = published.stream()
+          .filter(e -> e.tenantId().equals(tenant))
+          .map(ApiEvent::eventId)
+          .toList();
+      assertThat(notifiedByTenant.get(tenant)).containsExactlyElementsOf(expected);
+    }
+  }
+
+  private RealtimeWorkerPool newPool(int workers) {
+    RuleDto rule = new RuleDto(UUID.randomUUID(), "tenant", "any", RuleType.REALTIME, true,
+        ConditionGroupOperator.AND,
+        List.of(new ConditionGroupDto(ConditionGroupOperator.AND, List.of(new ConditionDto(
+            RuleConditionField.RESPONSE_STATUS_CODE, RuleOperator.GREATER_THAN_OR_EQUAL, "100")))),
+        null, null, null, Instant.now(), Instant.now());
+    given(ruleService.getRealtimeSnapshot(anyString())).willReturn(
+        new RuleSnapshot("tenant", 1L, List.of(new RuleCompiler().compile(rule))));
+    willAnswer(invocation -> {
+      ApiEvent event = invocation.getArgument(0);
+      notifiedByTenant.computeIfAbsent(event.tenantId(),
+          k -> Collections.synchronizedList(new ArrayList<>())).add(event.eventId());
+      return null;
+    }).given(notificationService).notify(any(), any());
+    RealtimeWorkerPool created = new RealtimeWorkerPool(bus, ruleService, notificationService,
+        null, workers, 16, WorkerThreadMode.PLATFORM);
+    created.start();
+    return created;
+  }
+
+  private static ApiEvent event(String tenantId, String id) {
+    return new ApiEvent(id, tenantId, Instant.now(), Instant.now(), null,
+        new ApiEvent.HttpResponse(200, "2xx", 10L, Map.of(), null, null), null);
+  }
+}
@@ -11,6 +11,8 @@ import com.harness.pipeline.model.NotificationConfigDto;
 import com.harness.pipeline.model.RuleDto;
 import com.harness.pipeline.notification.NotificationService;
 import com.harness.pipeline.pipeline.queue.InMemoryEventBus;
+import com.harness.pipeline.ruleengine.cache.RuleSnapshot;
+import com.harness.pipeline.ruleengine.compiler.RuleCompiler;
 import com.harness.pipeline.service.RuleService;
 import java.time.Instant;
 import java.util.List;
@@ -20,9 +22,11 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 
@@ -98,8 +102,8 @@ class RealtimeWorkerTest {
         Instant.now()
     );
 
-    given(ruleService.listRules(eq("tenant-1"), eq(RuleType.REALTIME), eq(true)))
-        .willReturn(List.of(rule));
+    given(ruleService.getRealtimeSnapshot(eq("tenant-1")))
+        .willReturn(new RuleSnapshot("tenant-1", 1L, List.of(new RuleCompiler().compile(rule))));
 
     bus.publish(event);
 
@@ -114,5 +118,55 @@ class RealtimeWorkerTest {
     worker.shutdown();
     thread.interrupt();
   }
-}
 
+  @Test
+  void microBatchResolvesRulesOncePerTenant() {
+    RuleService ruleService = mock(RuleService.class);
+    NotificationService notificationService = mock(NotificationService.class);
+    RealtimeWorker worker = new RealtimeWorker(
+        new InMemoryEventBus(10, 10), ruleService, notificationService);
+
+    RuleDto rule = new RuleDto(
+        UUID.randomUUID(),
+        "tenant-1",
+        "Any 5xx",
+        RuleType.REALTIME,
+        true,
+        ConditionGroupOperator.AND,
+        List.of(new ConditionGroupDto(ConditionGroupOperator.AND, List.of(new ConditionDto(
+            RuleConditionField.RESPONSE_STATUS_CODE, RuleOperator.GREATER_THAN_OR_EQUAL, "500")))),
+        null,
+        null,
+        null,
+        Instant.now(),
+        Instant.now()
+    );
+    given(ruleService.getRealtimeSnapshot(eq("tenant-1")))
+        .willReturn(new RuleSnapshot("tenant-1", 1L, List.of(new RuleCompiler().compile(rule))));
+    given(ruleService.getRealtimeSnapshot(eq("tenant-2")))
+        .willReturn(new RuleSnapshot("tenant-2", 2L, List.of()));
+
+    worker.processBatch(List.of(
+        statusEvent("tenant-1", 500),
+        statusEvent("tenant-2", 500),
+        statusEvent("tenant-1", 200),
+        statusEvent("tenant-1", 503)
+    ));
+
+    verify(ruleService, times(1)).getRealtimeSnapshot("tenant-1");
+    verify(ruleService, times(1)).getRealtimeSnapshot("tenant-2");
+    verify(notificationService, times(2)).notify(any(), eq(rule));
+  }
+
+  private ApiEvent statusEvent(String tenantId, int statusCode) {
+    return new ApiEvent(
+        UUID.randomUUID().toString(),
+        tenantId,
+        Instant.now(),
+        Instant.now(),
+        null,
+        new ApiEvent.HttpResponse(statusCode, (statusCode / 100) + "xx", 10L, Map.of(), null, null),
+        null
+    );
+  }
+}
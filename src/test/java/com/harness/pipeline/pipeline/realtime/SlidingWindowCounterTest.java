@@ -0,0 +1,46 @@
+package com.harness.pipeline.pipeline.realtime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class SlidingWindowCounterTest {
+
+  private static final long MINUTE = 60_000;
+
+  @Test
+  void countsEventsInsideTheWindowAndForgetsOlderOnes() {
+    SlidingWindowCounter counter = new SlidingWindowCounter(10 * MINUTE, 10);
+    long start = 1_000 * MINUTE;
+
+    assertThat(counter.add(start, start)).isEqualTo(1);
+    assertThat(counter.add(start + 5 * MINUTE, start + 5 * MINUTE)).isEqualTo(2);
+    assertThat(counter.count(start + 10 * MINUTE)).isEqualTo(2);
+
+    // The bucket holding the window start is counted in full until it leaves the ring.
+    assertThat(counter.count(start + 11 * MINUTE)).isEqualTo(1);
+    assertThat(counter.count(start + 16 * MINUTE)).isZero();
+  }
+
+  @Test
+  void reusedSlotStartsFromZero() {
+    SlidingWindowCounter counter = new SlidingWindowCounter(10 * MINUTE, 10);
+    long start = 1_000 * MINUTE;
+    counter.add(start, start);
+    counter.add(start, start);
+
+    // Eleven buckets later the same slot holds a new bucket.
+    long later = start + 11 * MINUTE;
+    assertThat(counter.add(later, later)).isEqualTo(1);
+  }
+
+  @Test
+  void ignoresEventsOlderThanTheWindowAndClampsFutureOnes() {
+    SlidingWindowCounter counter = new SlidingWindowCounter(10 * MINUTE, 10);
+    long now = 1_000 * MINUTE;
+
+    assertThat(counter.add(now - 30 * MINUTE, now)).isZero();
+    assertThat(counter.add(now + 5 * MINUTE, now)).isEqualTo(1);
+    assertThat(counter.count(now + 10 * MINUTE)).isEqualTo(1);
+  }
+}
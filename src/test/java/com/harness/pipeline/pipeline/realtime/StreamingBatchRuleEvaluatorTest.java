@@ -0,0 +1,120 @@
+package com.harness.pipeline.pipeline.realtime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import com.harness.pipeline.enums.ConditionGroupOperator;
+import com.harness.pipeline.enums.RuleConditionField;
+import com.harness.pipeline.enums.RuleOperator;
+import com.harness.pipeline.enums.RuleType;
+import com.harness.pipeline.model.ApiEvent;
+import com.harness.pipeline.model.ConditionDto;
+import com.harness.pipeline.model.ConditionGroupDto;
+import com.harness.pipeline.model.RuleDto;
+import com.harness.pipeline.notification.NotificationService;
+import com.harness.pipeline.pipeline.batch.BatchRuleQueryBuilder;
+import com.harness.pipeline.service.RuleChangedEvent;
+import com.harness.pipeline.service.RuleService;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class StreamingBatchRuleEvaluatorTest {
+
+  private static final long MINUTE = 60_000;
+
+  private final RuleService ruleService = mock(RuleService.class);
+  private final NotificationService notificationService = mock(NotificationService.class);
+  private final AtomicLong clock = new AtomicLong(1_000 * MINUTE);
+  private final StreamingBatchRuleEvaluator evaluator = new StreamingBatchRuleEvaluator(
+      ruleService, new BatchRuleQueryBuilder(), notificationService, true, 10, clock::get);
+
+  @Test
+  void notifiesOnceWhenThresholdIsReachedAndReArmsAfterTheWindowDrains() {
+    RuleDto rule = rule(UUID.randomUUID(), "5xx", 3);
+    given(ruleService.listRules("tenant-1", RuleType.BATCH, true)).willReturn(List.of(rule));
+
+    evaluator.onEvents("tenant-1", List.of(event("5xx"), event("2xx"), event("5xx")));
+    verify(notificationService, never()).notifyBatchThresholdBreached(eq(rule), anyLong());
+
+    evaluator.onEvents("tenant-1", List.of(event("5xx"), event("5xx")));
+    verify(notificationService).notifyBatchThresholdBreached(rule, 3);
+
+    clock.addAndGet(30 * MINUTE);
+    evaluator.onEvents("tenant-1", List.of(event("5xx"), event("5xx"), event("5xx")));
+    verify(notificationService, times(2)).notifyBatchThresholdBreached(rule, 3);
+    verify(ruleService, times(1)).listRules("tenant-1", RuleType.BATCH, true);
+  }
+
+  @Test
+  void breachStaysReportedUntilTheWindowDrainsBelowTheThreshold() {
+    RuleDto rule = rule(UUID.randomUUID(), "5xx", 2);
+    given(ruleService.listRules("tenant-1", RuleType.BATCH, true)).willReturn(List.of(rule));
+
+    assertThat(evaluator.isReported(rule)).isFalse();
+    evaluator.onEvents("tenant-1", List.of(event("5xx")));
+    assertThat(evaluator.isReported(rule)).isFalse();
+
+    evaluator.onEvents("tenant-1", List.of(event("5xx")));
+    assertThat(evaluator.isReported(rule)).isTrue();
+    clock.addAndGet(5 * MINUTE);
+    assertThat(evaluator.isReported(rule)).isTrue();
+
+    clock.addAndGet(30 * MINUTE);
+    assertThat(evaluator.isReported(rule)).isFalse();
+  }
+
+  @Test
+  void changedRuleStartsCountingAfreshWithoutReloadingTheTenant() {
+    UUID id = UUID.randomUUID();
+    RuleDto rule = rule(id, "5xx", 2);
+    given(ruleService.listRules("tenant-1", RuleType.BATCH, true)).willReturn(List.of(rule));
+    evaluator.onEvents("tenant-1", List.of(event("5xx")));
+
+    RuleDto edited = rule(id, "4xx", 2);
+    evaluator.onRuleChanged(new RuleChangedEvent("tenant-1", id, edited));
+    evaluator.onEvents("tenant-1", List.of(event("5xx"), event("4xx")));
+    verify(notificationService, never()).notifyBatchThresholdBreached(any(), anyLong());
+
+    evaluator.onEvents("tenant-1", List.of(event("4xx")));
+    verify(notificationService).notifyBatchThresholdBreached(edited, 2);
+
+    evaluator.onRuleChanged(new RuleChangedEvent("tenant-1", id, null));
+    evaluator.onEvents("tenant-1", List.of(event("4xx"), event("4xx")));
+    verify(notificationService, times(1)).notifyBatchThresholdBreached(any(), anyLong());
+    verify(ruleService, times(1)).listRules("tenant-1", RuleType.BATCH, true);
+  }
+
+  @Test
+  void disabledEvaluatorDoesNothing() {
+    StreamingBatchRuleEvaluator disabled = new StreamingBatchRuleEvaluator(
+        ruleService, new BatchRuleQueryBuilder(), notificationService, false, 10, clock::get);
+
+    disabled.onEvents("tenant-1", List.of(event("5xx")));
+
+    verifyNoInteractions(ruleService, notificationService);
+  }
+
+  private RuleDto rule(UUID id, String statusClass, long threshold) {
+    return new RuleDto(id, "tenant-1", "rule", RuleType.BATCH, true, ConditionGroupOperator.AND,
+        List.of(new ConditionGroupDto(ConditionGroupOperator.AND, List.of(
+            new ConditionDto(RuleConditionField.RESPONSE_STATUS_CLASS, RuleOperator.EQUALS, statusClass)))),
+        null, 10, threshold, Instant.now(), Instant.now());
+  }
+
+  private ApiEvent event(String statusClass) {
+    Instant receivedAt = Instant.ofEpochMilli(clock.get());
+    return new ApiEvent(UUID.randomUUID().toString(), "tenant-1", receivedAt, receivedAt, null,
+        new ApiEvent.HttpResponse(500, statusClass, 10L, null, null, null), null);
+  }
+}
@@ -0,0 +1,54 @@
+package com.harness.pipeline.ruleengine;
+
+import com.harness.pipeline.ruleengine.evaluator.PatternCache;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PatternCacheTest {
+
+  @Test
+  void compilesOnceAndServesHitsAfterwards() {
+    PatternCache cache = new PatternCache(10);
+
+    Optional<Pattern> first = cache.get(".*payments.*");
+    Optional<Pattern> second = cache.get(".*payments.*");
+
+    assertThat(first).isPresent();
+    assertThat(second.get()).isSameAs(first.get());
+    assertThat(first.get().matcher("/API/PAYMENTS").find()).isTrue();
+    assertThat(cache.missCount()).isEqualTo(1);
+    assertThat(cache.hitCount()).isEqualTo(1);
+  }
+
+  @Test
+  void invalidPatternsAreCachedAsNegativeEntries() {
+    PatternCache cache = new PatternCache(10);
+
+    assertThat(cache.get("*[")).isEmpty();
+    assertThat(cache.get("*[")).isEmpty();
+
+    assertThat(cache.missCount()).isEqualTo(1);
+    assertThat(cache.hitCount()).isEqualTo(1);
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test
+  void evictsOldestEntriesBeyondMaxSize() {
+    PatternCache cache = new PatternCache(2);
+
+    cache.get("a");
+    cache.get("b");
+    cache.get("c");
+
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.evictionCount()).isEqualTo(1);
+
+    cache.get("a");
+    assertThat(cache.missCount()).isEqualTo(4);
+    cache.get("c");
+    assertThat(cache.hitCount()).isEqualTo(1);
+  }
+}
@@ -0,0 +1,165 @@
+package com.harness.pipeline.ruleengine;
+
+import com.harness.pipeline.enums.ConditionGroupOperator;
+import com.harness.pipeline.enums.RuleConditionField;
+import com.harness.pipeline.enums.RuleOperator;
+import com.harness.pipeline.enums.RuleType;
+import com.harness.pipeline.model.ApiEvent;
+import com.harness.pipeline.model.ConditionDto;
+import com.harness.pipeline.model.ConditionGroupDto;
+import com.harness.pipeline.model.RuleDto;
+import com.harness.pipeline.ruleengine.compiler.CompiledRule;
+import com.harness.pipeline.ruleengine.compiler.RuleCompiler;
+import com.harness.pipeline.ruleengine.evaluator.ConditionEvaluator;
+import com.harness.pipeline.ruleengine.evaluator.EventFieldExtractor;
+import com.harness.pipeline.ruleengine.evaluator.RealtimeRuleEvaluator;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RuleCompilerTest {
+
+  private final RuleCompiler compiler = new RuleCompiler();
+  private final EventFieldExtractor extractor = new EventFieldExtractor();
+  private final ConditionEvaluator interpreter = new ConditionEvaluator();
+
+  @Test
+  void compiledConditionsMatchInterpreterForEveryFieldAndOperator() {
+    List<ApiEvent> events = List.of(
+        event("GET", "/api/payments", 500, 4000L, "prod", Map.of("X-Env", "Blue")),
+        event("post", "/API/Users", 201, 15L, "staging", Map.of()),
+        event(null, null, null, null, null, null)
+    );
+    List<String> values = List.of(
+        "500", "4xx", "5XX", "/api", "PAYMENTS", "get", "prod", "15", "abc", "", "x-env", "^/api/.*s$", "*[");
+
+    for (RuleConditionField field : RuleConditionField.values()) {
+      for (RuleOperator op : RuleOperator.values()) {
+        for (String value : values) {
+          ConditionDto condition = new ConditionDto(field, op, value);
+          for (ApiEvent event : events) {
+            boolean expected = interpreter.evaluate(condition, extractor.extract(event, condition));
+            boolean actual = compiler.compileCondition(condition).test(event);
+            assertThat(actual)
+                .as("%s %s '%s' on %s", field, op, value, event.eventId())
+                .isEqualTo(expected);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void compiledRulesMatchInterpreterForGroupOperators() {
+    RealtimeRuleEvaluator evaluator = new RealtimeRuleEvaluator(extractor, interpreter);
+    ApiEvent event = event("GET", "/api/payments", 500, 4000L, "prod", Map.of());
+
+    ConditionGroupDto matching = new ConditionGroupDto(ConditionGroupOperator.AND, List.of(
+        new ConditionDto(RuleConditionField.RESPONSE_STATUS_CODE, RuleOperator.GREATER_THAN_OR_EQUAL, "500"),
+        new ConditionDto(RuleConditionField.METADATA_ENVIRONMENT, RuleOperator.EQUALS, "PROD")));
+    ConditionGroupDto failing = new ConditionGroupDto(ConditionGroupOperator.OR, List.of(
+        new ConditionDto(RuleConditionField.REQUEST_METHOD, RuleOperator.EQUALS, "POST"),
+        new ConditionDto(RuleConditionField.RESPONSE_TIME_MS, RuleOperator.LESS_THAN, "100")));
+    ConditionGroupDto empty = new ConditionGroupDto(ConditionGroupOperator.AND, List.of());
+
+    List<RuleDto> rules = List.of(
+        rule(ConditionGroupOperator.AND, List.of(matching)),
+        rule(ConditionGroupOperator.AND, List.of(matching, failing)),
+        rule(ConditionGroupOperator.OR, List.of(failing, matching)),
+        rule(ConditionGroupOperator.OR, List.of(failing, empty)),
+        rule(ConditionGroupOperator.AND, List.of())
+    );
+
+    List<CompiledRule> compiled = compiler.compileAll(rules);
+
+    assertThat(evaluator.evaluateCompiled(event, compiled))
+        .containsExactlyElementsOf(evaluator.evaluate(event, rules))
+        .containsExactly(rules.get(0), rules.get(2));
+  }
+
+  @Test
+  void numericComparisonsOnNumberLikeTextMatchInterpreter() {
+    List<String> actuals = List.of(" 12", "+5", "-.5", "1e3", "NaN", "-Infinity", "0x1p3", "12d",
+        "/12", "abc", "N/A", "Inf", "-", "", "  ");
+    List<RuleOperator> operators = List.of(RuleOperator.GREATER_THAN,
+        RuleOperator.GREATER_THAN_OR_EQUAL, RuleOperator.LESS_THAN, RuleOperator.LESS_THAN_OR_EQUAL);
+    for (String actual : actuals) {
+      ApiEvent event = event("GET", actual, 200, 10L, "prod", Map.of());
+      for (RuleOperator op : operators) {
+        for (String expected : List.of("10", "-1", "abc")) {
+          ConditionDto condition = new ConditionDto(RuleConditionField.REQUEST_PATH, op, expected);
+          assertThat(compiler.compileCondition(condition).test(event))
+              .as("'%s' %s '%s'", actual, op, expected)
+              .isEqualTo(interpreter.evaluate(condition, actual));
+        }
+      }
+    }
+  }
+
+  @Test
+  void rulesCompiledTogetherShareOnePatternScanWithTheSameResults() {
+    List<String> patterns = List.of(
+        "", "/api", "/API/v1", "/api/v1/payments", "pay", "PAYMENTS", "ments/", "ay", "y",
+        "/users", "s", "/v2/", "abcd", "bc", "c", "bcx", "ers");
+    List<RuleOperator> operators = List.of(RuleOperator.CONTAINS, RuleOperator.NOT_CONTAINS,
+        RuleOperator.STARTS_WITH, RuleOperator.ENDS_WITH);
+    List<RuleDto> rules = new ArrayList<>();
+    for (String pattern : patterns) {
+      for (RuleOperator op : operators) {
+        rules.add(rule(ConditionGroupOperator.AND, List.of(new ConditionGroupDto(
+            ConditionGroupOperator.AND,
+            List.of(new ConditionDto(RuleConditionField.REQUEST_PATH, op, pattern))))));
+      }
+    }
+    List<CompiledRule> shared = compiler.compileAll(rules);
+
+    List<String> paths = List.of("/api/v1/payments/", "/API/V1/PAYMENTS", "/Users", "/abcdbcx",
+        "/v2/bc", "", "x", "/api/v1/pay");
+    for (String path : paths) {
+      ApiEvent event = event("GET", path, 200, 10L, "prod", Map.of());
+      for (int i = 0; i < rules.size(); i++) {
+        assertThat(shared.get(i).matches(event))
+            .as("%s on '%s'", rules.get(i).conditionGroups(), path)
+            .isEqualTo(compiler.compile(rules.get(i)).matches(event));
+      }
+    }
+    ApiEvent noPath = event("GET", null, 200, 10L, "prod", Map.of());
+    assertThat(shared).noneMatch(compiled -> compiled.matches(noPath));
+  }
+
+  private RuleDto rule(ConditionGroupOperator op, List<ConditionGroupDto> groups) {
+    return new RuleDto(
+        UUID.randomUUID(),
+        "tenant-1",
+        "rule",
+        RuleType.REALTIME,
+        true,
+        op,
+        groups,
+        null,
+        null,
+        null,
+        Instant.now(),
+        Instant.now()
+    );
+  }
+
+  private ApiEvent event(String method, String path, Integer status, Long responseTimeMs,
+                         String env, Map<String, String> headers) {
+    return new ApiEvent(
+        UUID.randomUUID().toString(),
+        "tenant-1",
+        Instant.now(),
+        Instant.now(),
+        new ApiEvent.HttpRequest(method, "api.example.com", path, "page=1", headers, null, null),
+        new ApiEvent.HttpResponse(status, status != null ? (status / 100) + "xx" : null,
+            responseTimeMs, headers, null, null),
+        new ApiEvent.ServiceMetadata("svc-1", "svc", env, "us-east-1", null, null, headers)
+    );
+  }
+}
@@ -0,0 +1,150 @@
+package com.harness.pipeline.ruleengine;
+
+import com.harness.pipeline.enums.ConditionGroupOperator;
+import com.harness.pipeline.enums.RuleConditionField;
+import com.harness.pipeline.enums.RuleOperator;
+import com.harness.pipeline.enums.RuleType;
+import com.harness.pipeline.model.ApiEvent;
+import com.harness.pipeline.model.ConditionDto;
+import com.harness.pipeline.model.ConditionGroupDto;
+import com.harness.pipeline.model.RuleDto;
+import com.harness.pipeline.ruleengine.compiler.CompiledRule;
+import com.harness.pipeline.ruleengine.compiler.RuleCompiler;
+import com.harness.pipeline.ruleengine.compiler.RuleIndex;
+import com.harness.pipeline.ruleengine.evaluator.ConditionEvaluator;
+import com.harness.pipeline.ruleengine.evaluator.EventFieldExtractor;
+import com.harness.pipeline.ruleengine.evaluator.RealtimeRuleEvaluator;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RuleIndexTest {
+
+  private static final List<String> METHODS = List.of("GET", "post", "Put");
+  private static final List<String> ENVIRONMENTS = List.of("prod", "STAGING", "dev");
+  private static final List<String> STATUS_CLASSES = List.of("2xx", "4XX", "5xx");
+
+  private final RuleCompiler compiler = new RuleCompiler();
+  private final RealtimeRuleEvaluator evaluator =
+      new RealtimeRuleEvaluator(new EventFieldExtractor(), new ConditionEvaluator());
+
+  @Test
+  void indexedEvaluationFiresExactlyTheRulesALinearScanFires() {
+    Random random = new Random(17);
+    List<RuleDto> rules = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      rules.add(randomRule(random));
+    }
+    List<CompiledRule> compiled = compiler.compileAll(rules);
+    RuleIndex index = new RuleIndex(compiled);
+
+    for (int i = 0; i < 500; i++) {
+      ApiEvent event = randomEvent(random);
+      assertThat(evaluator.evaluateIndexed(event, index))
+          .as("event %d", i)
+          .containsExactlyElementsOf(evaluator.evaluateCompiled(event, compiled));
+    }
+  }
+
+  @Test
+  void onlyRulesPinnedToTheEventsValuesAreEvaluated() {
+    List<RuleDto> rules = new ArrayList<>();
+    for (String statusClass : STATUS_CLASSES) {
+      for (String env : ENVIRONMENTS) {
+        for (String method : METHODS) {
+          rules.add(rule(ConditionGroupOperator.AND, List.of(group(ConditionGroupOperator.AND,
+              equalsCondition(RuleConditionField.RESPONSE_STATUS_CLASS, statusClass),
+              equalsCondition(RuleConditionField.METADATA_ENVIRONMENT, env),
+              equalsCondition(RuleConditionField.REQUEST_METHOD, method)))));
+        }
+      }
+    }
+    // Either group can fire on its own, so neither condition is mandatory.
+    RuleDto unpinned = rule(ConditionGroupOperator.OR, List.of(
+        group(ConditionGroupOperator.AND, equalsCondition(RuleConditionField.REQUEST_METHOD, "GET")),
+        group(ConditionGroupOperator.AND, equalsCondition(RuleConditionField.METADATA_ENVIRONMENT, "prod"))));
+    rules.add(unpinned);
+    RuleIndex index = new RuleIndex(compiler.compileAll(rules));
+
+    ApiEvent event = event("get", "PROD", "5XX");
+
+    assertThat(index.candidateCount(event)).isEqualTo(METHODS.size() * ENVIRONMENTS.size() + 1);
+    assertThat(index.matching(event)).containsExactly(rules.get(18), unpinned);
+  }
+
+  private RuleDto randomRule(Random random) {
+    int groupCount = 1 + random.nextInt(2);
+    List<ConditionGroupDto> groups = new ArrayList<>();
+    for (int g = 0; g < groupCount; g++) {
+      int conditionCount = 1 + random.nextInt(3);
+      List<ConditionDto> conditions = new ArrayList<>();
+      for (int c = 0; c < conditionCount; c++) {
+        conditions.add(randomCondition(random));
+      }
+      groups.add(new ConditionGroupDto(randomOperator(random), conditions));
+    }
+    return rule(randomOperator(random), groups);
+  }
+
+  private ConditionDto randomCondition(Random random) {
+    return switch (random.nextInt(5)) {
+      case 0 -> equalsCondition(RuleConditionField.REQUEST_METHOD, pick(random, METHODS).toUpperCase());
+      case 1 -> equalsCondition(RuleConditionField.METADATA_ENVIRONMENT, pick(random, ENVIRONMENTS));
+      case 2 -> equalsCondition(RuleConditionField.RESPONSE_STATUS_CLASS, pick(random, STATUS_CLASSES));
+      case 3 -> new ConditionDto(RuleConditionField.METADATA_ENVIRONMENT, RuleOperator.NOT_EQUALS,
+          pick(random, ENVIRONMENTS));
+      default -> new ConditionDto(RuleConditionField.RESPONSE_TIME_MS, RuleOperator.GREATER_THAN,
+          Integer.toString(random.nextInt(1000)));
+    };
+  }
+
+  private ConditionGroupOperator randomOperator(Random random) {
+    return random.nextBoolean() ? ConditionGroupOperator.AND : ConditionGroupOperator.OR;
+  }
+
+  private ApiEvent randomEvent(Random random) {
+    return event(
+        random.nextInt(10) == 0 ? null : pick(random, METHODS).toLowerCase(),
+        random.nextInt(10) == 0 ? null : pick(random, ENVIRONMENTS).toUpperCase(),
+        pick(random, STATUS_CLASSES),
+        (long) random.nextInt(1000));
+  }
+
+  private static String pick(Random random, List<String> values) {
+    return values.get(random.nextInt(values.size()));
+  }
+
+  private static ConditionDto equalsCondition(RuleConditionField field, String value) {
+    return new ConditionDto(field, RuleOperator.EQUALS, value);
+  }
+
+  private static ConditionGroupDto group(ConditionGroupOperator op, ConditionDto... conditions) {
+    return new ConditionGroupDto(op, List.of(conditions));
+  }
+
+  private RuleDto rule(ConditionGroupOperator op, List<ConditionGroupDto> groups) {
+    return new RuleDto(UUID.randomUUID(), "tenant-1", "rule", RuleType.REALTIME, true, op, groups,
+        null, null, null, Instant.now(), Instant.now());
+  }
+
+  private ApiEvent event(String method, String env, String statusClass) {
+    return event(method, env, statusClass, 100L);
+  }
+
+  private ApiEvent event(String method, String env, String statusClass, Long responseTimeMs) {
+    return new ApiEvent(
+        UUID.randomUUID().toString(),
+        "tenant-1",
+        Instant.now(),
+        Instant.now(),
+        new ApiEvent.HttpRequest(method, "api.example.com", "/api", null, null, null, null),
+        new ApiEvent.HttpResponse(500, statusClass, responseTimeMs, null, null, null),
+        new ApiEvent.ServiceMetadata("svc-1", "svc", env, "us-east-1", null, null, null)
+    );
+  }
+}
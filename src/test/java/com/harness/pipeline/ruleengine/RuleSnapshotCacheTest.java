@@ -0,0 +1,84 @@
+package com.harness.pipeline.ruleengine;
+
+import com.harness.pipeline.enums.ConditionGroupOperator;
+import com.harness.pipeline.enums.RuleType;
+import com.harness.pipeline.model.RuleDto;
+import com.harness.pipeline.ruleengine.cache.RuleSnapshot;
+import com.harness.pipeline.ruleengine.cache.RuleSnapshotCache;
+import com.harness.pipeline.ruleengine.compiler.CompiledRule;
+import com.harness.pipeline.ruleengine.compiler.EventPredicate;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RuleSnapshotCacheTest {
+
+  @Test
+  void loadsOncePerTenantUntilInvalidated() {
+    AtomicInteger loads = new AtomicInteger();
+    RuleSnapshotCache cache = new RuleSnapshotCache(tenantId -> {
+      loads.incrementAndGet();
+      return List.of(rule(tenantId, "r" + loads.get()));
+    });
+
+    RuleSnapshot first = cache.get("tenant-1");
+    RuleSnapshot second = cache.get("tenant-1");
+
+    assertThat(second).isSameAs(first);
+    assertThat(loads.get()).isEqualTo(1);
+
+    cache.get("tenant-2");
+    assertThat(loads.get()).isEqualTo(2);
+
+    cache.invalidate("tenant-1");
+    RuleSnapshot reloaded = cache.get("tenant-1");
+
+    assertThat(loads.get()).isEqualTo(3);
+    assertThat(reloaded.version()).isGreaterThan(first.version());
+    assertThat(reloaded.rules()).extracting(r -> r.rule().name()).containsExactly("r3");
+  }
+
+  @Test
+  void loadStartedBeforeInvalidationIsNotInstalled() {
+    AtomicReference<RuleSnapshotCache> cacheRef = new AtomicReference<>();
+    AtomicInteger loads = new AtomicInteger();
+    RuleSnapshotCache cache = new RuleSnapshotCache(tenantId -> {
+      if (loads.incrementAndGet() == 1) {
+        // A rule change commits while this (now stale) load is in flight.
+        cacheRef.get().invalidate(tenantId);
+        return List.of(rule(tenantId, "stale"));
+      }
+      return List.of(rule(tenantId, "fresh"));
+    });
+    cacheRef.set(cache);
+
+    RuleSnapshot stale = cache.get("tenant-1");
+    RuleSnapshot next = cache.get("tenant-1");
+
+    assertThat(stale.rules()).extracting(r -> r.rule().name()).containsExactly("stale");
+    assertThat(next.rules()).extracting(r -> r.rule().name()).containsExactly("fresh");
+    assertThat(cache.get("tenant-1")).isSameAs(next);
+  }
+
+  private CompiledRule rule(String tenantId, String name) {
+    return new CompiledRule(new RuleDto(
+        UUID.randomUUID(),
+        tenantId,
+        name,
+        RuleType.REALTIME,
+        true,
+        ConditionGroupOperator.AND,
+        List.of(),
+        null,
+        null,
+        null,
+        Instant.now(),
+        Instant.now()
+    ), EventPredicate.ALWAYS_FALSE);
+  }
+}
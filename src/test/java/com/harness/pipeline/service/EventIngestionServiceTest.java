@@ -0,0 +1,202 @@
+package com.harness.pipeline.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.harness.pipeline.model.ApiEvent;
+import com.harness.pipeline.model.ApiEventRequest;
+import com.harness.pipeline.model.BatchIngestionResult;
+import com.harness.pipeline.pipeline.queue.InMemoryEventBus;
+import com.harness.pipeline.pipeline.queue.PublishResult;
+import jakarta.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventIngestionServiceTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+  @Test
+  void batchReportsInvalidItemsAndPublishesTheRest() {
+    InMemoryEventBus bus = new InMemoryEventBus(10, 10);
+    EventIngestionService service = newService(bus, 10);
+
+    BatchIngestionResult result = service.ingestBatch("tenant-1", List.of(
+        request("GET"),
+        request(""),
+        request("POST")
+    ));
+
+    assertThat(result.accepted()).isEqualTo(2);
+    assertThat(result.invalid()).isEqualTo(1);
+    assertThat(result.items()).extracting(BatchIngestionResult.Item::index)
+        .containsExactly(0, 1, 2);
+    assertThat(result.items().get(0).eventId()).isNotNull();
+    assertThat(result.items().get(1).eventId()).isNull();
+    assertThat(result.items().get(1).errors()).containsExactly("request.method: must not be blank");
+    assertThat(bus.getBatchQueueSize()).isEqualTo(2);
+  }
+
+  @Test
+  void ndjsonSkipsBlankLinesAndStopsAtMalformedJson() throws Exception {
+    InMemoryEventBus bus = new InMemoryEventBus(10, 10);
+    EventIngestionService service = newService(bus, 10);
+
+    String body = objectMapper.writeValueAsString(request("GET")) + "\n"
+        + "\n"
+        + "{not json\n"
+        + objectMapper.writeValueAsString(request("DELETE")) + "\n";
+
+    BatchIngestionResult result = service.ingestNdjson("tenant-1", stream(body));
+
+    assertThat(result.accepted()).isEqualTo(1);
+    assertThat(result.invalid()).isEqualTo(1);
+    assertThat(result.items()).hasSize(2);
+    assertThat(result.items().get(1).errors()).singleElement()
+        .asString().startsWith("malformed JSON");
+    assertThat(bus.takeBatch().request().method()).isEqualTo("GET");
+    assertThat(bus.getBatchQueueSize()).isZero();
+  }
+
+  @Test
+  void ndjsonPublishesInChunksAndReportsPerItemErrors() throws Exception {
+    InMemoryEventBus bus = new InMemoryEventBus(10, 10);
+    EventIngestionService service = newService(bus, 10, 2);
+
+    StringBuilder body = new StringBuilder();
+    for (String method : List.of("GET", "", "POST", "PUT")) {
+      body.append(objectMapper.writeValueAsString(request(method))).append('\n');
+    }
+
+    BatchIngestionResult result = service.ingestNdjson("tenant-1", stream(body.toString()));
+
+    assertThat(result.accepted()).isEqualTo(3);
+    assertThat(result.invalid()).isEqualTo(1);
+    assertThat(result.items()).extracting(BatchIngestionResult.Item::index)
+        .containsExactly(0, 1, 2, 3);
+    assertThat(result.items().get(1).errors()).containsExactly("request.method: must not be blank");
+    List<ApiEvent> published = new ArrayList<>();
+    bus.drainBatch(10, published);
+    assertThat(published).extracting(ApiEvent::eventId).containsExactly(
+        result.items().get(0).eventId(),
+        result.items().get(2).eventId(),
+        result.items().get(3).eventId());
+  }
+
+  @Test
+  void ndjsonStopsReadingPastTheLimit() throws Exception {
+    InMemoryEventBus bus = new InMemoryEventBus(10, 10);
+    EventIngestionService service = newService(bus, 2, 256);
+
+    StringBuilder body = new StringBuilder();
+    for (int i = 0; i < 4; i++) {
+      body.append(objectMapper.writeValueAsString(request("GET"))).append('\n');
+    }
+
+    BatchIngestionResult result = service.ingestNdjson("tenant-1", stream(body.toString()));
+
+    assertThat(result.accepted()).isEqualTo(2);
+    assertThat(result.items()).hasSize(3);
+    assertThat(result.items().get(2).errors()).singleElement()
+        .asString().startsWith("batch exceeds the maximum of 2 events");
+  }
+
+  @Test
+  void ndjsonMarksItemsRejectedOnceBusPushesBack() throws Exception {
+    InMemoryEventBus bus = new InMemoryEventBus(10, 2);
+    EventIngestionService service = newService(bus, 10, 2);
+
+    StringBuilder body = new StringBuilder();
+    for (int i = 0; i < 4; i++) {
+      body.append(objectMapper.writeValueAsString(request("GET"))).append('\n');
+    }
+
+    BatchIngestionResult result = service.ingestNdjson("tenant-1", stream(body.toString()));
+
+    assertThat(result.accepted()).isEqualTo(2);
+    assertThat(result.rejected()).isEqualTo(2);
+    assertThat(result.items().get(3).errors()).containsExactly("ingestion is throttled, retry later");
+  }
+
+  @Test
+  void batchLargerThanLimitIsRefused() {
+    EventIngestionService service = newService(new InMemoryEventBus(10, 10), 2);
+    List<ApiEventRequest> requests = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      requests.add(request("GET"));
+    }
+
+    assertThatThrownBy(() -> service.ingestBatch("tenant-1", requests))
+        .isInstanceOf(BatchTooLargeException.class);
+  }
+
+  @Test
+  void batchIsRejectedWhenBusCannotTakeAllOfIt() {
+    EventIngestionService service = newService(new InMemoryEventBus(10, 1), 10);
+
+    assertThatThrownBy(() -> service.ingestBatch("tenant-1", List.of(request("GET"), request("GET"))))
+        .isInstanceOf(IngestionRejectedException.class);
+  }
+
+  @Test
+  void batchReportsEventsRefusedAfterOthersWereQueued() {
+    InMemoryEventBus bus = new InMemoryEventBus(10, 10) {
+      @Override
+      public List<PublishResult> publishAll(List<ApiEvent> events) {
+        // As if a concurrent publisher took the last slot after admission.
+        List<PublishResult> results = new ArrayList<>(super.publishAll(events.subList(0, 1)));
+        results.add(PublishResult.REJECTED);
+        return results;
+      }
+    };
+    EventIngestionService service = newService(bus, 10);
+
+    BatchIngestionResult result = service.ingestBatch("tenant-1", List.of(
+        request(""),
+        request("GET"),
+        request("POST")
+    ));
+
+    assertThat(result.accepted()).isEqualTo(1);
+    assertThat(result.invalid()).isEqualTo(1);
+    assertThat(result.rejected()).isEqualTo(1);
+    assertThat(result.items().get(1).eventId()).isNotNull();
+    assertThat(result.items().get(2).errors()).containsExactly("ingestion is throttled, retry later");
+    assertThat(bus.getBatchQueueSize()).isEqualTo(1);
+  }
+
+  private EventIngestionService newService(InMemoryEventBus bus, int maxBatchSize) {
+    return newService(bus, maxBatchSize, 256);
+  }
+
+  private EventIngestionService newService(
+      InMemoryEventBus bus, int maxBatchSize, int publishChunkSize) {
+    return new EventIngestionService(
+        bus,
+        Validation.buildDefaultValidatorFactory().getValidator(),
+        objectMapper,
+        maxBatchSize,
+        publishChunkSize
+    );
+  }
+
+  private InputStream stream(String body) {
+    return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private ApiEventRequest request(String method) {
+    return new ApiEventRequest(
+        Instant.parse("2026-02-26T12:00:00Z"),
+        new ApiEventRequest.HttpRequest(method, "api.example.com", "/api/users", null, Map.of(), null, null),
+        new ApiEventRequest.HttpResponse(200, 15L, Map.of(), null, null),
+        null
+    );
+  }
+}
@@ -0,0 +1,96 @@
+package com.harness.pipeline.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.harness.pipeline.model.ApiEvent;
+import java.time.Instant;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NdjsonEventReaderTest {
+
+  private final JsonFactory jsonFactory = new JsonFactory();
+
+  @Test
+  void buildsEventDirectlyFromTokens() throws Exception {
+    String body = """
+        {"timestamp": "2026-02-26T12:00:00Z", "ignored": {"nested": [1, 2]},
+         "request": {"method": "POST", "host": "api.example.com", "path": "/api/payments",
+                     "headers": {"Content-Type": "application/json"}, "sizeBytes": 20},
+         "response": {"statusCode": 503, "responseTimeMs": "120"},
+         "metadata": {"serviceId": "svc-1", "environment": "prod", "tags": {"team": "payments"}}}
+        """;
+
+    try (NdjsonEventReader reader = reader(body)) {
+      NdjsonEventReader.Item item = reader.next();
+
+      assertThat(item.errors()).isEmpty();
+      ApiEvent event = item.event();
+      assertThat(event.eventId()).isNotBlank();
+      assertThat(event.tenantId()).isEqualTo("tenant-1");
+      assertThat(event.timestamp()).isEqualTo(Instant.parse("2026-02-26T12:00:00Z"));
+      assertThat(event.request().method()).isEqualTo("POST");
+      assertThat(event.request().headers()).isEqualTo(Map.of("Content-Type", "application/json"));
+      assertThat(event.request().sizeBytes()).isEqualTo(20L);
+      assertThat(event.response().statusCode()).isEqualTo(503);
+      assertThat(event.response().statusClass()).isEqualTo("5xx");
+      assertThat(event.response().responseTimeMs()).isEqualTo(120L);
+      assertThat(event.metadata().tags()).containsEntry("team", "payments");
+      assertThat(reader.next()).isNull();
+    }
+  }
+
+  @Test
+  void reportsValidationAndTypeErrorsPerEvent() throws Exception {
+    String body = """
+        {"request": {"method": " ", "host": "h", "path": "/a"}, "response": {"statusCode": "abc"}}
+        {"timestamp": 1772107200.5, "request": {"method": "GET", "host": "h", "path": "/b"}}
+        [1, 2]
+        """;
+
+    try (NdjsonEventReader reader = reader(body)) {
+      assertThat(reader.next().errors()).containsExactly(
+          "request.method: must not be blank",
+          "response.responseTimeMs: must not be null",
+          "response.statusCode: must be a number",
+          "timestamp: must not be null");
+
+      NdjsonEventReader.Item second = reader.next();
+      assertThat(second.errors()).isEmpty();
+      assertThat(second.event().timestamp()).isEqualTo(Instant.ofEpochSecond(1772107200L, 500_000_000));
+
+      assertThat(reader.next().errors()).containsExactly("event must be a JSON object");
+      assertThat(reader.next()).isNull();
+    }
+  }
+
+  @Test
+  void outOfRangeEpochTimestampIsAPerEventError() throws Exception {
+    String body = """
+        {"timestamp": 1e30, "request": {"method": "GET", "host": "h", "path": "/a"}}
+        {"timestamp": 99999999999999999, "request": {"method": "GET", "host": "h", "path": "/b"}}
+        {"timestamp": 1772107200, "request": {"method": "GET", "host": "h", "path": "/c"}}
+        """;
+
+    try (NdjsonEventReader reader = reader(body)) {
+      assertThat(reader.next().errors()).containsExactly("timestamp: out of range");
+      assertThat(reader.next().errors()).containsExactly("timestamp: out of range");
+      assertThat(reader.next().event().timestamp()).isEqualTo(Instant.ofEpochSecond(1772107200L));
+      assertThat(reader.next()).isNull();
+    }
+  }
+
+  @Test
+  void syntaxErrorSurfacesAsException() throws Exception {
+    try (NdjsonEventReader reader = reader("{\"timestamp\": ")) {
+      assertThatThrownBy(reader::next).isInstanceOf(JsonProcessingException.class);
+    }
+  }
+
+  private NdjsonEventReader reader(String body) throws Exception {
+    return new NdjsonEventReader(jsonFactory.createParser(body), "tenant-1");
+  }
+}
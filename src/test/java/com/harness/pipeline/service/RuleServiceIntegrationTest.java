@@ -8,21 +8,28 @@ import com.harness.pipeline.model.ConditionDto;
 import com.harness.pipeline.model.ConditionGroupDto;
 import com.harness.pipeline.model.NotificationConfigDto;
 import com.harness.pipeline.model.RuleDto;
+import com.harness.pipeline.ruleengine.cache.RuleSnapshot;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest
+@RecordApplicationEvents
 class RuleServiceIntegrationTest {
 
   @Autowired
   private RuleService ruleService;
 
+  @Autowired
+  private ApplicationEvents applicationEvents;
+
   @Test
   void createAndListRulesByTenantTypeAndEnabled() {
     String tenantA = "tenant-a";
@@ -154,6 +161,48 @@ class RuleServiceIntegrationTest {
     assertThat(afterDelete).isEmpty();
   }
 
+  @Test
+  void realtimeSnapshotReflectsRuleChanges() {
+    String tenantId = "tenant-snapshot";
+
+    assertThat(ruleService.getRealtimeSnapshot(tenantId).rules()).isEmpty();
+
+    RuleDto created = ruleService.createRule(
+        tenantId,
+        newRuleRequest(
+            "Snapshot rule",
+            RuleType.REALTIME,
+            true,
+            ConditionGroupOperator.AND
+        )
+    );
+    ruleService.createRule(
+        tenantId,
+        newRuleRequest(
+            "Snapshot batch rule",
+            RuleType.BATCH,
+            true,
+            ConditionGroupOperator.AND
+        )
+    );
+
+    RuleSnapshot afterCreate = ruleService.getRealtimeSnapshot(tenantId);
+    assertThat(afterCreate.rules())
+        .singleElement()
+        .extracting(compiled -> compiled.rule().id())
+        .isEqualTo(created.id());
+    assertThat(ruleService.getRealtimeSnapshot(tenantId)).isSameAs(afterCreate);
+
+    ruleService.setRuleEnabled(tenantId, created.id(), false);
+    assertThat(ruleService.getRealtimeSnapshot(tenantId).rules()).isEmpty();
+
+    ruleService.setRuleEnabled(tenantId, created.id(), true);
+    assertThat(ruleService.getRealtimeSnapshot(tenantId).rules()).hasSize(1);
+
+    ruleService.deleteRule(tenantId, created.id());
+    assertThat(ruleService.getRealtimeSnapshot(tenantId).rules()).isEmpty();
+  }
+
   @Test
   void operationsWithWrongTenantIdReturnEmptyOrFalse() {
     String tenantId = "tenant-one";
@@ -185,6 +234,37 @@ class RuleServiceIntegrationTest {
     assertThat(wrongTenantDelete).isFalse();
   }
 
+  @Test
+  void ruleChangesArePublishedAfterCommit() {
+    String tenantId = "tenant-events";
+    RuleDto created = ruleService.createRule(
+        tenantId,
+        newRuleRequest(
+            "Evented batch rule",
+            RuleType.BATCH,
+            true,
+            ConditionGroupOperator.AND
+        )
+    );
+    RuleDto updated = ruleService.updateRule(
+        tenantId,
+        created.id(),
+        newRuleRequest(
+            "Evented batch rule v2",
+            RuleType.BATCH,
+            true,
+            ConditionGroupOperator.OR
+        )
+    ).orElseThrow();
+    ruleService.deleteRule(tenantId, created.id());
+
+    assertThat(applicationEvents.stream(RuleChangedEvent.class))
+        .containsExactly(
+            new RuleChangedEvent(tenantId, created.id(), created),
+            new RuleChangedEvent(tenantId, created.id(), updated),
+            new RuleChangedEvent(tenantId, created.id(), null));
+  }
+
   private RuleDto newRuleRequest(
       String name,
       RuleType type,